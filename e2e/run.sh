@@ -415,6 +415,7 @@ if [[ ${SKIP_BUILD} -eq 0 ]]; then
     log "using the jar built upstream ($(basename "${PROVIDED_JAR}"))"
     cp "${PROVIDED_JAR}" "${HERE}/yasss.jar"
     echo "  sha256 $(sha256sum "${HERE}/yasss.jar" | awk '{print $1}')"
+    classlist="${PROVIDED_JAR%.jar}.classlist"
   else
     log "building the shadow jar (this also runs the Vite build)"
     # The frontend is served from the jar's classpath, so this is what guarantees
@@ -424,6 +425,19 @@ if [[ ${SKIP_BUILD} -eq 0 ]]; then
     jar="$(ls -1 "${ROOT}"/build/libs/*.jar 2>/dev/null | head -1)"
     [[ -n "${jar}" ]] || die "no jar produced in build/libs"
     cp "${jar}" "${HERE}/yasss.jar"
+    classlist="${ROOT}/build/libs/yasss.classlist"
+  fi
+
+  # The Containerfile dumps its CDS archive from this. Recording one needs a
+  # booted node and a database, which this stage has neither of yet, so the
+  # suite takes whatever `gradle cdsClassList` left beside the jar -- and an
+  # empty list, which the image handles, when it left nothing.
+  if [[ -s "${classlist}" ]]; then
+    cp "${classlist}" "${HERE}/yasss.classlist"
+    echo "  using the recorded class list ($(grep -c . "${HERE}/yasss.classlist") classes)"
+  else
+    : > "${HERE}/yasss.classlist"
+    echo "  no class list recorded; the image gets the JDK's default archive"
   fi
 
   # The shadow jar merges META-INF/services rather than letting one file win.
@@ -529,8 +543,9 @@ pm run -d "${NET_ATTACH[@]}" --name "${MAIL_CTR}" "${PLATFORM_ARGS[@]}" \
   docker.io/axllent/mailpit:latest >/dev/null
 
 log "starting the application"
-# The schema is applied by the app itself at boot -- Database.setup runs every
-# script in db/ on every start -- so a successful health check also means the
+# The schema is applied by the app itself at boot -- SchemaMigrator runs every
+# script in db/ the schema_migration ledger has not recorded, which on this
+# fresh server is all of them -- so a successful health check also means the
 # migrations, including the new IPv6 one, applied cleanly against a real server.
 # TZ is deliberately *not* UTC. Event times live in zone-less DATETIME columns,
 # and the JDBC driver renders instants into them using the JVM's default zone --
@@ -573,7 +588,7 @@ log "verifying the schema actually applied"
 tables="$(pm exec "${DB_CTR}" mariadb -u"${DB_USER}" -p"${DB_PW}" "${DB_NAME}" \
   -N -B -e "SHOW TABLES;" 2>/dev/null | tr '\n' ' ')"
 echo "  tables: ${tables}"
-for t in yasss_user yasss_event yasss_activity yasss_event_window yasss_slot yasss_volunteer yasss_auth_nonce; do
+for t in yasss_user yasss_event yasss_activity yasss_event_window yasss_slot yasss_volunteer yasss_auth_nonce yasss_lease; do
   [[ "${tables}" == *"${t}"* ]] || die "expected table ${t} is missing"
 done
 
@@ -608,24 +623,41 @@ rowfmt="$(pm exec "${DB_CTR}" mariadb -u"${DB_USER}" -p"${DB_PW}" "${DB_NAME}" \
   || die "reminder_suppression is ${rowfmt}; a 255-char utf8mb4 primary key needs DYNAMIC"
 echo "  reminder_suppression row format is ${rowfmt}"
 
+# Every script shipped should now be in the ledger, once. Counted against the
+# image's own db/ directory rather than a number written here, so that adding a
+# migration does not mean editing this file.
+shipped="$(ls "${ROOT}/src/main/resources/db/"*.sql | wc -l | tr -d ' ')"
+recorded="$(pm exec "${DB_CTR}" mariadb -u"${DB_USER}" -p"${DB_PW}" "${DB_NAME}" \
+  -N -B -e "SELECT COUNT(*) FROM yasss_schema_migration;" 2>/dev/null)"
+[[ "${recorded}" == "${shipped}" ]] \
+  || die "schema_migration records ${recorded} scripts; ${shipped} are shipped"
+echo "  schema_migration records all ${recorded} scripts"
+
 # Captured here and compared after the restart below. CONVERT TO CHARACTER SET
-# rebuilds a table whether or not there is anything to convert, and setup replays
-# every script on every boot -- so an unguarded 017 would rebuild all eight
-# tables on every start. A rebuild bumps CREATE_TIME; nothing else does.
+# rebuilds a table whether or not there is anything to convert, so 017 is
+# guarded -- and has to stay guarded, because a database from before the
+# ledger replays every script once. A rebuild bumps CREATE_TIME; nothing else
+# does.
 created_before="$(pm exec "${DB_CTR}" mariadb -u"${DB_USER}" -p"${DB_PW}" "${DB_NAME}" \
   -N -B -e "SELECT CREATE_TIME FROM information_schema.TABLES
             WHERE TABLE_SCHEMA='${DB_NAME}' AND TABLE_NAME='yasss_volunteer';" 2>/dev/null)"
 
-log "restarting the app to prove the migrations are re-runnable"
-# Database.setup tracks nothing and replays every script on every boot, so a
-# second start is the only thing that proves the migrations are idempotent.
+log "restarting the app to prove a current schema is left alone"
+# The second boot reads the ledger, finds nothing pending, and runs no DDL.
 pm restart "${APP_CTR}" >/dev/null
 if ! drive "${DRIVER_IMAGE}" /repo/e2e node lib/await-http.mjs "${API}/v1" 120 '"status":"ok"'; then
   pm logs "${APP_CTR}" 2>&1 | tail -40 >&2
-  die "app did not survive a restart -- a migration is not idempotent"
+  die "app did not survive a restart"
 fi
 echo "  survived a restart"
 
+# A restarted container keeps its log, so both boots are in it. The first
+# applied every script; anything past that was applied again by the second.
+applied="$(pm logs "${APP_CTR}" 2>&1 | grep -c "applied migration" || true)"
+[[ "${applied}" -eq "${shipped}" ]] \
+  || die "${applied} migrations applied across two boots, expected ${shipped}; the ledger is not being read"
+echo "  the second boot applied nothing"
+
 created_after="$(pm exec "${DB_CTR}" mariadb -u"${DB_USER}" -p"${DB_PW}" "${DB_NAME}" \
   -N -B -e "SELECT CREATE_TIME FROM information_schema.TABLES
             WHERE TABLE_SCHEMA='${DB_NAME}' AND TABLE_NAME='yasss_volunteer';" 2>/dev/null)"
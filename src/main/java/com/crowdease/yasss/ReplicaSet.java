@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.axonibyte.lib.db.Database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The read replicas named by {@code db.replicas}, and the rule for when a query
+ * may use one.
+ *
+ * <p>Routing is opt-in and scoped to a thread. {@link YasssCore#getDB()} still
+ * answers the primary everywhere, except inside a {@link Scope} opened by code
+ * that knows every query it is about to run is a read. That is deliberately
+ * narrower than "every GET": several GETs write -- confirming a reminder
+ * subscription is a GET because it arrives from a link in an email, and
+ * retrieving an unpublished event may fulfil a Stripe checkout -- and a write
+ * routed to a replica either fails outright or, worse, succeeds on a replica
+ * that is not read-only and is then silently overwritten by replication.
+ *
+ * <p>A replica is evicted the first time its probe fails and readmitted the
+ * first time it passes. The probe is {@link YasssCore#within}, the same bounded
+ * check the readiness endpoint uses, for the same reason: a replica behind a
+ * dead socket would otherwise hold a request for as long as the pool's own
+ * timeout, which is tens of seconds. With no healthy replica at all, reads fall
+ * back to the primary rather than failing -- a replica is capacity, not a
+ * dependency.
+ *
+ * <p>Replicas are never migrated. {@link SchemaMigrator} runs against the
+ * primary only, and replication carries the schema across like any other
+ * statement -- the ledger included.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class ReplicaSet implements Runnable {
+
+  /**
+   * The cookie that marks a client as having written recently.
+   *
+   * <p>A cookie rather than server-side state, so that it survives the
+   * client's next request landing on a different node behind the load
+   * balancer. It carries nothing but a timestamp: forging one only ever sends
+   * the forger's own reads to the primary, which is where they would have gone
+   * without replicas configured at all.
+   */
+  public static final String WRITE_MARKER = "yasss-wrote";
+
+  private static final Logger logger = LoggerFactory.getLogger(ReplicaSet.class);
+
+  /** Whether the current thread has opened a read-only scope. */
+  private static final ThreadLocal<Boolean> reading = ThreadLocal.withInitial(() -> false);
+
+  private final Replica[] replicas;
+  private final long probeInterval;
+  private final long probeTimeout;
+  private final long pinWindow;
+  private final AtomicInteger cursor = new AtomicInteger();
+  private final Thread thread = new Thread(this, "replica-probe");
+
+  /**
+   * Instantiates the set.
+   *
+   * @param replicas the replica drivers, each paired with the location it was
+   *        built from so that the log can name it
+   * @param probeInterval the number of milliseconds between health probes
+   * @param probeTimeout the number of milliseconds a single probe may take
+   *        before the replica is considered unhealthy
+   * @param pinWindow the number of milliseconds after a write during which
+   *        that client's reads stay on the primary
+   */
+  public ReplicaSet(List<Replica> replicas, long probeInterval, long probeTimeout, long pinWindow) {
+    if(replicas.isEmpty())
+      throw new IllegalArgumentException("a replica set needs at least one replica");
+    if(0 >= probeInterval || 0 >= probeTimeout || 0 > pinWindow)
+      throw new IllegalArgumentException("replica timing must be positive");
+    this.replicas = replicas.toArray(new Replica[0]);
+    this.probeInterval = probeInterval;
+    this.probeTimeout = probeTimeout;
+    this.pinWindow = pinWindow;
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Chooses the driver for the current thread's next connection.
+   *
+   * <p>Round-robin over the healthy replicas, and the primary if the thread is
+   * not in a read scope or if none is healthy.
+   *
+   * @param primary the primary driver
+   * @return the {@link Database} to connect through
+   */
+  Database route(Database primary) {
+    if(!reading.get()) return primary;
+    for(int i = 0; i < replicas.length; i++) {
+      Replica candidate = replicas[Math.floorMod(cursor.getAndIncrement(), replicas.length)];
+      if(candidate.healthy) return candidate.database;
+    }
+    return primary;
+  }
+
+  /**
+   * Opens a read-only scope on the current thread.
+   *
+   * <p>Must enclose reads only; see the class comment. Nesting is safe -- a
+   * scope restores whatever it found when it closes -- so a helper may open
+   * one without knowing whether its caller already has.
+   *
+   * @return the {@link Scope}, to be closed in a {@code finally} or a
+   *         try-with-resources
+   */
+  public static Scope read() {
+    final boolean previous = reading.get();
+    reading.set(true);
+    return () -> reading.set(previous);
+  }
+
+  /**
+   * Whether a client should be kept on the primary.
+   *
+   * <p>Replication is asynchronous, so a client that has just written and
+   * immediately reads back -- which is what every form in the frontend does --
+   * would otherwise see its own change missing for as long as the replica is
+   * behind. A marker from the future is honored only up to the window as well,
+   * so that a client clock does not enter into it and a forged value cannot pin
+   * anyone for longer than a genuine one.
+   *
+   * @param marker the value of {@link #WRITE_MARKER}, or {@code null}
+   * @param now the current epoch millisecond
+   * @param window how long a write pins for, in milliseconds
+   * @return {@code true} if this client wrote within the window
+   */
+  static boolean pinned(String marker, long now, long window) {
+    if(null == marker || marker.isBlank()) return false;
+    final long wroteAt;
+    try {
+      wroteAt = Long.parseLong(marker.strip());
+    } catch(NumberFormatException e) {
+      return false;
+    }
+    return Math.abs(now - wroteAt) < window;
+  }
+
+  /**
+   * Whether a client should be kept on the primary, under this set's window.
+   *
+   * @param marker the value of {@link #WRITE_MARKER}, or {@code null}
+   * @return {@code true} if this client wrote recently
+   */
+  public boolean pinned(String marker) {
+    return pinned(marker, System.currentTimeMillis(), pinWindow);
+  }
+
+  /**
+   * Retrieves the read-your-writes window.
+   *
+   * @return the number of milliseconds a write pins a client to the primary
+   */
+  public long getPinWindow() {
+    return pinWindow;
+  }
+
+  /**
+   * Counts the replicas currently accepting reads.
+   *
+   * @return the number of healthy replicas
+   */
+  public int countHealthy() {
+    int count = 0;
+    for(var replica : replicas)
+      if(replica.healthy) count++;
+    return count;
+  }
+
+  /**
+   * Probes every replica once, evicting or readmitting as needed.
+   *
+   * <p>Only transitions are logged. A replica that is down stays down for as
+   * long as it stays down, and a warning every few seconds for the duration
+   * would bury everything else in the log.
+   */
+  void probe() {
+    for(var replica : replicas) {
+      boolean healthy = YasssCore.within(probeTimeout, () -> {
+        try(Connection con = replica.database.connect();
+            PreparedStatement stmt = con.prepareStatement("SELECT 1")) {
+          stmt.executeQuery().close();
+          return true;
+        }
+      });
+      if(healthy != replica.healthy) {
+        if(healthy) logger.info("replica {} is answering again; readmitted", replica.location);
+        else logger.warn("replica {} failed its health probe; evicted", replica.location);
+        replica.healthy = healthy;
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void run() {
+    try {
+      while(!thread.isInterrupted()) {
+        probe();
+        Thread.sleep(probeInterval);
+      }
+    } catch(InterruptedException e) { }
+  }
+
+  /**
+   * Runs the first probe in the foreground and starts the probe thread.
+   *
+   * <p>The first probe is synchronous so that a replica which is down at boot
+   * is never routed to, even once.
+   */
+  public void start() {
+    probe();
+    logger.info("{} of {} read replica(s) healthy", countHealthy(), replicas.length);
+    thread.start();
+  }
+
+  /**
+   * Stops the probe thread.
+   */
+  public void stop() {
+    thread.interrupt();
+  }
+
+  /**
+   * Waits for the probe thread to exit.
+   *
+   * @param millis the most time to wait, in milliseconds
+   */
+  public void join(long millis) {
+    try {
+      thread.join(millis);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Closes every replica's pool.
+   */
+  public void close() {
+    for(var replica : replicas)
+      replica.database.close();
+  }
+
+  /**
+   * A read-only routing scope. Closing it cannot fail.
+   *
+   * @author Caleb L. Power <cpower@crowdease.com>
+   */
+  @FunctionalInterface public static interface Scope extends AutoCloseable {
+
+    /** A scope that routes nothing, for when no replicas are configured. */
+    public static final Scope NONE = () -> { };
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override public void close();
+  }
+
+  /**
+   * One replica and its last known health.
+   *
+   * @author Caleb L. Power <cpower@crowdease.com>
+   */
+  public static final class Replica {
+
+    private final String location;
+    private final Database database;
+
+    /** Optimistic until the first probe says otherwise; {@link #start()} runs it before any request. */
+    private volatile boolean healthy = true;
+
+    /**
+     * Instantiates the replica.
+     *
+     * @param location the location it was configured with, for the log
+     * @param database its driver
+     */
+    public Replica(String location, Database database) {
+      this.location = location;
+      this.database = database;
+    }
+  }
+}
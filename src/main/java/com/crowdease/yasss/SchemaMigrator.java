@@ -0,0 +1,510 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import com.axonibyte.lib.db.Database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the scripts in {@code db/} that the database has not seen yet.
+ *
+ * <p>{@code Database.setup} replays every script on every boot. That is why
+ * every script in {@code db/} is idempotent, and why the ones that cannot be
+ * idempotent in plain DDL -- 017's charset conversion, 018's foreign key --
+ * read {@code information_schema} and build their statement at run time. It is
+ * also why a conversion that is not idempotent at all, like shifting stored
+ * times between zones, could not be written. And it cost every boot thirty-odd
+ * DDL statements, each taking a metadata lock on a table that production is
+ * busy with, to change nothing.
+ *
+ * <p>Now each script applied is recorded in {@code schema_migration}, by name
+ * and by checksum, and a boot applies only the ones not recorded there. On a
+ * current schema that is one read of the ledger and no DDL at all. When
+ * something is pending, it is applied under a MariaDB advisory lock, so two
+ * nodes booting together do not both run it; the second waits, re-reads the
+ * ledger, and finds nothing left to do.
+ *
+ * <p>The checksum covers a script's statements, not its comments, so that
+ * correcting a header does not read as a changed migration. A recorded script
+ * whose statements have since changed is reported and <em>not</em> re-run: the
+ * database already has whatever the old version did, and the fix is a new
+ * script. A recorded script that is no longer shipped is ignored, which is
+ * what an older build rolling back past it will see.
+ *
+ * <p>A database from before the ledger has no {@code schema_migration} table,
+ * so its first boot applies every script once -- exactly what every boot did
+ * until then -- and records them. Nothing needs baselining by hand, but only
+ * because every script up to 027 was written to be replayed.
+ *
+ * <p>DDL commits as it goes in MariaDB, so a script that fails halfway is left
+ * half-applied and unrecorded, and the next boot runs all of it again. A
+ * script with several statements should therefore still survive being
+ * replayed from the top; a single statement that cannot be replayed is safe on
+ * its own.
+ *
+ * <p>Scripts are split and substituted the way {@code axb-lib-db} 0.5.1 does
+ * it -- several statements to a file, {@code --}, {@code #} and block
+ * comments, semicolons inside quotes left alone, and {@code ${database}} and
+ * {@code ${prefix}} replaced -- and each is run through one {@link Statement}
+ * on one connection, which 017 and 018 rely on for their session variables.
+ * See {@code docs/upstream-axb-lib-db.md}.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class SchemaMigrator {
+
+  /** The ledger's name, after the table prefix. */
+  public static final String LEDGER = "schema_migration";
+
+  /**
+   * How long a node waits for another to finish migrating, in seconds. Long,
+   * because the alternative is booting against a schema that is half done;
+   * 017 alone rebuilds eight tables on a database that has never had it.
+   */
+  static final int LOCK_TIMEOUT_SECONDS = 600;
+
+  /** The longest name MariaDB accepts for an advisory lock. */
+  private static final int MAX_LOCK_NAME = 64;
+
+  private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+  /**
+   * One script, as read from the classpath.
+   *
+   * @param name the file name, which is also its key in the ledger
+   * @param statements its statements, comments removed, not yet substituted
+   * @param checksum the SHA-256 of its statements
+   */
+  record Script(String name, List<String> statements, byte[] checksum) {
+
+    /**
+     * Determines whether the ledger's record of this script still matches it.
+     *
+     * @param recorded the checksum in the ledger
+     * @return {@code true} if the statements are unchanged
+     */
+    boolean matches(byte[] recorded) {
+      return MessageDigest.isEqual(checksum, recorded);
+    }
+  }
+
+  private final Database database;
+  private final List<Script> scripts;
+
+  /**
+   * Instantiates the migrator.
+   *
+   * @param database the primary
+   * @param anchor the class whose loader holds the scripts
+   * @param directory the resource directory holding them, relative to the
+   *        root of the classpath
+   * @throws IOException if the scripts cannot be listed or read
+   */
+  public SchemaMigrator(Database database, Class<?> anchor, String directory) throws IOException {
+    this.database = database;
+    this.scripts = load(anchor, directory);
+  }
+
+  /**
+   * Reads every {@code .sql} script in a resource directory, in name order.
+   *
+   * @param anchor the class whose loader holds the scripts
+   * @param directory the directory, relative to the root of the classpath
+   * @return the scripts
+   * @throws IOException if the directory does not exist or cannot be read
+   */
+  static List<Script> load(Class<?> anchor, String directory) throws IOException {
+    List<Script> scripts = new ArrayList<>();
+    for(var name : list(anchor, directory)) {
+      try(InputStream in = anchor.getResourceAsStream("/" + directory + "/" + name)) {
+        if(null == in) throw new IOException("could not read " + directory + "/" + name);
+        scripts.add(parse(name, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+      }
+    }
+    return Collections.unmodifiableList(scripts);
+  }
+
+  // The directory is listed rather than indexed, so that adding a migration
+  // stays a matter of adding a file. From a jar in production and from the
+  // build's resource directory in tests.
+  private static TreeSet<String> list(Class<?> anchor, String directory) throws IOException {
+    URL url = anchor.getResource("/" + directory);
+    if(null == url) throw new IOException("no resource directory " + directory);
+
+    TreeSet<String> names = new TreeSet<>();
+    switch(url.getProtocol()) {
+      case "jar": {
+        JarURLConnection con = (JarURLConnection)url.openConnection();
+        con.setUseCaches(false);
+        try(JarFile jar = con.getJarFile()) {
+          String prefix = directory + "/";
+          jar.stream()
+              .map(e -> e.getName())
+              .filter(n -> n.startsWith(prefix) && n.endsWith(".sql"))
+              .map(n -> n.substring(prefix.length()))
+              .filter(n -> -1 == n.indexOf('/'))
+              .forEach(names::add);
+        }
+        break;
+      }
+
+      case "file": {
+        Path path;
+        try {
+          path = Paths.get(url.toURI());
+        } catch(URISyntaxException e) {
+          throw new IOException("bad resource path " + url, e);
+        }
+        try(Stream<Path> files = Files.list(path)) {
+          files.map(p -> p.getFileName().toString())
+              .filter(n -> n.endsWith(".sql"))
+              .forEach(names::add);
+        }
+        break;
+      }
+
+      default:
+        throw new IOException("cannot list resources at " + url);
+    }
+    return names;
+  }
+
+  /**
+   * Parses one script.
+   *
+   * @param name the file name
+   * @param body the file's text
+   * @return the script
+   */
+  static Script parse(String name, String body) {
+    List<String> statements = split(body);
+    return new Script(name, statements, checksum(statements));
+  }
+
+  /**
+   * Splits a script into statements and drops its comments.
+   *
+   * <p>{@code --} starts a comment only when followed by whitespace, as it
+   * does in MariaDB, so {@code a--1} is still arithmetic. A block comment
+   * opened with {@code /*!} is executable in MariaDB and kept as written.
+   *
+   * @param body the script's text
+   * @return the statements, trimmed, with empty ones left out
+   */
+  static List<String> split(String body) {
+    List<String> statements = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    int len = body.length();
+    for(int i = 0; i < len; i++) {
+      char c = body.charAt(i);
+      char next = i + 1 < len ? body.charAt(i + 1) : '\0';
+
+      if('\'' == c || '"' == c || '`' == c) {
+        int end = i + 1;
+        while(end < len && c != body.charAt(end)) {
+          // Backslash escapes apply inside strings, not inside identifiers.
+          if('\\' == body.charAt(end) && '`' != c) end++;
+          end++;
+        }
+        sb.append(body, i, Math.min(end + 1, len));
+        i = end;
+
+      } else if('#' == c || '-' == c && '-' == next
+          && (i + 2 >= len || Character.isWhitespace(body.charAt(i + 2)))) {
+        while(i + 1 < len && '\n' != body.charAt(i + 1)) i++;
+        sb.append(' ');
+
+      } else if('/' == c && '*' == next && (i + 2 >= len || '!' != body.charAt(i + 2))) {
+        int end = body.indexOf("*/", i + 2);
+        i = -1 == end ? len : end + 1;
+        sb.append(' ');
+
+      } else if(';' == c) {
+        add(statements, sb);
+
+      } else sb.append(c);
+    }
+    add(statements, sb);
+    return Collections.unmodifiableList(statements);
+  }
+
+  private static void add(List<String> statements, StringBuilder sb) {
+    String statement = sb.toString().strip();
+    if(!statement.isEmpty()) statements.add(statement);
+    sb.setLength(0);
+  }
+
+  private static byte[] checksum(List<String> statements) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for(var statement : statements) {
+        digest.update(statement.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+      }
+      return digest.digest();
+    } catch(NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is missing from this JVM", e);
+    }
+  }
+
+  /**
+   * Works out which scripts the ledger has not recorded.
+   *
+   * @param scripts every script shipped, in order
+   * @param applied the ledger, as checksums by name
+   * @return the scripts to apply, in order
+   */
+  static List<Script> pending(List<Script> scripts, Map<String, byte[]> applied) {
+    List<Script> pending = new ArrayList<>();
+    for(var script : scripts)
+      if(!applied.containsKey(script.name())) pending.add(script);
+    return pending;
+  }
+
+  /**
+   * Works out which recorded scripts have changed since they were applied.
+   *
+   * @param scripts every script shipped, in order
+   * @param applied the ledger, as checksums by name
+   * @return the names of the scripts whose statements no longer match
+   */
+  static List<String> altered(List<Script> scripts, Map<String, byte[]> applied) {
+    List<String> altered = new ArrayList<>();
+    for(var script : scripts) {
+      byte[] recorded = applied.get(script.name());
+      if(null != recorded && !script.matches(recorded)) altered.add(script.name());
+    }
+    return altered;
+  }
+
+  /**
+   * Fills in a statement's placeholders.
+   *
+   * @param statement the statement as written
+   * @param schema the database's name
+   * @param prefix the table prefix
+   * @return the statement to run
+   */
+  static String substitute(String statement, String schema, String prefix) {
+    return statement.replace("${database}", schema).replace("${prefix}", prefix);
+  }
+
+  /**
+   * Names the advisory lock for one database and prefix.
+   *
+   * @param schema the database's name
+   * @param prefix the table prefix
+   * @return a name of at most {@value #MAX_LOCK_NAME} characters
+   */
+  static String lockName(String schema, String prefix) {
+    String name = schema + "." + prefix + LEDGER;
+    if(MAX_LOCK_NAME >= name.length()) return name;
+    // Too long to be a lock name; a digest still tells deployments apart.
+    try {
+      return LEDGER + "." + HexFormat.of().formatHex(
+          Arrays.copyOf(
+              MessageDigest.getInstance("SHA-256").digest(name.getBytes(StandardCharsets.UTF_8)),
+              16));
+    } catch(NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is missing from this JVM", e);
+    }
+  }
+
+  /**
+   * Applies whatever is pending, or with {@code dryRun} only reports it.
+   *
+   * @param dryRun {@code true} to log what would be applied and change
+   *        nothing, not even to create the ledger
+   * @return the names of the scripts applied, or that would have been
+   * @throws SQLException if the ledger cannot be read, the lock cannot be
+   *         taken in time, or a script fails
+   */
+  public List<String> migrate(boolean dryRun) throws SQLException {
+    Connection con = null;
+    try {
+      con = database.connect();
+      String schema = con.getCatalog();
+      String prefix = database.getPrefix();
+
+      // Read without the lock first: on a current schema, which is nearly
+      // every boot, there is then nothing to wait for.
+      Map<String, byte[]> applied = readLedger(con, schema, prefix);
+      for(var name : altered(scripts, applied))
+        logger.warn(
+            "migration {} has changed since it was applied; it will not be run again "
+                + "-- put the change in a new script",
+            name);
+
+      List<Script> pending = pending(scripts, applied);
+      if(pending.isEmpty()) {
+        logger.info("schema is current ({} migrations recorded)", applied.size());
+        return Collections.emptyList();
+      }
+
+      List<String> names = new ArrayList<>();
+      if(dryRun) {
+        for(var script : pending) {
+          logger.info("dry run: would apply {}", script.name());
+          for(var statement : script.statements())
+            logger.info("  {};", substitute(statement, schema, prefix));
+          names.add(script.name());
+        }
+        return names;
+      }
+
+      String lock = lockName(schema, prefix);
+      acquire(con, lock);
+      try {
+        createLedger(con, schema, prefix);
+        // Again, under the lock: another node may have applied some or all of
+        // these while this one waited.
+        applied = readLedger(con, schema, prefix);
+        for(var script : pending(scripts, applied)) {
+          long start = System.nanoTime();
+          apply(con, script, schema, prefix);
+          logger.info(
+              "applied migration {} ({} statements, {} ms)",
+              script.name(),
+              script.statements().size(),
+              (System.nanoTime() - start) / 1_000_000L);
+          names.add(script.name());
+        }
+      } finally {
+        release(con, lock);
+      }
+      return names;
+
+    } finally {
+      database.close(con, null, null);
+    }
+  }
+
+  private static Map<String, byte[]> readLedger(Connection con, String schema, String prefix)
+      throws SQLException {
+    Map<String, byte[]> applied = new HashMap<>();
+
+    // Asked of information_schema rather than found out by failing, so that a
+    // database from before the ledger is not an error in the log.
+    try(PreparedStatement stmt = con.prepareStatement(
+        "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?")) {
+      stmt.setString(1, schema);
+      stmt.setString(2, prefix + LEDGER);
+      try(ResultSet res = stmt.executeQuery()) {
+        if(!res.next()) return applied;
+      }
+    }
+
+    try(PreparedStatement stmt = con.prepareStatement(
+            String.format("SELECT name, checksum FROM %1$s.%2$s%3$s", schema, prefix, LEDGER));
+        ResultSet res = stmt.executeQuery()) {
+      while(res.next())
+        applied.put(new String(res.getBytes("name"), StandardCharsets.UTF_8), res.getBytes("checksum"));
+    }
+    return applied;
+  }
+
+  // VARBINARY for the reason lease (027) gives: a character column created
+  // after 017 on a latin1 server comes out latin1, and e2e/run.sh fails it.
+  private static void createLedger(Connection con, String schema, String prefix)
+      throws SQLException {
+    try(Statement stmt = con.createStatement()) {
+      stmt.execute(
+          String.format(
+              "CREATE TABLE IF NOT EXISTS %1$s.%2$s%3$s ("
+                  + "name VARBINARY(255) NOT NULL, "
+                  + "checksum BINARY(32) NOT NULL, "
+                  + "applied_at BIGINT NOT NULL, "
+                  + "PRIMARY KEY (name)"
+                  + ")Engine=InnoDB",
+              schema, prefix, LEDGER));
+    }
+  }
+
+  private static void apply(Connection con, Script script, String schema, String prefix)
+      throws SQLException {
+    try(Statement stmt = con.createStatement()) {
+      for(var statement : script.statements())
+        stmt.execute(substitute(statement, schema, prefix));
+    } catch(SQLException e) {
+      throw new SQLException(
+          "migration " + script.name() + " failed: " + e.getMessage(), e.getSQLState(), e);
+    }
+
+    try(PreparedStatement stmt = con.prepareStatement(
+        String.format(
+            "INSERT INTO %1$s.%2$s%3$s (name, checksum, applied_at) VALUES (?, ?, ?)",
+            schema, prefix, LEDGER))) {
+      stmt.setBytes(1, script.name().getBytes(StandardCharsets.UTF_8));
+      stmt.setBytes(2, script.checksum());
+      stmt.setLong(3, System.currentTimeMillis());
+      stmt.executeUpdate();
+    }
+  }
+
+  private static void acquire(Connection con, String lock) throws SQLException {
+    try(PreparedStatement stmt = con.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+      stmt.setString(1, lock);
+      stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+      try(ResultSet res = stmt.executeQuery()) {
+        // 0 on timeout, NULL on an error such as being killed.
+        if(!res.next() || 1 != res.getInt(1))
+          throw new SQLException(
+              "another node held the migration lock for over " + LOCK_TIMEOUT_SECONDS + " seconds");
+      }
+    }
+  }
+
+  // A lock belongs to the connection, so one that cannot be released here is
+  // released when the pool retires the connection; not worth failing boot over.
+  private static void release(Connection con, String lock) {
+    try(PreparedStatement stmt = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+      stmt.setString(1, lock);
+      stmt.executeQuery().close();
+    } catch(SQLException e) {
+      logger.warn("could not release the migration lock: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Retrieves the scripts shipped.
+   *
+   * @return every script, in the order they apply
+   */
+  List<Script> scripts() {
+    return scripts;
+  }
+}
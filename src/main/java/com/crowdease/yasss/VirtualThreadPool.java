@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * The embedded server's threads, with requests handled on virtual threads.
+ *
+ * <p>Every endpoint blocks -- on the database, and some on Stripe, the CAPTCHA
+ * provider or SMTP -- and the server's fixed pool gave each blocked request a
+ * whole platform thread. One slow dependency could hold all of them, and then
+ * {@code GET /v1} and the static files waited behind it. A virtual thread that
+ * blocks gives its carrier back, so there is no pool to exhaust.
+ *
+ * <p>Only requests go to virtual threads. Jetty's acceptors and selectors are
+ * started before the server is, loop for its whole life, and sit in
+ * {@code select()} -- so everything submitted before the server reports
+ * started runs on a small pool of platform threads as before, and everything
+ * after on a virtual thread of its own. Reserved threads are turned off, which
+ * keeps Jetty from handing the selector's own loop to a request thread.
+ *
+ * <p>Compiled for Java 17, so virtual threads are looked up rather than
+ * called; {@link #factory(String)} is {@code null} on an older runtime.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class VirtualThreadPool extends QueuedThreadPool {
+
+  /** Platform threads for Jetty's own loops; a few per core is plenty. */
+  static final int PLATFORM_THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+  private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPool.class);
+
+  private final ThreadFactory virtuals;
+  private final AtomicInteger active = new AtomicInteger();
+  private volatile boolean handedOff = false;
+
+  /**
+   * Instantiates the pool.
+   *
+   * @param virtuals makes the virtual threads; see {@link #factory(String)}
+   * @param platformThreads how many platform threads Jetty's loops may use
+   */
+  public VirtualThreadPool(ThreadFactory virtuals, int platformThreads) {
+    super(platformThreads, Math.min(platformThreads, 4), 60_000);
+    this.virtuals = virtuals;
+    setName("jetty-platform");
+    setReservedThreads(0);
+  }
+
+  /**
+   * Finds the runtime's virtual threads.
+   *
+   * @param prefix the name each thread is given, followed by a number
+   * @return a {@link ThreadFactory} for virtual threads, or {@code null} if
+   *         this runtime predates them
+   */
+  public static ThreadFactory factory(String prefix) {
+    try {
+      // Looked up on the public interface, not the builder's class, which is
+      // internal to java.base and would refuse the call.
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      Object ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+      ofVirtual = builder.getMethod("name", String.class, long.class).invoke(ofVirtual, prefix, 0L);
+      Method factory = builder.getMethod("factory");
+      return (ThreadFactory)factory.invoke(ofVirtual);
+    } catch(ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Makes Spark build its server on this pool. Must be called before the
+   * server is ignited.
+   *
+   * @return the {@link VirtualThreadPool}, or {@code null} if this runtime has
+   *         no virtual threads, in which case nothing was changed
+   */
+  public static VirtualThreadPool install() {
+    ThreadFactory virtuals = factory("http-");
+    if(null == virtuals) return null;
+
+    VirtualThreadPool pool = new VirtualThreadPool(virtuals, PLATFORM_THREADS);
+    // Spark only adds its default factory if none is registered yet, so this
+    // one is used in its place, thread pool and all.
+    EmbeddedServers.add(
+        EmbeddedServers.Identifiers.JETTY,
+        new EmbeddedJettyFactory(
+            new JettyServerFactory() {
+              @Override public Server create(int maxThreads, int minThreads, int timeout) {
+                return create(pool);
+              }
+              @Override public Server create(ThreadPool threadPool) {
+                Server server = new Server(threadPool);
+                server.addLifeCycleListener(
+                    new AbstractLifeCycle.AbstractLifeCycleListener() {
+                      @Override public void lifeCycleStarted(LifeCycle event) {
+                        pool.handOff();
+                      }
+                    });
+                return server;
+              }
+            })
+            .withThreadPool(pool));
+    return pool;
+  }
+
+  /**
+   * Sends everything submitted from now on to virtual threads. Called once the
+   * server has started, by which point Jetty's own loops are running.
+   */
+  void handOff() {
+    handedOff = true;
+    logger.info("handling requests on virtual threads");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void execute(Runnable job) {
+    if(!handedOff) {
+      super.execute(job);
+      return;
+    }
+    if(!isRunning())
+      throw new RejectedExecutionException("server is stopping");
+
+    virtuals.newThread(() -> {
+      active.incrementAndGet();
+      try {
+        job.run();
+      } catch(Throwable t) {
+        // What QueuedThreadPool does for its own threads; a virtual thread's
+        // default would print to stderr and nothing else.
+        logger.warn("job failed: {}", t.getMessage(), t);
+      } finally {
+        active.decrementAndGet();
+      }
+    }).start();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Never, once requests go to virtual threads. Jetty reads "low" as a
+   * reason to run a request on the selector's own thread, which is the one
+   * thing that must not block.
+   */
+  @Override public boolean isLowOnThreads() {
+    return !handedOff && super.isLowOnThreads();
+  }
+
+  /**
+   * Counts the requests running on virtual threads.
+   *
+   * @return the number of virtual threads alive
+   */
+  public int countVirtual() {
+    return active.get();
+  }
+}
@@ -9,11 +9,15 @@ package com.crowdease.yasss;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -37,9 +41,14 @@ import com.crowdease.yasss.api.AddActivityEndpoint;
 import com.crowdease.yasss.api.AddDetailEndpoint;
 import com.crowdease.yasss.api.AddVolunteerEndpoint;
 import com.crowdease.yasss.api.AddWindowEndpoint;
+import com.crowdease.yasss.api.ConcurrencyLimit;
 import com.crowdease.yasss.api.CreateEventEndpoint;
 import com.crowdease.yasss.api.CreateUserEndpoint;
+import com.crowdease.yasss.api.EventFeedEndpoint;
 import com.crowdease.yasss.api.EventReportEndpoint;
+import com.crowdease.yasss.api.ExportVolunteersEndpoint;
+import com.crowdease.yasss.api.ImportVolunteersEndpoint;
+import com.crowdease.yasss.api.ListDenialsEndpoint;
 import com.crowdease.yasss.api.ListEventsEndpoint;
 import com.crowdease.yasss.api.ListUsersEndpoint;
 import com.crowdease.yasss.api.ModifyActivityEndpoint;
@@ -49,6 +58,7 @@ import com.crowdease.yasss.api.ModifyUserEndpoint;
 import com.crowdease.yasss.api.ModifyVolunteerEndpoint;
 import com.crowdease.yasss.api.ModifyWindowEndpoint;
 import com.crowdease.yasss.api.MagicLinkSessionEndpoint;
+import com.crowdease.yasss.api.MetricsEndpoint;
 import com.crowdease.yasss.api.PasskeyAuthEndpoint;
 import com.crowdease.yasss.api.PasskeyListEndpoint;
 import com.crowdease.yasss.api.PasskeyRegistrationEndpoint;
@@ -70,11 +80,22 @@ import com.crowdease.yasss.api.UnsetRSVPEndpoint;
 import com.crowdease.yasss.api.UnsetSlotEndpoint;
 import com.crowdease.yasss.api.VerifyUserEndpoint;
 import com.crowdease.yasss.config.ParamEnum;
+import com.crowdease.yasss.daemon.EventFeed;
+import com.crowdease.yasss.daemon.LeaseCoordinator;
 import com.crowdease.yasss.daemon.StripeDriver;
+import com.crowdease.yasss.daemon.SweepRunner;
 import com.crowdease.yasss.daemon.ReminderEngine;
 import com.crowdease.yasss.daemon.TicketEngine;
+import com.crowdease.yasss.log.AsyncLog;
+import com.crowdease.yasss.metrics.MeteredDatabase;
+import com.crowdease.yasss.metrics.Metrics;
+import com.crowdease.yasss.metrics.QueryBudget;
 import com.crowdease.yasss.model.CAPTCHAValidator;
+import com.crowdease.yasss.model.CapacityLedger;
 import com.crowdease.yasss.model.CredentialMigrator;
+import com.crowdease.yasss.model.DetailValidator;
+import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.EventDigest;
 import com.crowdease.yasss.model.Mail;
 import com.crowdease.yasss.model.RelyingPartyConfig;
 import com.crowdease.yasss.model.TicketSigner;
@@ -92,12 +113,22 @@ public class YasssCore {
   private static final Logger logger = LoggerFactory.getLogger(YasssCore.class);
   private static final long launchTime = System.currentTimeMillis();
 
+  /**
+   * The connection limit used with virtual threads when {@code db.maxConcurrency}
+   * does not set one.
+   */
+  static final int DEFAULT_VIRTUAL_DB_CONCURRENCY = 64;
+
   private static APIDriver apiDriver = null;
   private static CAPTCHAValidator captchaValidator = null;
   private static Config config = null;
   private static Database database = null;
+  private static ReplicaSet replicas = null;
   private static TicketEngine ticketEngine = null;
+  private static LeaseCoordinator coordinator = null;
   private static ReminderEngine reminderEngine = null;
+  private static SweepRunner sweepRunner = null;
+  private static EventFeed eventFeed = null;
   private static String apiHost = "";
   private static StripeDriver stripe = null;
   private static boolean authRequired = true;
@@ -220,15 +251,83 @@ public class YasssCore {
       }
 
       debugEnabled = config.getBoolean(ParamEnum.DEBUG_ENABLED);
+      Metrics.REGISTRY.counter(
+          "yasss_log_dropped_total",
+          "Log lines dropped because the writer could not keep up.",
+          AsyncLog::countDropped);
+      Metrics.REGISTRY.gauge(
+          "yasss_log_backlog",
+          "Log lines waiting to be written.",
+          AsyncLog::countBacklog);
       passwordMinLength = config.getInteger(ParamEnum.AUTH_PASSWORD_MIN_LENGTH);
 
-      database = new Database(
+      // Decided before the database exists, because it decides the database's
+      // limit: with virtual threads there is no pool of request threads left
+      // to bound how many requests ask for a connection at once.
+      boolean virtualThreads = config.getBoolean(ParamEnum.API_VIRTUAL_THREADS);
+      int dbMaxConcurrency = config.getInteger(ParamEnum.DB_MAX_CONCURRENCY);
+      if(virtualThreads && 0 == dbMaxConcurrency)
+        dbMaxConcurrency = DEFAULT_VIRTUAL_DB_CONCURRENCY;
+      long dbAcquireTimeout = config.getInteger(ParamEnum.DB_ACQUIRE_TIMEOUT) * 1000L;
+      if(0 > dbMaxConcurrency || 0 < dbMaxConcurrency && 1 > dbAcquireTimeout)
+        throw new MisconfigurationException(
+            "db.maxConcurrency cannot be negative, and db.acquireTimeout must be positive");
+
+      database = new MeteredDatabase(
           config.getString(ParamEnum.DB_LOCATION),
           config.getString(ParamEnum.DB_PREFIX),
           config.getString(ParamEnum.DB_USERNAME),
           config.getString(ParamEnum.DB_PASSWORD),
-          config.getBoolean(ParamEnum.DB_SECURE));
-      database.setup(YasssCore.class, "db");
+          config.getBoolean(ParamEnum.DB_SECURE),
+          dbMaxConcurrency,
+          dbAcquireTimeout);
+
+      // Only what the ledger has not recorded; see SchemaMigrator. A dry run
+      // stops here, because nothing after it can trust a schema it was told
+      // not to bring up to date -- and a dry run that ends is a job done, not a
+      // failed start, so it exits 0.
+      SchemaMigrator migrator = new SchemaMigrator(database, YasssCore.class, "db");
+      if(config.getBoolean(ParamEnum.DB_MIGRATION_DRY_RUN)) {
+        List<String> pending = migrator.migrate(true);
+        logger.info("dry run: {} migration(s) pending; exiting", pending.size());
+        database.close();
+        System.exit(0);
+      }
+      migrator.migrate(false);
+
+      // After migrating, and never instead of it: a replica is not migrated, and
+      // this is the first point at which the primary's schema is known to be
+      // current.
+      String replicaLocations = config.getString(ParamEnum.DB_REPLICAS);
+      if(null != replicaLocations && !replicaLocations.isBlank()) {
+        String replicaUser = config.getString(ParamEnum.DB_REPLICA_USERNAME);
+        String replicaPass = config.getString(ParamEnum.DB_REPLICA_PASSWORD);
+        List<ReplicaSet.Replica> replicaList = new ArrayList<>();
+        for(var location : replicaLocations.split(",")) {
+          if(location.isBlank()) continue;
+          replicaList.add(
+              new ReplicaSet.Replica(
+                  location.strip(),
+                  new MeteredDatabase(
+                      location.strip(),
+                      config.getString(ParamEnum.DB_PREFIX),
+                      null == replicaUser ? config.getString(ParamEnum.DB_USERNAME) : replicaUser,
+                      null == replicaPass ? config.getString(ParamEnum.DB_PASSWORD) : replicaPass,
+                      config.getBoolean(ParamEnum.DB_SECURE),
+                      dbMaxConcurrency,
+                      dbAcquireTimeout)));
+        }
+        replicas = new ReplicaSet(
+            replicaList,
+            config.getInteger(ParamEnum.DB_REPLICA_PROBE_INTERVAL) * 1000L,
+            HEALTH_PROBE_TIMEOUT_MS,
+            config.getInteger(ParamEnum.DB_REPLICA_PIN_WINDOW) * 1000L);
+        replicas.start();
+        Metrics.REGISTRY.gauge(
+            "yasss_db_replicas_healthy",
+            "Read replicas currently accepting routed reads.",
+            () -> replicas.countHealthy());
+      }
 
       String globalSecret = config.getString(ParamEnum.TICKET_GLOBAL_SECRET);
 
@@ -255,32 +354,6 @@ public class YasssCore {
       // the answer must not vary between one call and the next.
       boolean persistSigners = TicketSigner.persistenceAllowed(globalSecret);
 
-      // Legacy fixed-IV MFA secrets get rewritten in the current format here, while the
-      // database and the secret are both available and nothing is listening yet. The
-      // library reads the old format transparently, so this is not required for
-      // correctness -- but reading is not migrating, and without it the accounts that
-      // keep fixed-IV ciphertext forever are the ones that never change a credential.
-      //
-      // Idempotent and non-fatal, in the shape of Event.backfillCodes below: after the
-      // first boot it finds nothing and says nothing.
-      try {
-        var swept = CredentialMigrator.sweepMFASecrets();
-        if(0 < swept.migrated())
-          logger.info("re-encrypted {} MFA secret(s) in the current format", swept.migrated());
-        if(0 < swept.adopted())
-          logger.warn(
-              "encrypted {} previously-unencrypted MFA secret(s); they were stored in the "
-              + "clear by a deployment running without a ticket.globalSecret",
-              swept.adopted());
-        if(0 < swept.failed())
-          logger.warn(
-              "{} MFA secret(s) could not be read and were left untouched; those accounts "
-              + "must re-enroll -- see docs/upstream-axb-lib-auth.md",
-              swept.failed());
-      } catch(SQLException e) {
-        logger.error("could not sweep stored MFA secrets: {}", e.getMessage());
-      }
-
       sigMaxSkew = minutesToMillis(config.getInteger(ParamEnum.AUTH_SIG_MAX_SKEW));
       acceptLegacySig = config.getBoolean(ParamEnum.AUTH_ACCEPT_LEGACY_SIG);
 
@@ -358,6 +431,9 @@ public class YasssCore {
           config.getString(ParamEnum.EMAIL_TEMPLATE_HEADER_IMAGE));
       
       authRequired = config.getBoolean(ParamEnum.AUTH_REQUIRE_SIGNIN);
+      // Once, here, rather than on every check as it used to be.
+      if(!authRequired)
+        logger.warn("authentication requirement has been DISABLED; every check will pass");
 
       if(config.getBoolean(ParamEnum.AUTH_CAPTCHA_REQUIRED))
         captchaValidator = new CAPTCHAValidator(
@@ -367,11 +443,51 @@ public class YasssCore {
             (float)config.getDouble(ParamEnum.AUTH_CAPTCHA_MINIMUM_SCORE),
             config.getLong(ParamEnum.AUTH_CAPTCHA_GRACE_PERIOD));
 
+      // Before the ticket engine, so that it knows on its first tick whether it
+      // leads. A single node always does; the lease only matters once a second
+      // one shares the database.
+      coordinator = new LeaseCoordinator(
+          config.getInteger(ParamEnum.CLUSTER_LEASE_TTL));
+      coordinator.start();
+      Metrics.REGISTRY.gauge(
+          "yasss_cluster_leader",
+          "Whether this node holds the daemon lease.",
+          () -> coordinator.isLeader() ? 1 : 0);
+
+      // After the coordinator, which says whether this node is the one to
+      // answer from memory.
+      if(config.getBoolean(ParamEnum.CAPACITY_LEDGER))
+        CapacityLedger.install(
+            new CapacityLedger(
+                config.getInteger(ParamEnum.CAPACITY_RECONCILE_INTERVAL) * 1000L,
+                coordinator::isLeader));
+
+      // Data sweeps that used to run in full here, on the boot thread, before
+      // anything listened. Now in the background, in chunks, on the lease
+      // holder, resuming from a checkpoint; see SweepRunner. Both are needed
+      // once per deployment and skip on one row read after that.
+      //
+      // The MFA sweep rewrites legacy fixed-IV secrets in the current format.
+      // The library reads the old format transparently, so this is not
+      // required for correctness -- but reading is not migrating, and without
+      // it the accounts that keep fixed-IV ciphertext forever are the ones
+      // that never change a credential. The code backfill gives a short code
+      // to every event from before they existed.
+      sweepRunner = new SweepRunner(
+          config.getInteger(ParamEnum.SWEEP_BATCH_SIZE),
+          config.getInteger(ParamEnum.SWEEP_PAUSE),
+          coordinator::isLeader)
+          .add(CredentialMigrator.SWEEP, CredentialMigrator::sweepMFASecrets)
+          .add(Event.CODE_SWEEP, Event::backfillCodes);
+      sweepRunner.start();
+
       ticketEngine = new TicketEngine(
           config.getInteger(ParamEnum.TICKET_REFRESH_INTERVAL),
           config.getInteger(ParamEnum.TICKET_MAX_HISTORY),
           config.getInteger(ParamEnum.SESSION_ABSOLUTE_TIMEOUT),
-          persistSigners);
+          persistSigners,
+          coordinator::isLeader,
+          config.getInteger(ParamEnum.TICKET_SYNC_INTERVAL));
       ticketEngine.start();
 
       // Only started when there is somewhere for the mail to go. Running it
@@ -384,7 +500,9 @@ public class YasssCore {
             config.getInteger(ParamEnum.REMINDER_POLL_INTERVAL),
             config.getInteger(ParamEnum.REMINDER_LEAD_TIME),
             config.getInteger(ParamEnum.REMINDER_BATCH_SIZE),
-            true);
+            true,
+            config.getInteger(ParamEnum.REMINDER_PARTITIONS),
+            config.getInteger(ParamEnum.REMINDER_WORKERS));
         reminderEngine.start();
       } else {
         logger.info(
@@ -392,6 +510,14 @@ public class YasssCore {
             remindersEnabled ? "email.enabled" : "reminders.enabled");
       }
 
+      if(config.getBoolean(ParamEnum.FEED_ENABLED)) {
+        eventFeed = new EventFeed(
+            EventDigest::load,
+            config.getInteger(ParamEnum.FEED_RECONCILE_INTERVAL),
+            config.getInteger(ParamEnum.FEED_MAX_SUBSCRIBERS));
+        eventFeed.start();
+      }
+
       apiHost = config.getString(ParamEnum.API_HOST);
 
       // Same-origin by default, rather than "anybody". A wildcard is still
@@ -403,6 +529,40 @@ public class YasssCore {
         allowedOrigins = apiHost;
       logger.info("CORS origins: {}", allowedOrigins);
 
+      // Before the endpoints exist, so that no request is ever judged against
+      // the defaults by accident.
+      try {
+        QueryBudget.configure(
+            config.getInteger(ParamEnum.METRICS_QUERY_BUDGET),
+            config.getString(ParamEnum.METRICS_QUERY_BUDGETS),
+            config.getInteger(ParamEnum.METRICS_REPEAT_THRESHOLD));
+        ConcurrencyLimit.configure(
+            config.getInteger(ParamEnum.API_LIMIT_DEFAULT),
+            config.getString(ParamEnum.API_LIMITS),
+            config.getInteger(ParamEnum.API_LIMIT_QUEUE_TIMEOUT),
+            config.getBoolean(ParamEnum.API_LIMIT_ADAPTIVE));
+        DetailValidator.configure(config.getInteger(ParamEnum.DETAIL_CACHE_TTL) * 1000L);
+      } catch(IllegalArgumentException e) {
+        throw new MisconfigurationException(e.getMessage());
+      }
+
+      // Before the driver is built, which is when Spark picks its server.
+      if(virtualThreads) {
+        VirtualThreadPool pool = VirtualThreadPool.install();
+        if(null == pool) {
+          logger.warn(
+              "api.virtualThreads is set, but Java {} has no virtual threads (21 does); "
+              + "handling requests on the fixed pool",
+              Runtime.version().feature());
+        } else {
+          Metrics.REGISTRY.gauge(
+              "yasss_http_virtual_threads",
+              "Requests being handled on virtual threads.",
+              pool::countVirtual);
+          logger.info("database connections limited to {} at a time", dbMaxConcurrency);
+        }
+      }
+
       apiDriver = new APIDriver.Builder()
           .setPort(
               config.getInteger(
@@ -421,9 +581,13 @@ public class YasssCore {
               // above had to be: unexposed, they silently vanish cross-origin, and the
               // recovery would work in production and not in the dev server.
               APIEndpoint.AUTH_HINT_HEADER,
-              APIEndpoint.SERVER_TIME_HEADER)
+              APIEndpoint.SERVER_TIME_HEADER,
+              APIEndpoint.REQUEST_ID_HEADER)
           .addEndpoints(
               new APIInfoEndpoint(),
+              new MetricsEndpoint(
+                  config.getBoolean(ParamEnum.METRICS_ENABLED),
+                  config.getString(ParamEnum.METRICS_TOKEN)),
               new PasskeyRegistrationEndpoint(PasskeyRegistrationEndpoint.Mode.BEGIN),
               new PasskeyRegistrationEndpoint(PasskeyRegistrationEndpoint.Mode.FINISH),
               new PasskeyListEndpoint(PasskeyListEndpoint.Mode.LIST),
@@ -434,10 +598,14 @@ public class YasssCore {
               new AddActivityEndpoint(),
               new AddDetailEndpoint(),
               new AddVolunteerEndpoint(),
+              new ImportVolunteersEndpoint(),
               new AddWindowEndpoint(),
               new CreateEventEndpoint(),
               new CreateUserEndpoint(),
+              new EventFeedEndpoint(),
               new EventReportEndpoint(),
+              new ExportVolunteersEndpoint(),
+              new ListDenialsEndpoint(),
               new ListEventsEndpoint(),
               new ListUsersEndpoint(),
               new ModifyActivityEndpoint(),
@@ -481,25 +649,20 @@ public class YasssCore {
         }
       }
 
-      // Events created before short codes existed get one now. No-ops on every
-      // boot after the first, and a failure here is logged rather than fatal --
-      // an event without a code is still perfectly usable by UUID.
-      try {
-        int coded = com.crowdease.yasss.model.Event.backfillCodes();
-        if(0 < coded) logger.info("assigned short codes to {} existing event(s)", coded);
-      } catch(SQLException e) {
-        logger.error("could not backfill event codes: {}", e.getMessage());
-      }
-
       Runtime.getRuntime().addShutdownHook(new Thread() {
         @Override public void run() {
           logger.info("Shutting down...");
+          // Before the server, so that followers' streams end cleanly and their
+          // clients reconnect to another node rather than seeing a dropped
+          // connection. Anybody who subscribes in between gets the latter.
+          if(null != eventFeed) eventFeed.stop();
           apiDriver.halt();
           ticketEngine.stop();
           // Null guard required, not decorative: unlike the ticket engine this
           // one is only conditionally constructed. Same class of bug as the
           // CAPTCHA validator's unconditional close.
           if(null != reminderEngine) reminderEngine.stop();
+          if(null != sweepRunner) sweepRunner.stop();
           if(null != captchaValidator) captchaValidator.close(); // null when CAPTCHAs are disabled
 
           // Both daemons are interrupt-and-forget, and both are daemon threads,
@@ -510,6 +673,21 @@ public class YasssCore {
           // never get theirs. Waiting briefly lets an in-flight batch finish.
           ticketEngine.join(SHUTDOWN_GRACE_MS);
           if(null != reminderEngine) reminderEngine.join(SHUTDOWN_GRACE_MS);
+          // A sweep stopped mid-chunk only repeats that chunk next time, but
+          // one stopped after its chunk and before the checkpoint is written
+          // repeats it too; the join lets the write land.
+          if(null != sweepRunner) sweepRunner.join(SHUTDOWN_GRACE_MS);
+
+          // After both joins, so that nothing is still acting as leader when the
+          // lease is handed over, and before the pool closes, which the release
+          // is written through.
+          if(null != coordinator) coordinator.stop();
+
+          if(null != replicas) {
+            replicas.stop();
+            replicas.join(SHUTDOWN_GRACE_MS);
+            replicas.close();
+          }
 
           // Last, and after both joins on purpose: a sweep still draining its
           // batch needs the pool it is writing through, and pulling that out
@@ -525,6 +703,11 @@ public class YasssCore {
         }
       });
 
+      // Last, so that the class list the build records covers a whole boot;
+      // the exit runs the hook above, which adds a clean shutdown to it.
+      if(config.getBoolean(ParamEnum.CDS_TRAINING))
+        System.exit(train(config.getInteger(ParamEnum.API_PORT)) ? 0 : 1);
+
     } catch(FileReadException e) {
       
       File diskConfig = new File(
@@ -567,10 +750,45 @@ public class YasssCore {
   /**
    * Retrieves the database driver.
    *
+   * <p>The primary, unless the calling thread is inside a {@link #readScope()}
+   * and a healthy replica is available. Every model finder connects through
+   * here, which is what lets an endpoint move its reads without any of them
+   * knowing.
+   *
    * @return the {@link Database} instance
    */
   public static Database getDB() {
-    return database;
+    return null == replicas ? database : replicas.route(database);
+  }
+
+  /**
+   * Opens a scope in which this thread's reads may go to a replica.
+   *
+   * <p>Only for code that performs no writes until the scope is closed; see
+   * {@link ReplicaSet}. A no-op when {@code db.replicas} is unset.
+   *
+   * @return the {@link ReplicaSet.Scope}, to be closed when the reads are done
+   */
+  public static ReplicaSet.Scope readScope() {
+    return null == replicas ? ReplicaSet.Scope.NONE : ReplicaSet.read();
+  }
+
+  /**
+   * Retrieves the background data sweeps.
+   *
+   * @return the {@link SweepRunner}, or {@code null} before boot has got to it
+   */
+  public static SweepRunner getSweeps() {
+    return sweepRunner;
+  }
+
+  /**
+   * Retrieves the read replicas.
+   *
+   * @return the {@link ReplicaSet}, or {@code null} if none are configured
+   */
+  public static ReplicaSet getReplicas() {
+    return replicas;
   }
 
   /**
@@ -610,6 +828,71 @@ public class YasssCore {
     });
   }
 
+  /**
+   * What a training run requests once {@code GET /v1} answers: the API's
+   * error path and the static bundle, so that the classes behind them are in
+   * the archive too. Their statuses do not matter.
+   */
+  static final String[] TRAINING_PATHS = { "/v1/events", "/" };
+
+  /** How long a training run waits for its first 200 before giving up. */
+  private static final long TRAINING_TIMEOUT_MS = 120_000L;
+
+  /**
+   * Exercises a freshly booted node against itself, for the build's class list.
+   *
+   * <p>A CDS archive can only hold classes that were loaded while its list was
+   * recorded, and most of what a node loads, it loads on its first request --
+   * Jetty's request path, the endpoint machinery, the JSON writer. Recording a
+   * boot that never served anything would leave all of that to be loaded and
+   * verified from the jar, on the request a supervisor is waiting on.
+   *
+   * <p>Also reports time-to-first-200, measured from the JVM's own start rather
+   * than from {@code main}, since class loading before {@code main} is part of
+   * what the archive is meant to save.
+   *
+   * @param port the port this node listens on
+   * @return {@code true} if {@code GET /v1} answered 200 before the deadline
+   */
+  static boolean train(int port) {
+    String base = "http://127.0.0.1:" + port;
+    long deadline = System.currentTimeMillis() + TRAINING_TIMEOUT_MS;
+    while(200 != status(base + "/v1")) {
+      if(System.currentTimeMillis() > deadline) {
+        logger.error("training: GET /v1 did not answer 200 within {} ms", TRAINING_TIMEOUT_MS);
+        return false;
+      }
+      try {
+        Thread.sleep(50L);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    logger.info(
+        "training: first 200 from GET /v1 {} ms after the JVM started",
+        System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+
+    for(var path : TRAINING_PATHS)
+      logger.info("training: GET {} answered {}", path, status(base + path));
+    return true;
+  }
+
+  private static int status(String url) {
+    try {
+      HttpURLConnection con = (HttpURLConnection)URI.create(url).toURL().openConnection();
+      con.setConnectTimeout(1_000);
+      con.setReadTimeout(5_000);
+      try {
+        return con.getResponseCode();
+      } finally {
+        con.disconnect();
+      }
+    } catch(IOException e) {
+      return -1;
+    }
+  }
+
   /** How long the health probe waits before calling the database unavailable. */
   private static final long HEALTH_PROBE_TIMEOUT_MS = 2_000L;
 
@@ -666,6 +949,16 @@ public class YasssCore {
     return stripe;
   }
 
+  /**
+   * Retrieves the event feed.
+   *
+   * @return the {@link EventFeed}, or {@code null} if {@code feed.enabled} is
+   *         off
+   */
+  public static EventFeed getEventFeed() {
+    return eventFeed;
+  }
+
   /**
    * Retrieves the ticket engine.
    *
@@ -11,6 +11,8 @@ import java.sql.SQLException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
 import com.crowdease.yasss.model.Event;
 import com.crowdease.yasss.model.Mail;
 import com.crowdease.yasss.model.Volunteer;
@@ -19,8 +21,12 @@ import com.axonibyte.lib.http.rest.AuthStatus;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.axonibyte.lib.http.rest.JSONEndpoint;
+import com.crowdease.yasss.ReplicaSet;
 import com.crowdease.yasss.YasssCore;
 import com.crowdease.yasss.api.AuthToken.AuthException;
+import com.crowdease.yasss.log.AsyncLog;
+import com.crowdease.yasss.metrics.EndpointMetrics;
+import com.crowdease.yasss.metrics.QueryTrace;
 import com.crowdease.yasss.model.JSONDeserializer;
 import com.crowdease.yasss.model.User;
 import com.crowdease.yasss.model.JSONDeserializer.DeserializationException;
@@ -28,6 +34,7 @@ import com.crowdease.yasss.model.JSONDeserializer.DeserializationException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
 import spark.Request;
 import spark.Response;
@@ -65,9 +72,32 @@ public abstract class APIEndpoint extends JSONEndpoint {
   public static final String HINT_CLOCK_SKEW = "CLOCK_SKEW";
   public static final String ACCOUNT_HEADER = "AXB-ACCOUNT";
   public static final String SESSION_HEADER = "AXB-SESSION";
+
+  /**
+   * How many statements the request ran, in debug mode only.
+   *
+   * <p>So that an end-to-end test can hold an endpoint to a number without scraping the
+   * metrics endpoint between calls. Never sent in production: it is a cheap oracle for
+   * how much data a request touched.
+   */
+  public static final String QUERY_COUNT_HEADER = "AXB-QUERY-COUNT";
+
+  /**
+   * The ID every log line written while serving this request carries.
+   *
+   * <p>So that somebody reporting a failure can quote something that finds its
+   * lines. A proxy's {@code X-Request-ID} is kept, when it looks like one, so
+   * that the proxy's access log and these lines share a key.
+   */
+  public static final String REQUEST_ID_HEADER = "AXB-REQUEST-ID";
+
+  private static final Pattern FORWARDED_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
   
   private static final Logger logger = LoggerFactory.getLogger(APIEndpoint.class);
 
+  private final EndpointMetrics metrics;
+  private final ConcurrencyLimit limit;
+
   /**
    * Instantiates the endpoint.
    *
@@ -78,6 +108,8 @@ public abstract class APIEndpoint extends JSONEndpoint {
    */
   protected APIEndpoint(String resource, APIVersion version, HTTPMethod... methods) {
     super(resource, version, methods);
+    this.metrics = new EndpointMetrics(getClass().getSimpleName(), resource);
+    this.limit = ConcurrencyLimit.forEndpoint(getClass().getSimpleName());
   }
 
   /**
@@ -99,12 +131,39 @@ public abstract class APIEndpoint extends JSONEndpoint {
    * {@inheritDoc}
    */
   @Override public AuthStatus authenticate(Request req, Response res) throws EndpointException {
+    // The first of this endpoint's code to run on a request, so the clock
+    // starts here; sign-in is frequently the slowest part of a request.
+    EndpointMetrics.begin();
+    return authorize(req, res, acceptsCredentials(), metrics);
+  }
+
+  /**
+   * Works out who is calling, and sets the session headers for them.
+   *
+   * <p>Shared with the endpoints in this package that write their own
+   * responses and so extend {@link com.axonibyte.lib.http.rest.Endpoint}
+   * directly; they authenticate exactly as every other endpoint does.
+   *
+   * @param req the HTTP {@link Request}
+   * @param res the HTTP {@link Response}
+   * @param acceptsCredentials whether a permanent credential is accepted in
+   *        place of a session ticket; see {@link #acceptsCredentials()}
+   * @param metrics the calling endpoint's {@link EndpointMetrics}, which a
+   *        failure here is recorded against
+   * @return the caller's {@link Authorization}, anonymous if they could not
+   *         be authenticated
+   * @throws EndpointException if the database could not be reached
+   */
+  static Authorization authorize(Request req, Response res, boolean acceptsCredentials,
+      EndpointMetrics metrics) throws EndpointException {
+    DecisionTrace.current().reset();
+    tagRequest(req, res);
     String authString = req.headers("Authorization");
     User user = null;
     AuthToken token = null;
 
     try {
-      token = new AuthToken(authString, acceptsCredentials());
+      token = new AuthToken(authString, acceptsCredentials);
       String nextSession = token.process();
       user = token.getUser();
 
@@ -126,12 +185,32 @@ public abstract class APIEndpoint extends JSONEndpoint {
       logger.error(
           "database malfunction: {}",
           null == e.getMessage() ? "no further info available" : e.getMessage());
+      metrics.end(500);
       throw new EndpointException(req, "internal server error", 500, e);
     }
     
     return new Authorization(user, verifyHuman(req));
   }
 
+  /**
+   * Names the request, for its log lines and its response.
+   *
+   * <p>Left in place when the request ends rather than cleared, because the
+   * lines most worth finding -- the library's own report of a 500 -- are
+   * written after this class has let go of the request. The next request on
+   * the thread replaces it.
+   *
+   * @param req the HTTP {@link Request}
+   * @param res the HTTP {@link Response}
+   */
+  private static void tagRequest(Request req, Response res) {
+    String id = req.headers("X-Request-ID");
+    if(null == id || !FORWARDED_REQUEST_ID.matcher(id).matches())
+      id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    MDC.put(AsyncLog.REQUEST_KEY, id);
+    res.header(REQUEST_ID_HEADER, id);
+  }
+
   /**
    * Replaces the session ticket on a response after revoking the caller's
    * sessions.
@@ -206,7 +285,118 @@ public abstract class APIEndpoint extends JSONEndpoint {
    * {@inheritDoc}
    */
   @Override public JSONObject doEndpointTask(Request req, Response res, AuthStatus auth) throws EndpointException {
-    return onCall(req, res, (Authorization)auth);
+    try {
+      ConcurrencyLimit.Permit permit = admit(limit, res);
+      if(null == permit) {
+        end(metrics, getClass().getSimpleName(), 503);
+        return new JSONObject()
+            .put("status", "error")
+            .put("info", "server busy");
+      }
+
+      JSONObject body;
+      try(permit) {
+        body = onCall(req, res, (Authorization)auth);
+      }
+      markWrite(req, res);
+      if(YasssCore.debugEnabled())
+        res.header(QUERY_COUNT_HEADER, Integer.toString(QueryTrace.countSoFar()));
+      end(metrics, getClass().getSimpleName(), res.status());
+      return body;
+    } catch(EndpointException e) {
+      end(metrics, getClass().getSimpleName(), e.getErrorCode());
+      throw e;
+    } catch(RuntimeException e) {
+      end(metrics, getClass().getSimpleName(), 500);
+      throw e;
+    }
+  }
+
+  /**
+   * Finishes a request: records its metrics, and reports its authorization
+   * decisions if it was refused.
+   *
+   * @param metrics the endpoint's {@link EndpointMetrics}
+   * @param endpoint the endpoint's class name
+   * @param status the HTTP status the response carries
+   */
+  static void end(EndpointMetrics metrics, String endpoint, int status) {
+    metrics.end(status);
+    DecisionTrace.current().finish(endpoint, status);
+  }
+
+  /**
+   * Takes a turn at an endpoint, or refuses the request.
+   *
+   * <p>Taken around the endpoint's own work rather than in
+   * {@link #authenticate}, so that the turn is given back on the same path
+   * that took it; signing in is cheap next to what the limited endpoints do.
+   *
+   * <p>A refusal is answered rather than thrown. {@code Endpoint.onRequest}
+   * prints a stack trace for any {@link EndpointException} at or above 500,
+   * and shedding happens when the server is at its busiest -- which is no time
+   * to be writing hundreds of identical traces of a condition that is already
+   * counted.
+   *
+   * @param limit the endpoint's {@link ConcurrencyLimit}, or {@code null} if
+   *        it has none
+   * @param res the HTTP {@link Response}, which is given a 503 and a
+   *        {@code Retry-After} if no turn came in time
+   * @return the {@link ConcurrencyLimit.Permit}, to be closed once the work is
+   *         done, or {@code null} if the request was refused and the caller
+   *         should answer with nothing more
+   */
+  static ConcurrencyLimit.Permit admit(ConcurrencyLimit limit, Response res) {
+    if(null == limit) return ConcurrencyLimit.Permit.NONE;
+    ConcurrencyLimit.Permit permit = limit.acquire();
+    if(null != permit) return permit;
+    res.status(503);
+    res.header("Retry-After", Integer.toString(ConcurrencyLimit.RETRY_AFTER_SECONDS));
+    return null;
+  }
+
+  /**
+   * Marks the caller as having just written, when there are replicas to be
+   * protected from.
+   *
+   * <p>Any method but {@code GET} counts, whether or not the endpoint actually
+   * changed anything: a spurious mark costs one request's worth of reads on
+   * the primary, and a missing one shows a volunteer a page without the signup
+   * they just made. Only reached on success -- an {@link EndpointException}
+   * skips it, and a failed request wrote nothing worth reading back.
+   *
+   * @param req the HTTP {@link Request}
+   * @param res the HTTP {@link Response}
+   */
+  private static void markWrite(Request req, Response res) {
+    var replicas = YasssCore.getReplicas();
+    if(null == replicas || "GET".equalsIgnoreCase(req.requestMethod())) return;
+    res.cookie(
+        "/",
+        ReplicaSet.WRITE_MARKER,
+        Long.toString(System.currentTimeMillis()),
+        (int)Math.max(1L, replicas.getPinWindow() / 1000L),
+        YasssCore.getAPIHost().startsWith("https:"),
+        true);
+  }
+
+  /**
+   * Opens a replica read scope for this request, unless its caller wrote
+   * recently.
+   *
+   * <p>The caller must perform no writes until the scope is closed; see
+   * {@link ReplicaSet}.
+   *
+   * @param req the HTTP {@link Request}
+   * @return the {@link ReplicaSet.Scope}, to be closed when the reads are done
+   */
+  // Public for the same reason as resolveEvent: EventReportEndpoint does not
+  // extend this class.
+  public static ReplicaSet.Scope replicaScope(Request req) {
+    var replicas = YasssCore.getReplicas();
+    if(null == replicas || replicas.pinned(req.cookie(ReplicaSet.WRITE_MARKER)))
+      return ReplicaSet.Scope.NONE;
+    return YasssCore.readScope();
   }
 
   /**
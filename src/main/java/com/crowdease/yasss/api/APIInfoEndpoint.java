@@ -107,6 +107,26 @@ public final class APIInfoEndpoint extends APIEndpoint {
     if(null != YasssCore.getCAPTCHAValidator())
       resBody.put("captcha", YasssCore.getCAPTCHAValidator().getSiteKey());
 
+    // Reported rather than folded into the status. Losing every replica costs
+    // capacity, not correctness -- reads fall back to the primary -- so it is
+    // not a reason for a supervisor to pull this node out of rotation.
+    if(null != YasssCore.getReplicas())
+      resBody.put("replicasHealthy", YasssCore.getReplicas().countHealthy());
+
+    // Also reported rather than folded in: a node mid-sweep serves everything
+    // correctly, which is why the sweeps stopped holding up boot. This is how
+    // an operator sees whether one is still going, and how far it has got.
+    if(null != YasssCore.getSweeps()) {
+      JSONObject sweeps = new JSONObject();
+      for(var progress : YasssCore.getSweeps().progress())
+        sweeps.put(
+            progress.name(),
+            new JSONObject()
+                .put("state", progress.state().name().toLowerCase())
+                .put("processed", progress.processed()));
+      resBody.put("sweeps", sweeps);
+    }
+
     return resBody;
   }
   
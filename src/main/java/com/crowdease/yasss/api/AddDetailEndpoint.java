@@ -14,6 +14,7 @@ import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.crowdease.yasss.model.Detail;
+import com.crowdease.yasss.model.DetailValidator;
 import com.crowdease.yasss.model.Event;
 import com.crowdease.yasss.model.JSONDeserializer;
 import com.crowdease.yasss.model.Detail.Type;
@@ -100,6 +101,7 @@ public final class AddDetailEndpoint extends APIEndpoint {
         throw new EndpointException(req, "malformed argument (int: priority)", 400);
 
       detail.commit();
+      DetailValidator.invalidate(event.getID());
 
       res.status(201);
       return new JSONObject()
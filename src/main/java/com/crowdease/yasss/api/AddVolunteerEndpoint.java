@@ -9,14 +9,11 @@ package com.crowdease.yasss.api;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
@@ -24,7 +21,9 @@ import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.crowdease.yasss.YasssCore;
 import com.crowdease.yasss.model.Activity;
 import com.crowdease.yasss.model.Detail;
+import com.crowdease.yasss.model.DetailValidator;
 import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.EventChanges;
 import com.crowdease.yasss.model.HTMLElem;
 import com.crowdease.yasss.model.JSONDeserializer;
 import com.crowdease.yasss.model.Mail;
@@ -133,48 +132,30 @@ public final class AddVolunteerEndpoint extends APIEndpoint {
               ? deserializer.getBool("remindersEnabled")
               : false,
           req.ip());
-      Map<UUID, Detail> fields = event.getDetails()
-          .stream()
-          .collect(
-              Collectors.toMap(
-                  e -> e.getID(),
-                  e -> e,
-                  (a, b) -> a,
-                  LinkedHashMap::new));
-      
-      Map<Detail, String> details = new LinkedHashMap<>();
+
+      // Checked against the event's fields as prepared once, rather than read
+      // and rebuilt into a map per submission; see DetailValidator.
+      DetailValidator.Submission submission = DetailValidator.forEvent(event).submission();
       for(var detailDeserializer : deserializer.tokenizeJSONArray("details", true)) {
         detailDeserializer
             .tokenize("detail", true)
             .tokenize("value", true)
             .check();
-        UUID detailID = detailDeserializer.getUUID("detail");
-        if(!fields.containsKey(detailID))
-          throw new EndpointException(req, "detail not found", 404);
-        Detail detail = fields.get(detailID);
-        // `bounded` for the same reason it guards `name`: detail_value is
-        // VARCHAR(255), and without it an over-long answer reached the insert
-        // and came back as `database malfunction` with a 500 -- on the one
-        // endpoint an anonymous volunteer has no way to avoid. Found by the
-        // frontend input fuzzer.
-        String value = bounded(
-            req,
-            // Normalized before validating: an EMAIL custom field's pattern is
-            // lowercase-only, so a capitalized answer was refused outright.
-            detail.getType().normalize(
-                detailDeserializer.getString("value").strip()),
-            "details[].value");
-        if(!detail.isValid(value))
-          throw new EndpointException(req, "malformed argument (details[].value)", 400);
-        // The stripped value is the one that was validated, so it is the one
-        // that gets stored; re-reading the raw token here wrote back a value
-        // nothing had checked.
-        details.put(detail, value);
+        // Bounded like `name`: detail_value is VARCHAR(255), and without it an
+        // over-long answer reached the insert and came back as `database
+        // malfunction` with a 500. The value recorded is the stripped, normalized
+        // one that was validated.
+        DetailValidator.Problem problem = submission.answer(
+            detailDeserializer.getUUID("detail"),
+            detailDeserializer.getString("value"));
+        if(null != problem)
+          throw new EndpointException(req, problem.getMessage(), problem.getStatus());
       }
 
-      for(var field : fields.values())
-        if(field.isRequired() && !details.containsKey(field))
-          throw new EndpointException(req, "missing required detail", 400);
+      DetailValidator.Problem missing = submission.finish();
+      if(null != missing)
+        throw new EndpointException(req, missing.getMessage(), missing.getStatus());
+      Map<Detail, String> details = submission.getDetails();
       
       volunteer.setDetails(details);
 
@@ -268,6 +249,13 @@ public final class AddVolunteerEndpoint extends APIEndpoint {
         throw new EndpointException(req, "volunteer cap exceeded", 409);
       }
 
+      // Again, now that the seats are committed, as RSVP.claim does: the
+      // notices claimWithin gave from inside the transaction may be acted on
+      // before it commits, and a feed that reads the sheet then misses the
+      // signup until it next reconciles.
+      for(var slot : slots)
+        EventChanges.activity(slot.getActivity());
+
       User admin = User.getUser(event.getAdmin());
       if(null != admin) {
         // Mail substitutes these straight into an HTML body, so anything
@@ -14,6 +14,7 @@ import java.util.UUID;
 import com.axonibyte.lib.auth.CryptoException;
 import com.crowdease.yasss.YasssCore;
 import com.crowdease.yasss.daemon.TicketEngine;
+import com.crowdease.yasss.metrics.Metrics;
 import com.crowdease.yasss.model.AuthNonce;
 import com.crowdease.yasss.model.User;
 
@@ -94,12 +95,17 @@ public class AuthToken {
   public String process() throws AuthException, SQLException {
     if(null == authString)
       throw new AuthException("no auth string; skipping");
-    else logger.info("processing auth string");
+    else logger.debug("processing auth string");
 
     String[] header = authString.split("\\s+");
     if(2 != header.length || !authHeader.equalsIgnoreCase(header[0]))
       throw new AuthException("malformed Authorization header");
 
+    // What the caller is attempting, once that is known, so that a refusal can
+    // be counted against the right method. Garbage that never gets that far is
+    // not an attempt at anything.
+    Metrics.Login attempted = null;
+
     try {
       // UTF-8 explicitly. This decodes attacker-supplied bytes into the string that
       // verifySig is ultimately called on, so the platform default would mean a caller
@@ -146,6 +152,9 @@ public class AuthToken {
       // shape, audience, freshness -- is better decided before touching the database.
       final SigReqV2.Credential v2 =
           SigReqV2.isV2(credsJSO) ? SigReqV2.parse(credsJSO) : null;
+      if(null != v2) attempted = Metrics.Login.PASSWORD_V2;
+      else if(credsJSO.has(SessionTicket.CLAIM_SESSION_START)) attempted = Metrics.Login.TICKET;
+      else attempted = Metrics.Login.PASSWORD_V1;
 
       if(null != v2) {
         if(!YasssCore.getSigAudience().equals(v2.audience()))
@@ -215,11 +224,9 @@ public class AuthToken {
         // A v2 credential: fresh, bound to this audience, and now spent. The signature is
         // checked over bytes rebuilt from the values above rather than over the string as
         // it arrived -- see SigReqV2 for why those are not the same thing.
-        // Method named explicitly, and the same shape on every branch. There is no metrics
-        // infrastructure here, and building one to answer a single question would be
-        // disproportionate -- but "what fraction of sign-ins still use a password" is the
-        // question that decides whether the password path can ever be retired, and it is
-        // answerable by counting log lines.
+        // Counted as well as logged: "what fraction of sign-ins still use a password" is
+        // the question that decides whether the password path can ever be retired.
+        Metrics.Login.PASSWORD_V2.succeeded();
         logger.info(
             "login method=password credential=v2 user={}", user.getID().toString());
 
@@ -232,6 +239,7 @@ public class AuthToken {
         // revocation must invalidate outstanding tickets, not lock an account
         // out of signing in again -- otherwise a platform-wide revoke is a
         // permanent outage rather than a forced re-login.
+        Metrics.Login.PASSWORD_V1.succeeded();
         logger.info(
             "login method=password credential=v1 user={}", user.getID().toString());
       } else if(YasssCore.getTicketEngine().verify(creds, sig, signerID)) {
@@ -248,6 +256,7 @@ public class AuthToken {
               verdict.name());
 
         sessionStart = SessionTicket.sessionStart(credsJSO, now);
+        Metrics.Login.TICKET.succeeded();
         logger.info(
             "login method=ticket user={}", user.getID().toString());
       } else {
@@ -266,6 +275,9 @@ public class AuthToken {
 
       return issue(user.getID(), sessionStart, now);
 
+    } catch(AuthException e) {
+      if(null != attempted) attempted.failed();
+      throw e;
     } catch(DecoderException | IllegalArgumentException | JSONException e) {
       // A malformed Authorization header is an ordinary client error -- the
       // request simply proceeds anonymously -- so it does not warrant a stack
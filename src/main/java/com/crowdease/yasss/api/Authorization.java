@@ -7,15 +7,15 @@
  */
 package com.crowdease.yasss.api;
 
+import java.util.UUID;
+
 import com.axonibyte.lib.http.rest.AuthStatus;
 import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.api.DecisionTrace.Check;
 import com.crowdease.yasss.model.Event;
 import com.crowdease.yasss.model.User;
 import com.crowdease.yasss.model.User.AccessLevel;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 /**
  * An authorization token that accompanies the authentication token. Determines
  * the amount of power an authenticated user has to view and/or manipulate resources.
@@ -27,8 +27,6 @@ public class Authorization implements AuthStatus {
   public static final Object IS_AUTHENTICATED = new Object();
   public static final Object IS_HUMAN = new Object();
 
-  private static final Logger logger = LoggerFactory.getLogger(Authorization.class);
-  
   private final boolean isHuman;
   private final User actor;
 
@@ -52,13 +50,12 @@ public class Authorization implements AuthStatus {
       if(!atLeast(IS_AUTHENTICATED)) return false;
 
       AccessLevel accessLevel = (AccessLevel)permission;
-      boolean check = accessLevel.ordinal() == actor.getAccessLevel().ordinal();
-      logger.info(
-          "check that user is exactly {}; return {}",
-          accessLevel.name(),
-          Boolean.valueOf(check).toString().toUpperCase());
-      
-      return check;
+      return DecisionTrace.note(
+          Check.EXACT_LEVEL,
+          actor.getID(),
+          null,
+          accessLevel,
+          accessLevel.ordinal() == actor.getAccessLevel().ordinal());
     }
 
     return atLeast(permission);
@@ -66,123 +63,64 @@ public class Authorization implements AuthStatus {
 
   /**
    * {@inheritDoc}
+   *
+   * <p>Every check and subcheck is noted in the request's {@link DecisionTrace}
+   * rather than logged; it is written out if the request is refused.
    */
   @Override public boolean atLeast(Object permission) {
-    if(!YasssCore.authRequired()) {
-      logger.warn("authentication requirement has been DISABLED");
-      return true;
-    }
-    
-    else if(null == permission) {
-      boolean check = atLeast(AccessLevel.ADMIN);
-      logger.info(
-          "permission candidate is NULL; check if user at least {}; return {}",
-          AccessLevel.ADMIN.name(),
-          Boolean.valueOf(check).toString().toUpperCase());
-      return check;
-    }
-    
-    else if(IS_AUTHENTICATED == permission) {
-      boolean check = null != actor;
-      logger.info(
-          "check that user at least IS_AUTHENTICATED; return {}",
-          Boolean.valueOf(check).toString().toUpperCase());
-      return check;
-    }
-    
-    else if(IS_HUMAN == permission) {
-      logger.info(
-          "check that user at least IS_HUMAN; return {}",
-          Boolean.valueOf(isHuman).toString().toUpperCase());
-      return isHuman;
-    }
+    UUID actorID = null == actor ? null : actor.getID();
+
+    if(!YasssCore.authRequired())
+      return DecisionTrace.note(Check.DISABLED, actorID, null, null, true);
+
+    else if(null == permission)
+      return DecisionTrace.note(
+          Check.UNSPECIFIED, actorID, null, AccessLevel.ADMIN, atLeast(AccessLevel.ADMIN));
+
+    else if(IS_AUTHENTICATED == permission)
+      return DecisionTrace.note(Check.AUTHENTICATED, actorID, null, null, null != actor);
+
+    else if(IS_HUMAN == permission)
+      return DecisionTrace.note(Check.HUMAN, actorID, null, null, isHuman);
 
     else if(permission instanceof AccessLevel) {
       if(!atLeast(IS_AUTHENTICATED)) return false;
       
       AccessLevel accessLevel = (AccessLevel)permission;
-      boolean check = accessLevel.ordinal() <= actor.getAccessLevel().ordinal();
-      logger.info(
-          "check that user at least {}; return {}",
-          accessLevel.name(),
-          Boolean.valueOf(check).toString().toUpperCase());
-      return check;
+      return DecisionTrace.note(
+          Check.LEVEL,
+          actorID,
+          null,
+          accessLevel,
+          accessLevel.ordinal() <= actor.getAccessLevel().ordinal());
     }
 
     else if(permission instanceof Event) {
       if(!atLeast(IS_AUTHENTICATED)) return false;
       
+      // The event's administrator needs only to be signed in; anybody else
+      // has to be a platform admin. The level noted says which applied.
       Event event = (Event)permission;
-      logger.info(
-          "determining user {} access permissions to modify event {}, running subchecks",
-          actor.getID().toString(),
-          event.getID().toString());
-      
-      boolean check = actor.getID().equals(event.getAdmin());
-      logger.info(
-          // Arguments were transposed: the admin was rendered as the user and
-          // the actor as the admin, so this line -- the one an operator reads
-          // when they are working out why something 403'd -- named the wrong
-          // party twice.
-          "event {} subcheck: check that user {} is event admin {}; return {}",
-          event.getID().toString(),
-          actor.getID().toString(),
-          null == event.getAdmin() ? "UNSPECIFIED" : event.getAdmin().toString(),
-          Boolean.valueOf(check).toString().toUpperCase());
-
-      AccessLevel accessLevel = check ? AccessLevel.STANDARD : AccessLevel.ADMIN;
-      check = atLeast(accessLevel);
-      logger.info(
-          "event {} subcheck: check that user {} at least {}; return {}",
-          event.getID().toString(),
-          actor.getID().toString(),
-          accessLevel.name(),
-          Boolean.valueOf(check).toString().toUpperCase());
-
-      logger.info(
-          "final check to determine whether user {} has access to modify event {}; return {}",
-          actor.getID().toString(),
-          event.getID().toString(),
-          Boolean.valueOf(check).toString().toUpperCase());
-      
-      return check;
+      AccessLevel accessLevel = actorID.equals(event.getAdmin())
+          ? AccessLevel.STANDARD
+          : AccessLevel.ADMIN;
+      return DecisionTrace.note(
+          Check.EVENT, actorID, event.getID(), accessLevel, atLeast(accessLevel));
     }
 
     else if(permission instanceof User) {
       if(!atLeast(IS_AUTHENTICATED)) return false;
 
+      // Likewise: the user themselves, or a platform admin.
       User user = (User)permission;
-      logger.info(
-          "determining user {} access permissions to modify user {}, running subchecks",
-          actor.getID().toString(),
-          user.getID().toString());
-
-      boolean check = actor.getID().equals(user.getID());
-      logger.info(
-          "user access subcheck: determine whether actor {} and user {} are the same; return {}",
-          actor.getID().toString(),
-          user.getID().toString(),
-          Boolean.valueOf(check).toString().toUpperCase());
-
-      AccessLevel accessLevel = check ? AccessLevel.STANDARD : AccessLevel.ADMIN;
-      check = atLeast(accessLevel);
-      logger.info(
-          "user access subcheck: check that user {} at least {}; return {}",
-          actor.getID().toString(),
-          accessLevel.name(),
-          Boolean.valueOf(check).toString().toUpperCase());
-      
-      logger.info(
-          "final check to determine whether user {} has access to modify user {}; return {}",
-          actor.getID().toString(),
-          user.getID().toString(),
-          Boolean.valueOf(check).toString().toUpperCase());
-
-      return check;
+      AccessLevel accessLevel = actorID.equals(user.getID())
+          ? AccessLevel.STANDARD
+          : AccessLevel.ADMIN;
+      return DecisionTrace.note(
+          Check.USER, actorID, user.getID(), accessLevel, atLeast(accessLevel));
     }
 
-    logger.info("unknown permission candidate specified; default to DENY");
-    return false;
+    return DecisionTrace.note(Check.UNKNOWN, actorID, null, null, false);
   }
 
   /**
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.crowdease.yasss.metrics.Metrics;
+
+/**
+ * How many requests to one endpoint may be worked on at once.
+ *
+ * <p>A handful of endpoints cost far more than the rest: the event report reads
+ * every volunteer and renders all of them, the exports stream them, and
+ * account creation spends most of its time hashing a password on purpose. A
+ * burst of any of them used to take whatever the server had -- threads before
+ * {@code api.virtualThreads}, database turns and cores after -- and the event
+ * page, which is what volunteers are actually waiting on, slowed down with it.
+ * With a cap on the expensive ones, a burst queues or is turned away, and the
+ * cheap reads keep their latency.
+ *
+ * <p>A request over the cap waits up to {@code api.limitQueueTimeout} for a
+ * turn, behind no more others than the cap itself, and is otherwise refused at
+ * once with a 503 and a {@code Retry-After}. Refusing fast is the point: a
+ * request that would have waited thirty seconds for a report is better told
+ * to come back than left holding a connection open.
+ *
+ * <p>The cap is a ceiling. With {@code api.limitAdaptive} on, the limit
+ * actually enforced follows latency: while the last few responses have run
+ * more than {@link #TOLERANCE} times slower than is usual for the endpoint,
+ * each one cuts it by a quarter, at most once per {@link #COOLDOWN_MILLIS},
+ * and each one otherwise adds {@code 1/limit}, so about one a round. A
+ * database that has slowed down for everybody therefore sees fewer reports at
+ * a time until it recovers, without anybody retuning the cap.
+ *
+ * <p>Both sides of that comparison are averages, of the logarithm of the
+ * latency. What an expensive endpoint costs varies with the event it is asked
+ * about by far more than the tolerance -- a report on a small event against
+ * one on a large event -- so measuring against the fastest response seen let
+ * one small event set a bar that every large one then failed, and the limit
+ * fell to one under ordinary traffic. An average takes in that spread as what
+ * is usual; the logarithm keeps one report twenty times the usual from moving
+ * it much on its own. Off by default, since a cap alone is what most
+ * deployments need.
+ *
+ * <p>Endpoints are limited by class, so that the routes one class serves
+ * share its budget. Configured once at boot; until then, and in tests,
+ * nothing is limited.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class ConcurrencyLimit {
+
+  /** What a refused request is told to wait, in seconds. */
+  public static final int RETRY_AFTER_SECONDS = 1;
+
+  /** How much slower than usual the recent responses must be to count as overloaded. */
+  static final double TOLERANCE = 2.0;
+
+  /** What the limit is multiplied by when a response is too slow. */
+  static final double BACKOFF = 0.75;
+
+  /** The shortest time between two cuts, so one slow batch is one cut. */
+  static final long COOLDOWN_MILLIS = 100L;
+
+  /** The weight of each response in the recent average, so about the last twenty. */
+  static final double RECENT_WEIGHT = 0.05;
+
+  /**
+   * The weight of each response in the usual average, so about the last
+   * hundred. A real change in what an endpoint costs -- traffic moving to a
+   * larger event, a new index -- is cut for until it has been learned, and
+   * not after.
+   */
+  static final double USUAL_WEIGHT = 0.01;
+
+  private static final double LOG_TOLERANCE = Math.log(TOLERANCE);
+
+  /**
+   * A turn, given back by {@link #close()}. Safe to close more than once, and
+   * {@link #NONE} for an endpoint with no limit.
+   */
+  public static final class Permit implements AutoCloseable {
+
+    static final Permit NONE = new Permit(null, 0L);
+
+    private final ConcurrencyLimit limit;
+    private final long startedAt;
+    private boolean closed = false;
+
+    private Permit(ConcurrencyLimit limit, long startedAt) {
+      this.limit = limit;
+      this.startedAt = startedAt;
+    }
+
+    /**
+     * Gives the turn back and reports how long it was held.
+     */
+    @Override public void close() {
+      if(closed || null == limit) return;
+      closed = true;
+      limit.release(System.nanoTime() - startedAt);
+    }
+  }
+
+  private static volatile int fallback = 0;
+  private static volatile Map<String, Integer> caps = Collections.emptyMap();
+  private static volatile long queueTimeoutMillis = 0L;
+  private static volatile boolean adaptive = false;
+  private static final Map<String, ConcurrencyLimit> limits = new ConcurrentHashMap<>();
+
+  private final int max;
+  private final long queueTimeoutNanos;
+  private final boolean adapts;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition freed = lock.newCondition();
+  private final AtomicLong admitted = new AtomicLong();
+  private final AtomicLong shed = new AtomicLong();
+
+  private volatile double limit;
+  private volatile int inflight = 0;
+  private volatile int waiting = 0;
+  private boolean sampled = false;
+  private double recent;
+  private double usual;
+  private long lastCut;
+
+  /**
+   * Sets the caps.
+   *
+   * @param fallback the cap for an endpoint not named in {@code spec}, or
+   *        {@code 0} to leave those unlimited
+   * @param spec per-endpoint caps, as comma-separated
+   *        {@code EndpointClass=cap} pairs, or {@code null} for none
+   * @param queueTimeoutMillis how long a request over the cap may wait for a
+   *        turn before it is refused; {@code 0} refuses it at once
+   * @param adaptive whether the limit follows latency beneath each cap
+   * @throws IllegalArgumentException if a number is negative or a pair is
+   *         malformed
+   */
+  public static void configure(int fallback, String spec, long queueTimeoutMillis,
+      boolean adaptive) {
+    if(0 > fallback || 0 > queueTimeoutMillis)
+      throw new IllegalArgumentException("concurrency limits and queue timeout must not be negative");
+    ConcurrencyLimit.caps = parse(spec);
+    ConcurrencyLimit.fallback = fallback;
+    ConcurrencyLimit.queueTimeoutMillis = queueTimeoutMillis;
+    ConcurrencyLimit.adaptive = adaptive;
+  }
+
+  /**
+   * Parses per-endpoint caps.
+   *
+   * @param spec comma-separated {@code EndpointClass=cap} pairs
+   * @return the caps by endpoint
+   * @throws IllegalArgumentException if a pair is malformed
+   */
+  static Map<String, Integer> parse(String spec) {
+    if(null == spec || spec.isBlank()) return Collections.emptyMap();
+
+    Map<String, Integer> parsed = new HashMap<>();
+    for(String pair : spec.split(",")) {
+      String[] parts = pair.split("=");
+      int cap;
+      try {
+        if(2 != parts.length || parts[0].isBlank()) throw new NumberFormatException();
+        cap = Integer.parseInt(parts[1].strip());
+      } catch(NumberFormatException e) {
+        throw new IllegalArgumentException("malformed concurrency limit \"" + pair.strip() + "\"");
+      }
+      // Zero is allowed, and means this one is not limited after all, which
+      // is how a deployment opts an endpoint out of a nonzero fallback.
+      if(0 > cap)
+        throw new IllegalArgumentException("concurrency limit for " + parts[0].strip() + " must not be negative");
+      parsed.put(parts[0].strip(), cap);
+    }
+    return Collections.unmodifiableMap(parsed);
+  }
+
+  /**
+   * Retrieves an endpoint's limit, registering its series the first time.
+   *
+   * @param endpoint the endpoint's class name
+   * @return its {@link ConcurrencyLimit}, shared by every instance of the
+   *         class, or {@code null} if it is not limited
+   */
+  public static ConcurrencyLimit forEndpoint(String endpoint) {
+    Integer cap = caps.get(endpoint);
+    if(0 == (null == cap ? fallback : cap)) return null;
+    return limits.computeIfAbsent(
+        endpoint,
+        e -> {
+          ConcurrencyLimit limit = new ConcurrencyLimit(
+              null == cap ? fallback : cap, queueTimeoutMillis, adaptive);
+          limit.register(e);
+          return limit;
+        });
+  }
+
+  /**
+   * Instantiates a limit.
+   *
+   * @param max the cap, which is also where the limit starts
+   * @param queueTimeoutMillis how long a request may wait for a turn
+   * @param adaptive whether the limit follows latency beneath the cap
+   * @throws IllegalArgumentException if the cap is not positive or the
+   *         timeout is negative
+   */
+  ConcurrencyLimit(int max, long queueTimeoutMillis, boolean adaptive) {
+    if(1 > max)
+      throw new IllegalArgumentException("a concurrency limit must be positive");
+    if(0 > queueTimeoutMillis)
+      throw new IllegalArgumentException("queue timeout must not be negative");
+    this.max = max;
+    this.limit = max;
+    this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+    this.adapts = adaptive;
+  }
+
+  private void register(String endpoint) {
+    Metrics.REGISTRY.gauge(
+        "yasss_http_concurrency_limit",
+        "Requests to this endpoint that may be worked on at once.",
+        () -> (int)limit,
+        "endpoint", endpoint);
+    Metrics.REGISTRY.gauge(
+        "yasss_http_concurrency_inflight",
+        "Requests to this endpoint being worked on.",
+        () -> inflight,
+        "endpoint", endpoint);
+    Metrics.REGISTRY.gauge(
+        "yasss_http_concurrency_queued",
+        "Requests to this endpoint waiting for a turn.",
+        () -> waiting,
+        "endpoint", endpoint);
+    Metrics.REGISTRY.counter(
+        "yasss_http_concurrency_admitted_total",
+        "Requests to this endpoint given a turn.",
+        admitted::get,
+        "endpoint", endpoint);
+    Metrics.REGISTRY.counter(
+        "yasss_http_shed_total",
+        "Requests to this endpoint refused with a 503 for want of a turn.",
+        shed::get,
+        "endpoint", endpoint);
+  }
+
+  /**
+   * Takes a turn, waiting for one if need be.
+   *
+   * <p>A lock and condition rather than a monitor, so that a virtual thread
+   * waiting here gives its carrier back.
+   *
+   * @return the {@link Permit}, or {@code null} if the request is to be
+   *         refused
+   */
+  Permit acquire() {
+    lock.lock();
+    try {
+      if(inflight >= (int)limit) {
+        // Bounded, or a long burst would queue without end and every request
+        // in it would time out rather than only the ones past the cap.
+        if(0 == queueTimeoutNanos || waiting >= Math.max(1, (int)limit)) {
+          shed.incrementAndGet();
+          return null;
+        }
+
+        waiting++;
+        try {
+          long left = queueTimeoutNanos;
+          while(inflight >= (int)limit) {
+            if(0 >= left) {
+              shed.incrementAndGet();
+              return null;
+            }
+            left = freed.awaitNanos(left);
+          }
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+          shed.incrementAndGet();
+          return null;
+        } finally {
+          waiting--;
+        }
+      }
+
+      inflight++;
+      admitted.incrementAndGet();
+      return new Permit(this, System.nanoTime());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(long heldNanos) {
+    lock.lock();
+    try {
+      inflight--;
+      if(adapts) sample(heldNanos, System.nanoTime());
+      freed.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Moves the limit in answer to one response. Only called with the lock held.
+   *
+   * @param latencyNanos how long the request held its turn
+   * @param now the current {@link System#nanoTime()}
+   */
+  void sample(long latencyNanos, long now) {
+    double latency = Math.log(Math.max(1L, latencyNanos));
+    if(sampled) {
+      recent += (latency - recent) * RECENT_WEIGHT;
+      usual += (latency - usual) * USUAL_WEIGHT;
+    } else {
+      recent = usual = latency;
+      sampled = true;
+    }
+
+    if(recent > usual + LOG_TOLERANCE) {
+      if(0 == lastCut || TimeUnit.MILLISECONDS.toNanos(COOLDOWN_MILLIS) <= now - lastCut) {
+        limit = Math.max(1.0, limit * BACKOFF);
+        lastCut = now;
+      }
+    } else limit = Math.min(max, limit + 1.0 / limit);
+  }
+
+  /**
+   * Retrieves the limit now being enforced.
+   *
+   * @return how many requests may be worked on at once, at most the cap
+   */
+  int limit() {
+    return (int)limit;
+  }
+
+  /**
+   * Counts the requests refused so far.
+   *
+   * @return the number shed
+   */
+  long countShed() {
+    return shed.get();
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.metrics.Counter;
+import com.crowdease.yasss.metrics.Metrics;
+import com.crowdease.yasss.model.User.AccessLevel;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The authorization decisions one thread has made since its trace was last
+ * reset.
+ *
+ * <p>{@link Authorization} used to log every check and subcheck at INFO, with
+ * its arguments built whether or not anything was listening. An event page
+ * checks once per RSVP per slot and once per volunteer, so one large event
+ * wrote thousands of lines to stderr, synchronously, on the request thread --
+ * and an operator looking for why somebody got a 403 had to find their few
+ * lines among them.
+ *
+ * <p>Now each decision is a handful of primitives written into arrays that
+ * belong to the thread, in the style of
+ * {@link com.crowdease.yasss.metrics.QueryTrace}: nothing is allocated,
+ * nothing is locked, and only the last {@link #CAPACITY} are kept. They are
+ * read once, when the request ends, and then only if it was refused with a
+ * 401 or 403 -- in which case they are logged as one line and kept among the
+ * last {@link #KEPT_DENIALS}, for {@link ListDenialsEndpoint} -- or if debug
+ * is on. How many decisions of each kind went each way is counted always.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class DecisionTrace {
+
+  /** The most decisions kept per request; the ones before are only counted. */
+  static final int CAPACITY = 64;
+
+  /** How many refused requests {@link #recentDenials()} remembers. */
+  static final int KEPT_DENIALS = 32;
+
+  /** What was asked. */
+  enum Check {
+
+    /** Sign-in is switched off, so everything is allowed. */
+    DISABLED,
+
+    /** No permission named; treated as a platform administrator check. */
+    UNSPECIFIED,
+
+    /** Whether the caller signed in at all. */
+    AUTHENTICATED,
+
+    /** Whether the caller passed the CAPTCHA, or none is required. */
+    HUMAN,
+
+    /** Whether the caller holds at least an access level. */
+    LEVEL,
+
+    /** Whether the caller holds exactly an access level. */
+    EXACT_LEVEL,
+
+    /** Whether the caller may modify an event. */
+    EVENT,
+
+    /** Whether the caller may modify a user. */
+    USER,
+
+    /** Something this class does not know how to check; always refused. */
+    UNKNOWN
+  }
+
+  /**
+   * One decision, read back out of the arrays.
+   *
+   * @param check what was asked
+   * @param actor the caller, or {@code null} if anonymous
+   * @param subject the event or user asked about, or {@code null}
+   * @param level the access level required, or {@code null}
+   * @param verdict whether it was allowed
+   */
+  record Decision(Check check, UUID actor, UUID subject, AccessLevel level, boolean verdict) {
+
+    JSONObject toJSON() {
+      return new JSONObject()
+          .put("check", check.name())
+          .put("actor", null == actor ? JSONObject.NULL : actor.toString())
+          .put("subject", null == subject ? JSONObject.NULL : subject.toString())
+          .put("level", null == level ? JSONObject.NULL : level.name())
+          .put("verdict", verdict);
+    }
+
+    @Override public String toString() {
+      StringBuilder sb = new StringBuilder(check.name());
+      if(null != actor) sb.append(" actor=").append(actor);
+      if(null != subject) sb.append(" subject=").append(subject);
+      if(null != level) sb.append(" level=").append(level.name());
+      return sb.append(verdict ? " ALLOW" : " DENY").toString();
+    }
+  }
+
+  /**
+   * A request that was refused, and the decisions that led to it.
+   *
+   * @param at when it ended, in epoch milliseconds
+   * @param endpoint the endpoint's class name
+   * @param status the status it was refused with
+   * @param decided how many decisions it made, including any not kept
+   * @param decisions the last {@link #CAPACITY} of them, oldest first
+   */
+  record Denial(long at, String endpoint, int status, int decided, List<Decision> decisions) {
+
+    JSONObject toJSON() {
+      JSONArray decisionArr = new JSONArray();
+      for(var decision : decisions)
+        decisionArr.put(decision.toJSON());
+      return new JSONObject()
+          .put("at", at)
+          .put("endpoint", endpoint)
+          .put("status", status)
+          .put("decided", decided)
+          .put("decisions", decisionArr);
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(DecisionTrace.class);
+  private static final ThreadLocal<DecisionTrace> current = ThreadLocal.withInitial(DecisionTrace::new);
+  private static final Check[] CHECKS = Check.values();
+  private static final Counter[] counters = new Counter[2 * CHECKS.length];
+  private static final AtomicReferenceArray<Denial> denials = new AtomicReferenceArray<>(KEPT_DENIALS);
+  private static final AtomicLong denialCount = new AtomicLong();
+  private static final AccessLevel[] LEVELS = AccessLevel.values();
+
+  static {
+    for(var check : CHECKS)
+      for(int verdict = 0; verdict < 2; verdict++)
+        counters[2 * check.ordinal() + verdict] = Metrics.REGISTRY.counter(
+            "yasss_authz_decisions_total",
+            "Authorization decisions, by what was checked and how it went.",
+            "check", check.name().toLowerCase(),
+            "verdict", 1 == verdict ? "allow" : "deny");
+  }
+
+  // Four longs per decision: the actor's UUID, then the subject's.
+  private final long[] ids = new long[4 * CAPACITY];
+  private final byte[] checks = new byte[CAPACITY];
+  private final byte[] levels = new byte[CAPACITY];
+  private final boolean[] verdicts = new boolean[CAPACITY];
+  private int count = 0;
+
+  private DecisionTrace() { }
+
+  /**
+   * Retrieves this thread's trace.
+   *
+   * @return the live trace, which the next request on this thread resets
+   */
+  static DecisionTrace current() {
+    return current.get();
+  }
+
+  /**
+   * Notes a decision on this thread.
+   *
+   * @param check what was asked
+   * @param actor the caller, or {@code null} if anonymous
+   * @param subject the event or user asked about, or {@code null}
+   * @param level the access level required, or {@code null}
+   * @param verdict whether it was allowed
+   * @return {@code verdict}, so that a check can return what it notes
+   */
+  static boolean note(Check check, UUID actor, UUID subject, AccessLevel level, boolean verdict) {
+    counters[2 * check.ordinal() + (verdict ? 1 : 0)].inc();
+    current.get().record(check, actor, subject, level, verdict);
+    return verdict;
+  }
+
+  /** Forgets everything; the start of a request. */
+  void reset() {
+    count = 0;
+  }
+
+  private void record(Check check, UUID actor, UUID subject, AccessLevel level, boolean verdict) {
+    int i = count % CAPACITY;
+    // Saturating, for the same reason as QueryTrace: a daemon's trace is never
+    // reset. Past the wrap the ring's order is lost, which no request gets near.
+    if(Integer.MAX_VALUE > count) count++;
+
+    int at = 4 * i;
+    ids[at] = null == actor ? 0L : actor.getMostSignificantBits();
+    ids[at + 1] = null == actor ? 0L : actor.getLeastSignificantBits();
+    ids[at + 2] = null == subject ? 0L : subject.getMostSignificantBits();
+    ids[at + 3] = null == subject ? 0L : subject.getLeastSignificantBits();
+    checks[i] = (byte)check.ordinal();
+    levels[i] = (byte)(null == level ? -1 : level.ordinal());
+    verdicts[i] = verdict;
+  }
+
+  /**
+   * Counts the decisions made since the trace was reset.
+   *
+   * @return how many, including any no longer kept
+   */
+  int count() {
+    return count;
+  }
+
+  /**
+   * Reads back the decisions kept.
+   *
+   * @return the last {@link #CAPACITY} decisions, oldest first
+   */
+  List<Decision> decisions() {
+    int kept = Math.min(count, CAPACITY);
+    List<Decision> decisions = new ArrayList<>(kept);
+    for(int n = count - kept; n < count; n++) {
+      int i = n % CAPACITY;
+      int at = 4 * i;
+      decisions.add(
+          new Decision(
+              CHECKS[checks[i]],
+              uuid(ids[at], ids[at + 1]),
+              uuid(ids[at + 2], ids[at + 3]),
+              0 > levels[i] ? null : LEVELS[levels[i]],
+              verdicts[i]));
+    }
+    return decisions;
+  }
+
+  private static UUID uuid(long msb, long lsb) {
+    return 0L == msb && 0L == lsb ? null : new UUID(msb, lsb);
+  }
+
+  /**
+   * Reports the request that just ended, if it was refused or debug is on.
+   *
+   * @param endpoint the endpoint's class name
+   * @param status the status the response carries
+   */
+  void finish(String endpoint, int status) {
+    if(0 == count) return;
+    boolean denied = 401 == status || 403 == status;
+    if(!denied && !YasssCore.debugEnabled()) return;
+
+    List<Decision> decisions = decisions();
+    if(denied) {
+      Denial denial = new Denial(
+          System.currentTimeMillis(), endpoint, status, count, Collections.unmodifiableList(decisions));
+      denials.set((int)(denialCount.getAndIncrement() % KEPT_DENIALS), denial);
+    }
+
+    logger.info(
+        "authz {} endpoint={} status={} decided={} trace={}",
+        denied ? "denied" : "trace",
+        endpoint,
+        status,
+        count,
+        decisions);
+  }
+
+  /**
+   * Retrieves the requests most recently refused, on this node.
+   *
+   * @return up to {@link #KEPT_DENIALS} of them, newest first
+   */
+  static List<Denial> recentDenials() {
+    long total = denialCount.get();
+    List<Denial> recent = new ArrayList<>();
+    for(long n = total - 1; n >= Math.max(0L, total - KEPT_DENIALS); n--) {
+      Denial denial = denials.get((int)(n % KEPT_DENIALS));
+      if(null != denial) recent.add(denial);
+    }
+    return recent;
+  }
+
+  /**
+   * Counts the decisions of one kind that went one way, since boot.
+   *
+   * @param check what was asked
+   * @param verdict how it went
+   * @return how many
+   */
+  static long countDecisions(Check check, boolean verdict) {
+    return counters[2 * check.ordinal() + (verdict ? 1 : 0)].get();
+  }
+}
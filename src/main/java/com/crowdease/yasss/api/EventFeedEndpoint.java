@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import com.axonibyte.lib.http.APIVersion;
+import com.axonibyte.lib.http.rest.AuthStatus;
+import com.axonibyte.lib.http.rest.Endpoint;
+import com.axonibyte.lib.http.rest.EndpointException;
+import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.daemon.EventFeed;
+import com.crowdease.yasss.metrics.EndpointMetrics;
+import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.User.AccessLevel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Endpoint that handles the following of an event's signup sheet as it
+ * changes, as Server-Sent Events.
+ *
+ * <p>The response is held open without holding a thread: the request goes
+ * asynchronous, and frames are written by {@link EventFeed} only when the
+ * connection can take them. A thread per watcher would have put a ceiling of
+ * the server's thread pool on how many people can watch, which is the wrong
+ * way round for a feature whose point is large audiences.
+ *
+ * <p>The response is committed before {@link #answer} returns, and Spark
+ * writes no body for a committed response -- which is what keeps it from
+ * serializing, and then closing, a stream that is still in use.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class EventFeedEndpoint extends Endpoint {
+
+  /**
+   * How long one connection is held, in milliseconds, before the client is
+   * made to reconnect. Resuming is cheap, and a bound means a connection
+   * abandoned without a close is found even if every write to it succeeds.
+   */
+  static final long MAX_AGE = 30 * 60_000L;
+
+  private static final Logger logger = LoggerFactory.getLogger(EventFeedEndpoint.class);
+
+  private final EndpointMetrics metrics =
+      new EndpointMetrics(EventFeedEndpoint.class.getSimpleName(), "/events/:event/feed");
+
+  /**
+   * Instantiates the endpoint.
+   */
+  public EventFeedEndpoint() {
+    super("/events/:event/feed", APIVersion.VERSION_1, HTTPMethod.GET);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public String answer(Request req, Response res, AuthStatus as) throws EndpointException {
+    // Same bracket as EventReportEndpoint. It measures the time to start
+    // following, not how long the client followed for.
+    try {
+      follow(req, res, (Authorization)as);
+      APIEndpoint.end(metrics, EventFeedEndpoint.class.getSimpleName(), res.status());
+      return "";
+    } catch(EndpointException e) {
+      APIEndpoint.end(metrics, EventFeedEndpoint.class.getSimpleName(), e.getErrorCode());
+      throw e;
+    } catch(RuntimeException e) {
+      APIEndpoint.end(metrics, EventFeedEndpoint.class.getSimpleName(), 500);
+      throw e;
+    }
+  }
+
+  private void follow(Request req, Response res, Authorization auth) throws EndpointException {
+    EventFeed feed = YasssCore.getEventFeed();
+    if(null == feed)
+      throw new EndpointException(req, "event feed disabled", 404);
+
+    try {
+      Event event = null;
+
+      try {
+        event = APIEndpoint.resolveEvent(req.params("event"));
+      } catch(IllegalArgumentException e) { }
+
+      if(null == event)
+        throw new EndpointException(req, "event not found", 404);
+
+      // RetrieveEventEndpoint's gate, less its checkout fulfillment: whoever
+      // may read the event may follow it. The feed carries nothing that
+      // endpoint does not show every caller.
+      if(!event.isPublished() && !auth.atLeast(event) && !auth.atLeast(AccessLevel.ADMIN))
+        throw new EndpointException(req, "event not published", 402);
+
+      Sink sink = new Sink();
+      EventFeed.Subscription subscription =
+          feed.subscribe(event.getID(), req.headers("Last-Event-ID"), sink);
+      if(null == subscription) {
+        // Either this node is full or the event went away since it was
+        // resolved above; both are worth a retry, and a retry may well land
+        // on another node.
+        res.header("Retry-After", Long.toString(EventFeed.RETRY / 1000L));
+        throw new EndpointException(req, "feed unavailable", 503);
+      }
+
+      res.status(200);
+      res.type("text/event-stream; charset=utf-8");
+      res.header("Cache-Control", "no-cache");
+      // nginx buffers proxied responses by default, which would hold every
+      // frame until the buffer filled.
+      res.header("X-Accel-Buffering", "no");
+
+      try {
+        res.raw().flushBuffer();
+        AsyncContext context = req.raw().startAsync();
+        context.setTimeout(MAX_AGE);
+        ServletOutputStream out = res.raw().getOutputStream();
+        sink.attach(context, out);
+
+        context.addListener(
+            new AsyncListener() {
+              @Override public void onComplete(AsyncEvent e) {
+                subscription.close();
+              }
+              @Override public void onTimeout(AsyncEvent e) {
+                subscription.close();
+              }
+              @Override public void onError(AsyncEvent e) {
+                subscription.close();
+              }
+              @Override public void onStartAsync(AsyncEvent e) { }
+            });
+
+        subscription.start(
+            () -> out.setWriteListener(
+                new WriteListener() {
+                  @Override public void onWritePossible() {
+                    subscription.drain();
+                  }
+                  @Override public void onError(Throwable t) {
+                    subscription.close();
+                  }
+                }));
+
+      } catch(IOException | RuntimeException e) {
+        subscription.close();
+        logger.debug("could not start following event {}: {}", event.getID(), e.getMessage());
+        if(!res.raw().isCommitted())
+          throw new EndpointException(req, "internal server error", 500, e);
+      }
+
+    } catch(SQLException e) {
+      throw new EndpointException(req, "database malfunction", 500, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public AuthStatus authenticate(Request req, Response res) throws EndpointException {
+    EndpointMetrics.begin();
+    // false: not a sign-in route. See EventReportEndpoint.
+    return APIEndpoint.authorize(req, res, false, metrics);
+  }
+
+  /**
+   * The servlet's side of a subscription. Frames queue in the subscription
+   * until the response has gone asynchronous, so nothing is ever written to
+   * a stream that is not yet non-blocking.
+   */
+  private static final class Sink implements EventFeed.Sink {
+
+    private volatile AsyncContext context = null;
+    private volatile ServletOutputStream out = null;
+
+    private void attach(AsyncContext context, ServletOutputStream out) {
+      this.context = context;
+      this.out = out;
+    }
+
+    @Override public boolean isReady() {
+      ServletOutputStream out = this.out;
+      return null != out && out.isReady();
+    }
+
+    @Override public void write(byte[] frame) throws IOException {
+      out.write(frame);
+    }
+
+    @Override public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override public void close() {
+      AsyncContext context = this.context;
+      if(null == context) return;
+      try {
+        context.complete();
+      } catch(IllegalStateException e) {
+        // Already completed, which is how most subscriptions end.
+      }
+    }
+  }
+}
@@ -7,23 +7,26 @@
  */
 package com.crowdease.yasss.api;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
-import java.util.UUID;
 
 import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.AuthStatus;
 import com.axonibyte.lib.http.rest.Endpoint;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.ReplicaSet;
 import com.crowdease.yasss.YasssCore;
-import com.crowdease.yasss.api.AuthToken.AuthException;
+import com.crowdease.yasss.metrics.EndpointMetrics;
+import com.crowdease.yasss.model.DateFormats;
 import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.EventSnapshot;
 import com.crowdease.yasss.model.HTMLElem;
-import com.crowdease.yasss.model.User;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,13 +45,44 @@ public final class EventReportEndpoint extends Endpoint {
 
   private static final Logger logger = LoggerFactory.getLogger(EventReportEndpoint.class);
 
+  private final EndpointMetrics metrics =
+      new EndpointMetrics(EventReportEndpoint.class.getSimpleName(), "/events/:event/report");
+  private final ConcurrencyLimit limit =
+      ConcurrencyLimit.forEndpoint(EventReportEndpoint.class.getSimpleName());
+
   public EventReportEndpoint() {
     super("/events/:event/report", APIVersion.VERSION_1, HTTPMethod.GET);
   }
 
   @Override public String answer(Request req, Response res, AuthStatus as) throws EndpointException {
+    // Same bracket as APIEndpoint.doEndpointTask, which this class does not
+    // inherit.
+    try {
+      ConcurrencyLimit.Permit permit = APIEndpoint.admit(limit, res);
+      if(null == permit) {
+        APIEndpoint.end(metrics, EventReportEndpoint.class.getSimpleName(), 503);
+        return "server busy";
+      }
+
+      String report;
+      try(permit) {
+        report = report(req, res, as);
+      }
+      APIEndpoint.end(metrics, EventReportEndpoint.class.getSimpleName(), res.status());
+      return report;
+    } catch(EndpointException e) {
+      APIEndpoint.end(metrics, EventReportEndpoint.class.getSimpleName(), e.getErrorCode());
+      throw e;
+    } catch(RuntimeException e) {
+      APIEndpoint.end(metrics, EventReportEndpoint.class.getSimpleName(), 500);
+      throw e;
+    }
+  }
+
+  private String report(Request req, Response res, AuthStatus as) throws EndpointException {
     Authorization auth = (Authorization)as;
     HTMLElem htmlBody = new HTMLElem("body");
+    ReplicaSet.Scope replica = ReplicaSet.Scope.NONE;
     
     try {
       Event event = null;
@@ -63,6 +97,11 @@ public final class EventReportEndpoint extends Endpoint {
       if(!auth.atLeast(event))
         throw new EndpointException(req, "access denied", 403);
 
+      // After the access check rather than before, so that the event the
+      // decision was made on came from the primary. The report itself is all
+      // reads.
+      replica = APIEndpoint.replicaScope(req);
+
       htmlBody.push(
           new HTMLElem("h1")
               .push(HTMLElem.text(event.getShortDescription())));
@@ -80,10 +119,17 @@ public final class EventReportEndpoint extends Endpoint {
                       new HTMLElem("th")
                           .attr("colspan", TOTAL_COLS)
                           .push("Volunteers")));
-      for(var volunteer : event.getVolunteers()) {
+      // The whole event, read once and packed into arrays before any of it is
+      // rendered. Every slot's roster and count used to be a read of its own,
+      // and then a map of the event's volunteers and a list of its RSVPs held
+      // beside the page as it was built; the snapshot is all that is held now,
+      // and the objects it was read through are garbage before the first row.
+      EventSnapshot snapshot = EventSnapshot.load(event);
+
+      for(int v = 0; v < snapshot.volunteers(); v++) {
         List<HTMLElem> rows = new ArrayList<>();
         
-        for(var detail : volunteer.getDetails().entrySet()) {
+        for(int k = 0; k < snapshot.answers(v); k++) {
           rows.add(
               new HTMLElem("tr")
                   .push(
@@ -95,8 +141,10 @@ public final class EventReportEndpoint extends Endpoint {
                           // forgotten.
                           .push(
                               new HTMLElem("strong")
-                                  .push(HTMLElem.text(detail.getKey().getLabel() + ":")),
-                              HTMLElem.text(" " + detail.getValue()))));
+                                  .push(
+                                      HTMLElem.text(
+                                          snapshot.detailLabel(snapshot.answerDetail(v, k)) + ":")),
+                              HTMLElem.text(" " + snapshot.answerValue(v, k)))));
         }
 
         // A volunteer with no custom-field answers leaves this list empty, and
@@ -111,7 +159,7 @@ public final class EventReportEndpoint extends Endpoint {
             .attr("colspan", VOLUNTEER_COLSPAN)
             .attr("rowspan", "" + (1 + rows.size()))
             .attr("class", "category")
-            .push(HTMLElem.text(volunteer.getName())));
+            .push(HTMLElem.text(snapshot.volunteerName(v))));
 
         rows.add(
             new HTMLElem("td")
@@ -126,18 +174,14 @@ public final class EventReportEndpoint extends Endpoint {
       // Rendered in the event's own zone, like every other surface. This sheet
       // is printed and carried to the event, so the server's zone was never the
       // right one; an event with no recorded zone falls back to it as before.
-      final SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy hh:mm a");
-      if(null != event.getTimezone())
-        sdf.setTimeZone(java.util.TimeZone.getTimeZone(event.getTimezone()));
-
-      for(var window : event.getWindows()) {
+      for(int w = 0; w < snapshot.windows(); w++) {
         StringBuilder tsSB = new StringBuilder(
-            sdf.format(
-                window.getBeginTime()));
-        if(null != window.getEndTime())
+            DateFormats.slot(
+                new Date(snapshot.windowBegin(w)), event.getTimezone()));
+        if(EventSnapshot.NO_END != snapshot.windowEnd(w))
           tsSB.append(" - ").append(
-              sdf.format(
-                  window.getEndTime()));
+              DateFormats.slot(
+                  new Date(snapshot.windowEnd(w)), event.getTimezone()));
 
         HTMLElem table = new HTMLElem("table")
             .push(
@@ -147,26 +191,29 @@ public final class EventReportEndpoint extends Endpoint {
                             .attr("colspan", TOTAL_COLS)
                             .push(tsSB.toString())));
 
-        for(var slot : window.getSlots()) {
-          List<HTMLElem> rows = new ArrayList<>();
+        // Activities in the snapshot are in the order the window's slots were
+        // read in, so walking the matrix down this column lists them the same.
+        for(int a = 0; a < snapshot.activities(); a++) {
+          int slotRSVPCap = snapshot.slotCap(a, w);
+          if(EventSnapshot.NO_SLOT == slotRSVPCap) continue;
 
-          for(var volunteer : slot.getRSVPs().values()) {
-            rows.add(
-                new HTMLElem("tr")
-                    .push(
-                        new HTMLElem("td")
-                            .attr("colspan", RSVP_COLSPAN)
-                            .push(HTMLElem.text(volunteer.getName())),
-                        new HTMLElem("td")
-                            .attr("class", "checkbox")
-                            .push("&#x2610;")));
-          }
-          
-          var activity = event.getActivity(slot.getActivity());
+          List<HTMLElem> rows = new ArrayList<>();
 
-          int activityRSVPCount = activity.countRSVPs();
-          int activityRSVPCap = activity.getMaxActivityVolunteers();
-          int slotRSVPCap = slot.getMaxSlotVolunteers();
+          snapshot.forEachRSVP(
+              a,
+              w,
+              v -> rows.add(
+                  new HTMLElem("tr")
+                      .push(
+                          new HTMLElem("td")
+                              .attr("colspan", RSVP_COLSPAN)
+                              .push(HTMLElem.text(snapshot.volunteerName(v))),
+                          new HTMLElem("td")
+                              .attr("class", "checkbox")
+                              .push("&#x2610;"))));
+
+          int activityRSVPCount = snapshot.activityCount(a);
+          int activityRSVPCap = snapshot.activityCap(a);
 
           int remaining;
 
@@ -188,11 +235,12 @@ public final class EventReportEndpoint extends Endpoint {
                             .attr("class", "checkbox")
                             .push("&#x2610;")));
 
-          logger.debug(
-              "slot at (a,w) = ({},{}) has description \"{}\"",
-              activity.getID().toString(),
-              slot.getWindow().toString(),
-              activity.getShortDescription());
+          if(logger.isDebugEnabled())
+            logger.debug(
+                "slot at (a,w) = ({},{}) has description \"{}\"",
+                snapshot.activityID(a).toString(),
+                snapshot.windowID(w).toString(),
+                snapshot.activityShortDescription(a));
           
           // Same hazard: a fully-capped slot whose RSVPs were all canceled
           // yields no rows and no remaining blanks to add.
@@ -205,7 +253,7 @@ public final class EventReportEndpoint extends Endpoint {
                   .attr("colspan", ACTIVITY_COLSPAN)
                   .attr("rowspan", "" + rows.size())
                   .attr("class", "category")
-                  .push(HTMLElem.text(activity.getShortDescription())));
+                  .push(HTMLElem.text(snapshot.activityShortDescription(a))));
 
           for(var row : rows)
             table.push(row);
@@ -216,54 +264,52 @@ public final class EventReportEndpoint extends Endpoint {
       
     } catch(SQLException e) {
       throw new EndpointException(req, "database malfunction", 500, e);
+    } finally {
+      replica.close();
     }
 
-    String reportTemplate;
-    try(Scanner scanner = new Scanner(
-        YasssCore.class.getResourceAsStream("/public/report.html"), "UTF-8")) {
-      reportTemplate = scanner.useDelimiter("\\A").next();
+    // Written into one buffer around the template, rather than rendered to a
+    // string and then copied again by a replace().
+    StringBuilder page = new StringBuilder(Template.HEAD.length() + Template.TAIL.length() + 8192);
+    page.append(Template.HEAD);
+    try {
+      htmlBody.writeTo(page);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e); // a StringBuilder does not throw
     }
+    page.append(Template.TAIL);
 
     res.type("text/html");
-    return reportTemplate.replace("{{ REPORT_BODY }}", htmlBody.toString());
+    return page.toString();
   }
 
-  @Override public AuthStatus authenticate(Request req, Response res) throws EndpointException {
-    String authString = req.headers("Authorization");
-    User user = null;
-    AuthToken token = null;
-
-    try {
-      // false: the HTML report is a normal authenticated resource, not a sign-in route.
-      token = new AuthToken(authString, false);
-      String nextSession = token.process();
-      user = token.getUser();
-
-      res.header(APIEndpoint.ACCESS_LEVEL_HEADER, user.getAccessLevel().name());
-      res.header(APIEndpoint.ACCOUNT_HEADER, user.getID().toString());
-      res.header(APIEndpoint.SESSION_HEADER, nextSession);
-      
-    } catch(AuthException e) {
-      // A wrong clock is otherwise indistinguishable from a wrong password: the request
-      // just becomes anonymous and the client reports "invalid credentials", which is
-      // both false and unactionable. Saying so costs nothing -- skew is decided before
-      // any account is resolved, so this reveals nothing about who exists.
-      if(token.clockSkewed()) {
-        res.header(APIEndpoint.AUTH_HINT_HEADER, APIEndpoint.HINT_CLOCK_SKEW);
-        res.header(APIEndpoint.SERVER_TIME_HEADER, Long.toString(System.currentTimeMillis()));
+  /**
+   * The report page, either side of its body. Read on first use and kept: it
+   * is a classpath resource, and so cannot change under a running server.
+   */
+  private static final class Template {
+
+    private static final String BODY_MARKER = "{{ REPORT_BODY }}";
+    private static final String HEAD;
+    private static final String TAIL;
+
+    static {
+      String template;
+      try(Scanner scanner = new Scanner(
+          YasssCore.class.getResourceAsStream("/public/report.html"), "UTF-8")) {
+        template = scanner.useDelimiter("\\A").next();
       }
-      logger.debug("authorization error: {}", e.getMessage());
-    } catch(SQLException e) {
-      logger.error(
-          "database malfunction: {}",
-          null == e.getMessage() ? "no further info available" : e.getMessage());
-      throw new EndpointException(req, "internal server error", 500, e);
+      int at = template.indexOf(BODY_MARKER);
+      HEAD = template.substring(0, at);
+      TAIL = template.substring(at + BODY_MARKER.length());
     }
-    
-    // This endpoint extends Endpoint rather than APIEndpoint, so it cannot
-    // inherit the helper; both live in this package, so call it directly
-    // rather than duplicating the null-validator handling.
-    return new Authorization(user, APIEndpoint.verifyHuman(req));
+  }
+
+  @Override public AuthStatus authenticate(Request req, Response res) throws EndpointException {
+    EndpointMetrics.begin();
+    // false: not a sign-in route. This class extends Endpoint rather than
+    // APIEndpoint, so it cannot inherit the method, only call it.
+    return APIEndpoint.authorize(req, res, false, metrics);
   }
   
 }
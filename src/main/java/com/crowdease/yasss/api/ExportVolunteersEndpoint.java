@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import com.axonibyte.lib.http.APIVersion;
+import com.axonibyte.lib.http.rest.AuthStatus;
+import com.axonibyte.lib.http.rest.Endpoint;
+import com.axonibyte.lib.http.rest.EndpointException;
+import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.ReplicaSet;
+import com.crowdease.yasss.metrics.EndpointMetrics;
+import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.VolunteerExport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Endpoint that handles the downloading of an event's volunteers.
+ *
+ * <p>Writes straight to the response rather than returning a body, which is
+ * why this is an {@link Endpoint} and not an {@link APIEndpoint}: the latter
+ * can only answer with a {@link org.json.JSONObject} built whole in memory.
+ * See {@link VolunteerExport} for what the file holds.
+ *
+ * <p>Once the first bytes have gone out the status has gone with them, so a
+ * failure partway through can only be logged; the client sees a file that
+ * stops short. Everything that can be refused is decided before that.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class ExportVolunteersEndpoint extends Endpoint {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExportVolunteersEndpoint.class);
+
+  private final EndpointMetrics metrics = new EndpointMetrics(
+      ExportVolunteersEndpoint.class.getSimpleName(), "/events/:event/volunteers/export");
+  private final ConcurrencyLimit limit =
+      ConcurrencyLimit.forEndpoint(ExportVolunteersEndpoint.class.getSimpleName());
+
+  /**
+   * Instantiates the endpoint.
+   */
+  public ExportVolunteersEndpoint() {
+    super("/events/:event/volunteers/export", APIVersion.VERSION_1, HTTPMethod.GET);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public String answer(Request req, Response res, AuthStatus as) throws EndpointException {
+    // Same bracket as EventReportEndpoint.
+    try {
+      ConcurrencyLimit.Permit permit = APIEndpoint.admit(limit, res);
+      if(null == permit) {
+        APIEndpoint.end(metrics, ExportVolunteersEndpoint.class.getSimpleName(), 503);
+        return "server busy";
+      }
+
+      try(permit) {
+        export(req, res, (Authorization)as);
+      }
+      APIEndpoint.end(metrics, ExportVolunteersEndpoint.class.getSimpleName(), res.status());
+      return "";
+    } catch(EndpointException e) {
+      APIEndpoint.end(metrics, ExportVolunteersEndpoint.class.getSimpleName(), e.getErrorCode());
+      throw e;
+    } catch(RuntimeException e) {
+      APIEndpoint.end(metrics, ExportVolunteersEndpoint.class.getSimpleName(), 500);
+      throw e;
+    }
+  }
+
+  private void export(Request req, Response res, Authorization auth) throws EndpointException {
+    Event event = null;
+
+    try {
+      event = APIEndpoint.resolveEvent(req.params("event"));
+    } catch(IllegalArgumentException e) {
+    } catch(SQLException e) {
+      throw new EndpointException(req, "database malfunction", 500, e);
+    }
+
+    if(null == event)
+      throw new EndpointException(req, "event not found", 404);
+
+    // The same check as the report: this is the report's information, in a
+    // form a spreadsheet can open.
+    if(!auth.atLeast(event))
+      throw new EndpointException(req, "access denied", 403);
+
+    VolunteerExport.Format format = VolunteerExport.Format.fromParam(req.queryParams("format"));
+    if(null == format)
+      throw new EndpointException(req, "malformed argument (format)", 400);
+
+    res.type(format.getContentType());
+    res.header(
+        "Content-Disposition",
+        String.format(
+            "attachment; filename=\"volunteers-%1$s.%2$s\"",
+            event.getID(),
+            format.getExtension()));
+    // Names and answers to signup forms; nothing in between should keep them.
+    res.header("Cache-Control", "no-store");
+
+    try(ReplicaSet.Scope replica = APIEndpoint.replicaScope(req)) {
+      Writer out = new BufferedWriter(
+          new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+      int written = VolunteerExport.write(event, format, out);
+      logger.debug("exported {} volunteers of event {}", written, event.getID());
+
+    } catch(SQLException | IOException e) {
+      // Before the header was flushed the response can still say so; after,
+      // it is already a 200 and the file simply ends where the failure did.
+      if(!res.raw().isCommitted())
+        throw new EndpointException(req, "internal server error", 500, e);
+      logger.error(
+          "export of event {} cut short: {}",
+          event.getID(),
+          null == e.getMessage() ? "no further info available" : e.getMessage());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public AuthStatus authenticate(Request req, Response res) throws EndpointException {
+    EndpointMetrics.begin();
+    // false: not a sign-in route. This class extends Endpoint rather than
+    // APIEndpoint, so it cannot inherit the method, only call it.
+    return APIEndpoint.authorize(req, res, false, metrics);
+  }
+}
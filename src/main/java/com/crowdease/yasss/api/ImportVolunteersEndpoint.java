@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import com.axonibyte.lib.http.APIVersion;
+import com.axonibyte.lib.http.rest.EndpointException;
+import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.model.CSVReader;
+import com.crowdease.yasss.model.CSVReader.MalformedCSVException;
+import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.VolunteerImport;
+import com.crowdease.yasss.model.User.AccessLevel;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Endpoint that handles the adding of many volunteers to an event at once.
+ *
+ * <p>Takes either a JSON array of signup bodies or, with a
+ * {@code Content-Type} of {@code text/csv}, a spreadsheet export. See
+ * {@link VolunteerImport} for what a row may hold and what an import will not
+ * do on a row's behalf.
+ *
+ * <p>Either way the body is buffered whole before it is parsed: Spark's request
+ * wrapper reads and caches it the first time anything asks for it, stream or
+ * not. So the size is checked first, from {@code Content-Length}, and a body
+ * over {@link #MAX_BODY_BYTES} is refused unread. One that does not declare a
+ * length is refused too, as there is no bounding a chunked body that is
+ * already being buffered by the time this sees it.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class ImportVolunteersEndpoint extends APIEndpoint {
+
+  /**
+   * The largest body an import will accept, in bytes. Room for
+   * {@link VolunteerImport#MAX_ROWS} rows of several hundred bytes each.
+   */
+  public static final int MAX_BODY_BYTES = 8 << 20;
+
+  /**
+   * Instantiates the endpoint.
+   */
+  public ImportVolunteersEndpoint() {
+    super("/events/:event/volunteers/import", APIVersion.VERSION_1, HTTPMethod.POST);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public JSONObject onCall(Request req, Response res, Authorization auth) throws EndpointException {
+    try {
+
+      Event event = null;
+
+      try {
+        event = resolveEvent(req.params("event"));
+      } catch(IllegalArgumentException e) { }
+
+      if(null == event)
+        throw new EndpointException(req, "event not found", 404);
+
+      // The event's own organizers only. An import writes rows on behalf of
+      // people who are not making the request, which a signup never does.
+      if(!auth.atLeast(event))
+        throw new EndpointException(req, "access denied", 403);
+
+      if(!auth.atLeast(AccessLevel.ADMIN) && event.isExpired())
+        throw new EndpointException(req, "event expired", 412);
+
+      int length = req.contentLength();
+      if(0 > length)
+        throw new EndpointException(req, "content length required", 411);
+      if(MAX_BODY_BYTES < length)
+        throw new EndpointException(
+            req,
+            String.format("body too large (limit %1$d bytes)", MAX_BODY_BYTES),
+            413);
+
+      VolunteerImport batch = VolunteerImport.forEvent(event);
+
+      String type = req.contentType();
+      if(null != type && type.toLowerCase(Locale.ROOT).startsWith("text/csv")) {
+        try(CSVReader csv = new CSVReader(
+            new BufferedReader(
+                new InputStreamReader(
+                    req.raw().getInputStream(), StandardCharsets.UTF_8)))) {
+          batch.readCSV(csv);
+        } catch(IllegalArgumentException e) {
+          // The header's problems are the whole request's, not one row's.
+          throw new EndpointException(req, e.getMessage(), 400, e);
+        } catch(MalformedCSVException e) {
+          throw new EndpointException(
+              req, String.format("malformed csv (%1$s)", e.getMessage()), 400, e);
+        } catch(IOException e) {
+          throw new EndpointException(req, "unreadable body", 400, e);
+        }
+
+      } else {
+        JSONArray rows;
+        try {
+          rows = new JSONArray(req.body());
+        } catch(JSONException e) {
+          throw new EndpointException(req, "malformed array", 400, e);
+        }
+        batch.readJSON(rows);
+      }
+
+      if(batch.overflowed())
+        throw new EndpointException(
+            req,
+            String.format("too many rows (limit %1$d)", VolunteerImport.MAX_ROWS),
+            413);
+
+      int imported = 0;
+      JSONArray results = new JSONArray();
+      for(var outcome : batch.commit()) {
+        JSONObject result = new JSONObject().put("row", outcome.row());
+        if(null == outcome.error()) {
+          imported++;
+          result.put("volunteer", outcome.volunteer());
+        } else result.put("error", outcome.error());
+        results.put(result);
+      }
+
+      return new JSONObject()
+          .put("status", "ok")
+          .put("info", "processed import")
+          .put("imported", imported)
+          .put("rejected", results.length() - imported)
+          .put("results", results);
+
+    } catch(SQLException e) {
+      throw new EndpointException(req, "database malfunction", 500, e);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import com.axonibyte.lib.http.APIVersion;
+import com.axonibyte.lib.http.rest.EndpointException;
+import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.model.User.AccessLevel;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Endpoint that lists the requests this node most recently refused, with the
+ * authorization decisions behind each.
+ *
+ * <p>Per node, and in memory only: see {@link DecisionTrace}. The same
+ * requests are logged as they are refused; this is for an administrator who
+ * has somebody on the phone saying they got a 403 and would rather not search
+ * the logs of every node for it.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class ListDenialsEndpoint extends APIEndpoint {
+
+  /**
+   * Instantiates the endpoint.
+   */
+  public ListDenialsEndpoint() {
+    super("/authz/denials", APIVersion.VERSION_1, HTTPMethod.GET);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public JSONObject onCall(Request req, Response res, Authorization auth) throws EndpointException {
+    if(!auth.atLeast(AccessLevel.ADMIN))
+      throw new EndpointException(req, "access denied", 403);
+
+    JSONArray denialArr = new JSONArray();
+    for(var denial : DecisionTrace.recentDenials())
+      denialArr.put(denial.toJSON());
+
+    res.status(200);
+    return new JSONObject()
+        .put("status", "ok")
+        .put("info", "successfully retrieved denials")
+        .put("denials", denialArr);
+  }
+}
@@ -43,7 +43,8 @@ public final class ListEventsEndpoint extends APIEndpoint {
    * {@inheritDoc}
    */
   @Override public JSONObject onCall(Request req, Response res, Authorization auth) throws EndpointException {
-    try {
+    // The whole call: listing writes nothing.
+    try(var replica = replicaScope(req)) {
       JSONDeserializer deserializer = deserializeQueryParams(req)
         .tokenize("admin", false)
         .tokenize("volunteer", false)
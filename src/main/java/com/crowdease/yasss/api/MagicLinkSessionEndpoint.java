@@ -13,6 +13,7 @@ import java.util.UUID;
 import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.metrics.Metrics;
 import com.crowdease.yasss.model.ExpiringToken;
 import com.crowdease.yasss.model.JSONDeserializer;
 import com.crowdease.yasss.model.JSONDeserializer.DeserializationException;
@@ -122,6 +123,7 @@ public final class MagicLinkSessionEndpoint extends APIEndpoint {
       res.raw().setHeader(ACCESS_LEVEL_HEADER, user.getAccessLevel().name());
       res.raw().setHeader(SESSION_HEADER, ticket);
 
+      Metrics.Login.MAGIC_LINK.succeeded();
       LOG.info("login method=magiclink user={}", user.getID().toString());
 
 
@@ -131,6 +133,10 @@ public final class MagicLinkSessionEndpoint extends APIEndpoint {
           .put("info", "signed in")
           .put("email", user.getEmail());
 
+    } catch(EndpointException e) {
+      if(403 == e.getErrorCode() || 410 == e.getErrorCode())
+        Metrics.Login.MAGIC_LINK.failed();
+      throw e;
     } catch(DeserializationException e) {
       throw new EndpointException(req, e.getMessage(), 400, e);
     } catch(SQLException e) {
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import com.axonibyte.lib.http.APIVersion;
+import com.axonibyte.lib.http.rest.AuthStatus;
+import com.axonibyte.lib.http.rest.Endpoint;
+import com.axonibyte.lib.http.rest.EndpointException;
+import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.metrics.Metrics;
+import com.crowdease.yasss.metrics.MetricsRegistry;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Serves the process's metrics in the Prometheus text format.
+ *
+ * <p>Extends {@link Endpoint} rather than {@link APIEndpoint} for the same
+ * reason {@link EventReportEndpoint} does: the body is not JSON. It also skips
+ * {@code AuthToken} entirely. A scraper is not a user, has no account to sign
+ * with, and polls every few seconds; the optional bearer token is compared in
+ * constant time and nothing else is looked up.
+ *
+ * <p>Always registered, and answering 404 when disabled, so that turning it on
+ * is a configuration change rather than a different route table.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class MetricsEndpoint extends Endpoint {
+
+  private final boolean enabled;
+  private final byte[] token;
+
+  /**
+   * Instantiates the endpoint.
+   *
+   * @param enabled whether to serve anything at all
+   * @param token the bearer token a scraper must present, or {@code null} to
+   *        serve anybody who can reach the port
+   */
+  public MetricsEndpoint(boolean enabled, String token) {
+    super("/metrics", APIVersion.VERSION_1, HTTPMethod.GET);
+    this.enabled = enabled;
+    this.token = null == token || token.isBlank()
+        ? null
+        : token.strip().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public String answer(Request req, Response res, AuthStatus as) throws EndpointException {
+    if(!enabled)
+      throw new EndpointException(req, "not found", 404);
+
+    if(null != token && !presented(req.headers("Authorization")))
+      throw new EndpointException(req, "access denied", 403);
+
+    StringBuilder body = new StringBuilder(16_384);
+    try {
+      Metrics.REGISTRY.write(body);
+    } catch(IOException e) {
+      // A StringBuilder does not throw.
+      throw new EndpointException(req, "internal server error", 500, e);
+    }
+
+    res.type(MetricsRegistry.CONTENT_TYPE);
+    res.status(200);
+    return body.toString();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public AuthStatus authenticate(Request req, Response res) throws EndpointException {
+    return new Authorization(null, false);
+  }
+
+  private boolean presented(String header) {
+    if(null == header) return false;
+    String[] parts = header.strip().split("\\s+");
+    return 2 == parts.length
+        && "Bearer".equalsIgnoreCase(parts[0])
+        && MessageDigest.isEqual(token, parts[1].getBytes(StandardCharsets.UTF_8));
+  }
+}
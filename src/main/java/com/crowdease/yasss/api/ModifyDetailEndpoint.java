@@ -14,6 +14,7 @@ import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.crowdease.yasss.model.Detail;
+import com.crowdease.yasss.model.DetailValidator;
 import com.crowdease.yasss.model.Event;
 import com.crowdease.yasss.model.JSONDeserializer;
 import com.crowdease.yasss.model.Detail.Type;
@@ -107,6 +108,7 @@ public final class ModifyDetailEndpoint extends APIEndpoint {
             deserializer.getBool("required"));
 
       detail.commit();
+      DetailValidator.invalidate(event.getID());
 
       res.status(200);
       return new JSONObject()
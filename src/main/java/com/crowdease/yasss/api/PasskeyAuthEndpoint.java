@@ -14,6 +14,7 @@ import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.metrics.Metrics;
 import com.crowdease.yasss.model.Passkey;
 import com.crowdease.yasss.model.PasskeyChallenge;
 import com.crowdease.yasss.model.PasskeyVerifier;
@@ -96,6 +97,11 @@ public final class PasskeyAuthEndpoint extends APIEndpoint {
 
     try {
       return Mode.BEGIN == mode ? begin(req, res) : finish(req, res);
+    } catch(EndpointException e) {
+      // A refusal of the assertion, as opposed to a malformed body or a fault.
+      if(Mode.FINISH == mode && (403 == e.getErrorCode() || 410 == e.getErrorCode()))
+        Metrics.Login.PASSKEY.failed();
+      throw e;
     } catch(SQLException e) {
       throw new EndpointException(req, "database malfunction", 500, e);
     }
@@ -187,6 +193,7 @@ public final class PasskeyAuthEndpoint extends APIEndpoint {
     res.raw().setHeader(ACCESS_LEVEL_HEADER, user.getAccessLevel().name());
     res.raw().setHeader(SESSION_HEADER, ticket);
 
+    Metrics.Login.PASSKEY.succeeded();
     LOG.info(
         "login method=passkey uv={} user={}",
         asserted.userVerified(), user.getID().toString());
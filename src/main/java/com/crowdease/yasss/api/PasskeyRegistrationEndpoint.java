@@ -18,6 +18,7 @@ import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.crowdease.yasss.YasssCore;
 import com.crowdease.yasss.model.Passkey;
+import com.crowdease.yasss.model.RowID;
 import com.crowdease.yasss.model.PasskeyChallenge;
 import com.crowdease.yasss.model.PasskeyVerifier;
 import com.crowdease.yasss.model.User;
@@ -189,7 +190,7 @@ public final class PasskeyRegistrationEndpoint extends APIEndpoint {
       throw new EndpointException(req, "malformed argument (label)", 400);
 
     new Passkey(
-        UUID.randomUUID(),
+        RowID.generate(),
         user.getID(),
         registered.credentialID(),
         registered.publicKey(),
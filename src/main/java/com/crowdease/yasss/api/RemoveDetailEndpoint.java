@@ -14,6 +14,7 @@ import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
 import com.crowdease.yasss.model.Detail;
+import com.crowdease.yasss.model.DetailValidator;
 import com.crowdease.yasss.model.Event;
 import com.crowdease.yasss.model.User.AccessLevel;
 
@@ -68,6 +69,7 @@ public final class RemoveDetailEndpoint extends APIEndpoint {
         throw new EndpointException(req, "detail not found", 404);
 
       detail.delete();
+      DetailValidator.invalidate(event.getID());
 
       res.status(200);
       return new JSONObject()
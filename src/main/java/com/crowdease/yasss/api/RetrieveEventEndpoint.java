@@ -15,8 +15,10 @@ import java.util.UUID;
 import com.axonibyte.lib.http.APIVersion;
 import com.axonibyte.lib.http.rest.EndpointException;
 import com.axonibyte.lib.http.rest.HTTPMethod;
+import com.crowdease.yasss.ReplicaSet;
 import com.crowdease.yasss.YasssCore;
 import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.SlotCounts;
 import com.crowdease.yasss.model.User;
 import com.crowdease.yasss.model.Volunteer;
 import com.crowdease.yasss.model.User.AccessLevel;
@@ -46,6 +48,7 @@ public final class RetrieveEventEndpoint extends APIEndpoint {
    * {@inheritDoc}
    */
   @Override public JSONObject onCall(Request req, Response res, Authorization auth) throws EndpointException {
+    ReplicaSet.Scope replica = ReplicaSet.Scope.NONE;
     try {
       Event event = null;
 
@@ -68,6 +71,11 @@ public final class RetrieveEventEndpoint extends APIEndpoint {
          && !auth.atLeast(AccessLevel.ADMIN))
         throw new EndpointException(req, "event not published", 402);
 
+      // Only from here on. Fulfilling a checkout above is a write, and
+      // everything below is reads -- the heaviest on the platform, being one
+      // query per slot -- so this is where a replica earns its keep.
+      replica = replicaScope(req);
+
       JSONArray activityArr = new JSONArray();
       JSONArray windowArr = new JSONArray();
       JSONArray volunteerArr = new JSONArray();
@@ -83,29 +91,49 @@ public final class RetrieveEventEndpoint extends APIEndpoint {
       final boolean eventAdmin = auth.atLeast(event);
       final Map<UUID, User> actors = new HashMap<>();
 
-      for(var volunteer : event.getVolunteers())
-        volunteers.put(volunteer.getID(), volunteer);
+      // Counted for everyone, in one statement; see Event.getSlotCounts.
+      final SlotCounts counts = event.getSlotCounts();
+
+      // Nobody who is not signed in is shown a volunteer or an id -- every
+      // volunteer check below needs an actor -- so for the anonymous viewers
+      // who make up most of a public sheet's traffic, the volunteers and their
+      // RSVPs are not read at all. Asked of atLeast() rather than of
+      // getActor(), which is null when signin is not required and everyone is
+      // shown everything.
+      final boolean seesVolunteers = auth.atLeast(Authorization.IS_AUTHENTICATED);
+      final Map<String, JSONArray> rsvpIDs = new HashMap<>();
+
+      if(seesVolunteers) {
+        for(var volunteer : event.getVolunteers())
+          volunteers.put(volunteer.getID(), volunteer);
+
+        // Ids only for callers who are shown the volunteers themselves. The
+        // `volunteers` array below is authorization-filtered; this one was not,
+        // so an anonymous GET returned every volunteer id for an event whose
+        // volunteer list it then withheld.
+        for(var rsvp : event.getRSVPs()) {
+          Volunteer volunteer = volunteers.get(rsvp.getVolunteerID());
+          if(null == volunteer
+             || !eventAdmin && !auth.atLeast(owner(actors, volunteer.getUser())))
+            continue;
+          rsvpIDs
+              .computeIfAbsent(
+                  rsvp.getActivity() + ":" + rsvp.getWindow(),
+                  k -> new JSONArray())
+              .put(volunteer.getID());
+        }
+      }
 
       for(var activity : event.getActivities()) {
         JSONArray slotArr = new JSONArray();
         for(var slot : activity.getSlots()) {
-          // Ids only for callers who are shown the volunteers themselves. The
-          // `volunteers` array below is authorization-filtered; this one was
-          // not, so an anonymous GET returned every volunteer id and an exact
-          // per-slot headcount for an event whose volunteer list it then
-          // withheld. `rsvpCount` stays unconditional -- how full a slot is, is
-          // what a volunteer needs in order to decide whether to sign up.
-          JSONArray rsvpArr = new JSONArray();
-          int rsvpCount = 0;
-          for(var rsvp : slot.getRSVPs().entrySet()) {
-            // Counted before the filter, not after. `rsvpCount` used to be
-            // `rsvpArr.length()`, so filtering the ids also zeroed the count --
-            // and the count is what every viewer legitimately needs in order to
-            // see whether a slot has room.
-            rsvpCount++;
-            if(eventAdmin || auth.atLeast(owner(actors, rsvp.getValue().getUser())))
-              rsvpArr.put(rsvp.getValue().getID());
-          }
+          // `rsvpCount` stays unconditional, and is counted apart from the ids
+          // -- how full a slot is, is what a volunteer needs in order to decide
+          // whether to sign up.
+          JSONArray rsvpArr = rsvpIDs.getOrDefault(
+              slot.getActivity() + ":" + slot.getWindow(),
+              new JSONArray());
+          int rsvpCount = counts.count(slot.getActivity(), slot.getWindow());
           slotArr.put(
               new JSONObject()
                   .put("window", slot.getWindow())
@@ -220,6 +248,8 @@ public final class RetrieveEventEndpoint extends APIEndpoint {
       throw new EndpointException(req, "database malfunction", 500, e);
     } catch(StripeException e) {
       throw new EndpointException(req, "stripe malfunction", 500, e);
+    } finally {
+      replica.close();
     }
   }
 
@@ -42,6 +42,47 @@ public enum ParamEnum {
    */
   API_HOST(new Param("api.host", "http://127.0.0.1:7455")),
 
+  /**
+   * Whether requests are handled on virtual threads rather than a fixed pool.
+   *
+   * <p>Needs a Java 21 runtime; on anything older the server says so and keeps
+   * the fixed pool. With it on, a slow dependency ties up cheap threads rather
+   * than the pool, so it no longer stalls every other request -- and the
+   * database is then only protected by {@code db.maxConcurrency}.
+   */
+  API_VIRTUAL_THREADS(new Param("api.virtualThreads", false)),
+
+  /**
+   * How many requests to an endpoint not named in {@code api.limits} may be
+   * worked on at once; {@code 0}, the default, leaves them unlimited. See
+   * {@link com.crowdease.yasss.api.ConcurrencyLimit}.
+   */
+  API_LIMIT_DEFAULT(new Param("api.limit", 0)),
+
+  /**
+   * Per-endpoint caps, as comma-separated {@code EndpointClass=cap} pairs; a
+   * cap of {@code 0} exempts that endpoint from {@code api.limit}.
+   *
+   * <p>The defaults cover the endpoints that cost the most per request: the
+   * report and both ends of the volunteer export, which read a whole event,
+   * and account creation, which hashes a password.
+   */
+  API_LIMITS(new Param(
+      "api.limits",
+      "EventReportEndpoint=4,ExportVolunteersEndpoint=2,ImportVolunteersEndpoint=2,CreateUserEndpoint=8")),
+
+  /**
+   * How long, in milliseconds, a request over its endpoint's cap waits for a
+   * turn before it is answered with a 503; {@code 0} answers at once.
+   */
+  API_LIMIT_QUEUE_TIMEOUT(new Param("api.limitQueueTimeout", 250)),
+
+  /**
+   * Whether each endpoint's limit follows its latency beneath the cap, rather
+   * than staying at the cap.
+   */
+  API_LIMIT_ADAPTIVE(new Param("api.limitAdaptive", false)),
+
   /**
    * Require a CAPTCHA when a CAPTCHA would normally be required (e.g. when
    * creating a new event or signing up for an event.
@@ -143,11 +184,29 @@ public enum ParamEnum {
    */
   PASSKEY_CHALLENGE_TTL(new Param("passkey.challengeTTL", 5)),
 
+  /**
+   * Number of seconds a node's claim on the singleton daemons lasts without
+   * renewal.
+   *
+   * <p>One node in a cluster rotates ticket signers and sweeps reminders; this
+   * is how long the others wait to take over after it dies without saying so.
+   * A clean shutdown hands over immediately. Renewal runs every third of this,
+   * and a leader that misses two renewals stops acting as one.
+   */
+  CLUSTER_LEASE_TTL(new Param("cluster.leaseTTL", 30)),
+
   /**
    * Path to the configuration file.
    */
   CONFIG_FILE(new Param("config.file", null)),
 
+  /**
+   * Boots, answers a few requests against itself, and exits. Only for the
+   * build's {@code cdsClassList} task, which runs it to record which classes a
+   * start actually loads; never set it on a deployment.
+   */
+  CDS_TRAINING(new Param("cds.training", false)),
+
   /**
    * Whether volunteer reminders are sent at all.
    */
@@ -168,6 +227,62 @@ public enum ParamEnum {
    */
   REMINDER_BATCH_SIZE(new Param("reminders.batchSize", 200)),
 
+  /**
+   * How many partitions the pending reminders are split into, by event.
+   */
+  REMINDER_PARTITIONS(new Param("reminders.partitions", 8)),
+
+  /**
+   * How many threads on this node drain reminder partitions.
+   */
+  REMINDER_WORKERS(new Param("reminders.workers", 2)),
+
+  /**
+   * Whether clients may follow an event's signup sheet as it changes.
+   */
+  FEED_ENABLED(new Param("feed.enabled", true)),
+
+  /**
+   * Seconds between reads of every followed event, which is how changes made
+   * on other nodes reach this one's followers.
+   */
+  FEED_RECONCILE_INTERVAL(new Param("feed.reconcileInterval", 5)),
+
+  /**
+   * The most clients this node lets follow events at once.
+   */
+  FEED_MAX_SUBSCRIBERS(new Param("feed.maxSubscribers", 10000)),
+
+  /**
+   * The most rows one chunk of a background data sweep reads.
+   */
+  SWEEP_BATCH_SIZE(new Param("sweeps.batchSize", 500)),
+
+  /**
+   * Milliseconds a background data sweep waits between chunks, which is what
+   * keeps one from competing with requests for the database.
+   */
+  SWEEP_PAUSE(new Param("sweeps.pause", 200)),
+
+  /**
+   * Whether the lease holder refuses claims on full slots from memory, without
+   * a transaction. See {@code CapacityLedger}.
+   */
+  CAPACITY_LEDGER(new Param("capacity.ledger", false)),
+
+  /**
+   * The most seconds the capacity ledger believes what it read about a slot.
+   * Seats released on another node can go on being refused for this long.
+   */
+  CAPACITY_RECONCILE_INTERVAL(new Param("capacity.reconcileInterval", 5)),
+
+  /**
+   * The most seconds an event's custom fields are believed once read for
+   * validating answers. A field changed on another node can go unseen for this
+   * long. Zero reads them for every submission.
+   */
+  DETAIL_CACHE_TTL(new Param("details.cacheTTL", 10)),
+
   /**
    * The location of the database (location:port/name).
    */
@@ -193,6 +308,63 @@ public enum ParamEnum {
    */
   DB_SECURE(new Param("db.secure", false)),
 
+  /**
+   * The most connections this node holds to each database at once; the rest
+   * wait their turn. {@code 0} means no limit of its own, which with virtual
+   * threads is taken to mean 64 -- without a pool of request threads in
+   * front, nothing else would bound it.
+   */
+  DB_MAX_CONCURRENCY(new Param("db.maxConcurrency", 0)),
+
+  /**
+   * Seconds a request waits for its turn at the database before it fails.
+   */
+  DB_ACQUIRE_TIMEOUT(new Param("db.acquireTimeout", 10)),
+
+  /**
+   * Boolean indicating whether boot should only report the schema migrations
+   * it would apply, then stop. Nothing is changed, not even the ledger.
+   */
+  DB_MIGRATION_DRY_RUN(new Param("db.migrationDryRun", false)),
+
+  /**
+   * Comma-separated read replicas, each in the same form as {@code db.location}.
+   *
+   * <p>Optional. Unset, everything goes to the primary exactly as before. Set,
+   * only the reads that have been audited as pure reads go to a replica -- see
+   * {@code ReplicaSet} for which, and for why that is not simply "every GET".
+   * The schema is never migrated on a replica; replication carries it.
+   */
+  DB_REPLICAS(new Param("db.replicas.locations", null)),
+
+  /**
+   * The username for the read replicas. Defaults to {@code db.username}.
+   */
+  DB_REPLICA_USERNAME(new Param("db.replicas.username", null)),
+
+  /**
+   * The password for the read replicas. Defaults to {@code db.password}.
+   */
+  DB_REPLICA_PASSWORD(new Param("db.replicas.password", null)),
+
+  /**
+   * Number of seconds between replica health probes.
+   *
+   * <p>A replica that fails one probe is evicted until it passes one, so this is
+   * also roughly how long a recovered replica sits idle.
+   */
+  DB_REPLICA_PROBE_INTERVAL(new Param("db.replicas.probeInterval", 10)),
+
+  /**
+   * Number of seconds after a write during which that client's reads stay on
+   * the primary.
+   *
+   * <p>Should comfortably exceed normal replication lag. Too short, and a
+   * volunteer who has just signed up reloads the event and does not see
+   * themselves on it.
+   */
+  DB_REPLICA_PIN_WINDOW(new Param("db.replicas.pinWindow", 5)),
+
   /**
    * Determines whether or not debug logs should be enabled.
    */
@@ -252,6 +424,36 @@ public enum ParamEnum {
           "email.template.headerImage",
           "http://127.0.0.1:7455/assets/img/yasss_logo_small.png")),
 
+  /**
+   * Whether to serve Prometheus metrics at {@code /v1/metrics}. Recording
+   * happens regardless; this only decides whether anybody can read it.
+   */
+  METRICS_ENABLED(new Param("metrics.enabled", false)),
+
+  /**
+   * A bearer token the metrics scraper must present. Unset, the endpoint is
+   * open to anybody who can reach the port, which is only appropriate when the
+   * port is not public.
+   */
+  METRICS_TOKEN(new Param("metrics.token", null)),
+
+  /**
+   * How many statements one request may run before it is reported. See
+   * {@link com.crowdease.yasss.metrics.QueryBudget}.
+   */
+  METRICS_QUERY_BUDGET(new Param("metrics.queryBudget", 40)),
+
+  /**
+   * Per-endpoint overrides of {@code metrics.queryBudget}, as comma-separated
+   * {@code EndpointClass=budget} pairs.
+   */
+  METRICS_QUERY_BUDGETS(new Param("metrics.queryBudgets", null)),
+
+  /**
+   * How many runs of one statement shape in a request are reported as N+1.
+   */
+  METRICS_REPEAT_THRESHOLD(new Param("metrics.repeatThreshold", 10)),
+
   /**
    * Enable payments; if enabled, non-admins are redirected to a payments page
    * when creating an event.
@@ -425,7 +627,17 @@ public enum ParamEnum {
    * bought nothing: rotation limits the blast radius of a leaked signing key, and
    * a day is a reasonable granularity for that.
    */
-  TICKET_REFRESH_INTERVAL(new Param("ticket.refreshInterval", 1440));
+  TICKET_REFRESH_INTERVAL(new Param("ticket.refreshInterval", 1440)),
+
+  /**
+   * Number of seconds between checks for signers written by another node.
+   *
+   * <p>Only matters when more than one node shares the database. It bounds how
+   * long a platform-wide session reset takes to reach every node; a session
+   * signed by a signer a node has not seen yet triggers a check of its own, so
+   * it does not bound how long a new signer takes to verify.
+   */
+  TICKET_SYNC_INTERVAL(new Param("ticket.syncInterval", 60));
 
   private final Param param;
 
@@ -0,0 +1,643 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.crowdease.yasss.metrics.Metrics;
+import com.crowdease.yasss.model.EventChanges;
+import com.crowdease.yasss.model.EventDigest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pushes changes to an event's signup sheet to everybody watching it.
+ *
+ * <p>A watcher used to learn that a seat had gone by fetching the whole event
+ * again, which costs a query per slot and is paid per watcher -- so a popular
+ * event got more expensive to serve in proportion to how popular it was, at
+ * exactly the moment it was busiest. Here the cost is paid per event instead:
+ * when something changes, one thread reads the event's {@link EventDigest}
+ * once, works out what is different, and hands the same bytes to every
+ * watcher.
+ *
+ * <p><b>What triggers a read.</b> The write paths post an {@link EventChanges}
+ * notice; the event is read on the next tick, so a burst of signups costs one
+ * read. Notices only come from this node, and a notice is only a hint, so
+ * every watched event is also read every {@code reconcileInterval} regardless.
+ * That is what carries writes made on other nodes, and anything a notice
+ * missed, at a cost of one read per watched event per interval.
+ *
+ * <p><b>Slow watchers.</b> Nothing here waits on a watcher. Each one has its
+ * own queue, keyed by what each frame describes, so a second change to the
+ * same slot replaces the first rather than queueing behind it, and the queue
+ * can never be longer than the sheet. A watcher whose queue passes
+ * {@link #BACKLOG} anyway is sent the whole sheet once instead.
+ *
+ * <p><b>Resuming.</b> Every frame carries an id naming this node's copy of the
+ * event and a sequence number within it, and the last {@link #HISTORY}
+ * changes are kept. A client that reconnects with {@code Last-Event-ID} is
+ * sent only what it missed if those are still held, and the whole sheet if
+ * not -- including when it reconnects to a different node. Either way it
+ * never has to fetch the event again.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class EventFeed implements Runnable, EventChanges.Listener {
+
+  /**
+   * Where a watcher's frames go.
+   *
+   * <p>Non-blocking: {@link #write(byte[])} and {@link #flush()} may only be
+   * called while {@link #isReady()} says so, and a sink that was not ready
+   * calls {@link Subscription#drain()} once it is.
+   */
+  public static interface Sink {
+
+    /**
+     * Whether a write would be accepted without blocking.
+     *
+     * @return {@code true} if the sink can take a frame
+     */
+    public boolean isReady();
+
+    /**
+     * Writes a frame.
+     *
+     * @param frame the frame
+     * @throws IOException if the watcher has gone
+     */
+    public void write(byte[] frame) throws IOException;
+
+    /**
+     * Sends whatever has been written.
+     *
+     * @throws IOException if the watcher has gone
+     */
+    public void flush() throws IOException;
+
+    /**
+     * Ends the response.
+     */
+    public void close();
+  }
+
+  /**
+   * Reads an event's digest. {@link EventDigest#load(UUID)}, except in tests.
+   */
+  @FunctionalInterface public static interface Loader {
+
+    /**
+     * Reads an event's digest.
+     *
+     * @param event the event's {@link UUID}
+     * @return the {@link EventDigest}, or {@code null} if the event is gone
+     * @throws SQLException if a database malfunction occurs
+     */
+    public EventDigest load(UUID event) throws SQLException;
+  }
+
+  /** How many changes per event are kept for clients resuming. */
+  static final int HISTORY = 512;
+
+  /** How many frames a watcher may have queued before it is sent the whole sheet. */
+  static final int BACKLOG = 256;
+
+  /** How often notices are acted on, in milliseconds. */
+  static final long TICK = 250L;
+
+  /**
+   * How often a watcher is sent something, in milliseconds, if nothing has
+   * changed. Proxies close a connection that has been idle for a minute or so,
+   * and a watcher that has gone is only noticed by writing to it.
+   */
+  static final long HEARTBEAT = 25_000L;
+
+  /** How long an event is kept after its last watcher leaves, in milliseconds. */
+  static final long IDLE = 60_000L;
+
+  /** How long a client waits before reconnecting, in milliseconds; sent on connect. */
+  public static final long RETRY = 5_000L;
+
+  private static final byte[] HEARTBEAT_FRAME = ":\n\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RETRY_FRAME =
+      ("retry: " + RETRY + "\n\n").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] GONE_FRAME =
+      "event: gone\ndata: {}\n\n".getBytes(StandardCharsets.UTF_8);
+
+  private static final String SYNC_KEY = "sync";
+
+  private static final Logger logger = LoggerFactory.getLogger(EventFeed.class);
+
+  private final Loader loader;
+  private final long reconcileInterval;
+  private final int maxSubscribers;
+  private final Map<UUID, Channel> channels = new ConcurrentHashMap<>();
+  private final Map<UUID, UUID> activities = new ConcurrentHashMap<>();
+  private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger subscribers = new AtomicInteger();
+  private final AtomicLong overflows = new AtomicLong();
+  private final AtomicLong reads = new AtomicLong();
+
+  private long nextReconcile = 0L;
+  private long nextHeartbeat = 0L;
+  private Thread thread = null;
+
+  /**
+   * Instantiates the feed.
+   *
+   * @param loader reads an event's digest
+   * @param reconcileSeconds how often every watched event is read, whether or
+   *        not a notice said to
+   * @param maxSubscribers the most watchers this node will hold at once
+   * @throws IllegalArgumentException if either setting is not positive
+   */
+  public EventFeed(Loader loader, int reconcileSeconds, int maxSubscribers) {
+    if(1 > reconcileSeconds)
+      throw new IllegalArgumentException("reconcile interval must be at least 1 second");
+    if(1 > maxSubscribers)
+      throw new IllegalArgumentException("there must be room for at least 1 subscriber");
+    this.loader = loader;
+    this.reconcileInterval = reconcileSeconds * 1000L;
+    this.maxSubscribers = maxSubscribers;
+  }
+
+  /**
+   * Starts listening for notices and acting on them.
+   */
+  public void start() {
+    if(null != thread) return;
+    Metrics.REGISTRY.gauge(
+        "yasss_feed_subscribers",
+        "Clients following an event's changes on this node.",
+        subscribers::get);
+    Metrics.REGISTRY.gauge(
+        "yasss_feed_events",
+        "Events with at least one follower on this node, or recently so.",
+        channels::size);
+    Metrics.REGISTRY.counter(
+        "yasss_feed_reads_total",
+        "Event digests read to find what changed.",
+        reads::get);
+    Metrics.REGISTRY.counter(
+        "yasss_feed_overflows_total",
+        "Followers sent the whole sheet because their queue grew too long.",
+        overflows::get);
+    EventChanges.listen(this);
+    thread = new Thread(this, "event-feed");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops, and ends every watcher's response. Clients reconnect by themselves,
+   * to whichever node is still up.
+   */
+  public void stop() {
+    EventChanges.unlisten(this);
+    Thread t = thread;
+    if(null != t) t.interrupt();
+    for(var channel : channels.values())
+      channel.close(null);
+    channels.clear();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void run() {
+    try {
+      while(!Thread.currentThread().isInterrupted()) {
+        Thread.sleep(TICK);
+        // tick() contains what one event can throw; this is for anything it
+        // missed. The thread is the only one there is, and every follower on
+        // the node hangs without a heartbeat once it has gone.
+        try {
+          tick(System.currentTimeMillis());
+        } catch(RuntimeException e) {
+          logger.error("event feed tick failed; carrying on", e);
+        }
+      }
+    } catch(InterruptedException e) { }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void changed(UUID event, UUID activity) {
+    if(null == event) event = activities.get(activity);
+    if(null != event && channels.containsKey(event))
+      dirty.add(event);
+  }
+
+  /**
+   * Starts following an event.
+   *
+   * <p>Reads the event if nobody on this node is following it yet. Nothing is
+   * written to the sink until {@link Subscription#start(Runnable)}.
+   *
+   * @param event the event's {@link UUID}
+   * @param lastEventID the id of the last frame the client saw, or
+   *        {@code null}
+   * @param sink where the frames go
+   * @return the {@link Subscription}, or {@code null} if this node has no room
+   *         for another watcher or the event is gone
+   * @throws SQLException if the event has to be read and cannot be
+   */
+  public Subscription subscribe(UUID event, String lastEventID, Sink sink) throws SQLException {
+    if(maxSubscribers < subscribers.incrementAndGet()) {
+      subscribers.decrementAndGet();
+      return null;
+    }
+
+    try {
+      for(;;) {
+        Channel channel = channels.get(event);
+        if(null == channel) {
+          EventDigest digest = read(event);
+          if(null == digest) {
+            subscribers.decrementAndGet();
+            return null;
+          }
+          channel = new Channel(event, digest);
+          Channel raced = channels.putIfAbsent(event, channel);
+          if(null != raced) channel = raced;
+          else index(channel, null, digest);
+        }
+
+        Subscription subscription = channel.join(sink, lastEventID);
+        if(null != subscription) return subscription;
+        // The channel was closed between being found and being joined.
+      }
+    } catch(SQLException | RuntimeException e) {
+      subscribers.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Does one round of work: reads the events that need it, sends heartbeats,
+   * and forgets events nobody has followed for a while.
+   *
+   * @param now the current epoch millisecond
+   */
+  void tick(long now) {
+    if(now >= nextReconcile) {
+      dirty.addAll(channels.keySet());
+      nextReconcile = now + reconcileInterval;
+    }
+
+    for(Iterator<UUID> it = dirty.iterator(); it.hasNext(); ) {
+      UUID event = it.next();
+      it.remove();
+      Channel channel = channels.get(event);
+      if(null == channel) continue;
+      try {
+        EventDigest digest = read(event);
+        if(null == digest) retire(channel, GONE_FRAME);
+        else channel.update(digest);
+      } catch(SQLException e) {
+        // Read again on the next reconcile; the watchers just hear later.
+        logger.error("could not read event {} for its followers: {}", event, e.getMessage());
+      } catch(RuntimeException e) {
+        // Not something another read will fix, and the channel may be half
+        // updated. Its followers reconnect and start again from a fresh read.
+        logger.error("could not update the followers of event {}; dropping them", event, e);
+        retire(channel, null);
+      }
+    }
+
+    boolean beat = now >= nextHeartbeat;
+    if(beat) nextHeartbeat = now + HEARTBEAT;
+
+    for(var channel : channels.values()) {
+      try {
+        if(beat) channel.heartbeat();
+        if(channel.idleSince(now) > IDLE) retire(channel, null);
+      } catch(RuntimeException e) {
+        logger.error("could not reach the followers of event {}; dropping them", channel.event, e);
+        retire(channel, null);
+      }
+    }
+  }
+
+  private EventDigest read(UUID event) throws SQLException {
+    reads.incrementAndGet();
+    return loader.load(event);
+  }
+
+  private void retire(Channel channel, byte[] farewell) {
+    if(channels.remove(channel.event, channel)) {
+      index(channel, channel.digest, null);
+      channel.close(farewell);
+    }
+  }
+
+  private void index(Channel channel, EventDigest before, EventDigest after) {
+    if(null != before)
+      for(var activity : before.getActivities())
+        if(null == after || !after.getActivities().contains(activity))
+          activities.remove(activity, channel.event);
+    if(null != after)
+      for(var activity : after.getActivities())
+        activities.put(activity, channel.event);
+  }
+
+  /**
+   * Counts this node's watchers.
+   *
+   * @return the number of open subscriptions
+   */
+  public int countSubscribers() {
+    return subscribers.get();
+  }
+
+  /**
+   * Everything held for one event: its last digest, its recent changes, and
+   * its watchers. Guarded by its own monitor, which is always taken before a
+   * {@link Subscription}'s.
+   */
+  private final class Channel {
+
+    private final UUID event;
+    private final String incarnation = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final ArrayDeque<Frame> history = new ArrayDeque<>();
+    private final Set<Subscription> watchers = new HashSet<>();
+    private EventDigest digest;
+    private long seq = 0L;
+    private Frame sync = null;
+    private long emptySince;
+    private boolean closed = false;
+
+    private Channel(UUID event, EventDigest digest) {
+      this.event = event;
+      this.digest = digest;
+      this.emptySince = System.currentTimeMillis();
+    }
+
+    private synchronized Subscription join(Sink sink, String lastEventID) {
+      if(closed) return null;
+      Subscription subscription = new Subscription(this, sink);
+      subscription.offer(new Frame("retry", RETRY_FRAME, -1L));
+
+      List<Frame> missed = since(lastEventID);
+      if(null == missed) subscription.offer(sync());
+      else for(var frame : missed) subscription.offer(frame);
+
+      watchers.add(subscription);
+      return subscription;
+    }
+
+    /**
+     * Finds what a client resuming from a frame has not seen.
+     *
+     * @return the frames after it, or {@code null} if they are not all held
+     */
+    private List<Frame> since(String lastEventID) {
+      if(null == lastEventID) return null;
+      int dash = lastEventID.lastIndexOf('-');
+      if(-1 == dash || !incarnation.equals(lastEventID.substring(0, dash))) return null;
+
+      long seen;
+      try {
+        seen = Long.parseLong(lastEventID.substring(dash + 1));
+      } catch(NumberFormatException e) {
+        return null;
+      }
+      if(seen > seq) return null;
+
+      // Every change after `seen` has to still be held, or the client would
+      // silently miss one; the sequence is dense, so that is a bound check.
+      long oldest = history.isEmpty() ? seq + 1 : history.peekFirst().seq;
+      if(seen + 1 < oldest) return null;
+
+      List<Frame> missed = new ArrayList<>();
+      for(var frame : history)
+        if(frame.seq > seen) missed.add(frame);
+      return missed;
+    }
+
+    private synchronized void update(EventDigest next) {
+      if(closed) return;
+      List<EventDigest.Change> changes = EventDigest.diff(digest, next);
+      index(this, digest, next);
+      digest = next;
+      if(changes.isEmpty()) return;
+
+      sync = null;
+      List<Frame> frames = new ArrayList<>(changes.size());
+      for(var change : changes) {
+        Frame frame = frame(++seq, change.key(), change.type(), change.json());
+        frames.add(frame);
+        history.addLast(frame);
+        if(HISTORY < history.size()) history.removeFirst();
+      }
+      // Offered only once the whole change is numbered, so that a watcher
+      // overflowing partway through is sent a sheet that includes the rest.
+      for(var watcher : watchers)
+        for(var frame : frames) watcher.offer(frame);
+      // A copy, because a watcher found to have gone leaves during its drain.
+      for(var watcher : List.copyOf(watchers)) watcher.drain();
+    }
+
+    /** The whole sheet, as of the latest change. Built once per change, not per watcher. */
+    private Frame sync() {
+      if(null == sync)
+        sync = frame(seq, SYNC_KEY, "sync", digest.toJSON());
+      return sync;
+    }
+
+    private Frame frame(long seq, String key, String type, String json) {
+      return new Frame(
+          key,
+          String.format(
+              "id: %1$s-%2$d\nevent: %3$s\ndata: %4$s\n\n",
+              incarnation, seq, type, json)
+              .getBytes(StandardCharsets.UTF_8),
+          seq);
+    }
+
+    private synchronized void heartbeat() {
+      Frame frame = new Frame("heartbeat", HEARTBEAT_FRAME, -1L);
+      for(var watcher : List.copyOf(watchers)) {
+        watcher.offer(frame);
+        watcher.drain();
+      }
+    }
+
+    private synchronized void leave(Subscription subscription) {
+      if(watchers.remove(subscription) && watchers.isEmpty())
+        emptySince = System.currentTimeMillis();
+    }
+
+    private synchronized long idleSince(long now) {
+      return watchers.isEmpty() ? now - emptySince : 0L;
+    }
+
+    private void close(byte[] farewell) {
+      List<Subscription> leaving;
+      synchronized(this) {
+        closed = true;
+        leaving = new ArrayList<>(watchers);
+      }
+      for(var watcher : leaving)
+        watcher.finish(farewell);
+    }
+  }
+
+  /**
+   * A frame, and what it describes. Frames with the same key replace one
+   * another in a watcher's queue.
+   */
+  private static record Frame(String key, byte[] bytes, long seq) { }
+
+  /**
+   * One watcher of one event.
+   */
+  public final class Subscription {
+
+    private final Channel channel;
+    private final Sink sink;
+    private final LinkedHashMap<String, Frame> pending = new LinkedHashMap<>();
+    private boolean started = false;
+    private boolean unflushed = false;
+    private boolean finishing = false;
+    private boolean closed = false;
+
+    private Subscription(Channel channel, Sink sink) {
+      this.channel = channel;
+      this.sink = sink;
+    }
+
+    /**
+     * Allows frames to be written, once the sink can take them.
+     *
+     * @param arm whatever makes the sink call {@link #drain()} when it becomes
+     *        ready; run while no frame can be written, so that nothing is
+     *        written before the sink is non-blocking
+     */
+    public void start(Runnable arm) {
+      synchronized(this) {
+        if(!closed) {
+          started = true;
+          arm.run();
+          return;
+        }
+      }
+      // The event went while the response was being set up.
+      sink.close();
+    }
+
+    /**
+     * Queues a frame, replacing any queued frame with the same key. Called
+     * with the channel's monitor held.
+     */
+    private synchronized void offer(Frame frame) {
+      if(closed || finishing) return;
+      // Already part of a sheet this watcher has yet to be sent.
+      Frame sync = pending.get(SYNC_KEY);
+      if(null != sync && sync.seq() >= frame.seq()) return;
+      // Removed first so that the replacement goes to the back: frames leave
+      // in the order they were last changed, which keeps ids increasing.
+      pending.remove(frame.key());
+      pending.put(frame.key(), frame);
+      if(BACKLOG < pending.size()) {
+        overflows.incrementAndGet();
+        pending.clear();
+        pending.put(SYNC_KEY, channel.sync());
+      }
+    }
+
+    /**
+     * Writes as much as the sink will take without blocking.
+     */
+    public void drain() {
+      if(write()) close();
+    }
+
+    /**
+     * Does the writing for {@link #drain()}.
+     *
+     * @return {@code true} if the subscription should now be closed, which
+     *         is left to the caller so that the channel's monitor is never
+     *         taken while this one is held
+     */
+    private synchronized boolean write() {
+      if(!started || closed) return false;
+      try {
+        Iterator<Frame> it = pending.values().iterator();
+        while(it.hasNext() && sink.isReady()) {
+          byte[] bytes = it.next().bytes();
+          it.remove();
+          sink.write(bytes);
+          unflushed = true;
+        }
+        if(unflushed && sink.isReady()) {
+          sink.flush();
+          unflushed = false;
+        }
+        return finishing && pending.isEmpty() && !unflushed;
+      } catch(IOException e) {
+        return true;
+      } catch(RuntimeException e) {
+        // A servlet stream that has been completed or timed out says so with
+        // an IllegalStateException rather than an IOException. Either way
+        // this watcher has gone, and only this one.
+        logger.debug("follower of event {} could not be written to: {}", channel.event, e.toString());
+        return true;
+      }
+    }
+
+    /**
+     * Sends a last frame, if there is one, and then ends the response.
+     */
+    private void finish(byte[] farewell) {
+      boolean started;
+      synchronized(this) {
+        if(closed) return;
+        pending.clear();
+        if(null != farewell) pending.put("gone", new Frame("gone", farewell, -1L));
+        finishing = true;
+        started = this.started;
+      }
+      if(started) drain();
+      else close();
+    }
+
+    /**
+     * Stops following the event. Safe to call more than once, and from any of
+     * the sink's callbacks.
+     */
+    public void close() {
+      synchronized(this) {
+        if(closed) return;
+        closed = true;
+        pending.clear();
+      }
+      subscribers.decrementAndGet();
+      channel.leave(this);
+      sink.close();
+    }
+  }
+}
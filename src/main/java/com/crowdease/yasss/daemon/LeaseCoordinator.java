@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import com.crowdease.yasss.model.Lease;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides which node in a cluster runs the singleton daemons.
+ *
+ * <p>Holds one {@link Lease}, renewed every third of its TTL, and answers
+ * {@link #isLeader()} from memory so that the daemons can ask on every tick
+ * for free. A single-node deployment runs this too and simply always wins;
+ * there is no cluster switch to forget to turn on.
+ *
+ * <p>Leadership is given up <em>before</em> the lease could lapse, not when it
+ * does. A node whose renewals are failing -- a database that has gone away, a
+ * long GC pause -- cannot know whether anybody else can reach the table, so it
+ * has to assume somebody can and stop acting as leader while its claim is still
+ * certainly valid. See {@link #leading(long, long, long)}.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class LeaseCoordinator implements Runnable {
+
+  /** The lease covering signer rotation. */
+  public static final String DAEMON_LEASE = "daemons";
+
+  private static final Logger logger = LoggerFactory.getLogger(LeaseCoordinator.class);
+
+  private final UUID nodeID = UUID.randomUUID();
+  private final long ttl;
+  private final long renewInterval;
+
+  private volatile boolean leader = false;
+  private volatile long renewedAt = 0L;
+  private Thread thread = null;
+
+  /**
+   * Instantiates the coordinator.
+   *
+   * @param ttlSeconds how long a lease lasts without renewal
+   * @throws IllegalArgumentException if the TTL is too short to renew within
+   */
+  public LeaseCoordinator(int ttlSeconds) {
+    if(3 > ttlSeconds)
+      throw new IllegalArgumentException("lease TTL must be at least three seconds");
+    this.ttl = ttlSeconds * 1000L;
+    this.renewInterval = this.ttl / 3;
+  }
+
+  /**
+   * Whether a leader that last renewed at {@code renewedAt} may still act.
+   *
+   * <p>Two thirds of the TTL, leaving the last third as margin for clock skew
+   * between nodes and for whatever the leader is in the middle of when it
+   * notices. Renewal runs every third, so a healthy leader is never near the
+   * line; one that has missed a renewal is still leading, and one that has
+   * missed two is not.
+   *
+   * @param renewedAt the epoch millisecond of the last successful renewal
+   * @param now the current epoch millisecond
+   * @param ttl the lease TTL, in milliseconds
+   * @return {@code true} if leadership is still safe to act on
+   */
+  static boolean leading(long renewedAt, long now, long ttl) {
+    return 0L < renewedAt && now - renewedAt < ttl * 2 / 3;
+  }
+
+  /**
+   * Whether this node should run the singleton daemons right now.
+   *
+   * @return {@code true} if this node holds the lease
+   */
+  public boolean isLeader() {
+    return leader && leading(renewedAt, System.currentTimeMillis(), ttl);
+  }
+
+  /**
+   * Tries once to take or renew the lease, logging any change of leadership.
+   */
+  void renew() {
+    long now = System.currentTimeMillis();
+    boolean won;
+    try {
+      won = Lease.acquire(DAEMON_LEASE, nodeID, now, ttl);
+    } catch(SQLException e) {
+      logger.error("could not renew the {} lease: {}", DAEMON_LEASE, e.getMessage());
+      won = false;
+    }
+
+    if(won) renewedAt = now;
+    boolean leading = leading(renewedAt, System.currentTimeMillis(), ttl);
+
+    if(leading != leader)
+      logger.info(
+          "node {} {} the {} lease",
+          nodeID,
+          leading ? "acquired" : "lost",
+          DAEMON_LEASE);
+    leader = leading;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void run() {
+    try {
+      while(!thread.isInterrupted()) {
+        Thread.sleep(renewInterval);
+        renew();
+      }
+    } catch(InterruptedException e) { }
+  }
+
+  /**
+   * Makes a first attempt at the lease and starts renewing it.
+   *
+   * <p>The first attempt is synchronous so that the daemons started after this
+   * know on their first tick whether they lead.
+   */
+  public void start() {
+    if(null != thread) return;
+    renew();
+    if(!leader)
+      logger.info("node {} is a follower; another node holds the {} lease", nodeID, DAEMON_LEASE);
+    thread = new Thread(this, "lease-coordinator");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops renewing and gives the lease up.
+   *
+   * <p>Releasing rather than letting it lapse is what makes a rolling restart
+   * cheap: the next node takes over on its next renewal instead of a whole TTL
+   * later, which for signers is a whole TTL of nobody rotating. Call it after
+   * the daemons that consult {@link #isLeader()} have stopped.
+   */
+  public void stop() {
+    Thread t = thread;
+    if(null == t) return;
+    t.interrupt();
+    try {
+      t.join(renewInterval);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    leader = false;
+    try {
+      Lease.release(DAEMON_LEASE, nodeID);
+    } catch(SQLException e) {
+      logger.warn("could not release the {} lease; it will lapse instead: {}", DAEMON_LEASE, e.getMessage());
+    }
+  }
+
+  /**
+   * Retrieves this node's identity within the cluster.
+   *
+   * @return the random {@link UUID} chosen at construction
+   */
+  public UUID getNodeID() {
+    return nodeID;
+  }
+}
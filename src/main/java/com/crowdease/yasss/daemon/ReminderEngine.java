@@ -12,14 +12,18 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.axonibyte.lib.db.SQLBuilder;
 import com.crowdease.yasss.YasssCore;
-import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.metrics.Metrics;
 import com.crowdease.yasss.model.HTMLElem;
+import com.crowdease.yasss.model.Lease;
 import com.crowdease.yasss.model.Mail;
+import com.crowdease.yasss.model.ReminderContext;
 import com.crowdease.yasss.model.Volunteer;
 import com.crowdease.yasss.model.Volunteer.PendingReminder;
 import com.crowdease.yasss.model.VolunteerSummary;
@@ -37,7 +41,7 @@ import org.slf4j.LoggerFactory;
  *   <li>the sweep catches {@link SQLException} <em>inside</em> the loop. A
  *       reminder daemon that dies on one transient database blip and then
  *       silently sends nothing forever is the worst failure this feature has;
- *   <li>the thread is named, because there are now two daemons and an
+ *   <li>the threads are named, because there are now several daemons and an
  *       unnamed {@code Thread-N} in a stack dump is not diagnosable;
  *   <li>each send is wrapped individually, so one malformed address cannot
  *       abort a batch of two hundred.
@@ -47,9 +51,26 @@ import org.slf4j.LoggerFactory;
  * right bias for email: a duplicate reminder is worse than a missed one, and
  * the poll loop has no retry semantics to make at-least-once meaningful.
  *
+ * <p>The pending set is split into partitions by event (see
+ * {@link Volunteer#partitionOf(UUID, int)}), and every worker on every node
+ * walks all of them, draining whichever it can take a {@link Lease} on. Sends
+ * are synchronous SMTP conversations, so a single sweeper is bounded by mail
+ * latency long before the database notices; partitions are what let more
+ * workers -- threads here, or other nodes -- actually add throughput instead of
+ * racing each other for the same rows. Workers start their walk at different
+ * offsets so that they fan out rather than queue behind one lease.
+ *
+ * <p>The leases are an efficiency measure, not the guarantee. A partition whose
+ * holder stalls past its TTL can be drained by a second worker at once, and
+ * nodes configured with different partition counts overlap freely; in both
+ * cases the {@code reminder_log} claim still lets exactly one of them send.
+ *
  * @author Caleb L. Power
  */
-public class ReminderEngine implements Runnable {
+public class ReminderEngine {
+
+  /** Prefix of the per-partition lease names; the partition number follows. */
+  public static final String LEASE_PREFIX = "reminders/";
 
   private static final Logger logger = LoggerFactory.getLogger(ReminderEngine.class);
 
@@ -57,11 +78,14 @@ public class ReminderEngine implements Runnable {
   private final int leadTime;
   private final int batchSize;
   private final boolean mailEnabled;
+  private final int partitions;
+  private final Thread[] threads;
+  private final Progress progress;
 
-  private Thread thread = null;
+  private volatile boolean running = false;
 
   /**
-   * Instantiates the reminder engine.
+   * Instantiates a reminder engine with one worker and one partition.
    *
    * @param pollInterval minutes between sweeps
    * @param leadTime minutes before an event begins to send its reminder
@@ -70,64 +94,147 @@ public class ReminderEngine implements Runnable {
    * @throws IllegalArgumentException if any interval is not positive
    */
   public ReminderEngine(int pollInterval, int leadTime, int batchSize, boolean mailEnabled) {
+    this(pollInterval, leadTime, batchSize, mailEnabled, 1, 1);
+  }
+
+  /**
+   * Instantiates the reminder engine.
+   *
+   * <p>Every node runs its workers; there is no leader for reminders. A
+   * single-node deployment with one partition behaves exactly as the engine
+   * did before partitioning, lease and all, so there is no mode to switch.
+   *
+   * @param pollInterval minutes between sweeps
+   * @param leadTime minutes before an event begins to send its reminder
+   * @param batchSize the most reminders to send from one partition per query
+   * @param mailEnabled whether a mailer was actually configured
+   * @param partitions how many partitions to split the pending set into
+   * @param workers how many threads on this node drain partitions
+   * @throws IllegalArgumentException if any setting is not positive, or if
+   *         there are more workers than partitions for them to drain
+   */
+  public ReminderEngine(
+      int pollInterval, int leadTime, int batchSize, boolean mailEnabled, int partitions, int workers) {
     if(1 > pollInterval)
       throw new IllegalArgumentException("poll interval must be at least 1 minute");
     if(1 > leadTime)
       throw new IllegalArgumentException("lead time must be at least 1 minute");
     if(1 > batchSize)
       throw new IllegalArgumentException("batch size must be at least 1");
+    if(1 > partitions)
+      throw new IllegalArgumentException("there must be at least 1 partition");
+    if(1 > workers)
+      throw new IllegalArgumentException("there must be at least 1 worker");
+    if(partitions < workers)
+      throw new IllegalArgumentException("workers cannot outnumber partitions");
 
     this.pollInterval = pollInterval;
     this.leadTime = leadTime;
     this.batchSize = batchSize;
     this.mailEnabled = mailEnabled;
+    this.partitions = partitions;
+    this.threads = new Thread[workers];
+    this.progress = new Progress(partitions);
   }
 
-  /** Starts the daemon, if it is not already running. */
-  public void start() {
-    if(null == thread) {
-      thread = new Thread(this);
-      thread.setName("reminder-engine");
-      thread.setDaemon(true);
-      thread.start();
+  /** Starts the workers, if they are not already running. */
+  public synchronized void start() {
+    if(running) return;
+    running = true;
+    instrument();
+    for(int i = 0; i < threads.length; i++) {
+      final int worker = i;
+      threads[i] = new Thread(() -> work(worker));
+      threads[i].setName("reminder-engine-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
     }
   }
 
-  /** Stops the daemon, if it is running. */
-  public void stop() {
-    if(null != thread) thread.interrupt();
+  /** Stops the workers, if they are running. */
+  public synchronized void stop() {
+    running = false;
+    for(Thread t : threads)
+      if(null != t) t.interrupt();
+  }
+
+  /**
+   * Exports the per-partition counters.
+   *
+   * <p>Registered on start rather than at construction, so that an engine that
+   * is built and never run -- every one in the tests -- does not claim the
+   * series.
+   */
+  private void instrument() {
+    for(int p = 0; p < partitions; p++) {
+      final int partition = p;
+      String label = Integer.toString(p);
+      Metrics.REGISTRY.counter(
+          "yasss_reminders_found_total",
+          "Due reminders found by this node's sweeps, by partition.",
+          () -> progress.found(partition),
+          "partition", label);
+      Metrics.REGISTRY.counter(
+          "yasss_reminders_sent_total",
+          "Reminders sent by this node, by partition.",
+          () -> progress.sent(partition),
+          "partition", label);
+      Metrics.REGISTRY.counter(
+          "yasss_reminders_failed_total",
+          "Reminders claimed by this node and never sent, by partition.",
+          () -> progress.failed(partition),
+          "partition", label);
+      Metrics.REGISTRY.gauge(
+          "yasss_reminder_backlog",
+          "Reminders that were due when this node last drained the partition.",
+          () -> progress.due(partition),
+          "partition", label);
+      Metrics.REGISTRY.gauge(
+          "yasss_reminder_last_drained_seconds",
+          "When this node last drained the partition, in epoch seconds.",
+          () -> progress.lastDrained(partition) / 1000.0,
+          "partition", label);
+    }
   }
 
   /**
-   * {@inheritDoc}
+   * Runs one worker until it is interrupted.
+   *
+   * @param worker the worker's index, which fixes where its walk begins
    */
-  @Override public void run() {
-    logger.info("reminder engine started");
+  private void work(int worker) {
+    logger.info("reminder worker {} started", worker);
+
+    // Per worker rather than per node, so that two workers on the same node
+    // contend for a partition exactly as two nodes would.
+    UUID holder = UUID.randomUUID();
+    int first = worker * partitions / threads.length;
 
     try {
-      while(!thread.isInterrupted()) {
-        try {
-          sweep();
-        } catch(SQLException e) {
-          // Deliberately swallowed: one bad poll must not end the daemon.
-          logger.error(
-              "reminder sweep failed, will retry: {}",
-              null == e.getMessage() ? "no further info available" : e.getMessage());
-        }
+      while(!Thread.currentThread().isInterrupted()) {
+        for(int i = 0; i < partitions && !Thread.currentThread().isInterrupted(); i++)
+          drain(holder, (first + i) % partitions);
         Thread.sleep((long)pollInterval * 60_000L);
       }
     } catch(InterruptedException e) { }
 
-    logger.warn("reminder engine stopped");
-    thread = null;
+    logger.warn("reminder worker {} stopped", worker);
   }
 
   /**
-   * Finds and sends the reminders currently due.
+   * Drains one partition, if its lease can be had.
    *
-   * @throws SQLException if a database malfunction occurs
+   * <p>The lease is renewed before every batch, so a partition with a deep
+   * backlog stays with the worker that is already warm on it. Draining stops
+   * at the first short batch, and also at the first batch in which nothing was
+   * claimed: that one means the scan is showing rows somebody already has --
+   * a replica behind the primary, or a stalled holder's overlap -- and
+   * re-reading it would only spin.
+   *
+   * @param holder this worker's identity in the lease table
+   * @param partition the partition to drain
    */
-  void sweep() throws SQLException {
+  private void drain(UUID holder, int partition) {
     // Checked up front, and this is not merely log hygiene. Mail.send() no-ops
     // with a warning when no mailer was configured, so a naive loop would
     // commit a claim row for every reminder it "sent" -- permanently marking
@@ -135,43 +242,109 @@ public class ReminderEngine implements Runnable {
     // every pending reminder silently.
     if(!mailEnabled) return;
 
-    long now = System.currentTimeMillis();
+    String lease = LEASE_PREFIX + partition;
+    long ttl = (long)pollInterval * 60_000L;
+    boolean held = false;
+
+    long startedAt = System.nanoTime();
+    long due = 0L;
+
+    try {
+      Batch batch;
+      do {
+        long now = System.currentTimeMillis();
+        if(!Lease.acquire(lease, holder, now, ttl)) break;
+        held = true;
+        batch = sweep(partition, now);
+        due += batch.found();
+      } while(batch.claimed() > 0
+          && batch.found() == batchSize
+          && !Thread.currentThread().isInterrupted());
+
+      if(held) {
+        progress.due.set(partition, due);
+        progress.lastDrained.set(partition, System.currentTimeMillis());
+        Metrics.REMINDER_DRAIN.observeSince(startedAt);
+      }
+
+    } catch(SQLException e) {
+      // Deliberately swallowed: one bad poll must not end the worker.
+      logger.error(
+          "reminder sweep of partition {} failed, will retry: {}",
+          partition,
+          null == e.getMessage() ? "no further info available" : e.getMessage());
+    } finally {
+      // Released rather than left to lapse, so that a partition this worker
+      // found empty is immediately available to one that arrives later.
+      if(held) {
+        try {
+          Lease.release(lease, holder);
+        } catch(SQLException e) {
+          logger.debug("could not release {}; it will lapse instead: {}", lease, e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds and sends one batch of the reminders currently due in a partition.
+   *
+   * @param partition the partition to sweep
+   * @param now the epoch millisecond to sweep as of
+   * @return how many reminders were found and how many of those were claimed
+   * @throws SQLException if a database malfunction occurs
+   */
+  Batch sweep(int partition, long now) throws SQLException {
     // The lead time goes to the finder rather than a computed horizon, because
     // an event may override it and the bound is therefore per row.
-    var pending = Volunteer.getPendingReminders(
-        new Timestamp(now), leadTime, batchSize);
+    //
+    // The scan is the one query here that may go to a replica. It is the
+    // expensive one -- a join across the whole volunteer table every poll --
+    // and staleness is harmless to it: a row that is already claimed loses at
+    // the INSERT IGNORE below, which is on the primary like every write, and a
+    // row that is not yet visible is simply found on the next sweep. The cost is
+    // that someone who unsubscribed within the replica's lag of this sweep may
+    // still be mailed once, which is the same race the sweep already had with a
+    // request landing mid-batch.
+    List<PendingReminder> pending;
+    try(var replica = YasssCore.readScope()) {
+      pending = Volunteer.getPendingReminders(
+          new Timestamp(now), leadTime, batchSize, partition, partitions);
+    }
 
-    if(pending.isEmpty()) return;
-    logger.info("reminder sweep found {} due", pending.size());
+    if(pending.isEmpty()) return new Batch(0, 0);
+    progress.found.addAndGet(partition, pending.size());
+    logger.info("reminder sweep found {} due in partition {}", pending.size(), partition);
 
-    // Events are commonly shared across many volunteers in one sweep.
-    Map<UUID, Event> events = new HashMap<>();
+    // Read before claiming, so that a failure here leaves the batch unclaimed
+    // for the next sweep rather than claimed and never sent. Reminders that
+    // lose their claim below were read for nothing, which costs a few rows in
+    // queries that are grouped anyway.
+    ReminderContext context = ReminderContext.load(pending);
+    int claimed = 0;
 
     for(PendingReminder due : pending) {
       if(!claim(due)) continue;
+      claimed++;
 
       try {
-        Event event = events.computeIfAbsent(due.eventID(), id -> {
-          try {
-            return Event.getEvent(id);
-          } catch(SQLException e) {
-            return null;
-          }
-        });
-        if(null == event) continue;
-
-        send(event, due);
-        markDelivered(due);
+        if(context.hasEvent(due.eventID()) && send(context, due)) {
+          markDelivered(due);
+          progress.sent.incrementAndGet(partition);
+        } else progress.failed.incrementAndGet(partition);
 
       } catch(Exception e) {
         // One bad address must not abort the batch. The claim stays, so this
         // reminder is not retried -- see the at-most-once note above.
+        progress.failed.incrementAndGet(partition);
         logger.error(
             "could not send a reminder to volunteer {}: {}",
             due.volunteerID(),
             null == e.getMessage() ? e.getClass().getSimpleName() : e.getMessage());
       }
     }
+
+    return new Batch(pending.size(), claimed);
   }
 
   /**
@@ -240,20 +413,20 @@ public class ReminderEngine implements Runnable {
     }
   }
 
-  /** Builds and sends one reminder. */
-  private void send(Event event, PendingReminder due) throws SQLException {
-    Volunteer volunteer = event.getVolunteer(due.volunteerID());
-
+  /**
+   * Builds and sends one reminder.
+   *
+   * @return {@code true} if the mailer accepted it
+   */
+  private boolean send(ReminderContext context, PendingReminder due) {
     Map<String, String> args = new HashMap<>();
     // Substituted into an HTML body by Mail, so escaped here.
     args.put("EVENT_TITLE", HTMLElem.escape(due.eventTitle()));
     args.put(
         "EVENT_DATE",
-        VolunteerSummary.eventDate(due.windowBegin(), event.getTimezone()));
+        VolunteerSummary.eventDate(due.windowBegin(), context.getTimezone(due.eventID())));
     args.put("VOLUNTEER_NAME", HTMLElem.escape(due.volunteerName()));
-    args.put(
-        "RSVP_LIST",
-        null == volunteer ? "<ul></ul>" : VolunteerSummary.rsvpList(event, volunteer));
+    args.put("RSVP_LIST", context.rsvpList(due));
     args.put(
         "EVENT_URL",
         String.format("%1$s/?event=%2$s", YasssCore.getAPIHost(), due.eventID()));
@@ -266,24 +439,132 @@ public class ReminderEngine implements Runnable {
             due.volunteerID(),
             due.token()));
 
-    new Mail(due.recipient(), "event-reminder", args).send();
+    return new Mail(due.recipient(), "event-reminder", args).send();
   }
 
   /**
-   * Waits briefly for the worker to finish after {@link #stop()}.
+   * Waits briefly for the workers to finish after {@link #stop()}.
    *
-   * <p>{@code stop()} only interrupts, and the thread is a daemon, so without
-   * this the JVM exits out from under whatever it was doing.
+   * <p>{@code stop()} only interrupts, and the threads are daemons, so without
+   * this the JVM exits out from under whatever they were doing. The wait is
+   * shared rather than per thread, so that shutdown is bounded by
+   * {@code millis} however many workers there are.
    *
    * @param millis how long to wait
    */
   public void join(long millis) {
-    Thread t = thread;
-    if(null == t) return;
-    try {
-      t.join(millis);
-    } catch(InterruptedException e) {
-      Thread.currentThread().interrupt();
+    long deadline = System.currentTimeMillis() + millis;
+    for(Thread t : threads) {
+      long left = deadline - System.currentTimeMillis();
+      if(null == t || 0L >= left) continue;
+      try {
+        t.join(left);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Retrieves the per-partition sweep counters.
+   *
+   * @return the live counters, shared with the workers
+   */
+  public Progress getProgress() {
+    return progress;
+  }
+
+  /**
+   * What one batch of a sweep amounted to.
+   *
+   * @param found how many reminders the scan returned
+   * @param claimed how many of those this worker won the claim on
+   */
+  static record Batch(int found, int claimed) { }
+
+  /**
+   * Cumulative counters for each partition, since this node started.
+   *
+   * <p>Per node, not cluster-wide: each node counts only what its own workers
+   * did, so a partition drained elsewhere shows no activity here. Summing
+   * across nodes is the metrics system's job. Arrays of atomics rather than an
+   * object per partition, so that the workers record without allocating.
+   */
+  public static final class Progress {
+
+    private final AtomicLongArray found;
+    private final AtomicLongArray sent;
+    private final AtomicLongArray failed;
+    private final AtomicLongArray due;
+    private final AtomicLongArray lastDrained;
+
+    private Progress(int partitions) {
+      this.found = new AtomicLongArray(partitions);
+      this.sent = new AtomicLongArray(partitions);
+      this.failed = new AtomicLongArray(partitions);
+      this.due = new AtomicLongArray(partitions);
+      this.lastDrained = new AtomicLongArray(partitions);
+    }
+
+    /**
+     * Retrieves the number of partitions.
+     *
+     * @return the partition count
+     */
+    public int partitions() {
+      return found.length();
+    }
+
+    /**
+     * Retrieves how many due reminders were found in a partition.
+     *
+     * @param partition the partition
+     * @return the count, including any another worker then claimed first
+     */
+    public long found(int partition) {
+      return found.get(partition);
+    }
+
+    /**
+     * Retrieves how many reminders from a partition were sent.
+     *
+     * @param partition the partition
+     * @return the count
+     */
+    public long sent(int partition) {
+      return sent.get(partition);
+    }
+
+    /**
+     * Retrieves how many claimed reminders from a partition were not sent.
+     *
+     * @param partition the partition
+     * @return the count; each of these is a reminder that will never go out
+     */
+    public long failed(int partition) {
+      return failed.get(partition);
+    }
+
+    /**
+     * Retrieves how many reminders were due when this node last drained a
+     * partition.
+     *
+     * @param partition the partition
+     * @return the count across every batch of that drain
+     */
+    public long due(int partition) {
+      return due.get(partition);
+    }
+
+    /**
+     * Retrieves when a partition was last drained by this node.
+     *
+     * @param partition the partition
+     * @return the epoch millisecond, or zero if this node never held it
+     */
+    public long lastDrained(int partition) {
+      return lastDrained.get(partition);
     }
   }
 }
@@ -26,6 +26,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -36,8 +37,73 @@ import java.util.Set;
 public final class StripeDriver {
 
   private static final Logger logger = LoggerFactory.getLogger(StripeDriver.class);
+
+  /**
+   * What this driver asks of Stripe. Every call goes through
+   * {@link StripeDriver#stripe()}, which is what hands the SDK its key; a call
+   * made around it ran keyless after a restart until some checkout happened to
+   * start on the node.
+   */
+  interface Gateway {
+
+    /**
+     * Lists the prices behind a lookup key.
+     *
+     * @param lookupKey the lookup key
+     * @return at most one {@link Price}
+     * @throws StripeException if a Stripe malfunction occurs
+     */
+    List<Price> prices(String lookupKey) throws StripeException;
+
+    /**
+     * Creates a checkout session.
+     *
+     * @param params the session's parameters
+     * @return the {@link Session}
+     * @throws StripeException if a Stripe malfunction occurs
+     */
+    Session createSession(SessionCreateParams params) throws StripeException;
+
+    /**
+     * Retrieves a checkout session with its line items.
+     *
+     * @param sessionID the session's id
+     * @return the {@link Session}
+     * @throws StripeException if a Stripe malfunction occurs
+     */
+    Session retrieveSession(String sessionID) throws StripeException;
+  }
+
+  /** The SDK itself. */
+  private static final Gateway SDK = new Gateway() {
+
+    @Override public List<Price> prices(String lookupKey) throws StripeException {
+      return Price.list(
+          PriceListParams.builder()
+          .addLookupKey(lookupKey)
+          .setLimit(1L)
+          .build())
+        .getData();
+    }
+
+    @Override public Session createSession(SessionCreateParams params) throws StripeException {
+      return Session.create(params);
+    }
+
+    @Override public Session retrieveSession(String sessionID) throws StripeException {
+      return Session.retrieve(
+          sessionID,
+          SessionRetrieveParams.builder()
+              .addExpand("line_items")
+              .build(),
+          null);
+    }
+  };
   
+  private final String apiKey;
   private final String lookupKey;
+  private final Gateway gateway;
+  private volatile boolean configured = false;
 
   /**
    * Instantiates the Stripe driver. As the Stripe API essentially uses a
@@ -45,12 +111,42 @@ public final class StripeDriver {
    * the API key used globally throughout this platform... use {@code null} to
    * avoid overwriting the global API key.
    *
+   * <p>The key is handed to Stripe on the first call to it rather than here.
+   * Touching the SDK at boot initializes it for a node that may not see a
+   * paid event for hours, and that was time spent before the server listened.
+   *
    * @param apiKey the Stripe API key
    * @param lookupKey the Stripe lookup key associated with the event publishing price
    */
   public StripeDriver(String apiKey, String lookupKey) {
-    if(null != apiKey) Stripe.apiKey = apiKey;
+    this(apiKey, lookupKey, SDK);
+  }
+
+  /**
+   * Instantiates the Stripe driver against something other than the SDK.
+   *
+   * @param apiKey the Stripe API key
+   * @param lookupKey the Stripe lookup key associated with the event publishing price
+   * @param gateway the {@link Gateway} to call
+   */
+  StripeDriver(String apiKey, String lookupKey, Gateway gateway) {
+    this.apiKey = apiKey;
     this.lookupKey = lookupKey;
+    this.gateway = gateway;
+  }
+
+  /**
+   * Retrieves the gateway, handing Stripe the key first if it has not been
+   * yet. Racing callers write the same key, so there is nothing to lock.
+   *
+   * @return the {@link Gateway}
+   */
+  private Gateway stripe() {
+    if(!configured) {
+      if(null != apiKey) Stripe.apiKey = apiKey;
+      configured = true;
+    }
+    return gateway;
   }
 
   /**
@@ -63,12 +159,7 @@ public final class StripeDriver {
    * @throws StripeException if a Stripe malfunction occurs
    */
   public String startCheckout(Event event) throws SQLException, StripeException {
-    var prices = Price.list(
-        PriceListParams.builder()
-        .addLookupKey(lookupKey)
-        .setLimit(1L)
-        .build())
-      .getData();
+    var prices = stripe().prices(lookupKey);
 
     if(prices.isEmpty())
       throw new RuntimeException(
@@ -81,7 +172,7 @@ public final class StripeDriver {
         lookupKey,
         prices.get(0).getId());
     
-    Session session = Session.create(
+    Session session = stripe().createSession(
         SessionCreateParams.builder()
             .setMode(SessionCreateParams.Mode.PAYMENT)
             .setSuccessUrl(
@@ -166,12 +257,7 @@ public final class StripeDriver {
           event.getID().toString());
 
       for(var sessionID : checkoutSessions) {
-        Session session = Session.retrieve(
-            sessionID,
-            SessionRetrieveParams.builder()
-                .addExpand("line_items")
-                .build(),
-            null);
+        Session session = stripe().retrieveSession(sessionID);
 
         logger.info(
             "checkout session {} for event {} has payment status {}",
@@ -212,12 +298,7 @@ public final class StripeDriver {
    * @throws StripeException if a Stripe malfunction occurs
    */
   public boolean fulfillCheckout(String sessionID) throws SQLException, StripeException {
-    Session session = Session.retrieve(
-        sessionID,
-        SessionRetrieveParams.builder()
-            .addExpand("line_items")
-            .build(),
-        null);
+    Session session = stripe().retrieveSession(sessionID);
     
     if(session.getPaymentStatus().equalsIgnoreCase("unpaid")) {
       logger.error(
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import com.crowdease.yasss.metrics.Metrics;
+import com.crowdease.yasss.model.SweepCheckpoint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the data sweeps in the background, a chunk at a time, one after another.
+ *
+ * <p>{@code CredentialMigrator.sweepMFASecrets} and {@code Event.backfillCodes}
+ * used to run in full on the boot thread, before the server listened. Each is a
+ * scan of a whole table -- with a decryption per user, in the first -- and each
+ * ran on every boot, to find nothing after the first. On a large user table
+ * that was minutes of a node being up and not ready, during every rolling
+ * restart.
+ *
+ * <p>Now a sweep is a {@link Step} that handles at most {@code batchSize} rows
+ * above a key and says which it got to. After each chunk the place is written
+ * to a {@link SweepCheckpoint}, so a restart resumes rather than starting
+ * over, and a chunk that comes up short finishes the sweep for good: every
+ * later boot reads the one row that says so and does nothing else. Between
+ * chunks the runner pauses, so that a sweep never holds the database for
+ * longer than one chunk takes.
+ *
+ * <p>Only the lease holder sweeps, as only it rotates signers. The sweeps are
+ * safe to run twice -- the MFA rewrite is a compare-and-swap and the code
+ * backfill only touches events without one -- but two nodes walking the same
+ * table would be twice the load for the same result. A node that loses the
+ * lease mid-sweep stops at the end of its chunk, and the new holder picks up
+ * from the checkpoint.
+ *
+ * <p>A chunk that fails is retried from the same place after a longer pause;
+ * nothing a sweep does is worth taking the node down over. A database error
+ * is retried for as long as it lasts. Anything else -- a row that will not
+ * decrypt, a bug -- is retried {@link #MAX_FAILURES} times, since a retry will
+ * not fix it, and then the sweep is marked {@link State#FAILED} and the next
+ * one runs. Either way it is logged. A failed sweep is tried again from its
+ * checkpoint on the next boot.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class SweepRunner implements Runnable {
+
+  /** How many times longer than the pause to wait after a chunk fails. */
+  static final int FAILURE_BACKOFF = 50;
+
+  /** How many times in a row a chunk may fail with an unchecked exception before the sweep is given up on. */
+  static final int MAX_FAILURES = 5;
+
+  /** How long a follower waits before asking again whether it leads. */
+  static final long FOLLOWER_WAIT_MILLIS = 5_000L;
+
+  private static final Logger logger = LoggerFactory.getLogger(SweepRunner.class);
+
+  /**
+   * One chunk of a sweep.
+   */
+  @FunctionalInterface public interface Step {
+
+    /**
+     * Handles the rows after a key.
+     *
+     * @param after the key to read above, in the table's key order
+     * @param limit the most rows to read
+     * @return how many rows were read, and the last; fewer than {@code limit}
+     *         means the sweep is finished
+     * @throws SQLException if the chunk could not be read
+     */
+    SweepCheckpoint.Chunk run(UUID after, int limit) throws SQLException;
+  }
+
+  /** What a sweep is doing. */
+  public enum State {
+
+    /** Not started, or waiting for this node to hold the lease. */
+    PENDING,
+
+    /** Working through chunks. */
+    RUNNING,
+
+    /** Finished, on this node or an earlier one. */
+    COMPLETE,
+
+    /** Given up on until the next boot, after failing in a way a retry would not fix. */
+    FAILED
+  }
+
+  /**
+   * Where one sweep has got to, as this node last saw it.
+   *
+   * @param name the sweep
+   * @param state what it is doing
+   * @param processed how many rows it has read, across every run
+   */
+  public record Progress(String name, State state, long processed) { }
+
+  private static final class Sweep {
+    private final String name;
+    private final Step step;
+    private volatile State state = State.PENDING;
+    private volatile long processed = 0L;
+
+    private Sweep(String name, Step step) {
+      this.name = name;
+      this.step = step;
+    }
+  }
+
+  private final int batchSize;
+  private final long pauseMillis;
+  private final BooleanSupplier leading;
+  private final List<Sweep> sweeps = new ArrayList<>();
+  private Thread thread = null;
+
+  /**
+   * Instantiates the runner.
+   *
+   * @param batchSize the most rows one chunk reads
+   * @param pauseMillis how long to wait between chunks
+   * @param leading whether this node holds the lease, asked before each chunk
+   * @throws IllegalArgumentException if the batch size is not positive or the
+   *         pause is negative
+   */
+  public SweepRunner(int batchSize, long pauseMillis, BooleanSupplier leading) {
+    if(1 > batchSize)
+      throw new IllegalArgumentException("sweep batch size must be positive");
+    if(0 > pauseMillis)
+      throw new IllegalArgumentException("sweep pause must not be negative");
+    this.batchSize = batchSize;
+    this.pauseMillis = pauseMillis;
+    this.leading = leading;
+  }
+
+  /**
+   * Adds a sweep, to run after the ones already added. Only before
+   * {@link #start()}.
+   *
+   * @param name the sweep's name, under which its checkpoint is kept; renaming
+   *        one runs it again from the start
+   * @param step one chunk of it
+   * @return this runner
+   */
+  public SweepRunner add(String name, Step step) {
+    Sweep sweep = new Sweep(name, step);
+    sweeps.add(sweep);
+    Metrics.REGISTRY.counter(
+        "yasss_sweep_rows_total",
+        "Rows a background sweep has read, across every run.",
+        () -> sweep.processed,
+        "sweep", name);
+    Metrics.REGISTRY.gauge(
+        "yasss_sweep_complete",
+        "Whether a background sweep has finished.",
+        () -> State.COMPLETE == sweep.state ? 1 : 0,
+        "sweep", name);
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void run() {
+    try {
+      for(var sweep : sweeps) {
+        if(Thread.currentThread().isInterrupted()) return;
+        // Anything drain() does not handle itself. Without this the thread
+        // ended silently and the sweep went on reporting itself running.
+        try {
+          drain(sweep);
+        } catch(RuntimeException e) {
+          sweep.state = State.FAILED;
+          logger.error("the {} sweep failed and is abandoned until the next boot", sweep.name, e);
+        }
+      }
+      if(sweeps.stream().allMatch(sweep -> State.COMPLETE == sweep.state))
+        logger.info("every background sweep is complete");
+    } catch(InterruptedException e) { }
+  }
+
+  private void drain(Sweep sweep) throws InterruptedException {
+    SweepCheckpoint checkpoint = null;
+    while(null == checkpoint) {
+      try {
+        checkpoint = SweepCheckpoint.load(sweep.name);
+      } catch(SQLException e) {
+        logger.error("could not read the {} sweep's checkpoint: {}", sweep.name, e.getMessage());
+        Thread.sleep(Math.max(1L, pauseMillis) * FAILURE_BACKOFF);
+      }
+    }
+    sweep.processed = checkpoint.processed();
+    if(checkpoint.isComplete()) {
+      sweep.state = State.COMPLETE;
+      return;
+    }
+
+    boolean resumed = 0L < checkpoint.processed();
+    int failures = 0;
+    while(!checkpoint.isComplete()) {
+      if(!leading.getAsBoolean()) {
+        sweep.state = State.PENDING;
+        Thread.sleep(FOLLOWER_WAIT_MILLIS);
+        // Another node may have moved it on, or finished it, meanwhile.
+        try {
+          checkpoint = SweepCheckpoint.load(sweep.name);
+          sweep.processed = checkpoint.processed();
+        } catch(SQLException e) {
+          logger.error("could not read the {} sweep's checkpoint: {}", sweep.name, e.getMessage());
+        }
+        continue;
+      }
+
+      if(State.RUNNING != sweep.state) {
+        sweep.state = State.RUNNING;
+        logger.info(
+            "{} the {} sweep{}",
+            resumed ? "resuming" : "starting",
+            sweep.name,
+            resumed ? " after " + checkpoint.processed() + " row(s)" : "");
+      }
+
+      try {
+        SweepCheckpoint.Chunk chunk = sweep.step.run(checkpoint.after(), batchSize);
+        SweepCheckpoint next = checkpoint.advance(chunk, batchSize, System.currentTimeMillis());
+        next.commit();
+        checkpoint = next;
+        sweep.processed = checkpoint.processed();
+        failures = 0;
+      } catch(SQLException e) {
+        logger.error("the {} sweep failed a chunk and will retry it: {}", sweep.name, e.getMessage());
+        Thread.sleep(Math.max(1L, pauseMillis) * FAILURE_BACKOFF);
+        continue;
+      } catch(RuntimeException e) {
+        if(MAX_FAILURES <= ++failures) {
+          sweep.state = State.FAILED;
+          logger.error(
+              "the {} sweep failed a chunk {} times and is abandoned until the next boot",
+              sweep.name,
+              failures,
+              e);
+          return;
+        }
+        logger.error("the {} sweep failed a chunk and will retry it", sweep.name, e);
+        Thread.sleep(Math.max(1L, pauseMillis) * FAILURE_BACKOFF);
+        continue;
+      }
+
+      if(!checkpoint.isComplete() && 0L < pauseMillis) Thread.sleep(pauseMillis);
+    }
+
+    sweep.state = State.COMPLETE;
+    logger.info("the {} sweep is complete ({} row(s))", sweep.name, checkpoint.processed());
+  }
+
+  /**
+   * Reports where every sweep has got to.
+   *
+   * @return one entry per sweep, in the order they run
+   */
+  public List<Progress> progress() {
+    List<Progress> progress = new ArrayList<>(sweeps.size());
+    for(var sweep : sweeps)
+      progress.add(new Progress(sweep.name, sweep.state, sweep.processed));
+    return Collections.unmodifiableList(progress);
+  }
+
+  /**
+   * Starts sweeping in the background.
+   */
+  public void start() {
+    if(null != thread) return;
+    thread = new Thread(this, "sweeps");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops sweeping at the end of the current chunk or pause.
+   */
+  public void stop() {
+    if(null != thread) thread.interrupt();
+  }
+
+  /**
+   * Waits for the runner to stop.
+   *
+   * @param millis the longest to wait
+   */
+  public void join(long millis) {
+    Thread t = thread;
+    if(null == t) return;
+    try {
+      t.join(millis);
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -9,10 +9,17 @@ package com.crowdease.yasss.daemon;
 
 import java.sql.SQLException;
 import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 import com.axonibyte.lib.auth.Credentialed;
 import com.axonibyte.lib.auth.CryptoException;
+import com.crowdease.yasss.metrics.Metrics;
 import com.crowdease.yasss.model.ConcurrentLinkedEvictionDeque;
 import com.crowdease.yasss.model.TicketSigner;
 
@@ -33,6 +40,15 @@ public final class TicketEngine implements Runnable {
    */
   static final int MAX_SIGNERS = 256;
 
+  /**
+   * The least time between two refreshes forced by an unknown signer.
+   *
+   * <p>The signer id in a ticket is caller-supplied, so without this anybody
+   * could make every node decrypt its whole signer history once per request
+   * just by naming signers that do not exist.
+   */
+  static final long MISS_REFRESH_MILLIS = 5_000L;
+
   /**
    * A signature together with the signer that produced it.
    *
@@ -77,9 +93,20 @@ public final class TicketEngine implements Runnable {
 
   private final Deque<Credentialed> signers;
   private final long refreshInterval;
+  private final long syncInterval;
   private final long retentionMillis;
   private final boolean persistent;
   private final int capacity;
+  private final BooleanSupplier leader;
+  private final AtomicLong lastMissRefresh = new AtomicLong(0L);
+  private final ReentrantLock refreshLock = new ReentrantLock();
+
+  /**
+   * When the newest signer this node knows of was generated, wherever it was
+   * generated. Written by the worker, and by {@link #reset()} on a request
+   * thread.
+   */
+  private volatile long lastRotation = 0L;
 
   private Thread thread = null;
 
@@ -100,11 +127,45 @@ public final class TicketEngine implements Runnable {
    */
   public TicketEngine(
       int refreshInterval, int maxHistory, long absoluteTimeoutMinutes, boolean persistent) {
-    if(0 >= refreshInterval || 0 >= maxHistory)
+    this(refreshInterval, maxHistory, absoluteTimeoutMinutes, persistent, () -> true, refreshInterval * 60);
+  }
+
+  /**
+   * Instantiates a ticket engine that shares its signers with other nodes.
+   *
+   * <p>Only the node {@code leader} names rotates. Every node, the leader
+   * included, checks {@code ticket_signer} every {@code syncSeconds} and adopts
+   * whatever another node has written -- a rotation by the leader, or a
+   * platform-wide reset by whichever node happened to receive the request. A
+   * ticket naming a signer this node has not seen yet forces an early check,
+   * so a session minted on the leader a moment after it rotated does not fail
+   * on a follower for the rest of the interval.
+   *
+   * <p>Without persistence there is nothing to share, so each node rotates its
+   * own signers as before and {@code leader} is not consulted.
+   *
+   * @param refreshInterval the number of minutes between generations of the
+   *        signing key
+   * @param maxHistory the number of signing keys to retain in history before
+   *        invalidating the oldest key
+   * @param absoluteTimeoutMinutes the longest a session may live
+   * @param persistent whether signers may be written to the database
+   * @param leader whether this node currently owns rotation
+   * @param syncSeconds the number of seconds between checks of the stored signers
+   * @throws IllegalArgumentException if any interval is non-positive
+   */
+  public TicketEngine(
+      int refreshInterval, int maxHistory, long absoluteTimeoutMinutes, boolean persistent,
+      BooleanSupplier leader, int syncSeconds) {
+    if(0 >= refreshInterval || 0 >= maxHistory || 0 >= syncSeconds)
       throw new IllegalArgumentException("invalid arguments for TicketEngine");
 
     this.capacity = signerCount(refreshInterval, maxHistory, absoluteTimeoutMinutes);
     this.refreshInterval = refreshInterval * 60 * 1000L; // milliseconds in a minute
+    this.syncInterval = persistent
+        ? Math.min(syncSeconds * 1000L, this.refreshInterval)
+        : this.refreshInterval;
+    this.leader = leader;
     this.retentionMillis = (long)capacity * this.refreshInterval;
     this.persistent = persistent;
     this.signers = new ConcurrentLinkedEvictionDeque<>(capacity);
@@ -138,9 +199,17 @@ public final class TicketEngine implements Runnable {
       // which is what stops sign() from being reachable before the deque has
       // anything in it -- a race that used to answer with a RuntimeException on
       // whichever request happened to arrive first after a boot.
+      //
+      // Rotation is decided against the newest signer's age rather than by
+      // counting sleeps, because on a cluster the signer may have been minted
+      // by a different node -- and a follower promoted to leader should rotate
+      // when the last leader would have, not a whole interval after promotion.
       while(!thread.isInterrupted()) {
-        Thread.sleep(refreshInterval);
-        rotate();
+        Thread.sleep(syncInterval);
+        if(persistent) refresh();
+        if((!persistent || leader.getAsBoolean())
+            && System.currentTimeMillis() - lastRotation >= refreshInterval)
+          rotate();
       }
     } catch(InterruptedException e) { }
 
@@ -156,6 +225,7 @@ public final class TicketEngine implements Runnable {
 
     if(persistent) {
       try {
+        lastRotation = TicketSigner.newest();
         var restored = TicketSigner.load(capacity);
         signers.addAll(restored);
         logger.info("restored {} signer(s) from the database", restored.size());
@@ -166,10 +236,12 @@ public final class TicketEngine implements Runnable {
 
     // Only when there is nothing to sign with. A restored signer is a perfectly
     // good one, and minting on every boot would burn through the history for no
-    // reason.
+    // reason. Deliberately not gated on leadership: a follower with nothing to
+    // sign with cannot issue a session at all, and two nodes minting at once on
+    // a first boot just leaves one extra signer that both adopt.
     if(signers.isEmpty()) rotate();
 
-    thread = new Thread(this);
+    thread = new Thread(this, "ticket-engine");
     thread.setDaemon(true);
     thread.start();
   }
@@ -199,10 +271,11 @@ public final class TicketEngine implements Runnable {
     }
 
     signers.add(signer);
+    long now = System.currentTimeMillis();
+    lastRotation = now;
 
     if(persistent) {
       try {
-        long now = System.currentTimeMillis();
         TicketSigner.store(signer, now);
         TicketSigner.prune(now - retentionMillis);
       } catch(SQLException e) {
@@ -215,6 +288,74 @@ public final class TicketEngine implements Runnable {
     logger.info("generated new signer {}", signer.getID());
   }
 
+  /**
+   * Adopts whatever other nodes have written to {@code ticket_signer}.
+   *
+   * <p>Asks for the newest signer's age first, and loads only if it has
+   * changed -- loading decrypts and probes every stored signer, which is cheap
+   * but not cheap enough to do every tick on every node for nothing.
+   *
+   * <p>Locked because {@link #verify} may call it from a request thread
+   * while the worker does, and two reconciles against the same stale view
+   * would both append the same signer. A {@link ReentrantLock} rather than a
+   * monitor, since it is held across two queries: a virtual request thread
+   * waiting on a monitor would hold its carrier for as long as they take.
+   */
+  private void refresh() {
+    refreshLock.lock();
+    try {
+      long newest = TicketSigner.newest();
+      if(newest == lastRotation) return;
+
+      if(reconcile(signers, TicketSigner.load(capacity)))
+        logger.info("adopted signers written by another node");
+      if(0L < newest) lastRotation = newest;
+
+    } catch(SQLException e) {
+      // Not fatal: the signers already held still work. What is missed is
+      // another node's change, until the next tick.
+      logger.error("could not refresh stored signers: {}", e.getMessage());
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Brings the signers held in memory into line with those stored.
+   *
+   * <p>Signers missing from memory are appended in age order, so the newest
+   * stored signer becomes the one that signs. Signers missing from storage are
+   * dropped afterwards -- afterwards, so that the deque is never empty in
+   * between and a concurrent {@link #sign(String)} never finds nothing. That
+   * removal is how a platform-wide reset on one node reaches the others.
+   *
+   * <p>An empty result is ignored rather than adopted. It means the table was
+   * wiped and nothing has been written since, and emptying the deque would
+   * stop this node issuing sessions until something is.
+   *
+   * @param held the engine's signers
+   * @param stored the stored signers, oldest first
+   * @return {@code true} if anything changed
+   */
+  static boolean reconcile(Deque<Credentialed> held, List<Credentialed> stored) {
+    if(stored.isEmpty()) return false;
+
+    Set<UUID> heldIDs = new HashSet<>();
+    for(var signer : held)
+      heldIDs.add(signer.getID());
+    Set<UUID> storedIDs = new HashSet<>();
+    for(var signer : stored)
+      storedIDs.add(signer.getID());
+
+    boolean changed = false;
+    for(var signer : stored)
+      if(!heldIDs.contains(signer.getID())) {
+        held.add(signer);
+        changed = true;
+      }
+    return held.removeIf(s -> !storedIDs.contains(s.getID())) || changed;
+  }
+
   /**
    * Discards every signer, stored and in memory, and mints a fresh one.
    *
@@ -242,7 +383,10 @@ public final class TicketEngine implements Runnable {
     Credentialed signer = signers.peekLast();
     if(null == signer)
       throw new CryptoException("signer queue has not yet been populated", null);
-    return new Signature(signer.getID(), signer.sign(message));
+    long startedAt = System.nanoTime();
+    Signature signature = new Signature(signer.getID(), signer.sign(message));
+    Metrics.TICKET_SIGN.observeSince(startedAt);
+    return signature;
   }
 
   /**
@@ -261,9 +405,30 @@ public final class TicketEngine implements Runnable {
    */
   public boolean verify(String message, String signature, UUID signerID) {
     if(null == signerID || null == signature) return false;
+    long startedAt = System.nanoTime();
+    try {
+      return check(message, signature, signerID);
+    } finally {
+      Metrics.TICKET_VERIFY.observeSince(startedAt);
+    }
+  }
+
+  private boolean check(String message, String signature, UUID signerID) {
     for(var signer : signers)
       if(signerID.equals(signer.getID()))
         return signer.verifySig(message, signature);
+
+    // Possibly minted a moment ago by another node. Rate-limited per engine,
+    // not per signer, since the id is whatever the caller says it is.
+    long now = System.currentTimeMillis();
+    long last = lastMissRefresh.get();
+    if(persistent && now - last >= MISS_REFRESH_MILLIS
+        && lastMissRefresh.compareAndSet(last, now)) {
+      refresh();
+      for(var signer : signers)
+        if(signerID.equals(signer.getID()))
+          return signer.verifySig(message, signature);
+    }
     return false;
   }
 
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+/**
+ * Where every log line goes: onto a ring, and from there to stderr on a
+ * thread of its own.
+ *
+ * <p>The build used to ship {@code slf4j-simple}, which formats and writes
+ * each line to stderr on the thread that logged it, under the stream's lock.
+ * Every request logs a few lines, so at any real concurrency the requests
+ * queued on that lock, and a slow terminal or a full pipe to the log collector
+ * stalled them outright. Here a request only formats its message and queues
+ * it; one writer thread takes lines off in batches of up to
+ * {@code yasss.log.batchSize}, renders them, and writes each batch with one
+ * call and one flush.
+ *
+ * <p>The ring is bounded. When it is full -- the collector has stopped
+ * reading, or something is logging in a loop -- a line below WARN is dropped
+ * and counted ({@code yasss_log_dropped_total}), so that requests keep their
+ * latency; WARN and ERROR wait for room, because those are the lines somebody
+ * will go looking for. {@code yasss.log.overflow=block} makes every level
+ * wait, for a deployment that would rather slow down than lose a line.
+ *
+ * <p>Lines are JSON, one per line, with the request they belong to: see
+ * {@link #REQUEST_KEY}. {@code yasss.log.format=text} gives the old
+ * {@code slf4j-simple} layout instead, for a developer watching a console.
+ *
+ * <p>Configured by {@code /log.properties}, which any system property of the
+ * same name overrides. Read when the first logger is made, which is before
+ * {@code YasssCore} has read its own config, so none of this can be set there.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class AsyncLog implements ILoggerFactory {
+
+  /**
+   * The MDC key holding the current request's ID, which every line logged on
+   * its thread carries.
+   */
+  public static final String REQUEST_KEY = "request";
+
+  /** How a line is written. */
+  enum Format { JSON, TEXT }
+
+  /** What happens to a line that finds the ring full. */
+  enum Overflow {
+
+    /** Lines below WARN are dropped and counted; the rest wait. */
+    DROP,
+
+    /** Every line waits for room. */
+    BLOCK
+  }
+
+  /**
+   * One line, as it was logged. The message is formatted on the logging
+   * thread, since its arguments may change once the call returns; the rest of
+   * the rendering is left to the writer.
+   *
+   * @param at when it was logged, in epoch milliseconds
+   * @param level its level
+   * @param thread the name of the thread that logged it
+   * @param logger the logger's name
+   * @param message the formatted message
+   * @param request the request it belongs to, or {@code null}
+   * @param error the throwable logged with it, or {@code null}
+   */
+  record Entry(long at, Level level, String thread, String logger, String message,
+      String request, Throwable error) { }
+
+  static final String PROPERTIES = "/log.properties";
+  static final String PREFIX = "yasss.log.";
+
+  /** How long the writer sleeps when there is nothing to write. */
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20L);
+
+  /** How long to wait for the writer to catch up when the JVM exits. */
+  private static final long SHUTDOWN_MILLIS = 2_000L;
+
+  private static final DateTimeFormatter TEXT_TIME =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT)
+          .withZone(ZoneId.systemDefault());
+
+  private static volatile AsyncLog global = null;
+
+  private final Properties settings;
+  private final int defaultLevel;
+  private final Format format;
+  private final Overflow overflow;
+  private final int batchSize;
+  private final PrintStream out;
+  private final LogRing<Entry> ring;
+  private final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong queued = new AtomicLong();
+  private final AtomicLong written = new AtomicLong();
+  private final StringBuilder batch = new StringBuilder(8192);
+  private final Thread writer;
+  private volatile boolean idle = false;
+  private volatile boolean stopping = false;
+
+  /**
+   * Instantiates a pipeline and starts its writer.
+   *
+   * @param settings the {@code yasss.log.*} settings
+   * @param out where the lines are written
+   * @throws IllegalArgumentException if a setting is not understood
+   */
+  AsyncLog(Properties settings, PrintStream out) {
+    this.settings = settings;
+    this.defaultLevel = level(settings.getProperty(PREFIX + "level", "info"));
+    this.format = Format.valueOf(settings.getProperty(PREFIX + "format", "json").strip().toUpperCase(Locale.ROOT));
+    this.overflow = Overflow.valueOf(settings.getProperty(PREFIX + "overflow", "drop").strip().toUpperCase(Locale.ROOT));
+    this.batchSize = Integer.parseInt(settings.getProperty(PREFIX + "batchSize", "256").strip());
+    this.ring = new LogRing<>(Integer.parseInt(settings.getProperty(PREFIX + "bufferSize", "8192").strip()));
+    if(1 > batchSize)
+      throw new IllegalArgumentException("log batch size must be positive");
+    this.out = out;
+
+    this.writer = new Thread(this::drain, "log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Retrieves the pipeline every logger writes to, building it the first time.
+   *
+   * @return the {@link AsyncLog}
+   */
+  static AsyncLog global() {
+    if(null == global) {
+      synchronized(AsyncLog.class) {
+        if(null == global) {
+          Properties settings = load();
+          AsyncLog log;
+          try {
+            log = new AsyncLog(settings, System.err);
+          } catch(IllegalArgumentException e) {
+            // Nothing to log it to yet; say so plainly and carry on with
+            // the defaults rather than failing to start over a log setting.
+            System.err.println("log.properties: " + e.getMessage() + "; using defaults");
+            log = new AsyncLog(new Properties(), System.err);
+          }
+          final AsyncLog started = log;
+          Runtime.getRuntime().addShutdownHook(new Thread(started::stop, "log-flush"));
+          global = started;
+        }
+      }
+    }
+    return global;
+  }
+
+  private static Properties load() {
+    Properties settings = new Properties();
+    try(InputStream in = AsyncLog.class.getResourceAsStream(PROPERTIES)) {
+      if(null != in) settings.load(in);
+    } catch(IOException e) {
+      System.err.println("could not read " + PROPERTIES + ": " + e.getMessage());
+    }
+    for(var name : System.getProperties().stringPropertyNames())
+      if(name.startsWith(PREFIX))
+        settings.setProperty(name, System.getProperty(name));
+    return settings;
+  }
+
+  /**
+   * Counts the lines dropped for want of room, since boot.
+   *
+   * @return how many, or {@code 0} if logging does not go through here
+   */
+  public static long countDropped() {
+    AsyncLog log = global;
+    return null == log ? 0L : log.dropped.get();
+  }
+
+  /**
+   * Counts the lines queued and not yet written.
+   *
+   * @return how many, or {@code 0} if logging does not go through here
+   */
+  public static long countBacklog() {
+    AsyncLog log = global;
+    return null == log ? 0L : log.queued.get() - log.written.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public Logger getLogger(String name) {
+    return loggers.computeIfAbsent(name, n -> new AsyncLogger(n, threshold(n), this));
+  }
+
+  /**
+   * Works out a logger's level: the setting for the longest prefix of its
+   * name, as {@code yasss.log.level.com.crowdease.yasss.api=debug}, or
+   * {@code yasss.log.level}.
+   *
+   * @param name the logger's name
+   * @return the lowest {@link Level#toInt()} it logs
+   */
+  int threshold(String name) {
+    for(String prefix = name; !prefix.isEmpty(); ) {
+      String setting = settings.getProperty(PREFIX + "level." + prefix);
+      if(null != setting) {
+        try {
+          return level(setting);
+        } catch(IllegalArgumentException e) {
+          break;
+        }
+      }
+      int dot = prefix.lastIndexOf('.');
+      prefix = 0 > dot ? "" : prefix.substring(0, dot);
+    }
+    return defaultLevel;
+  }
+
+  private static int level(String setting) {
+    String name = setting.strip().toUpperCase(Locale.ROOT);
+    if("OFF".equals(name)) return Integer.MAX_VALUE;
+    return Level.valueOf(name).toInt();
+  }
+
+  /**
+   * Queues a line, from any thread.
+   *
+   * @param entry the line
+   * @return {@code true} if it was queued, or {@code false} if it was dropped
+   */
+  boolean append(Entry entry) {
+    while(!ring.offer(entry)) {
+      if(stopping || Overflow.DROP == overflow && Level.WARN.toInt() > entry.level().toInt()) {
+        dropped.incrementAndGet();
+        return false;
+      }
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(100_000L);
+    }
+    queued.incrementAndGet();
+    if(idle) LockSupport.unpark(writer);
+    return true;
+  }
+
+  private void drain() {
+    for(;;) {
+      int n = 0;
+      for(Entry entry; batchSize > n && null != (entry = ring.poll()); n++)
+        render(entry, batch);
+
+      if(0 < n) {
+        out.print(batch);
+        out.flush();
+        batch.setLength(0);
+        written.addAndGet(n);
+        continue;
+      }
+
+      if(stopping) return;
+      idle = true;
+      // Checked again after saying so, so that a line queued just before is
+      // not left until the next wake-up; one queued just after unparks us.
+      if(ring.isEmpty()) LockSupport.parkNanos(this, IDLE_NANOS);
+      idle = false;
+    }
+  }
+
+  /**
+   * Waits for everything queued so far to be written.
+   *
+   * @param timeoutMillis the longest to wait
+   * @return {@code true} if it was all written in time
+   */
+  boolean flush(long timeoutMillis) {
+    long target = queued.get();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while(written.get() < target) {
+      if(System.nanoTime() > deadline) return false;
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(1_000_000L);
+    }
+    return true;
+  }
+
+  private void stop() {
+    flush(SHUTDOWN_MILLIS);
+    stopping = true;
+    LockSupport.unpark(writer);
+  }
+
+  /**
+   * Renders one line, newline and all.
+   *
+   * @param entry the line
+   * @param sb where to render it
+   */
+  void render(Entry entry, StringBuilder sb) {
+    if(Format.TEXT == format) {
+      TEXT_TIME.formatTo(Instant.ofEpochMilli(entry.at()), sb);
+      sb.append(" [").append(entry.thread()).append("] [").append(entry.level().name()).append("] ")
+          .append(entry.logger()).append(" - ").append(entry.message());
+      if(null != entry.request()) sb.append(" request=").append(entry.request());
+      sb.append('\n');
+      if(null != entry.error()) sb.append(stackTrace(entry.error()));
+      return;
+    }
+
+    sb.append("{\"time\":\"");
+    DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(entry.at()), sb);
+    sb.append("\",\"level\":\"").append(entry.level().name()).append('"');
+    sb.append(",\"thread\":");
+    quote(entry.thread(), sb);
+    sb.append(",\"logger\":");
+    quote(entry.logger(), sb);
+    if(null != entry.request()) {
+      sb.append(",\"request\":");
+      quote(entry.request(), sb);
+    }
+    sb.append(",\"message\":");
+    quote(entry.message(), sb);
+    if(null != entry.error()) {
+      sb.append(",\"error\":");
+      quote(stackTrace(entry.error()), sb);
+    }
+    sb.append("}\n");
+  }
+
+  private static String stackTrace(Throwable error) {
+    StringWriter trace = new StringWriter();
+    error.printStackTrace(new PrintWriter(trace));
+    return trace.toString();
+  }
+
+  /**
+   * Writes a JSON string.
+   *
+   * @param s the string, which may be {@code null}
+   * @param sb where to write it
+   */
+  static void quote(String s, StringBuilder sb) {
+    if(null == s) {
+      sb.append("null");
+      return;
+    }
+    sb.append('"');
+    for(int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch(c) {
+        case '"': sb.append("\\\""); break;
+        case '\\': sb.append("\\\\"); break;
+        case '\n': sb.append("\\n"); break;
+        case '\r': sb.append("\\r"); break;
+        case '\t': sb.append("\\t"); break;
+        default:
+          if(0x20 > c || 0x2028 == c || 0x2029 == c)
+            sb.append(String.format("\\u%04x", (int)c));
+          else sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+}
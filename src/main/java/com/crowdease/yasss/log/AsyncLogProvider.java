@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.IMarkerFactory;
+import org.slf4j.helpers.BasicMarkerFactory;
+import org.slf4j.spi.MDCAdapter;
+import org.slf4j.spi.SLF4JServiceProvider;
+
+/**
+ * Binds SLF4J to {@link AsyncLog}. Found through
+ * {@code META-INF/services}, in place of the {@code slf4j-simple} binding the
+ * build used to ship.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class AsyncLogProvider implements SLF4JServiceProvider {
+
+  /** The SLF4J API this was written against. */
+  public static final String REQUESTED_API_VERSION = "2.0.99";
+
+  private ILoggerFactory loggerFactory;
+  private IMarkerFactory markerFactory;
+  private MDCAdapter mdcAdapter;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public ILoggerFactory getLoggerFactory() {
+    return loggerFactory;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public IMarkerFactory getMarkerFactory() {
+    return markerFactory;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public MDCAdapter getMDCAdapter() {
+    return mdcAdapter;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public String getRequestedApiVersion() {
+    return REQUESTED_API_VERSION;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void initialize() {
+    markerFactory = new BasicMarkerFactory();
+    mdcAdapter = new ThreadMDCAdapter();
+    loggerFactory = AsyncLog.global();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.LegacyAbstractLogger;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * One named logger, handing its lines to {@link AsyncLog}.
+ *
+ * <p>The level is settled when the logger is made, so a disabled call costs a
+ * comparison and nothing else -- which is most {@code debug} calls.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class AsyncLogger extends LegacyAbstractLogger {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int threshold;
+  private final transient AsyncLog log;
+
+  /**
+   * Instantiates a logger.
+   *
+   * @param name the logger's name
+   * @param threshold the lowest {@link Level#toInt()} it logs
+   * @param log where its lines go
+   */
+  AsyncLogger(String name, int threshold, AsyncLog log) {
+    this.name = name;
+    this.threshold = threshold;
+    this.log = log;
+  }
+
+  private boolean enabled(Level level) {
+    return threshold <= level.toInt();
+  }
+
+  @Override public boolean isTraceEnabled() {
+    return enabled(Level.TRACE);
+  }
+
+  @Override public boolean isDebugEnabled() {
+    return enabled(Level.DEBUG);
+  }
+
+  @Override public boolean isInfoEnabled() {
+    return enabled(Level.INFO);
+  }
+
+  @Override public boolean isWarnEnabled() {
+    return enabled(Level.WARN);
+  }
+
+  @Override public boolean isErrorEnabled() {
+    return enabled(Level.ERROR);
+  }
+
+  @Override protected String getFullyQualifiedCallerName() {
+    return null;
+  }
+
+  @Override protected void handleNormalizedLoggingCall(Level level, Marker marker,
+      String messagePattern, Object[] arguments, Throwable throwable) {
+    FormattingTuple formatted = MessageFormatter.arrayFormat(messagePattern, arguments, throwable);
+    log.append(
+        new AsyncLog.Entry(
+            System.currentTimeMillis(),
+            level,
+            Thread.currentThread().getName(),
+            name,
+            formatted.getMessage(),
+            MDC.get(AsyncLog.REQUEST_KEY),
+            formatted.getThrowable()));
+  }
+}
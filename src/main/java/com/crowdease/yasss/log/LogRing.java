@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue for many producers and one consumer, without locks.
+ *
+ * <p>Each slot carries a sequence number saying whose turn it is: a producer
+ * claims a position by moving the tail forward with one compare-and-set, fills
+ * the slot, then publishes it by bumping the slot's sequence; the consumer
+ * takes a slot only once its sequence says it is filled, and hands it back by
+ * moving the sequence a lap ahead. A full ring is reported rather than waited
+ * on, so that what to do about it is the caller's decision.
+ *
+ * @param <T> what is queued
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class LogRing<T> {
+
+  private final Object[] slots;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private long head = 0L;
+
+  /**
+   * Instantiates a ring.
+   *
+   * @param capacity how many items it holds, rounded up to a power of two
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  LogRing(int capacity) {
+    if(1 > capacity)
+      throw new IllegalArgumentException("a ring must hold at least one item");
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    this.slots = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    this.mask = size - 1;
+    for(int i = 0; i < size; i++)
+      sequences.set(i, i);
+  }
+
+  /**
+   * Queues an item, from any thread.
+   *
+   * @param item the item
+   * @return {@code true} if it was queued, or {@code false} if the ring is full
+   */
+  boolean offer(T item) {
+    long pos = tail.get();
+    for(;;) {
+      int i = (int)(pos & mask);
+      long lag = sequences.get(i) - pos;
+      if(0L == lag) {
+        if(tail.compareAndSet(pos, pos + 1L)) {
+          slots[i] = item;
+          sequences.lazySet(i, pos + 1L);
+          return true;
+        }
+        pos = tail.get();
+      } else if(0L > lag) {
+        return false;
+      } else pos = tail.get();
+    }
+  }
+
+  /**
+   * Takes the oldest item. Only ever called from the one consumer.
+   *
+   * @return the item, or {@code null} if there is none ready
+   */
+  @SuppressWarnings("unchecked") T poll() {
+    int i = (int)(head & mask);
+    if(sequences.get(i) != head + 1L) return null;
+    T item = (T)slots[i];
+    slots[i] = null;
+    sequences.lazySet(i, head + mask + 1L);
+    head++;
+    return item;
+  }
+
+  /**
+   * Determines whether anything is ready to be taken. Only meaningful on the
+   * consumer.
+   *
+   * @return {@code true} if {@link #poll()} would return {@code null}
+   */
+  boolean isEmpty() {
+    return sequences.get((int)(head & mask)) != head + 1L;
+  }
+
+  /**
+   * Retrieves the ring's size.
+   *
+   * @return how many items it holds at most
+   */
+  int capacity() {
+    return slots.length;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.spi.MDCAdapter;
+
+/**
+ * An MDC held in a plain {@link ThreadLocal}, which a new thread does not
+ * inherit.
+ *
+ * <p>SLF4J's {@code BasicMDCAdapter} uses an {@link InheritableThreadLocal},
+ * so a thread started from a request thread -- a pool some library creates
+ * lazily on its first call, say -- copies that request's
+ * {@link AsyncLog#REQUEST_KEY} and carries it for good, tagging every line it
+ * ever logs with a request it has nothing to do with. Here a new thread
+ * starts with an empty context; work handed to one is logged without a
+ * request unless the code handing it over puts one there.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class ThreadMDCAdapter implements MDCAdapter {
+
+  private final ThreadLocal<Map<String, String>> context = ThreadLocal.withInitial(HashMap::new);
+  private final ThreadLocal<Map<String, Deque<String>>> deques = ThreadLocal.withInitial(HashMap::new);
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void put(String key, String val) {
+    if(null == key)
+      throw new IllegalArgumentException("key cannot be null");
+    context.get().put(key, val);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public String get(String key) {
+    return context.get().get(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void remove(String key) {
+    context.get().remove(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void clear() {
+    context.remove();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public Map<String, String> getCopyOfContextMap() {
+    Map<String, String> map = context.get();
+    return map.isEmpty() ? null : new HashMap<>(map);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void setContextMap(Map<String, String> contextMap) {
+    context.set(null == contextMap ? new HashMap<>() : new HashMap<>(contextMap));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void pushByKey(String key, String value) {
+    deques.get().computeIfAbsent(key, k -> new ArrayDeque<>()).push(value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public String popByKey(String key) {
+    Deque<String> deque = deques.get().get(key);
+    return null == deque ? null : deque.pollFirst();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public Deque<String> getCopyOfDequeByKey(String key) {
+    Deque<String> deque = deques.get().get(key);
+    return null == deque ? null : new ArrayDeque<>(deque);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void clearDequeByKey(String key) {
+    Deque<String> deque = deques.get().get(key);
+    if(null != deque) deque.clear();
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds how many threads hold a connection to one database at once.
+ *
+ * <p>With a fixed pool of request threads, the pool was the bound: at most that
+ * many requests could be asking for a connection. Virtual threads remove it, so
+ * a burst of requests becomes a burst of connection attempts, and the library's
+ * pool is not ours to tune or to trust under that. This puts a
+ * {@link Semaphore} in front of it instead, which a virtual thread waits on
+ * without holding its carrier.
+ *
+ * <p>A thread that already holds a connection is let straight through. Plenty
+ * of code opens a second connection while the first is still open -- a
+ * transaction calling a finder, say -- and making it queue for a permit behind
+ * threads that are themselves waiting for its first connection to come back is
+ * a deadlock once every permit is held that way.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class ConnectionLimiter {
+
+  /**
+   * What one thread holds. Kept on the connection as well as in the thread
+   * local, so that a connection closed on some other thread still gives back
+   * what its opener took.
+   */
+  static final class Hold {
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private Hold() { }
+  }
+
+  private final Semaphore permits;
+  private final long timeoutNanos;
+  private final ThreadLocal<Hold> holds = ThreadLocal.withInitial(Hold::new);
+  private final AtomicLong timeouts = new AtomicLong();
+
+  /**
+   * Instantiates a limiter.
+   *
+   * @param permits how many threads may hold connections at once
+   * @param timeoutMillis how long a thread waits for its turn
+   * @throws IllegalArgumentException if either is not positive
+   */
+  ConnectionLimiter(int permits, long timeoutMillis) {
+    if(1 > permits)
+      throw new IllegalArgumentException("there must be room for at least 1 connection");
+    if(1 > timeoutMillis)
+      throw new IllegalArgumentException("acquire timeout must be positive");
+    // Fair, so that a request that has waited longest goes next rather than
+    // whichever happened to ask at the moment a permit came back.
+    this.permits = new Semaphore(permits, true);
+    this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+  }
+
+  /**
+   * Registers this limiter's series.
+   *
+   * @param database the label naming the database
+   */
+  void register(String database) {
+    Metrics.REGISTRY.gauge(
+        "yasss_db_limiter_waiting",
+        "Threads waiting for their turn at the database.",
+        permits::getQueueLength,
+        "database", database);
+    Metrics.REGISTRY.counter(
+        "yasss_db_limiter_timeouts_total",
+        "Connection attempts that gave up waiting for their turn.",
+        timeouts::get,
+        "database", database);
+  }
+
+  /**
+   * Waits for a turn, unless this thread already has one.
+   *
+   * @return the {@link Hold} to hand to {@link #release(Hold)}
+   * @throws SQLException if no turn came within the timeout
+   */
+  Hold acquire() throws SQLException {
+    Hold hold = holds.get();
+    if(0 < hold.depth.getAndIncrement()) return hold;
+
+    try {
+      if(permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) return hold;
+      timeouts.incrementAndGet();
+      hold.depth.decrementAndGet();
+      // Transient, and an SQLException, so that every caller already handles
+      // it -- as a 500, which is what a database that cannot be reached is.
+      throw new SQLTransientConnectionException(
+          String.format(
+              "database busy: no connection within %1$d ms",
+              TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+    } catch(InterruptedException e) {
+      hold.depth.decrementAndGet();
+      Thread.currentThread().interrupt();
+      throw new SQLTransientConnectionException("interrupted waiting for a connection", e);
+    }
+  }
+
+  /**
+   * Gives a turn back once the last connection under it is closed.
+   *
+   * @param hold what {@link #acquire()} returned
+   */
+  void release(Hold hold) {
+    if(0 == hold.depth.decrementAndGet()) permits.release();
+  }
+
+  /**
+   * Counts the turns not currently taken.
+   *
+   * @return the number of free permits
+   */
+  int available() {
+    return permits.availablePermits();
+  }
+}
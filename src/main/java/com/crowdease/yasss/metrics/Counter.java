@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up.
+ *
+ * <p>Backed by a {@link LongAdder} rather than an {@code AtomicLong}: the
+ * request threads that bump these mostly do so at the same moments, and an
+ * adder spreads that contention across cells instead of retrying one CAS.
+ * Reading is the expensive side, and only the scrape reads.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class Counter {
+
+  private final LongAdder value = new LongAdder();
+
+  Counter() { }
+
+  /** Adds one. */
+  public void inc() {
+    value.increment();
+  }
+
+  /**
+   * Adds some amount.
+   *
+   * @param amount the amount, which must not be negative
+   */
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  /**
+   * Retrieves the current count.
+   *
+   * @return the sum of everything added so far
+   */
+  public long get() {
+    return value.sum();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One endpoint's latency, status and database use.
+ *
+ * <p>A request is bracketed by {@link #begin()} when authentication starts
+ * and {@link #end(int)} when the answer is ready, both on the request thread.
+ * In between, {@link MeteredConnection} notes every statement in the same
+ * thread's {@link QueryTrace}, which is how a query deep inside a model finder
+ * is charged to the endpoint that caused it without anything being passed
+ * down to it. Jetty serves a request on one thread from start to finish, and
+ * the trace is reused, so the whole bracket allocates nothing once a thread
+ * has served its first request -- unless the request broke its
+ * {@link QueryBudget}, in which case building the report is the least of its
+ * costs.
+ *
+ * <p>Statuses are counted by class rather than by code. Five counters per
+ * endpoint can be resolved once, at construction; an exact code would need a
+ * lookup per request, and a dashboard wants the classes anyway.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class EndpointMetrics {
+
+  private static final Logger logger = LoggerFactory.getLogger(EndpointMetrics.class);
+  private static final ThreadLocal<long[]> startedAt = ThreadLocal.withInitial(() -> new long[1]);
+
+  private final String endpoint;
+  private final String route;
+  private final Histogram latency;
+  private final Histogram queries;
+  private final Histogram dbTime;
+  private final Counter overBudget;
+  private final Counter repeated;
+  private final Counter[] statuses = new Counter[5];
+
+  /**
+   * Registers an endpoint's series.
+   *
+   * @param endpoint a name for the endpoint, usually its class
+   * @param route the endpoint's path pattern, without the version prefix
+   */
+  public EndpointMetrics(String endpoint, String route) {
+    this.endpoint = endpoint;
+    this.route = route;
+    this.latency = Metrics.REGISTRY.histogram(
+        "yasss_http_request_seconds",
+        "Time from authentication to a ready response.",
+        Histogram.LATENCY_NANOS,
+        Histogram.NANOS,
+        "endpoint", endpoint, "route", route);
+    this.queries = Metrics.REGISTRY.histogram(
+        "yasss_http_request_db_queries",
+        "Statements run while serving one request.",
+        Histogram.COUNTS,
+        1.0,
+        "endpoint", endpoint, "route", route);
+    this.dbTime = Metrics.REGISTRY.histogram(
+        "yasss_http_request_db_seconds",
+        "Time spent holding database connections while serving one request.",
+        Histogram.LATENCY_NANOS,
+        Histogram.NANOS,
+        "endpoint", endpoint, "route", route);
+    this.overBudget = Metrics.REGISTRY.counter(
+        "yasss_http_query_budget_exceeded_total",
+        "Requests that ran more statements than their endpoint's budget.",
+        "endpoint", endpoint, "route", route);
+    this.repeated = Metrics.REGISTRY.counter(
+        "yasss_http_query_repeats_total",
+        "Requests that ran one statement shape often enough to look like N+1.",
+        "endpoint", endpoint, "route", route);
+    for(int i = 0; i < statuses.length; i++)
+      statuses[i] = Metrics.REGISTRY.counter(
+          "yasss_http_responses_total",
+          "Responses, by endpoint and status class.",
+          "endpoint", endpoint, "route", route, "status", (i + 1) + "xx");
+  }
+
+  /** Starts timing a request on this thread, discarding anything left over. */
+  public static void begin() {
+    QueryTrace.current().reset();
+    startedAt.get()[0] = System.nanoTime();
+  }
+
+  /**
+   * Finishes timing the request on this thread, if one was begun.
+   *
+   * <p>Safe to call twice: the second call finds nothing begun and records
+   * nothing, so an error path may call it without knowing whether the normal
+   * path already has.
+   *
+   * @param status the HTTP status the response carries
+   */
+  public void end(int status) {
+    long[] began = startedAt.get();
+    if(0L == began[0]) return;
+    latency.observeSince(began[0]);
+    began[0] = 0L;
+
+    QueryTrace trace = QueryTrace.current();
+    queries.observe(trace.count());
+    dbTime.observe(trace.heldNanos());
+    statuses[Math.max(0, Math.min(statuses.length - 1, status / 100 - 1))].inc();
+
+    audit(trace);
+  }
+
+  /**
+   * Reports a request that broke its budget or repeated itself.
+   *
+   * <p>Both are logged as one structured line each, keyed so that a log search
+   * for {@code query-budget} finds every offender. The repeated shape is
+   * logged because it is the actionable part: it is the statement to hoist out
+   * of a loop.
+   *
+   * @param trace the request's trace
+   */
+  private void audit(QueryTrace trace) {
+    int budget = QueryBudget.of(endpoint);
+    if(budget < trace.count()) {
+      overBudget.inc();
+      logger.warn(
+          "query-budget exceeded endpoint={} route={} statements={} budget={} heldMillis={}",
+          endpoint,
+          route,
+          trace.count(),
+          budget,
+          trace.heldNanos() / 1_000_000L);
+    }
+
+    int threshold = QueryBudget.repeatThreshold();
+    if(threshold > trace.count()) return;
+
+    var repeats = trace.repeats(threshold);
+    if(repeats.isEmpty()) return;
+
+    repeated.inc();
+    for(var repeat : repeats.entrySet())
+      logger.warn(
+          "query-budget repeated endpoint={} route={} runs={} shape=\"{}\"",
+          endpoint,
+          route,
+          repeat.getValue(),
+          repeat.getKey());
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution over fixed buckets.
+ *
+ * <p>Observations are recorded in whatever integer unit the caller measured in
+ * -- nanoseconds, almost always -- and only converted on the way out, so that
+ * the hot path is a comparison loop and two adds with no floating point and
+ * nothing allocated. Buckets are stored individually and made cumulative at
+ * scrape time, which is the reverse of what Prometheus wants but means one
+ * increment per observation instead of one per bucket above it.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class Histogram {
+
+  /** Request-scale latencies, five milliseconds to ten seconds, in nanoseconds. */
+  public static final long[] LATENCY_NANOS = {
+    5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L,
+    250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L,
+    5_000_000_000L, 10_000_000_000L
+  };
+
+  /** Sub-millisecond operations, ten microseconds to a hundred milliseconds, in nanoseconds. */
+  public static final long[] FAST_NANOS = {
+    10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+    1_000_000L, 2_500_000L, 10_000_000L, 100_000_000L
+  };
+
+  /** Small counts, one to two hundred. */
+  public static final long[] COUNTS = { 1L, 2L, 5L, 10L, 20L, 50L, 100L, 200L };
+
+  /** Multiplier from nanoseconds to the seconds Prometheus expects. */
+  public static final double NANOS = 1e-9;
+
+  private final long[] bounds;
+  private final double scale;
+  private final LongAdder[] buckets;
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * Instantiates the histogram.
+   *
+   * @param bounds the inclusive upper bound of each bucket, ascending
+   * @param scale the multiplier from the recorded unit to the exported one
+   */
+  Histogram(long[] bounds, double scale) {
+    for(int i = 1; i < bounds.length; i++)
+      if(bounds[i - 1] >= bounds[i])
+        throw new IllegalArgumentException("bucket bounds must be strictly ascending");
+    this.bounds = bounds.clone();
+    this.scale = scale;
+    this.buckets = new LongAdder[bounds.length + 1];
+    for(int i = 0; i < buckets.length; i++)
+      buckets[i] = new LongAdder();
+  }
+
+  /**
+   * Records one observation.
+   *
+   * @param value the observation, in the unit the bounds are in
+   */
+  public void observe(long value) {
+    int i = 0;
+    while(i < bounds.length && value > bounds[i]) i++;
+    buckets[i].increment();
+    sum.add(value);
+  }
+
+  /**
+   * Records the time elapsed since a {@link System#nanoTime()} reading.
+   *
+   * @param startedAt the reading taken when the operation began
+   */
+  public void observeSince(long startedAt) {
+    observe(System.nanoTime() - startedAt);
+  }
+
+  /**
+   * Retrieves the number of buckets, not counting the implicit {@code +Inf}.
+   *
+   * @return the number of finite bounds
+   */
+  int bucketCount() {
+    return bounds.length;
+  }
+
+  /**
+   * Retrieves a bucket's upper bound in the exported unit.
+   *
+   * @param bucket the bucket
+   * @return its bound, multiplied by the scale
+   */
+  double bound(int bucket) {
+    return bounds[bucket] * scale;
+  }
+
+  /**
+   * Retrieves the cumulative counts, finite buckets first and {@code +Inf} last.
+   *
+   * <p>Read bucket by bucket while writers carry on, so the counts are not a
+   * consistent snapshot -- but they are accumulated from one read each, which
+   * at least keeps them monotonic, and the last one is used as the count.
+   *
+   * @return the cumulative count at or below each bound
+   */
+  long[] cumulative() {
+    long[] counts = new long[buckets.length];
+    long running = 0L;
+    for(int i = 0; i < buckets.length; i++) {
+      running += buckets[i].sum();
+      counts[i] = running;
+    }
+    return counts;
+  }
+
+  /**
+   * Retrieves the sum of every observation in the exported unit.
+   *
+   * @return the sum, multiplied by the scale
+   */
+  double sum() {
+    return sum.sum() * scale;
+  }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.ShardingKey;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * A pooled connection that reports how long it was held.
+ *
+ * <p>Everything is delegated untouched; preparing a statement and closing the
+ * connection are also noted in this thread's {@link QueryTrace}, and closing it
+ * gives back any turn a {@link ConnectionLimiter} handed out for it. The codebase
+ * takes one connection per statement -- connect, prepare, execute, close -- so
+ * the span from {@link MeteredDatabase#connect()} to here is, to within a
+ * round trip, the time that statement took.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class MeteredConnection implements Connection {
+
+  /** Stands in for the text of a plain {@link Statement}, which is not known until it runs. */
+  static final String UNPREPARED = "(unprepared statement)";
+
+  private final Connection con;
+  private final long takenAt;
+  private final ConnectionLimiter limiter;
+  private final ConnectionLimiter.Hold hold;
+  private boolean closed = false;
+  private int slot = -1;
+  private long preparedAt = 0L;
+
+  /**
+   * Wraps a connection just taken from the pool.
+   *
+   * @param con the pooled connection
+   * @param takenAt the {@link System#nanoTime()} at which it was handed over
+   */
+  MeteredConnection(Connection con, long takenAt) {
+    this(con, takenAt, null, null);
+  }
+
+  /**
+   * Wraps a connection taken under a {@link ConnectionLimiter}, which is given
+   * its turn back when the connection is closed.
+   *
+   * @param con the pooled connection
+   * @param takenAt the {@link System#nanoTime()} at which it was handed over
+   * @param limiter the {@link ConnectionLimiter}, or {@code null} for none
+   * @param hold what the limiter handed over, or {@code null} for none
+   */
+  MeteredConnection(Connection con, long takenAt,
+      ConnectionLimiter limiter, ConnectionLimiter.Hold hold) {
+    this.con = con;
+    this.takenAt = takenAt;
+    this.limiter = limiter;
+    this.hold = hold;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Records the hold time on the first call only. {@code Database.close}
+   * tolerates being handed a connection that is already closed, and a second
+   * close must not count the same query twice.
+   */
+  @Override public void close() throws SQLException {
+    boolean first = !closed;
+    if(first) {
+      closed = true;
+      mark(null);
+      long held = System.nanoTime() - takenAt;
+      Metrics.DB_HOLD.observe(held);
+      QueryTrace.current().hold(held);
+    }
+    try {
+      con.close();
+    } finally {
+      // After the connection is back in the pool, so that whoever is let in
+      // next finds one there.
+      if(first && null != limiter) limiter.release(hold);
+    }
+  }
+
+  /**
+   * Ends the statement in progress, if any, and starts timing the next.
+   *
+   * <p>A statement is counted as soon as it is prepared, so one on a
+   * connection that is never closed still counts; it is timed from its
+   * preparation to the next one or to the
+   * connection closing, rather than around each {@code execute}. That is
+   * within a result-set read of the truth for the connect-prepare-execute-close
+   * idiom used throughout, and it needs no wrapper around the statement, which
+   * would be another hundred-odd delegating methods and another object per
+   * query.
+   *
+   * @param next the statement just prepared, or {@code null} at close
+   */
+  private void mark(String next) {
+    long now = System.nanoTime();
+    QueryTrace trace = QueryTrace.current();
+    if(0 <= slot) trace.time(slot, now - preparedAt);
+    slot = null == next ? -1 : trace.record(next);
+    preparedAt = now;
+  }
+
+  @Override public <T> T unwrap(Class<T> iface) throws SQLException {
+    return iface.isInstance(this) ? iface.cast(this) : con.unwrap(iface);
+  }
+
+  @Override public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || con.isWrapperFor(iface);
+  }
+
+  @Override public Statement createStatement() throws SQLException {
+    mark(UNPREPARED);
+    return con.createStatement();
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql) throws SQLException {
+    mark(sql);
+    return con.prepareStatement(sql);
+  }
+
+  @Override public CallableStatement prepareCall(String sql) throws SQLException {
+    mark(sql);
+    return con.prepareCall(sql);
+  }
+
+  @Override public String nativeSQL(String sql) throws SQLException {
+    return con.nativeSQL(sql);
+  }
+
+  @Override public void setAutoCommit(boolean autoCommit) throws SQLException {
+    con.setAutoCommit(autoCommit);
+  }
+
+  @Override public boolean getAutoCommit() throws SQLException {
+    return con.getAutoCommit();
+  }
+
+  @Override public void commit() throws SQLException {
+    con.commit();
+  }
+
+  @Override public void rollback() throws SQLException {
+    con.rollback();
+  }
+
+  @Override public boolean isClosed() throws SQLException {
+    return con.isClosed();
+  }
+
+  @Override public DatabaseMetaData getMetaData() throws SQLException {
+    return con.getMetaData();
+  }
+
+  @Override public void setReadOnly(boolean readOnly) throws SQLException {
+    con.setReadOnly(readOnly);
+  }
+
+  @Override public boolean isReadOnly() throws SQLException {
+    return con.isReadOnly();
+  }
+
+  @Override public void setCatalog(String catalog) throws SQLException {
+    con.setCatalog(catalog);
+  }
+
+  @Override public String getCatalog() throws SQLException {
+    return con.getCatalog();
+  }
+
+  @Override public void setTransactionIsolation(int level) throws SQLException {
+    con.setTransactionIsolation(level);
+  }
+
+  @Override public int getTransactionIsolation() throws SQLException {
+    return con.getTransactionIsolation();
+  }
+
+  @Override public SQLWarning getWarnings() throws SQLException {
+    return con.getWarnings();
+  }
+
+  @Override public void clearWarnings() throws SQLException {
+    con.clearWarnings();
+  }
+
+  @Override public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+    mark(UNPREPARED);
+    return con.createStatement(resultSetType, resultSetConcurrency);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    mark(sql);
+    return con.prepareStatement(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    mark(sql);
+    return con.prepareCall(sql, resultSetType, resultSetConcurrency);
+  }
+
+  @Override public Map<String, Class<?>> getTypeMap() throws SQLException {
+    return con.getTypeMap();
+  }
+
+  @Override public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    con.setTypeMap(map);
+  }
+
+  @Override public void setHoldability(int holdability) throws SQLException {
+    con.setHoldability(holdability);
+  }
+
+  @Override public int getHoldability() throws SQLException {
+    return con.getHoldability();
+  }
+
+  @Override public Savepoint setSavepoint() throws SQLException {
+    return con.setSavepoint();
+  }
+
+  @Override public Savepoint setSavepoint(String name) throws SQLException {
+    return con.setSavepoint(name);
+  }
+
+  @Override public void rollback(Savepoint savepoint) throws SQLException {
+    con.rollback(savepoint);
+  }
+
+  @Override public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    con.releaseSavepoint(savepoint);
+  }
+
+  @Override public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    mark(UNPREPARED);
+    return con.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    mark(sql);
+    return con.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    mark(sql);
+    return con.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    mark(sql);
+    return con.prepareStatement(sql, autoGeneratedKeys);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    mark(sql);
+    return con.prepareStatement(sql, columnIndexes);
+  }
+
+  @Override public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    mark(sql);
+    return con.prepareStatement(sql, columnNames);
+  }
+
+  @Override public Clob createClob() throws SQLException {
+    return con.createClob();
+  }
+
+  @Override public Blob createBlob() throws SQLException {
+    return con.createBlob();
+  }
+
+  @Override public NClob createNClob() throws SQLException {
+    return con.createNClob();
+  }
+
+  @Override public SQLXML createSQLXML() throws SQLException {
+    return con.createSQLXML();
+  }
+
+  @Override public boolean isValid(int timeout) throws SQLException {
+    return con.isValid(timeout);
+  }
+
+  @Override public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    con.setClientInfo(name, value);
+  }
+
+  @Override public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    con.setClientInfo(properties);
+  }
+
+  @Override public String getClientInfo(String name) throws SQLException {
+    return con.getClientInfo(name);
+  }
+
+  @Override public Properties getClientInfo() throws SQLException {
+    return con.getClientInfo();
+  }
+
+  @Override public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    return con.createArrayOf(typeName, elements);
+  }
+
+  @Override public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    return con.createStruct(typeName, attributes);
+  }
+
+  @Override public void setSchema(String schema) throws SQLException {
+    con.setSchema(schema);
+  }
+
+  @Override public String getSchema() throws SQLException {
+    return con.getSchema();
+  }
+
+  @Override public void abort(Executor executor) throws SQLException {
+    con.abort(executor);
+  }
+
+  @Override public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    con.setNetworkTimeout(executor, milliseconds);
+  }
+
+  @Override public int getNetworkTimeout() throws SQLException {
+    return con.getNetworkTimeout();
+  }
+
+  @Override public void beginRequest() throws SQLException {
+    con.beginRequest();
+  }
+
+  @Override public void endRequest() throws SQLException {
+    con.endRequest();
+  }
+
+  @Override public boolean setShardingKeyIfValid(ShardingKey shardingKey, ShardingKey superShardingKey, int timeout) throws SQLException {
+    return con.setShardingKeyIfValid(shardingKey, superShardingKey, timeout);
+  }
+
+  @Override public boolean setShardingKeyIfValid(ShardingKey shardingKey, int timeout) throws SQLException {
+    return con.setShardingKeyIfValid(shardingKey, timeout);
+  }
+
+  @Override public void setShardingKey(ShardingKey shardingKey, ShardingKey superShardingKey) throws SQLException {
+    con.setShardingKey(shardingKey, superShardingKey);
+  }
+
+  @Override public void setShardingKey(ShardingKey shardingKey) throws SQLException {
+    con.setShardingKey(shardingKey);
+  }
+}
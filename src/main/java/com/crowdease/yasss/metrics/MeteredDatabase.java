@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.axonibyte.lib.db.Database;
+
+/**
+ * A {@link Database} that times its connections.
+ *
+ * <p>A subclass rather than a wrapper around one, so that every caller of
+ * {@code YasssCore.getDB()} -- and {@code SchemaMigrator} and the library's
+ * own {@code transaction}, which connect through the same method -- is measured
+ * without being changed. The pool wait is recorded here; the time the
+ * connection is then held is recorded by {@link MeteredConnection} when it is
+ * handed back.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public class MeteredDatabase extends Database {
+
+  private final ConnectionLimiter limiter;
+
+  /**
+   * Instantiates the database.
+   *
+   * @param location the location of the database (location:port/name)
+   * @param prefix the prefix prepended to every table name
+   * @param username the database username
+   * @param password the database password
+   * @param secure whether the connection should be encrypted
+   */
+  public MeteredDatabase(
+      String location, String prefix, String username, String password, boolean secure) {
+    this(location, prefix, username, password, secure, 0, 0L);
+  }
+
+  /**
+   * Instantiates the database with a bound on how many threads may hold a
+   * connection to it at once. See {@link ConnectionLimiter}.
+   *
+   * @param location the location of the database (location:port/name)
+   * @param prefix the prefix prepended to every table name
+   * @param username the database username
+   * @param password the database password
+   * @param secure whether the connection should be encrypted
+   * @param maxConcurrency the most threads holding connections at once, or
+   *        {@code 0} for no bound
+   * @param acquireTimeoutMillis how long a thread waits for its turn
+   * @throws IllegalArgumentException if {@code maxConcurrency} is negative, or
+   *         positive with a timeout that is not
+   */
+  public MeteredDatabase(
+      String location, String prefix, String username, String password, boolean secure,
+      int maxConcurrency, long acquireTimeoutMillis) {
+    super(location, prefix, username, password, secure);
+    if(0 > maxConcurrency)
+      throw new IllegalArgumentException("connection limit cannot be negative");
+    if(0 == maxConcurrency) {
+      limiter = null;
+    } else {
+      limiter = new ConnectionLimiter(maxConcurrency, acquireTimeoutMillis);
+      limiter.register(location);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The wait for a turn under the limit, if there is one, is counted as
+   * pool wait: from the caller's side the two are the same thing.
+   */
+  @Override public Connection connect() throws SQLException {
+    long askedAt = System.nanoTime();
+    ConnectionLimiter.Hold hold = null == limiter ? null : limiter.acquire();
+    Connection con;
+    try {
+      con = super.connect();
+    } catch(SQLException | RuntimeException e) {
+      if(null != hold) limiter.release(hold);
+      throw e;
+    }
+    long takenAt = System.nanoTime();
+    Metrics.POOL_WAIT.observe(takenAt - askedAt);
+    return new MeteredConnection(con, takenAt, limiter, hold);
+  }
+}
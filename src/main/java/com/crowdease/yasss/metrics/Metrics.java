@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+/**
+ * The process-wide registry, and the instruments that have exactly one
+ * recording site each.
+ *
+ * <p>Static rather than hung off {@code YasssCore}, because the things that
+ * record are constructed in tests that never boot the core: an endpoint
+ * registers its series in its constructor, and a null registry there would be
+ * one more thing every test has to stub. Instruments recorded from several
+ * places, or once per instance, are registered by their owner instead -- see
+ * {@link EndpointMetrics}.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class Metrics {
+
+  /** Everything this process exports. */
+  public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+  /** Time spent waiting for the pool to hand over a connection. */
+  public static final Histogram POOL_WAIT = REGISTRY.histogram(
+      "yasss_db_pool_wait_seconds",
+      "Time spent waiting for a database connection.",
+      Histogram.FAST_NANOS,
+      Histogram.NANOS);
+
+  /** Time a connection was held, which is one query in this codebase's idiom. */
+  public static final Histogram DB_HOLD = REGISTRY.histogram(
+      "yasss_db_connection_held_seconds",
+      "Time from taking a database connection to closing it.",
+      Histogram.LATENCY_NANOS,
+      Histogram.NANOS);
+
+  /** Seat claims refused because a slot or activity was full. */
+  public static final Counter CAPACITY_REJECTIONS = REGISTRY.counter(
+      "yasss_rsvp_capacity_rejections_total",
+      "RSVP claims refused because a slot or activity was full.");
+
+  /** Time to sign one session ticket. */
+  public static final Histogram TICKET_SIGN = REGISTRY.histogram(
+      "yasss_ticket_sign_seconds",
+      "Time to sign a session ticket.",
+      Histogram.FAST_NANOS,
+      Histogram.NANOS);
+
+  /** Time to verify one session ticket, including any refresh an unknown signer triggers. */
+  public static final Histogram TICKET_VERIFY = REGISTRY.histogram(
+      "yasss_ticket_verify_seconds",
+      "Time to verify a session ticket.",
+      Histogram.FAST_NANOS,
+      Histogram.NANOS);
+
+  /** Time to drain one reminder partition. */
+  public static final Histogram REMINDER_DRAIN = REGISTRY.histogram(
+      "yasss_reminder_drain_seconds",
+      "Time to drain one reminder partition, including every send.",
+      Histogram.LATENCY_NANOS,
+      Histogram.NANOS);
+
+  /**
+   * How somebody proved who they are.
+   *
+   * <p>The question these answer is the one {@code AuthToken} used to leave to
+   * log-line counting: what fraction of sign-ins still use a password, and so
+   * whether that path can ever be retired.
+   */
+  public static enum Login {
+
+    /** A signed, single-use password credential. */
+    PASSWORD_V2("password", "v2"),
+
+    /** A replayable legacy password credential. */
+    PASSWORD_V1("password", "v1"),
+
+    /** A session ticket this server issued. */
+    TICKET("ticket", ""),
+
+    /** A WebAuthn assertion. */
+    PASSKEY("passkey", ""),
+
+    /** A link sent to the account's address. */
+    MAGIC_LINK("magiclink", "");
+
+    private final Counter success;
+    private final Counter failure;
+
+    private Login(String method, String credential) {
+      this.success = REGISTRY.counter(
+          "yasss_logins_total",
+          "Authentication attempts, by method and outcome.",
+          "method", method, "credential", credential, "outcome", "success");
+      this.failure = REGISTRY.counter(
+          "yasss_logins_total",
+          "Authentication attempts, by method and outcome.",
+          "method", method, "credential", credential, "outcome", "failure");
+    }
+
+    /** Records that an attempt by this method succeeded. */
+    public void succeeded() {
+      success.inc();
+    }
+
+    /** Records that an attempt by this method was refused. */
+    public void failed() {
+      failure.inc();
+    }
+  }
+
+  private Metrics() { }
+
+}
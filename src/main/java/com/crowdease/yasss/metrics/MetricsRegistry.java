@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds every metric this process exports, and writes them out in the
+ * Prometheus text format.
+ *
+ * <p>Registration and recording are deliberately different shapes. Registering
+ * looks a series up by name and labels, takes a lock and may allocate; it is
+ * meant to happen once, at construction, with the result kept in a field.
+ * Recording is then a method call on that field and touches nothing shared but
+ * the instrument itself. Nothing here ever resolves labels on the hot path,
+ * which is the whole of what "allocation-free" asks for.
+ *
+ * <p>Registering the same name and labels again returns the instrument already
+ * there, so that two instances of one endpoint class -- the {@code Mode}
+ * variants -- share a series instead of failing. Sampled series, whose value is
+ * read from a supplier at scrape time, are replaced instead: the newest owner
+ * of the value is the one to ask.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class MetricsRegistry {
+
+  /** The content type of {@link #write(Appendable)}'s output. */
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final Map<String, Family> families = new LinkedHashMap<>();
+
+  /**
+   * Registers or retrieves a counter.
+   *
+   * @param name the metric name, which by convention ends in {@code _total}
+   * @param help a one-line description
+   * @param labels alternating label names and values
+   * @return the counter
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return (Counter)series(name, help, Type.COUNTER, labels, new Counter(), false);
+  }
+
+  /**
+   * Registers a counter whose value is kept elsewhere.
+   *
+   * @param name the metric name, which by convention ends in {@code _total}
+   * @param help a one-line description
+   * @param value read at each scrape; must never decrease
+   * @param labels alternating label names and values
+   */
+  public void counter(String name, String help, LongSupplier value, String... labels) {
+    series(name, help, Type.COUNTER, labels, value, true);
+  }
+
+  /**
+   * Registers a gauge, read at each scrape.
+   *
+   * @param name the metric name
+   * @param help a one-line description
+   * @param value read at each scrape
+   * @param labels alternating label names and values
+   */
+  public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+    series(name, help, Type.GAUGE, labels, value, true);
+  }
+
+  /**
+   * Registers or retrieves a histogram.
+   *
+   * @param name the metric name, which by convention ends in the exported unit
+   * @param help a one-line description
+   * @param bounds the inclusive upper bound of each bucket, in the recorded unit
+   * @param scale the multiplier from the recorded unit to the exported one
+   * @param labels alternating label names and values
+   * @return the histogram
+   */
+  public Histogram histogram(
+      String name, String help, long[] bounds, double scale, String... labels) {
+    return (Histogram)series(
+        name, help, Type.HISTOGRAM, labels, new Histogram(bounds, scale), false);
+  }
+
+  private synchronized Object series(
+      String name, String help, Type type, String[] labels, Object instrument, boolean replace) {
+    if(!name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*"))
+      throw new IllegalArgumentException("invalid metric name " + name);
+    if(0 != labels.length % 2)
+      throw new IllegalArgumentException("labels must come in name/value pairs");
+
+    Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+    if(type != family.type)
+      throw new IllegalArgumentException(
+          String.format("%1$s is already registered as a %2$s", name, family.type.text));
+
+    String rendered = render(labels);
+    for(Series existing : family.series) {
+      if(!existing.labels.equals(rendered)) continue;
+      if(replace) existing.instrument = instrument;
+      return existing.instrument;
+    }
+
+    family.series.add(new Series(rendered, instrument));
+    return instrument;
+  }
+
+  /**
+   * Renders a label set once, at registration, so that a scrape only copies.
+   *
+   * @param labels alternating label names and values
+   * @return the label names and escaped values, without braces
+   */
+  static String render(String... labels) {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < labels.length; i += 2) {
+      if(!labels[i].matches("[a-zA-Z_][a-zA-Z0-9_]*"))
+        throw new IllegalArgumentException("invalid label name " + labels[i]);
+      if(0 < i) sb.append(',');
+      sb.append(labels[i]).append("=\"");
+      String value = null == labels[i + 1] ? "" : labels[i + 1];
+      for(int j = 0; j < value.length(); j++) {
+        char c = value.charAt(j);
+        switch(c) {
+          case '\\': sb.append("\\\\"); break;
+          case '"': sb.append("\\\""); break;
+          case '\n': sb.append("\\n"); break;
+          default: sb.append(c);
+        }
+      }
+      sb.append('"');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes every registered series in the Prometheus text exposition format.
+   *
+   * @param out where to write
+   * @throws IOException if {@code out} does
+   */
+  public synchronized void write(Appendable out) throws IOException {
+    for(Family family : families.values()) {
+      out.append("# HELP ").append(family.name).append(' ')
+          .append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+      out.append("# TYPE ").append(family.name).append(' ')
+          .append(family.type.text).append('\n');
+
+      for(Series series : family.series) {
+        if(series.instrument instanceof Histogram) {
+          Histogram histogram = (Histogram)series.instrument;
+          long[] counts = histogram.cumulative();
+          for(int i = 0; i < counts.length; i++) {
+            String le = i < histogram.bucketCount() ? number(histogram.bound(i)) : "+Inf";
+            sample(
+                out,
+                family.name + "_bucket",
+                series.labels.isEmpty()
+                    ? "le=\"" + le + "\""
+                    : series.labels + ",le=\"" + le + "\"",
+                Long.toString(counts[i]));
+          }
+          sample(out, family.name + "_sum", series.labels, number(histogram.sum()));
+          sample(out, family.name + "_count", series.labels, Long.toString(counts[counts.length - 1]));
+
+        } else {
+          String value;
+          if(series.instrument instanceof Counter)
+            value = Long.toString(((Counter)series.instrument).get());
+          else if(series.instrument instanceof LongSupplier)
+            value = Long.toString(((LongSupplier)series.instrument).getAsLong());
+          else value = number(((DoubleSupplier)series.instrument).getAsDouble());
+          sample(out, family.name, series.labels, value);
+        }
+      }
+    }
+  }
+
+  private static void sample(Appendable out, String name, String labels, String value)
+      throws IOException {
+    out.append(name);
+    if(!labels.isEmpty()) out.append('{').append(labels).append('}');
+    out.append(' ').append(value).append('\n');
+  }
+
+  private static String number(double value) {
+    if(Double.isNaN(value)) return "NaN";
+    if(Double.isInfinite(value)) return 0 < value ? "+Inf" : "-Inf";
+    if(value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long)value);
+    return Double.toString(value);
+  }
+
+  private static enum Type {
+    COUNTER("counter"),
+    GAUGE("gauge"),
+    HISTOGRAM("histogram");
+
+    private final String text;
+
+    private Type(String text) {
+      this.text = text;
+    }
+  }
+
+  private static final class Family {
+
+    private final String name;
+    private final String help;
+    private final Type type;
+    private final List<Series> series = new ArrayList<>();
+
+    private Family(String name, String help, Type type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+  }
+
+  private static final class Series {
+
+    private final String labels;
+    private Object instrument;
+
+    private Series(String labels, Object instrument) {
+      this.labels = labels;
+      this.instrument = instrument;
+    }
+  }
+}
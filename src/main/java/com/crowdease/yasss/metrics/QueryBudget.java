@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How many statements each endpoint may run per request before it is reported.
+ *
+ * <p>A budget is a tripwire, not a limit: the request still completes, and the
+ * overrun is logged and counted. The budgets exist because every N+1 fixed by
+ * hand in this codebase -- five hundred round trips to render one event page,
+ * one lookup per owner in a listing -- was found by somebody noticing a page
+ * was slow, long after the change that caused it.
+ *
+ * <p>Configured once at boot. Until then, and in tests, the defaults apply.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class QueryBudget {
+
+  /** The budget for an endpoint with none of its own. */
+  public static final int DEFAULT_BUDGET = 40;
+
+  /** How many runs of one statement shape in a request count as N+1. */
+  public static final int DEFAULT_REPEAT_THRESHOLD = 10;
+
+  private static volatile int fallback = DEFAULT_BUDGET;
+  private static volatile int repeatThreshold = DEFAULT_REPEAT_THRESHOLD;
+  private static volatile Map<String, Integer> budgets = Collections.emptyMap();
+
+  /**
+   * Sets the budgets.
+   *
+   * @param fallback the budget for an endpoint not named in {@code spec}
+   * @param spec per-endpoint overrides, as comma-separated
+   *        {@code EndpointClass=budget} pairs, or {@code null} for none
+   * @param repeatThreshold how many runs of one shape count as N+1
+   * @throws IllegalArgumentException if anything is not a positive number or
+   *         a pair is malformed
+   */
+  public static void configure(int fallback, String spec, int repeatThreshold) {
+    if(1 > fallback || 2 > repeatThreshold)
+      throw new IllegalArgumentException("query budgets must be positive, and a repeat at least 2");
+    QueryBudget.budgets = parse(spec);
+    QueryBudget.fallback = fallback;
+    QueryBudget.repeatThreshold = repeatThreshold;
+  }
+
+  /**
+   * Parses per-endpoint overrides.
+   *
+   * @param spec comma-separated {@code EndpointClass=budget} pairs
+   * @return the budgets by endpoint
+   * @throws IllegalArgumentException if a pair is malformed
+   */
+  static Map<String, Integer> parse(String spec) {
+    if(null == spec || spec.isBlank()) return Collections.emptyMap();
+
+    Map<String, Integer> parsed = new HashMap<>();
+    for(String pair : spec.split(",")) {
+      String[] parts = pair.split("=");
+      int budget;
+      try {
+        if(2 != parts.length || parts[0].isBlank()) throw new NumberFormatException();
+        budget = Integer.parseInt(parts[1].strip());
+      } catch(NumberFormatException e) {
+        throw new IllegalArgumentException("malformed query budget \"" + pair.strip() + "\"");
+      }
+      if(1 > budget)
+        throw new IllegalArgumentException("query budget for " + parts[0].strip() + " must be positive");
+      parsed.put(parts[0].strip(), budget);
+    }
+    return Collections.unmodifiableMap(parsed);
+  }
+
+  /**
+   * Retrieves an endpoint's budget.
+   *
+   * @param endpoint the endpoint's class name
+   * @return its budget, in statements per request
+   */
+  public static int of(String endpoint) {
+    Integer budget = budgets.get(endpoint);
+    return null == budget ? fallback : budget;
+  }
+
+  /**
+   * Retrieves the N+1 threshold.
+   *
+   * @return how many runs of one shape in a request are reported
+   */
+  public static int repeatThreshold() {
+    return repeatThreshold;
+  }
+
+  private QueryBudget() { }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The statements one thread has run since its trace was last reset.
+ *
+ * <p>One per thread, reset when a request begins, and filled in by
+ * {@link MeteredConnection} as statements are prepared. The arrays are
+ * allocated once per thread and reused, and a statement's text is the string
+ * the caller already built, so tracing a request allocates nothing. Beyond
+ * {@link #CAPACITY} statements only the count keeps going: a request that has
+ * run that many has a problem that the first few hundred already show.
+ *
+ * <p>The prepared text <em>is</em> the statement's shape, because everything
+ * here binds its values. The one thing that varies between two executions of
+ * the same code is the length of an {@code IN (?, ?, ?)} list, which
+ * {@link #shape(String)} folds away.
+ *
+ * <p>Tests use {@link #capture(Work)}, which runs a block on a fresh trace and
+ * hands back what it saw; see {@link #wrap(Connection)} for tests whose
+ * database is a mock.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class QueryTrace {
+
+  /** The most statements whose text and timing are kept. */
+  public static final int CAPACITY = 256;
+
+  private static final ThreadLocal<QueryTrace> current = ThreadLocal.withInitial(QueryTrace::new);
+  private static final Pattern IN_LIST = Pattern.compile(
+      "(?i)\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+  private final String[] sql;
+  private final long[] nanos;
+  private int count = 0;
+  private long heldNanos = 0L;
+
+  private QueryTrace() {
+    this(new String[CAPACITY], new long[CAPACITY]);
+  }
+
+  private QueryTrace(String[] sql, long[] nanos) {
+    this.sql = sql;
+    this.nanos = nanos;
+  }
+
+  /**
+   * Retrieves this thread's trace.
+   *
+   * @return the live trace, which the next request on this thread resets
+   */
+  static QueryTrace current() {
+    return current.get();
+  }
+
+  /**
+   * Retrieves how many statements this thread has run since its trace was
+   * reset.
+   *
+   * @return the count so far
+   */
+  public static int countSoFar() {
+    return current.get().count;
+  }
+
+  /** Forgets everything; the start of a request. */
+  void reset() {
+    Arrays.fill(sql, 0, Math.min(count, CAPACITY), null);
+    count = 0;
+    heldNanos = 0L;
+  }
+
+  /**
+   * Notes one statement, as it is prepared.
+   *
+   * @param statement the statement's text
+   * @return where to {@link #time(int, long)} it, or {@code -1} if it is
+   *         beyond {@link #CAPACITY} and only counted
+   */
+  int record(String statement) {
+    int i = count;
+    // Saturating, because a daemon thread's trace is never reset and would
+    // otherwise wrap negative after a few weeks and index out of bounds.
+    if(Integer.MAX_VALUE > count) count++;
+    if(CAPACITY <= i) return -1;
+    sql[i] = statement;
+    nanos[i] = 0L;
+    return i;
+  }
+
+  /**
+   * Notes how long a statement took, once the next one starts.
+   *
+   * @param i where the statement was recorded
+   * @param elapsed how long it took, in nanoseconds
+   */
+  void time(int i, long elapsed) {
+    // The trace may have been reset under a connection that outlived its
+    // request; the slot then belongs to somebody else.
+    if(i < count) nanos[i] = elapsed;
+  }
+
+  /**
+   * Notes that a connection was handed back.
+   *
+   * @param elapsed how long it was held, in nanoseconds
+   */
+  void hold(long elapsed) {
+    heldNanos += elapsed;
+  }
+
+  /**
+   * Retrieves the number of statements run.
+   *
+   * @return the count, including any beyond {@link #CAPACITY}
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * Retrieves how long connections were held in all.
+   *
+   * @return the total, in nanoseconds
+   */
+  public long heldNanos() {
+    return heldNanos;
+  }
+
+  /**
+   * Retrieves one statement's text.
+   *
+   * @param i the statement's position, below {@link #CAPACITY}
+   * @return the text as prepared
+   */
+  public String sql(int i) {
+    return sql[i];
+  }
+
+  /**
+   * Retrieves one statement's duration.
+   *
+   * @param i the statement's position, below {@link #CAPACITY}
+   * @return the time from its preparation to the next, in nanoseconds
+   */
+  public long nanos(int i) {
+    return nanos[i];
+  }
+
+  /**
+   * Finds the shapes that ran at least some number of times.
+   *
+   * <p>The N+1 signature: the same statement, differing only in its binds,
+   * once per row of something fetched earlier. Allocates, and is only meant to
+   * be called once a request has already run enough statements to be suspect.
+   *
+   * @param threshold the fewest runs of one shape worth reporting
+   * @return each such shape and how many times it ran, most frequent first
+   */
+  public Map<String, Integer> repeats(int threshold) {
+    Map<String, Integer> counts = new HashMap<>();
+    for(int i = 0; i < Math.min(count, CAPACITY); i++)
+      counts.merge(shape(sql[i]), 1, Integer::sum);
+
+    Map<String, Integer> repeats = new LinkedHashMap<>();
+    counts.entrySet().stream()
+        .filter(e -> threshold <= e.getValue())
+        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+        .forEachOrdered(e -> repeats.put(e.getKey(), e.getValue()));
+    return Collections.unmodifiableMap(repeats);
+  }
+
+  /**
+   * Reduces a statement to its shape.
+   *
+   * @param sql the statement's text
+   * @return the text with whitespace collapsed and every {@code IN} list of
+   *         placeholders, however long, folded to one
+   */
+  static String shape(String sql) {
+    return IN_LIST.matcher(sql.strip().replaceAll("\\s+", " ")).replaceAll("IN (?...)");
+  }
+
+  /**
+   * Runs some work on a fresh trace and returns what it ran.
+   *
+   * <p>For tests, which assert an upper bound on the result's
+   * {@link #count()} so that a change reintroducing a per-row query fails
+   * there rather than in production. Replaces whatever trace this thread had,
+   * so it is not for use inside a request.
+   *
+   * @param work the work to trace
+   * @return a detached copy of the trace
+   * @throws Exception if the work does
+   */
+  public static QueryTrace capture(Work work) throws Exception {
+    QueryTrace trace = current.get();
+    trace.reset();
+    work.run();
+    QueryTrace copy = new QueryTrace(trace.sql.clone(), trace.nanos.clone());
+    copy.count = trace.count;
+    copy.heldNanos = trace.heldNanos;
+    trace.reset();
+    return copy;
+  }
+
+  /**
+   * Makes a connection report to this thread's trace, as one from
+   * {@link MeteredDatabase} does.
+   *
+   * <p>For tests whose {@code Database} is a mock and therefore never goes
+   * through {@link MeteredDatabase#connect()}.
+   *
+   * @param con the connection
+   * @return the traced connection
+   */
+  public static Connection wrap(Connection con) {
+    return new MeteredConnection(con, System.nanoTime());
+  }
+
+  /**
+   * Work to be traced.
+   */
+  @FunctionalInterface public static interface Work {
+
+    /**
+     * Does the work.
+     *
+     * @throws Exception if anything goes wrong
+     */
+    public void run() throws Exception;
+  }
+}
@@ -338,27 +338,7 @@ public class Activity implements Comparable<Activity> {
     try {
       con = YasssCore.getDB().connect();
       
-      if(null == id) {
-        ResultSet res = null;
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-                .select(
-                    YasssCore.getDB().getPrefix() + "activity",
-                    "id")
-                .where("id")
-                .toString());
-        
-        boolean found;
-        do {
-          id = UUID.randomUUID();
-          stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
-          res = stmt.executeQuery();
-          found = res.next();
-          YasssCore.getDB().close(null, null, res);
-        } while(found);
-        
-        YasssCore.getDB().close(null, stmt, null);
-      }
+      if(null == id) id = RowID.generate();
       
       stmt = con.prepareStatement(
           new SQLBuilder()
@@ -407,6 +387,7 @@ public class Activity implements Comparable<Activity> {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.event(event);
   }
 
   /**
@@ -434,6 +415,7 @@ public class Activity implements Comparable<Activity> {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.event(event);
   }
 
   /**
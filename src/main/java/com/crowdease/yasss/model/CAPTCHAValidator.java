@@ -9,9 +9,10 @@ package com.crowdease.yasss.model;
 
 import java.io.IOException;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,8 +27,19 @@ public class CAPTCHAValidator extends com.axonibyte.lib.http.captcha.CAPTCHAVali
 
   private static final Logger logger = LoggerFactory.getLogger(CAPTCHAValidator.class);
 
-  private final ExecutorService threadPool = Executors.newCachedThreadPool();
-  private final Set<String> ipCache = new CopyOnWriteArraySet<>();
+  // One timer thread for every cached address. This used to start a thread per
+  // address that slept out the grace period -- a platform thread, parked, for
+  // every human who had passed a CAPTCHA in the last few seconds -- and the
+  // cache was copy-on-write, so each pass also copied every address cached.
+  // Neither is a cost anybody should pay per request, least of all on the
+  // virtual threads whose point is that requests are cheap.
+  private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(
+      r -> {
+        Thread t = new Thread(r, "captcha-reaper");
+        t.setDaemon(true);
+        return t;
+      });
+  private final Set<String> ipCache = ConcurrentHashMap.newKeySet();
   private final float minScore;
   private final long gracePeriod;
 
@@ -80,7 +92,7 @@ public class CAPTCHAValidator extends com.axonibyte.lib.http.captcha.CAPTCHAVali
     
     if(pass && null != ip) {
       ipCache.add(ip);
-      threadPool.execute(new CacheReaper(ip));
+      reaper.schedule(new CacheReaper(ip), gracePeriod, TimeUnit.MILLISECONDS);
       
       logger.info(
           "cached IP {} for {} milliseconds",
@@ -95,7 +107,7 @@ public class CAPTCHAValidator extends com.axonibyte.lib.http.captcha.CAPTCHAVali
    * {@inheritDoc}
    */
   @Override public void close() {
-    threadPool.shutdownNow();
+    reaper.shutdownNow();
     super.close();
   }
 
@@ -108,13 +120,10 @@ public class CAPTCHAValidator extends com.axonibyte.lib.http.captcha.CAPTCHAVali
     }
 
     @Override public void run() {
-      try {
-        Thread.sleep(gracePeriod);
-        ipCache.remove(ip);
-        logger.info(
-            "cached IP {} has expired",
-            ip);
-      } catch(InterruptedException e) { }
+      ipCache.remove(ip);
+      logger.info(
+          "cached IP {} has expired",
+          ip);
     }
     
   }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads comma-separated records one at a time, per RFC 4180.
+ *
+ * <p>Written for the volunteer import, whose input is whatever a spreadsheet
+ * exported, so it accepts what spreadsheets actually produce rather than only
+ * what the RFC allows: {@code LF} as well as {@code CRLF} line endings, a
+ * byte-order mark on the first field, and a final record with no line ending
+ * at all. Quoted fields may hold commas, line breaks and doubled quotes.
+ *
+ * <p>Nothing is read ahead beyond the record being returned, so a caller can
+ * stop at a row limit without the rest of the input ever being held in memory.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class CSVReader implements Closeable {
+
+  /**
+   * Signals input that is not CSV: a quote left open at the end of the input,
+   * or text following a closing quote.
+   */
+  public static final class MalformedCSVException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private MalformedCSVException(String message) {
+      super(message);
+    }
+  }
+
+  private final Reader in;
+  private int line = 1;
+  private boolean started = false;
+  private int pushedBack = -2;
+
+  /**
+   * Instantiates the reader.
+   *
+   * @param in the text to read; buffering it is the caller's concern
+   */
+  public CSVReader(Reader in) {
+    this.in = in;
+  }
+
+  /**
+   * Retrieves the line the next record begins on.
+   *
+   * @return the one-based line number
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * <p>A blank line is a record of one empty field, as the RFC has it; the
+   * caller decides whether that means anything.
+   *
+   * @return the record's fields, or {@code null} at the end of the input
+   * @throws MalformedCSVException if the input is not CSV
+   * @throws IOException if the underlying reader fails
+   */
+  public List<String> next() throws IOException {
+    int c = read();
+    if(!started) {
+      started = true;
+      if(0xFEFF == c) c = read();
+    }
+    if(-1 == c) return null;
+
+    List<String> record = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+
+    for(;; c = read()) {
+      if(quoted) {
+        if(-1 == c)
+          throw new MalformedCSVException(
+              String.format("unterminated quote at line %1$d", line));
+        if('"' == c) {
+          int d = read();
+          if('"' == d) field.append('"');
+          else {
+            quoted = false;
+            if(-1 != d && ',' != d && '\r' != d && '\n' != d)
+              throw new MalformedCSVException(
+                  String.format("text after a closing quote at line %1$d", line));
+            unread(d);
+          }
+          continue;
+        }
+        if('\n' == c) line++;
+        field.append((char)c);
+        continue;
+      }
+
+      switch(c) {
+        case '"':
+          // Only an opening quote at the start of a field; anywhere else it
+          // is literal, which is what every spreadsheet does with it.
+          if(0 == field.length()) quoted = true;
+          else field.append('"');
+          break;
+
+        case ',':
+          record.add(field.toString());
+          field.setLength(0);
+          break;
+
+        case '\r':
+          int d = read();
+          if('\n' != d) unread(d);
+          // fall through
+        case '\n':
+          line++;
+          // fall through
+        case -1:
+          record.add(field.toString());
+          return record;
+
+        default:
+          field.append((char)c);
+      }
+    }
+  }
+
+  private int read() throws IOException {
+    if(-2 != pushedBack) {
+      int c = pushedBack;
+      pushedBack = -2;
+      return c;
+    }
+    return in.read();
+  }
+
+  private void unread(int c) {
+    pushedBack = c;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void close() throws IOException {
+    in.close();
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.io.IOException;
+
+/**
+ * Writes comma-separated records one at a time, per RFC 4180.
+ *
+ * <p>The other half of {@link CSVReader}: a field is quoted only when it holds
+ * a comma, a quote or a line break, and records end in {@code CRLF}.
+ *
+ * <p>Every cell this writes is somebody's answer to a signup form, and the
+ * file is going to be opened in a spreadsheet. A cell beginning with
+ * {@code =}, {@code +}, {@code -} or {@code @} -- or a tab or carriage return,
+ * which some spreadsheets skip before looking -- is a formula there, and a
+ * formula can fetch URLs or run commands on the organizer's machine. Such a
+ * cell is written with a leading apostrophe, which spreadsheets treat as
+ * "this is text" and do not display. The cost is that a phone number written
+ * as {@code +1...} carries the apostrophe when read as plain text.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class CSVWriter {
+
+  private final Appendable out;
+
+  /**
+   * Instantiates the writer.
+   *
+   * @param out where records are written; buffering it is the caller's concern
+   */
+  public CSVWriter(Appendable out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes one record.
+   *
+   * @param fields the record's fields; a {@code null} is written as empty
+   * @throws IOException if the underlying output fails
+   */
+  public void write(String... fields) throws IOException {
+    for(int i = 0; i < fields.length; i++) {
+      if(0 != i) out.append(',');
+      field(fields[i]);
+    }
+    out.append("\r\n");
+  }
+
+  private void field(String value) throws IOException {
+    if(null == value || value.isEmpty()) return;
+
+    boolean quote = false;
+    for(int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = ',' == c || '"' == c || '\n' == c || '\r' == c;
+    }
+
+    if(quote) out.append('"');
+    switch(value.charAt(0)) {
+      case '=', '+', '-', '@', '\t', '\r' -> out.append('\'');
+      default -> { }
+    }
+
+    if(quote) {
+      for(int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if('"' == c) out.append('"');
+        out.append(c);
+      }
+      out.append('"');
+    } else out.append(value);
+  }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.metrics.Metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which slots were full, so that a claim on one can be refused
+ * without a transaction.
+ *
+ * <p>In a signup rush most claims are for seats that went minutes ago, and
+ * every one of them used to open a transaction, take the activity's row lock
+ * and count -- queueing behind the claims that could still succeed, on the
+ * one lock they all need. The ledger answers those from memory. It only ever
+ * refuses: a claim it does not refuse goes to {@link RSVP}'s transactional
+ * path exactly as before, which remains the only thing that grants a seat.
+ * So the worst a stale ledger can do is refuse a seat that has just come free,
+ * and everything below is about bounding that.
+ *
+ * <p>What it holds, per activity, is a snapshot: the activity's cap, each
+ * slot's cap and how many seats each has taken, read in one statement. A
+ * snapshot is never adjusted in place. Any {@link EventChanges} notice that
+ * may touch an activity -- a claim, a release, a cap changed, a volunteer
+ * removed -- retires its snapshot, and the next claim reads a fresh one. During
+ * a rush on a full slot nothing succeeds, so nothing is noticed, and the one
+ * snapshot keeps answering.
+ *
+ * <p>Notices are local. A seat released on another node sends none here, so
+ * no snapshot is believed for longer than the reconcile interval: past that it
+ * is read again, and the drift is gone. That interval is how long a seat freed
+ * elsewhere can go on being refused.
+ *
+ * <p>Only the lease holder consults its ledger. A follower's claims go straight
+ * to the database, as they did before there was a ledger, so the node answering
+ * from memory is the one whose memory most of the writes pass through.
+ *
+ * <p>Off unless {@code capacity.ledger} is set. Static in the shape of
+ * {@link EventChanges}, because the claim paths are model code that tests run
+ * without booting anything; with none installed, a claim pays a volatile read.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class CapacityLedger implements EventChanges.Listener {
+
+  /** Past this many snapshots, any that have expired are dropped when another is read. */
+  static final int PRUNE_ABOVE = 10_000;
+
+  private static final Logger logger = LoggerFactory.getLogger(CapacityLedger.class);
+
+  private static volatile CapacityLedger installed = null;
+
+  /**
+   * One activity's seats, as they were when read.
+   *
+   * @param activityCap the activity's cap, {@code 0} meaning unlimited
+   * @param slotCaps each slot's cap by window, {@code 0} meaning unlimited
+   * @param taken each slot's seats taken by window
+   * @param generation the activity's generation when the read began
+   * @param epoch the ledger's epoch when the read began
+   * @param readAt when the read began, by the ledger's clock
+   */
+  record Snapshot(
+      int activityCap,
+      Map<UUID, Integer> slotCaps,
+      Map<UUID, Integer> taken,
+      long generation,
+      long epoch,
+      long readAt) {
+
+    /**
+     * Determines whether a claim on a slot is sure to fail.
+     *
+     * @param window the {@link UUID} of the slot's {@link Window}
+     * @return {@code true} if the slot or the activity is full; {@code false}
+     *         if it is not, or if the slot was not there to say
+     */
+    boolean full(UUID window) {
+      Integer cap = slotCaps.get(window);
+      if(null == cap) return false; // let the database say so
+      if(0 != cap && cap <= taken.getOrDefault(window, 0)) return true;
+      if(0 == activityCap) return false;
+      int total = 0;
+      for(var count : taken.values()) total += count;
+      return activityCap <= total;
+    }
+  }
+
+  /** Reads one activity's snapshot. */
+  @FunctionalInterface interface Reader {
+
+    /**
+     * Reads an activity's seats.
+     *
+     * @param activity the {@link UUID} of the {@link Activity}
+     * @param generation the activity's generation now
+     * @param epoch the ledger's epoch now
+     * @param now the ledger's clock now
+     * @return the snapshot, or {@code null} if there is no such activity
+     * @throws SQLException if a database malfunction occurs
+     */
+    Snapshot read(UUID activity, long generation, long epoch, long now) throws SQLException;
+  }
+
+  private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+  private final Map<UUID, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final AtomicLong epoch = new AtomicLong();
+  private final AtomicLong refusals = new AtomicLong();
+  private final AtomicLong reads = new AtomicLong();
+  private final long reconcileMillis;
+  private final BooleanSupplier owning;
+  private final Reader reader;
+  private final LongSupplier clock;
+
+  /**
+   * Instantiates a ledger that reads from the database.
+   *
+   * @param reconcileMillis the longest a snapshot is believed
+   * @param owning whether this node holds the lease, asked on every claim
+   * @throws IllegalArgumentException if the interval is not positive
+   */
+  public CapacityLedger(long reconcileMillis, BooleanSupplier owning) {
+    this(reconcileMillis, owning, CapacityLedger::read, System::currentTimeMillis);
+  }
+
+  CapacityLedger(long reconcileMillis, BooleanSupplier owning, Reader reader, LongSupplier clock) {
+    if(0 >= reconcileMillis)
+      throw new IllegalArgumentException("capacity reconcile interval must be positive");
+    this.reconcileMillis = reconcileMillis;
+    this.owning = owning;
+    this.reader = reader;
+    this.clock = clock;
+  }
+
+  /**
+   * Installs a ledger for the claim paths to consult, and starts it listening.
+   *
+   * @param ledger the {@link CapacityLedger}
+   */
+  public static void install(CapacityLedger ledger) {
+    EventChanges.listen(ledger);
+    installed = ledger;
+    Metrics.REGISTRY.counter(
+        "yasss_capacity_ledger_refusals_total",
+        "Seat claims refused from the capacity ledger, without a transaction.",
+        ledger.refusals::get);
+    Metrics.REGISTRY.counter(
+        "yasss_capacity_ledger_reads_total",
+        "Activities whose seats the capacity ledger read from the database.",
+        ledger.reads::get);
+    Metrics.REGISTRY.gauge(
+        "yasss_capacity_ledger_activities",
+        "Activities the capacity ledger holds a snapshot of.",
+        ledger.snapshots::size);
+  }
+
+  /**
+   * Refuses a set of claims if the installed ledger knows one of them cannot
+   * succeed. A no-op when no ledger is installed.
+   *
+   * @param wanted the claims, all or none of which are to be granted
+   * @throws RSVP.CapacityException if any is sure to fail
+   */
+  static void refuse(Collection<RSVP> wanted) {
+    CapacityLedger ledger = installed;
+    if(null == ledger) return;
+    for(var rsvp : wanted)
+      if(ledger.full(rsvp.getActivity(), rsvp.getWindow())) {
+        ledger.refusals.incrementAndGet();
+        throw new RSVP.CapacityException(rsvp.getActivity(), rsvp.getWindow());
+      }
+  }
+
+  /**
+   * Determines whether a claim on a slot is sure to fail.
+   *
+   * <p>Never throws. A ledger that cannot read its snapshot has nothing to
+   * say, and the claim goes to the database, which will either grant it or
+   * fail in the way it always did.
+   *
+   * @param activity the {@link UUID} of the {@link Activity}
+   * @param window the {@link UUID} of the {@link Window}
+   * @return {@code true} only if the slot or its activity is known to be full
+   */
+  boolean full(UUID activity, UUID window) {
+    if(!owning.getAsBoolean()) return false;
+    long now = clock.getAsLong();
+    long generation = generation(activity).get();
+    long epoch = this.epoch.get();
+
+    Snapshot snapshot = snapshots.get(activity);
+    if(null == snapshot
+        || generation != snapshot.generation()
+        || epoch != snapshot.epoch()
+        || reconcileMillis <= now - snapshot.readAt()) {
+      try {
+        snapshot = reader.read(activity, generation, epoch, now);
+      } catch(SQLException e) {
+        logger.warn("could not read seats for activity {}: {}", activity, e.getMessage());
+        return false;
+      }
+      reads.incrementAndGet();
+      if(null == snapshot) {
+        snapshots.remove(activity);
+        return false;
+      }
+      if(PRUNE_ABOVE < snapshots.size())
+        snapshots.values().removeIf(s -> reconcileMillis <= now - s.readAt());
+      snapshots.put(activity, snapshot);
+    }
+
+    // A notice that arrived during the read left the generation or epoch this
+    // snapshot was stamped with behind, so the next claim reads again. It
+    // still answers this one, which began before the change it describes.
+    return snapshot.full(window);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override public void changed(UUID event, UUID activity) {
+    if(null != activity) {
+      generation(activity).incrementAndGet();
+      snapshots.remove(activity);
+      return;
+    }
+    // An event-wide notice names no activity, and a snapshot still being read
+    // does not yet know its event, so every snapshot goes. These are edits
+    // and removals by organizers, not claims; a rush does not send them.
+    epoch.incrementAndGet();
+    snapshots.clear();
+  }
+
+  private AtomicLong generation(UUID activity) {
+    return generations.computeIfAbsent(activity, a -> new AtomicLong());
+  }
+
+  private static Snapshot read(UUID activity, long generation, long epoch, long now)
+      throws SQLException {
+    final String prefix = YasssCore.getDB().getPrefix();
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      // One statement, every key a primary key: the activity by id, its slots
+      // by their key's prefix, each slot's seats by rsvp's.
+      stmt = con.prepareStatement(
+          "SELECT a.max_activity_volunteers, s.event_window, s.max_slot_volunteers, "
+              + "(SELECT COUNT(1) FROM " + prefix + "rsvp r "
+              + "WHERE r.activity = s.activity AND r.event_window = s.event_window) AS taken "
+              + "FROM " + prefix + "activity a "
+              + "LEFT JOIN " + prefix + "slot s ON s.activity = a.id "
+              + "WHERE a.id = ?");
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(activity));
+      res = stmt.executeQuery();
+
+      boolean found = false;
+      int activityCap = 0;
+      Map<UUID, Integer> slotCaps = new HashMap<>();
+      Map<UUID, Integer> taken = new HashMap<>();
+      while(res.next()) {
+        found = true;
+        activityCap = res.getInt("max_activity_volunteers");
+        byte[] window = res.getBytes("event_window");
+        if(null == window) continue; // an activity with no slots
+        UUID windowID = SQLBuilder.bytesToUUID(window);
+        slotCaps.put(windowID, res.getInt("max_slot_volunteers"));
+        taken.put(windowID, res.getInt("taken"));
+      }
+
+      return found
+          ? new Snapshot(
+              activityCap,
+              Collections.unmodifiableMap(slotCaps),
+              Collections.unmodifiableMap(taken),
+              generation,
+              epoch,
+              now)
+          : null;
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+}
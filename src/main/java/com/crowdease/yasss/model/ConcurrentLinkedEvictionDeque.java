@@ -9,17 +9,24 @@ package com.crowdease.yasss.model;
 
 import java.util.Collection;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A {@link ConcurrentLinkedDeque} that maintains a fixed maximum number of
  * elements. When more elements than the maximum count are added, the other end
  * of the dequeue is cleared to make room.
  *
+ * <p>An insertion and its eviction happen under a {@link ReentrantLock} rather
+ * than a monitor. The two are one step, so they need a lock; but a virtual
+ * thread that waits on a monitor holds its carrier while it waits, and this
+ * deque is read and written on every request that signs or checks a ticket.
+ *
  * @author Caleb L. Power <cpower@crowdease.com>
  */
 public class ConcurrentLinkedEvictionDeque<E> extends ConcurrentLinkedDeque<E> {
 
   private final int capacity;
+  private final ReentrantLock lock = new ReentrantLock();
 
   /**
    * Instantiates an empty {@link ConcurrentLinkedEvictionDeque} with a fixed cap.
@@ -69,70 +76,110 @@ public class ConcurrentLinkedEvictionDeque<E> extends ConcurrentLinkedDeque<E> {
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized boolean add(E entry) {
-    var ret = super.add(entry);
-    evictHead();
-    return ret;
+  @Override public boolean add(E entry) {
+    lock.lock();
+    try {
+      var ret = super.add(entry);
+      evictHead();
+      return ret;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized boolean addAll(Collection<? extends E> collection) {
-    var ret = super.addAll(collection);
-    evictHead();
-    return ret;
+  @Override public boolean addAll(Collection<? extends E> collection) {
+    lock.lock();
+    try {
+      var ret = super.addAll(collection);
+      evictHead();
+      return ret;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized void addFirst(E entry) {
-    super.addFirst(entry);
-    evictTail();
+  @Override public void addFirst(E entry) {
+    lock.lock();
+    try {
+      super.addFirst(entry);
+      evictTail();
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized void addLast(E entry) {
-    super.addLast(entry);
-    evictHead();
+  @Override public void addLast(E entry) {
+    lock.lock();
+    try {
+      super.addLast(entry);
+      evictHead();
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized boolean offer(E entry) {
-    var ret = super.offer(entry);
-    evictHead();
-    return ret;
+  @Override public boolean offer(E entry) {
+    lock.lock();
+    try {
+      var ret = super.offer(entry);
+      evictHead();
+      return ret;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized boolean offerFirst(E entry) {
-    var ret = super.offerFirst(entry);
-    evictTail();
-    return ret;
+  @Override public boolean offerFirst(E entry) {
+    lock.lock();
+    try {
+      var ret = super.offerFirst(entry);
+      evictTail();
+      return ret;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized boolean offerLast(E entry) {
-    var ret = super.offerLast(entry);
-    evictHead();
-    return ret;
+  @Override public boolean offerLast(E entry) {
+    lock.lock();
+    try {
+      var ret = super.offerLast(entry);
+      evictHead();
+      return ret;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * {@inheritDoc}
    */
-  @Override public synchronized void push(E entry) {
-    super.push(entry);
-    evictTail();
+  @Override public void push(E entry) {
+    lock.lock();
+    try {
+      super.push(entry);
+      evictTail();
+    } finally {
+      lock.unlock();
+    }
   }
 
   private void evictHead() {
@@ -42,7 +42,7 @@ import org.slf4j.LoggerFactory;
  * <p>Because {@code commit} does more than write columns: it reconciles pending email
  * addresses, and that includes deleting other users whose {@code pending_email} matches
  * the address this one just verified. Sweeping through it would run that deletion once
- * per user on every boot. {@code Event.backfillCodes} gets away with calling
+ * per user on every sweep. {@code Event.backfillCodes} gets away with calling
  * {@code commit} only because {@code Event.commit} has no such side effect. So this
  * issues its own narrow {@code UPDATE}.
  *
@@ -102,15 +102,8 @@ public final class CredentialMigrator {
     UNREADABLE
   }
 
-  /**
-   * The outcome of a sweep.
-   *
-   * @param migrated records rewritten in the current format
-   * @param adopted plaintext secrets that were encrypted for the first time
-   * @param failed records that could not be read and were left alone
-   * @param contended records another instance rewrote first
-   */
-  public static record Result(int migrated, int adopted, int failed, int contended) { }
+  /** The sweep's name, under which its progress is checkpointed. */
+  public static final String SWEEP = "mfa-secrets";
 
   /**
    * Classifies a stored blob without modifying anything.
@@ -161,20 +154,28 @@ public final class CredentialMigrator {
   }
 
   /**
-   * Rewrites every legacy MFA secret in the current format.
+   * Rewrites the legacy MFA secrets among the next few users.
    *
-   * <p>Idempotent, self-limiting and non-fatal, in the shape of
-   * {@code Event.backfillCodes}: read everything, close the connection, then work through
-   * the list one row at a time so that one bad record cannot abort the rest.
+   * <p>One chunk of a background sweep; see {@code SweepRunner}. This used to read every
+   * user with a secret in one query, on the boot thread, before the server listened --
+   * and did so on every boot, to find nothing after the first. Now it reads at most
+   * {@code limit} rows in key order above {@code after}, so the caller can checkpoint
+   * between chunks and a restart does not start again from the top.
+   *
+   * <p>Idempotent and non-fatal, in the shape of {@code Event.backfillCodes}: read the
+   * chunk, close the connection, then work through it one row at a time so that one bad
+   * record cannot abort the rest.
    *
    * <p>A record that cannot be read is <b>left exactly as it is</b>. Nulling the column
    * would be tidier and would silently disable multi-factor authentication for that
    * account -- a security downgrade delivered by a migration nobody asked for.
    *
-   * @return what happened
-   * @throws SQLException if the initial read fails; per-row failures are logged instead
+   * @param after the key to read above
+   * @param limit the most rows to read
+   * @return how many rows were read, and the last
+   * @throws SQLException if the chunk's read fails; per-row failures are logged instead
    */
-  public static Result sweepMFASecrets() throws SQLException {
+  public static SweepCheckpoint.Chunk sweepMFASecrets(UUID after, int limit) throws SQLException {
     final String table = YasssCore.getDB().getPrefix() + "user";
 
     Connection con = null;
@@ -186,18 +187,25 @@ public final class CredentialMigrator {
 
     try {
       con = YasssCore.getDB().connect();
+      // No filter on mfakey, so a chunk is a bounded range of the primary key
+      // however few users have a secret. With one, a chunk would read on
+      // until it had found `limit` of them -- the whole table, if few have.
       stmt = con.prepareStatement(
-          "SELECT id, mfakey FROM " + table + " WHERE mfakey IS NOT NULL");
+          "SELECT id, mfakey FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?");
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(after));
+      stmt.setInt(2, limit);
       res = stmt.executeQuery();
       while(res.next())
         pending.add(new Row(SQLBuilder.bytesToUUID(res.getBytes("id")), res.getBytes("mfakey")));
     } finally {
       YasssCore.getDB().close(con, stmt, res);
     }
+    if(pending.isEmpty()) return SweepCheckpoint.Chunk.EMPTY;
 
     int migrated = 0, adopted = 0, failed = 0, contended = 0;
 
     for(Row row : pending) {
+      if(null == row.mfakey()) continue;
       try {
         Credentialed probe = new Credentialed(row.id(), null, null, row.mfakey());
         Decision decision = classify(probe, row.mfakey());
@@ -253,7 +261,22 @@ public final class CredentialMigrator {
       }
     }
 
-    return new Result(migrated, adopted, failed, contended);
+    if(0 < migrated)
+      logger.info("re-encrypted {} MFA secret(s) in the current format", migrated);
+    if(0 < adopted)
+      logger.warn(
+          "encrypted {} previously-unencrypted MFA secret(s); they were stored in the "
+          + "clear by a deployment running without a ticket.globalSecret",
+          adopted);
+    if(0 < failed)
+      logger.warn(
+          "{} MFA secret(s) could not be read and were left untouched; those accounts "
+          + "must re-enroll -- see docs/upstream-axb-lib-auth.md",
+          failed);
+    if(0 < contended)
+      logger.debug("{} MFA secret(s) changed under the sweep", contended);
+
+    return new SweepCheckpoint.Chunk(pending.size(), pending.get(pending.size() - 1).id());
   }
 
   /**
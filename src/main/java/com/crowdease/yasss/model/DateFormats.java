@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every date the server writes for people to read, and every date it reads
+ * from a request body.
+ *
+ * <h2>Formatting</h2>
+ *
+ * <p>{@link DateTimeFormatter} is immutable, so one per zone is built on first
+ * use and shared by every thread from then on -- request threads and the
+ * reminder daemon alike. The {@code SimpleDateFormat} this replaces had to be
+ * built per call, because it is not thread-safe, and its zone looked up by
+ * name every time; a reminder batch paid both once per reminder.
+ *
+ * <p>A zone name that does not resolve renders in GMT, which is what
+ * {@code TimeZone.getTimeZone} did with one. Zones are validated on the way
+ * in, so only a row written before that could hit this.
+ *
+ * <h2>Parsing</h2>
+ *
+ * <p>{@link #parse(String)} reads the formats the API has always documented in
+ * one pass over the string, and reports failure by returning {@code null}.
+ * The parser it replaces tried seven formatters in turn, each failure a thrown
+ * exception -- and the common case, the epoch milliseconds every client
+ * actually sends, only after all seven had failed.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class DateFormats {
+
+  /** A slot's time, as shown in mail and on the report. */
+  private static final DateTimeFormatter SLOT =
+      DateTimeFormatter.ofPattern("MM/dd/yyyy hh:mm a", Locale.US);
+
+  /** The same, with the zone named. */
+  private static final DateTimeFormatter ZONED =
+      DateTimeFormatter.ofPattern("MM/dd/yyyy hh:mm a z", Locale.US);
+
+  private static final ZoneId FALLBACK = ZoneId.of("GMT");
+
+  private static final Map<String, Zoned> zones = new ConcurrentHashMap<>();
+
+  private DateFormats() { }
+
+  /**
+   * Formats a time for a slot listing.
+   *
+   * @param when the time
+   * @param timezone the event's IANA zone, or {@code null} for the server's
+   * @return the time as {@code MM/dd/yyyy hh:mm a}
+   */
+  public static String slot(Date when, String timezone) {
+    return zoned(timezone).slot.format(Instant.ofEpochMilli(when.getTime()));
+  }
+
+  /**
+   * Formats a time with its zone named.
+   *
+   * @param when the time
+   * @param timezone the event's IANA zone, or {@code null} for the server's
+   * @return the time as {@code MM/dd/yyyy hh:mm a z}
+   */
+  public static String zoned(Date when, String timezone) {
+    return zoned(timezone).zoned.format(Instant.ofEpochMilli(when.getTime()));
+  }
+
+  private static Zoned zoned(String timezone) {
+    // The server's zone by id rather than as a fixed entry: it is pinned at
+    // boot, and a test may pin it to something else.
+    return zones.computeIfAbsent(
+        null == timezone ? ZoneId.systemDefault().getId() : timezone,
+        DateFormats::resolve);
+  }
+
+  private static Zoned resolve(String timezone) {
+    ZoneId zone;
+    try {
+      zone = ZoneId.of(timezone);
+    } catch(DateTimeException e) {
+      // Once per distinct bad name, since the result is cached.
+      zone = FALLBACK;
+    }
+    return new Zoned(SLOT.withZone(zone), ZONED.withZone(zone));
+  }
+
+  private static record Zoned(DateTimeFormatter slot, DateTimeFormatter zoned) { }
+
+  /**
+   * Reads a timestamp from a request body.
+   *
+   * <p>Accepts, with surrounding whitespace ignored:
+   *
+   * <ul>
+   *   <li>epoch milliseconds, optionally signed;</li>
+   *   <li>{@code yyyy-MM-dd}, which is midnight;</li>
+   *   <li>{@code yyyy-MM-dd HH:mm}, optionally with {@code :ss} and then a
+   *       fraction of a second;</li>
+   *   <li>the same with a twelve-hour clock and a trailing {@code AM} or
+   *       {@code PM}, in either case, with or without a space before it.</li>
+   * </ul>
+   *
+   * <p>A {@code T} may stand in for the space between date and time, and a
+   * time may end in {@code Z} or an offset such as {@code +05:30}, so that an
+   * ISO-8601 string means what it says. Without either, the time is read in
+   * the server's zone, as it always has been.
+   *
+   * <p>Stricter than its predecessor in two ways that only ever hid mistakes:
+   * out-of-range fields no longer roll over, so the thirteenth month is an
+   * error rather than January, and trailing text is an error rather than
+   * ignored. The latter is how {@code 10:00 PM} used to parse as ten in the
+   * morning.
+   *
+   * @param value the text
+   * @return the timestamp, or {@code null} if {@code value} is not one
+   */
+  public static Timestamp parse(String value) {
+    if(null == value) return null;
+    Cursor c = new Cursor(value.strip());
+    if(c.end()) return null;
+
+    if(c.epoch()) {
+      long millis = c.number();
+      return c.overflowed ? null : new Timestamp(millis);
+    }
+
+    int year = c.digits(4, 4);
+    if(0 > year || !c.skip('-')) return null;
+    int month = c.digits(1, 2);
+    if(1 > month || 12 < month || !c.skip('-')) return null;
+    int day = c.digits(1, 2);
+    if(1 > day || Month.of(month).length(Year.isLeap(year)) < day) return null;
+
+    int hour = 0, minute = 0, second = 0, nanos = 0;
+    ZoneOffset offset = null;
+
+    if(!c.end()) {
+      if(!c.skip(' ') && !c.skip('T') && !c.skip('t')) return null;
+      hour = c.digits(1, 2);
+      if(0 > hour || !c.skip(':')) return null;
+      minute = c.digits(2, 2);
+      if(0 > minute || 59 < minute) return null;
+
+      if(c.skip(':')) {
+        second = c.digits(2, 2);
+        if(0 > second || 59 < second) return null;
+        if(c.skip('.')) {
+          nanos = c.fraction();
+          if(0 > nanos) return null;
+        }
+      }
+
+      c.skip(' ');
+      int meridiem = c.meridiem();
+      if(0 <= meridiem) {
+        if(1 > hour || 12 < hour) return null;
+        hour = hour % 12 + meridiem;
+      } else if(23 < hour) return null;
+
+      if(!c.end()) {
+        offset = c.offset();
+        if(null == offset || !c.end()) return null;
+      }
+    }
+
+    LocalDateTime local = LocalDateTime.of(year, month, day, hour, minute, second, nanos);
+    return Timestamp.from(
+        null == offset
+            ? local.atZone(ZoneId.systemDefault()).toInstant()
+            : local.toInstant(offset));
+  }
+
+  /**
+   * A position in the text being parsed. Every reader either consumes what it
+   * recognizes and reports it, or consumes nothing and reports {@code -1}.
+   */
+  private static final class Cursor {
+
+    private final String s;
+    private int i = 0;
+    private boolean overflowed = false;
+
+    private Cursor(String s) {
+      this.s = s;
+    }
+
+    private boolean end() {
+      return s.length() == i;
+    }
+
+    private boolean skip(char expected) {
+      if(end() || s.charAt(i) != expected) return false;
+      i++;
+      return true;
+    }
+
+    private static boolean digit(char c) {
+      return '0' <= c && c <= '9';
+    }
+
+    /** Whether the whole rest of the text is a signed integer. */
+    private boolean epoch() {
+      int j = i;
+      if(j < s.length() && ('-' == s.charAt(j) || '+' == s.charAt(j))) j++;
+      if(j == s.length()) return false;
+      for(; j < s.length(); j++)
+        if(!digit(s.charAt(j))) return false;
+      return true;
+    }
+
+    /** Reads the signed integer {@link #epoch()} found. */
+    private long number() {
+      boolean negative = '-' == s.charAt(i);
+      if('-' == s.charAt(i) || '+' == s.charAt(i)) i++;
+      long value = 0L;
+      for(; i < s.length(); i++) {
+        int d = s.charAt(i) - '0';
+        // Accumulated negatively, so that Long.MIN_VALUE itself fits.
+        if(value < (Long.MIN_VALUE + d) / 10) overflowed = true;
+        value = value * 10 - d;
+      }
+      if(!negative && Long.MIN_VALUE == value) overflowed = true;
+      return negative ? value : -value;
+    }
+
+    private int digits(int min, int max) {
+      int start = i, value = 0;
+      while(i < s.length() && i - start < max && digit(s.charAt(i)))
+        value = value * 10 + s.charAt(i++) - '0';
+      if(i - start < min) {
+        i = start;
+        return -1;
+      }
+      return value;
+    }
+
+    /** Reads a decimal fraction of a second, to nanoseconds. */
+    private int fraction() {
+      int start = i, nanos = 0;
+      while(i < s.length() && digit(s.charAt(i))) {
+        if(9 > i - start) nanos = nanos * 10 + s.charAt(i) - '0';
+        i++;
+      }
+      if(start == i) return -1;
+      for(int n = i - start; 9 > n; n++) nanos *= 10;
+      return nanos;
+    }
+
+    /** Reads {@code AM} or {@code PM}, as the hours to add: 0 or 12. */
+    private int meridiem() {
+      if(s.length() < i + 2 || 'M' != Character.toUpperCase(s.charAt(i + 1))) return -1;
+      switch(Character.toUpperCase(s.charAt(i))) {
+        case 'A': i += 2; return 0;
+        case 'P': i += 2; return 12;
+        default: return -1;
+      }
+    }
+
+    /** Reads {@code Z}, or {@code +HH:mm} or {@code -HH:mm}. */
+    private ZoneOffset offset() {
+      if(skip('Z') || skip('z')) return ZoneOffset.UTC;
+
+      int sign;
+      if(skip('+')) sign = 1;
+      else if(skip('-')) sign = -1;
+      else return null;
+
+      int hours = digits(2, 2);
+      if(0 > hours || 18 < hours) return null;
+      skip(':');
+      int minutes = digits(2, 2);
+      if(0 > minutes || 59 < minutes) return null;
+
+      int seconds = sign * (hours * 3600 + minutes * 60);
+      return 18 * 3600 < Math.abs(seconds) ? null : ZoneOffset.ofTotalSeconds(seconds);
+    }
+  }
+}
@@ -9,7 +9,6 @@ package com.crowdease.yasss.model;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Objects;
 import java.util.UUID;
@@ -75,10 +74,30 @@ public class Detail implements Comparable<Detail> {
     /**
      * Determines whether or not the candidate is appropriate for the {@link Type}.
      *
+     * <p>The patterns above are the rule, and what the frontend mirrors; the
+     * check itself is a {@link DetailScanner} that accepts exactly what they
+     * do, without a regex engine behind it.
+     *
      * @return {@code true} iff the candidate matches the type's regular expression
      */
     public boolean isValid(String candidate) {
-      return pattern.matcher(candidate).matches();
+      if(null == candidate) return false;
+      return switch(this) {
+        case STRING -> true;
+        case BOOLEAN -> "true".equals(candidate) || "false".equals(candidate);
+        case INTEGER -> DetailScanner.decimal(candidate);
+        case EMAIL -> DetailScanner.email(candidate);
+        case PHONE -> DetailScanner.phone(candidate);
+      };
+    }
+
+    /**
+     * Retrieves the pattern that defines this type.
+     *
+     * @return the {@link Pattern}
+     */
+    Pattern pattern() {
+      return pattern;
     }
 
     /**
@@ -289,27 +308,7 @@ public class Detail implements Comparable<Detail> {
     try {
       con = YasssCore.getDB().connect();
       
-      if(null == id) {
-        ResultSet res = null;
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-                .select(
-                    YasssCore.getDB().getPrefix() + "detail",
-                    "id")
-                .where("id")
-                .toString());
-        
-        boolean found;
-        do {
-          id = UUID.randomUUID();
-          stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
-          res = stmt.executeQuery();
-          found = res.next();
-          YasssCore.getDB().close(null, null, res);
-        } while(found);
-        
-        YasssCore.getDB().close(null, stmt, null);
-      }
+      if(null == id) id = RowID.generate();
       
       stmt = con.prepareStatement(
           new SQLBuilder()
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+/**
+ * Hand-written matchers for the {@link Detail.Type} patterns.
+ *
+ * <p>Each accepts exactly what its type's pattern accepts under
+ * {@code matches()} -- the patterns stay in {@link Detail.Type} as the rule,
+ * the one the frontend mirrors, and {@code DetailScannerTest} holds these to
+ * it. They exist because the email pattern backtracks over every dot of a
+ * long domain, the phone pattern over every optional separator, and both ran
+ * for every answer of every signup and every imported row. A scanner walks the
+ * answer once and allocates nothing.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+final class DetailScanner {
+
+  /** The longest answer the phone pattern can match. */
+  private static final int PHONE_MAX = 19;
+
+  // What the phone scanner steps over.
+  private static final int DIGIT = 0;
+  private static final int SEPARATOR = 1;
+  private static final int PLUS = 2;
+  private static final int OPEN = 3;
+  private static final int CLOSE = 4;
+
+  private DetailScanner() { }
+
+  /**
+   * {@code \d+(\.\d{0,9})?}
+   *
+   * @param s the candidate
+   * @return {@code true} if it matches
+   */
+  static boolean decimal(String s) {
+    int n = s.length();
+    int i = 0;
+    while(i < n && digit(s.charAt(i))) i++;
+    if(0 == i) return false;
+    if(i == n) return true;
+    if('.' != s.charAt(i++)) return false;
+    int fraction = n - i;
+    if(9 < fraction) return false;
+    for(; i < n; i++)
+      if(!digit(s.charAt(i))) return false;
+    return true;
+  }
+
+  /**
+   * The {@link Detail.Type#EMAIL} pattern: dot-separated runs of atom
+   * characters, an {@code @}, then two or more dot-separated labels of
+   * lowercase letters, digits and inner hyphens.
+   *
+   * @param s the candidate
+   * @return {@code true} if it matches
+   */
+  static boolean email(String s) {
+    int n = s.length();
+    int at = s.indexOf('@');
+    if(0 >= at) return false;
+
+    // The local part. No atom character is an @, so the first one ends it.
+    boolean empty = true;
+    for(int i = 0; i < at; i++) {
+      char c = s.charAt(i);
+      if('.' == c) {
+        if(empty) return false;
+        empty = true;
+      } else if(atom(c)) empty = false;
+      else return false;
+    }
+    if(empty) return false;
+
+    // The domain: labels, at least two.
+    int labels = 0;
+    int start = at + 1;
+    while(true) {
+      int end = start;
+      while(end < n && '.' != s.charAt(end)) end++;
+      if(end == start) return false;
+      if('-' == s.charAt(start) || '-' == s.charAt(end - 1)) return false;
+      for(int i = start; i < end; i++) {
+        char c = s.charAt(i);
+        if('-' != c && !alnum(c)) return false;
+      }
+      labels++;
+      if(end == n) break;
+      start = end + 1;
+    }
+    return 2 <= labels;
+  }
+
+  /**
+   * The {@link Detail.Type#PHONE} pattern.
+   *
+   * <p>Followed as the regex engine would, but breadth-first: the set of
+   * places each optional piece could have ended is kept as the bits of an
+   * {@code int}, which the longest possible match fits in. So every way of
+   * reading {@code +1 (555) 555-5555} is tried at once, without backtracking.
+   *
+   * @param s the candidate
+   * @return {@code true} if it matches
+   */
+  static boolean phone(String s) {
+    int n = s.length();
+    if(PHONE_MAX < n) return false;
+
+    // (\+?( |-|\.)?\d{1,2}( |-|\.)?)?
+    int prefix = optional(s, 1, PLUS);
+    prefix = optional(s, prefix, SEPARATOR);
+    prefix = step(s, prefix, DIGIT);
+    prefix |= step(s, prefix, DIGIT);
+    prefix = optional(s, prefix, SEPARATOR);
+    int at = 1 | prefix;
+
+    // (\(?\d{3}\)?|\d{3}) -- the second is a case of the first
+    at = optional(s, at, OPEN);
+    at = repeat(s, at, DIGIT, 3);
+    at = optional(s, at, CLOSE);
+
+    // ( |-|\.)?(\d{3}( |-|\.)?\d{4})
+    at = optional(s, at, SEPARATOR);
+    at = repeat(s, at, DIGIT, 3);
+    at = optional(s, at, SEPARATOR);
+    at = repeat(s, at, DIGIT, 4);
+
+    return 0 != (at & (1 << n));
+  }
+
+  /** Where each position in {@code at} goes on one character of {@code kind}. */
+  private static int step(String s, int at, int kind) {
+    int next = 0;
+    for(int i = 0; i < s.length(); i++)
+      if(0 != (at & (1 << i)) && is(s.charAt(i), kind))
+        next |= 1 << (i + 1);
+    return next;
+  }
+
+  private static int optional(String s, int at, int kind) {
+    return at | step(s, at, kind);
+  }
+
+  private static int repeat(String s, int at, int kind, int times) {
+    for(int i = 0; i < times; i++) at = step(s, at, kind);
+    return at;
+  }
+
+  private static boolean is(char c, int kind) {
+    return switch(kind) {
+      case DIGIT -> digit(c);
+      case SEPARATOR -> ' ' == c || '-' == c || '.' == c;
+      case PLUS -> '+' == c;
+      case OPEN -> '(' == c;
+      case CLOSE -> ')' == c;
+      default -> false;
+    };
+  }
+
+  private static boolean digit(char c) {
+    return '0' <= c && c <= '9';
+  }
+
+  private static boolean alnum(char c) {
+    return digit(c) || 'a' <= c && c <= 'z';
+  }
+
+  private static boolean atom(char c) {
+    return alnum(c) || 0 <= "!#$%&'*+/=?^_`{|}~-".indexOf(c);
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An event's custom fields, prepared once for checking answers against.
+ *
+ * <p>Every signup, every edit of a volunteer and every imported row used to
+ * read the event's details and build a map of them by id before looking at a
+ * single answer -- a query and a map per submission, the same ones every time.
+ * This holds them for as long as they stand: the fields by id, their types,
+ * and which are required, as a bitmask that a submission's answers are
+ * compared against in one step once they have all been seen.
+ *
+ * <p>Held per event and dropped by the detail endpoints whenever they add,
+ * change or remove a field. That drop is local, so no validator is kept for
+ * longer than {@code details.cacheTTL}; past that, a field edited on another
+ * node is read again. Until then a signup here is checked against the fields
+ * as they were, which is what it would have been had it arrived a moment
+ * sooner.
+ *
+ * <p>The rules, and the messages, are the ones the endpoints applied inline.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class DetailValidator {
+
+  /** The longest answer a column can hold, in code points. */
+  public static final int MAX_VALUE_LENGTH = 255;
+
+  /** How long a validator is believed by default, in milliseconds. */
+  public static final long DEFAULT_TTL = 10_000L;
+
+  /** Past this many validators, any that have expired are dropped when another is read. */
+  static final int PRUNE_ABOVE = 1_000;
+
+  /**
+   * Why an answer, or a submission, was refused.
+   */
+  public static enum Problem {
+
+    /** An answer to a field the event does not have. */
+    NOT_FOUND("detail not found", 404),
+
+    /** An answer longer than its column. */
+    TOO_LONG("malformed argument (string too long: details[].value)", 400),
+
+    /** An answer its field's type does not accept, or a blank required one. */
+    MALFORMED("malformed argument (details[].value)", 400),
+
+    /** A required field left unanswered. */
+    MISSING("missing required detail", 400);
+
+    private final String message;
+    private final int status;
+
+    private Problem(String message, int status) {
+      this.message = message;
+      this.status = status;
+    }
+
+    /**
+     * Retrieves the message the endpoints answer with.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+      return message;
+    }
+
+    /**
+     * Retrieves the HTTP status the endpoints answer with.
+     *
+     * @return the status
+     */
+    public int getStatus() {
+      return status;
+    }
+  }
+
+  private static final Map<UUID, DetailValidator> cache = new ConcurrentHashMap<>();
+  private static final AtomicLong epoch = new AtomicLong();
+  private static volatile long ttl = DEFAULT_TTL;
+
+  private final Map<UUID, Integer> index;
+  private final Detail[] fields;
+  private final long[] required;
+  private final long loadedAt;
+
+  /**
+   * Prepares an event's fields.
+   *
+   * @param details the event's custom fields, in order
+   * @param loadedAt when they were read
+   */
+  DetailValidator(Collection<Detail> details, long loadedAt) {
+    this.fields = details.toArray(new Detail[0]);
+    this.index = new HashMap<>(fields.length * 2);
+    this.required = new long[(fields.length + 63) >>> 6];
+    for(int i = 0; i < fields.length; i++) {
+      index.putIfAbsent(fields[i].getID(), i);
+      if(fields[i].isRequired()) required[i >>> 6] |= 1L << i;
+    }
+    this.loadedAt = loadedAt;
+  }
+
+  /**
+   * Sets how long a validator is believed.
+   *
+   * @param ttlMillis the interval, in milliseconds
+   * @throws IllegalArgumentException if it is negative
+   */
+  public static void configure(long ttlMillis) {
+    if(0 > ttlMillis)
+      throw new IllegalArgumentException("detail cache TTL must not be negative");
+    DetailValidator.ttl = ttlMillis;
+  }
+
+  /**
+   * Retrieves the validator for an event, reading its fields if none is held.
+   *
+   * @param event the {@link Event}
+   * @return the {@link DetailValidator}
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static DetailValidator forEvent(Event event) throws SQLException {
+    long now = System.currentTimeMillis();
+    DetailValidator validator = cache.get(event.getID());
+    if(null != validator && ttl > now - validator.loadedAt) return validator;
+
+    long seen = epoch.get();
+    validator = new DetailValidator(event.getDetails(), now);
+    if(0 == ttl) return validator;
+
+    if(PRUNE_ABOVE < cache.size())
+      cache.values().removeIf(v -> ttl <= now - v.loadedAt);
+    cache.put(event.getID(), validator);
+    // A field changed while these were being read. Whatever the invalidation
+    // removed, this may have replaced; take it back out.
+    if(seen != epoch.get()) cache.remove(event.getID(), validator);
+    return validator;
+  }
+
+  /**
+   * Drops an event's validator, so that the next submission reads its fields
+   * again. Called by every endpoint that changes a field.
+   *
+   * @param event the {@link UUID} of the {@link Event}
+   */
+  public static void invalidate(UUID event) {
+    epoch.incrementAndGet();
+    cache.remove(event);
+  }
+
+  /**
+   * Retrieves the fields, in order.
+   *
+   * @return a copy of the event's {@link Detail}s
+   */
+  public Detail[] getFields() {
+    return fields.clone();
+  }
+
+  /**
+   * Begins checking one submission's answers.
+   *
+   * @return a {@link Submission}
+   */
+  public Submission submission() {
+    return new Submission();
+  }
+
+  /**
+   * One volunteer's answers, checked as they are given.
+   */
+  public final class Submission {
+
+    private final long[] answered = new long[required.length];
+    private final Map<Detail, String> details = new LinkedHashMap<>();
+
+    private Submission() { }
+
+    /**
+     * Checks and records one answer: stripped, then normalized for its type,
+     * then bounded and validated. An answer to a required field that strips
+     * to nothing is refused here rather than recorded, so it cannot count
+     * toward {@link #finish()}.
+     *
+     * @param detail the {@link UUID} of the {@link Detail}
+     * @param raw the answer as given
+     * @return the {@link Problem}, or {@code null} if the answer was recorded
+     */
+    public Problem answer(UUID detail, String raw) {
+      Integer i = null == detail ? null : index.get(detail);
+      if(null == i) return Problem.NOT_FOUND;
+      Detail field = fields[i];
+
+      // Normalized before validating: an EMAIL custom field's pattern is
+      // lowercase-only, so a capitalized answer was refused outright.
+      String value = field.getType().normalize(null == raw ? "" : raw.strip());
+      if(MAX_VALUE_LENGTH < value.codePointCount(0, value.length()))
+        return Problem.TOO_LONG;
+      if(field.isRequired() && value.isEmpty())
+        return Problem.MALFORMED;
+      if(!field.getType().isValid(value))
+        return Problem.MALFORMED;
+
+      answered[i >>> 6] |= 1L << i;
+      details.put(field, value);
+      return null;
+    }
+
+    /**
+     * Checks that every required field was answered.
+     *
+     * @return {@link Problem#MISSING}, or {@code null} if none was left out
+     */
+    public Problem finish() {
+      for(int w = 0; w < required.length; w++)
+        if(required[w] != (required[w] & answered[w]))
+          return Problem.MISSING;
+      return null;
+    }
+
+    /**
+     * Retrieves the answers recorded so far, as they are to be stored.
+     *
+     * @return a {@link Map} of each {@link Detail} to its answer
+     */
+    public Map<Detail, String> getDetails() {
+      return details;
+    }
+  }
+}
@@ -12,10 +12,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -41,6 +43,9 @@ public class Event {
 
   private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(Event.class);
 
+  /** The name {@link #backfillCodes(UUID, int)} is checkpointed under. */
+  public static final String CODE_SWEEP = "event-codes";
+
   /**
    * Retrieves an ordered set of events that conform to provided criteria.
    *
@@ -1092,6 +1097,137 @@ public class Event {
     }
   }
 
+  /**
+   * Retrieves every {@link Slot} of this event, across all of its activities.
+   *
+   * <p>One statement, joined through {@code activity} as
+   * {@link #getSlotCounts()} is, for a caller that wants the whole grid at
+   * once; reading it through {@link Activity#getSlots()} is one statement per
+   * activity. In no particular order: a caller that needs one indexes the
+   * slots by activity and window itself.
+   *
+   * @return a {@link List} of {@link Slot}s
+   * @throws SQLException if a database malfunction occurs
+   */
+  public List<Slot> getSlots() throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          String.format(
+              "SELECT s.activity, s.event_window, s.max_slot_volunteers "
+              + "FROM %1$sslot s "
+              + "INNER JOIN %1$sactivity a ON a.id = s.activity "
+              + "WHERE a.event = ?",
+              YasssCore.getDB().getPrefix()));
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
+      res = stmt.executeQuery();
+
+      List<Slot> slots = new ArrayList<>();
+      while(res.next())
+        slots.add(
+            new Slot(
+                SQLBuilder.bytesToUUID(res.getBytes("activity")),
+                SQLBuilder.bytesToUUID(res.getBytes("event_window")),
+                res.getInt("max_slot_volunteers")));
+      return slots;
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
+  /**
+   * Counts the seats taken in every slot of this event.
+   *
+   * <p>One {@code GROUP BY}, for a grid that only needs to say how full each
+   * slot is. Counting a slot used to mean {@link Slot#getRSVPs()}, which reads
+   * the slot's volunteers and then their details, or {@link Slot#countRSVPs()}
+   * and {@link Activity#countRSVPs()}, one statement each; on a grid of a few
+   * hundred slots, that was a few hundred round trips to draw some numbers.
+   * It is served from {@code rsvp}'s primary key, whose prefix is the
+   * activity and the window.
+   *
+   * @return the {@link SlotCounts}
+   * @throws SQLException if a database malfunction occurs
+   */
+  public SlotCounts getSlotCounts() throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          String.format(
+              "SELECT r.activity, r.event_window, COUNT(1) AS rsvp_count "
+              + "FROM %1$srsvp r "
+              + "INNER JOIN %1$sactivity a ON a.id = r.activity "
+              + "WHERE a.event = ? "
+              + "GROUP BY r.activity, r.event_window",
+              YasssCore.getDB().getPrefix()));
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
+      res = stmt.executeQuery();
+
+      SlotCounts.Builder counts = new SlotCounts.Builder();
+      while(res.next())
+        counts.add(
+            SQLBuilder.bytesToUUID(res.getBytes("activity")),
+            SQLBuilder.bytesToUUID(res.getBytes("event_window")),
+            res.getInt("rsvp_count"));
+      return counts.build();
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
+  /**
+   * Retrieves every RSVP to this event, without its volunteer.
+   *
+   * <p>For a caller that already holds the volunteers from
+   * {@link #getVolunteers()} and wants to know where each one signed up: one
+   * statement, where {@link Slot#getRSVPs()} was one per slot and read each
+   * volunteer again. In the order they were made, as that method returns them.
+   *
+   * @return a {@link List} of {@link RSVP}s
+   * @throws SQLException if a database malfunction occurs
+   */
+  public List<RSVP> getRSVPs() throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          String.format(
+              "SELECT r.activity, r.event_window, r.volunteer "
+              + "FROM %1$srsvp r "
+              + "INNER JOIN %1$sactivity a ON a.id = r.activity "
+              + "WHERE a.event = ? "
+              + "ORDER BY r.last_update ASC",
+              YasssCore.getDB().getPrefix()));
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
+      res = stmt.executeQuery();
+
+      List<RSVP> rsvps = new ArrayList<>();
+      while(res.next())
+        rsvps.add(
+            new RSVP(
+                SQLBuilder.bytesToUUID(res.getBytes("activity")),
+                SQLBuilder.bytesToUUID(res.getBytes("event_window")),
+                SQLBuilder.bytesToUUID(res.getBytes("volunteer"))));
+      return rsvps;
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
   /**
    * Counts volunteers associated with this event, optionally filtered.
    *
@@ -1347,11 +1483,7 @@ public class Event {
     Connection con = null;
     PreparedStatement stmt = null;
     
-    if(null == id) {
-      do {
-        id = UUID.randomUUID();
-      } while(null != getEvent(id));
-    }
+    if(null == id) id = RowID.generate();
 
     // Assigned on first write and never reissued: a code is what people have
     // written down and shared, so changing it would break links that are out in
@@ -1491,7 +1623,7 @@ public class Event {
   }
 
   /**
-   * Gives a code to every event that predates the column.
+   * Gives a code to each of the next few events that predate the column.
    *
    * <p>Done in Java rather than in the migration because MariaDB's
    * {@code CONV(..., 32)} uses {@code 0-9A-V}, which includes {@code I},
@@ -1499,27 +1631,44 @@ public class Event {
    * exists to remove. Generating them here means one implementation of the
    * alphabet rather than two that have to agree.
    *
-   * <p>Idempotent and self-limiting: it selects only rows with no code, so on
-   * every boot after the first it does one indexed query returning nothing.
-   * Collisions are handled by {@code commit}'s retry, and a row that cannot be
-   * given a code after that is logged and skipped rather than blocking startup —
-   * an event without a short code still works perfectly well by UUID.
+   * <p>One chunk of a background sweep; see {@code SweepRunner}. It reads at
+   * most {@code limit} events in key order above {@code after}, whether or not
+   * they have a code, so that a chunk is a bounded range of the primary key
+   * rather than a scan that runs on until it finds enough without one. Every
+   * event created since the column has a code, so once the sweep has been
+   * through the table it is finished for good.
+   *
+   * <p>Idempotent: only an event with no code is touched. Collisions are
+   * handled by {@code commit}'s retry, and a row that cannot be given a code
+   * after that is logged and skipped rather than holding the sweep up — an
+   * event without a short code still works perfectly well by UUID.
    *
-   * @return the number of events given a code
+   * @param after the key to read above
+   * @param limit the most events to read
+   * @return how many events were read, and the last
    * @throws SQLException if a database malfunction occurs
    */
-  public static int backfillCodes() throws SQLException {
+  public static SweepCheckpoint.Chunk backfillCodes(UUID after, int limit) throws SQLException {
     Connection con = null;
     PreparedStatement stmt = null;
     ResultSet res = null;
 
+    UUID last = null;
+    int scanned = 0;
     java.util.List<UUID> pending = new java.util.ArrayList<>();
     try {
       con = YasssCore.getDB().connect();
       stmt = con.prepareStatement(
-          "SELECT id FROM " + YasssCore.getDB().getPrefix() + "event WHERE code IS NULL");
+          "SELECT id, code FROM " + YasssCore.getDB().getPrefix() + "event "
+              + "WHERE id > ? ORDER BY id LIMIT ?");
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(after));
+      stmt.setInt(2, limit);
       res = stmt.executeQuery();
-      while(res.next()) pending.add(SQLBuilder.bytesToUUID(res.getBytes("id")));
+      while(res.next()) {
+        last = SQLBuilder.bytesToUUID(res.getBytes("id"));
+        scanned++;
+        if(null == res.getString("code")) pending.add(last);
+      }
     } finally {
       YasssCore.getDB().close(con, stmt, res);
     }
@@ -1535,7 +1684,9 @@ public class Event {
         LOG.error("could not assign a code to event {}: {}", eventID, e.getMessage());
       }
     }
-    return done;
+    if(0 < done) LOG.info("assigned short codes to {} existing event(s)", done);
+
+    return new SweepCheckpoint.Chunk(scanned, last);
   }
 
   /**
@@ -1569,5 +1720,6 @@ public class Event {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.event(id);
   }
 }
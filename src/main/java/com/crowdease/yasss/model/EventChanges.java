@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Where the write paths say that an event's slot grid may have changed.
+ *
+ * <p>A notice is a hint to look again, not a description of the change. Several
+ * of the writers run inside a transaction somebody else commits, or may be
+ * rolled back by a capacity check after the write, and an {@link RSVP} does
+ * not know its event -- so whoever listens re-reads the grid rather than
+ * trusting the notice, and a notice for a change that never happened costs one
+ * re-read and sends nothing.
+ *
+ * <p>Static, in the shape of {@code Metrics}, because the writers are model
+ * objects that tests construct without booting anything. With no listener a
+ * notice is a volatile read.
+ *
+ * <p>More than one may listen: the feed, to tell followers, and the
+ * {@link CapacityLedger}, to forget seat counts that may be stale.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class EventChanges {
+
+  /**
+   * Receives notices.
+   *
+   * <p>Called on the writer's thread, often with a connection held, so an
+   * implementation must only record the notice and return.
+   */
+  @FunctionalInterface public static interface Listener {
+
+    /**
+     * Notes that something under an event may have changed.
+     *
+     * @param event the {@link UUID} of the {@link Event}, or {@code null} if
+     *        the writer does not know it
+     * @param activity the {@link UUID} of the {@link Activity} involved, or
+     *        {@code null} if none was
+     */
+    public void changed(UUID event, UUID activity);
+  }
+
+  private static final Listener[] NONE = new Listener[0];
+
+  // Copied on write: listeners come and go at boot and shutdown, and notices
+  // are on every write path in between.
+  private static volatile Listener[] listeners = NONE;
+
+  private EventChanges() { }
+
+  /**
+   * Adds a listener. Adding one that is already listening does nothing.
+   *
+   * @param listener the {@link Listener}
+   */
+  public static synchronized void listen(Listener listener) {
+    for(var l : listeners)
+      if(l == listener) return;
+    Listener[] grown = Arrays.copyOf(listeners, listeners.length + 1);
+    grown[listeners.length] = listener;
+    listeners = grown;
+  }
+
+  /**
+   * Removes a listener, if it was listening.
+   *
+   * @param listener the {@link Listener}
+   */
+  public static synchronized void unlisten(Listener listener) {
+    List<Listener> kept = new ArrayList<>(Arrays.asList(listeners));
+    kept.remove(listener);
+    listeners = kept.isEmpty() ? NONE : kept.toArray(Listener[]::new);
+  }
+
+  /**
+   * Notes that an event's activities, windows or volunteers may have changed.
+   *
+   * @param event the {@link UUID} of the {@link Event}
+   */
+  public static void event(UUID event) {
+    if(null == event) return;
+    for(var l : listeners) l.changed(event, null);
+  }
+
+  /**
+   * Notes that the seats of an activity may have changed.
+   *
+   * @param activity the {@link UUID} of the {@link Activity}
+   */
+  public static void activity(UUID activity) {
+    if(null == activity) return;
+    for(var l : listeners) l.changed(null, activity);
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The part of an event that anybody watching its signup sheet may see: its
+ * activities, its windows, and how many seats each slot has taken.
+ *
+ * <p>No volunteer appears in it. {@code RetrieveEventEndpoint} decides per
+ * caller which volunteers to show, and a digest is shared by every watcher of
+ * an event, so it carries only what that endpoint shows everybody. The shapes
+ * are that endpoint's, so a client applies an entry to the event it already
+ * has by replacing the object with the same id.
+ *
+ * <p>Each entry is held as its serialized JSON, keyed by what it describes.
+ * Comparing two digests is then comparing strings, and the string is what
+ * gets sent.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class EventDigest {
+
+  /**
+   * One activity, window or slot.
+   *
+   * @param type {@code activity}, {@code window} or {@code slot}
+   * @param json the entry as the client is sent it
+   * @param removed what the client is sent when the entry goes away: its ids,
+   *        and {@code removed}
+   */
+  public static record Entry(String type, String json, String removed) { }
+
+  /**
+   * One difference between two digests.
+   *
+   * @param key what changed; an entry's key, which later changes to the same
+   *        thing replace
+   * @param type the entry's type
+   * @param json the entry's new state, or its removal
+   */
+  public static record Change(String key, String type, String json) { }
+
+  private final Map<String, Entry> entries;
+  private final Set<UUID> activities;
+
+  /**
+   * Instantiates a digest. Public for the feed's tests, which have no database
+   * to {@link #load(UUID)} from.
+   *
+   * @param entries the entries, by key
+   * @param activities the {@link UUID}s of the event's activities
+   */
+  public EventDigest(Map<String, Entry> entries, Set<UUID> activities) {
+    this.entries = Collections.unmodifiableMap(entries);
+    this.activities = Collections.unmodifiableSet(activities);
+  }
+
+  /**
+   * Reads an event's digest.
+   *
+   * <p>Four statements on one connection, whatever the size of the event: the
+   * seat counts are a single {@code GROUP BY} rather than a count per slot.
+   * Read from the primary, because it is read right after a write to say what
+   * the write did.
+   *
+   * @param event the {@link UUID} of the {@link Event}
+   * @return the {@link EventDigest}, or {@code null} if there is no such event
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static EventDigest load(UUID event) throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      final String prefix = YasssCore.getDB().getPrefix();
+      final byte[] eventID = SQLBuilder.uuidToBytes(event);
+
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(prefix + "event", "id")
+              .where("id")
+              .toString());
+      stmt.setBytes(1, eventID);
+      res = stmt.executeQuery();
+      if(!res.next()) return null;
+      YasssCore.getDB().close(null, stmt, res);
+
+      Map<String, Entry> entries = new LinkedHashMap<>();
+      Set<UUID> activities = new HashSet<>();
+
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  prefix + "activity",
+                  "id",
+                  "short_description",
+                  "long_description",
+                  "max_activity_volunteers",
+                  "max_slot_volunteers_default",
+                  "priority")
+              .where("event")
+              .toString());
+      stmt.setBytes(1, eventID);
+      res = stmt.executeQuery();
+      while(res.next()) {
+        UUID id = SQLBuilder.bytesToUUID(res.getBytes("id"));
+        activities.add(id);
+        put(
+            entries,
+            activity(
+                id,
+                res.getString("short_description"),
+                res.getString("long_description"),
+                res.getInt("max_activity_volunteers"),
+                res.getInt("max_slot_volunteers_default"),
+                res.getInt("priority")));
+      }
+      YasssCore.getDB().close(null, stmt, res);
+
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(prefix + "event_window", "id", "begin_time", "end_time")
+              .where("event")
+              .toString());
+      stmt.setBytes(1, eventID);
+      res = stmt.executeQuery();
+      while(res.next())
+        put(
+            entries,
+            window(
+                SQLBuilder.bytesToUUID(res.getBytes("id")),
+                res.getTimestamp("begin_time"),
+                res.getTimestamp("end_time")));
+      YasssCore.getDB().close(null, stmt, res);
+
+      stmt = con.prepareStatement(
+          String.format(
+              "SELECT s.activity, s.event_window, s.max_slot_volunteers, "
+              + "COUNT(r.volunteer) AS rsvp_count "
+              + "FROM %1$sslot s "
+              + "INNER JOIN %1$sactivity a ON a.id = s.activity "
+              + "LEFT JOIN %1$srsvp r "
+              + "ON r.activity = s.activity AND r.event_window = s.event_window "
+              + "WHERE a.event = ? "
+              + "GROUP BY s.activity, s.event_window, s.max_slot_volunteers",
+              prefix));
+      stmt.setBytes(1, eventID);
+      res = stmt.executeQuery();
+      while(res.next())
+        put(
+            entries,
+            slot(
+                SQLBuilder.bytesToUUID(res.getBytes("activity")),
+                SQLBuilder.bytesToUUID(res.getBytes("event_window")),
+                res.getInt("max_slot_volunteers"),
+                res.getInt("rsvp_count")));
+
+      return new EventDigest(entries, activities);
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
+  private static void put(Map<String, Entry> entries, Map.Entry<String, Entry> entry) {
+    entries.put(entry.getKey(), entry.getValue());
+  }
+
+  /**
+   * Describes an activity.
+   *
+   * @return the entry's key and the entry
+   */
+  static Map.Entry<String, Entry> activity(UUID id, String shortDescription,
+      String longDescription, int maxActivityVolunteers, int maxSlotVolunteersDefault,
+      int priority) {
+    return Map.entry(
+        "activity:" + id,
+        new Entry(
+            "activity",
+            new JSONObject()
+                .put("id", id)
+                .put("shortDescription", shortDescription)
+                .put("longDescription", longDescription)
+                .put("maxActivityVolunteers", maxActivityVolunteers)
+                .put("maxSlotVolunteersDefault", maxSlotVolunteersDefault)
+                .put("priority", priority)
+                .toString(),
+            new JSONObject()
+                .put("id", id)
+                .put("removed", true)
+                .toString()));
+  }
+
+  /**
+   * Describes a window.
+   *
+   * @return the entry's key and the entry
+   */
+  static Map.Entry<String, Entry> window(UUID id, Timestamp begin, Timestamp end) {
+    return Map.entry(
+        "window:" + id,
+        new Entry(
+            "window",
+            new JSONObject()
+                .put("id", id)
+                .put("begin", begin.getTime())
+                .put("end", null != end ? end.getTime() : JSONObject.NULL)
+                .toString(),
+            new JSONObject()
+                .put("id", id)
+                .put("removed", true)
+                .toString()));
+  }
+
+  /**
+   * Describes a slot.
+   *
+   * @return the entry's key and the entry
+   */
+  static Map.Entry<String, Entry> slot(UUID activity, UUID window, int maxSlotVolunteers,
+      int rsvpCount) {
+    return Map.entry(
+        "slot:" + activity + ":" + window,
+        new Entry(
+            "slot",
+            new JSONObject()
+                .put("activity", activity)
+                .put("window", window)
+                .put("maxSlotVolunteers", maxSlotVolunteers)
+                .put("rsvpCount", rsvpCount)
+                .toString(),
+            new JSONObject()
+                .put("activity", activity)
+                .put("window", window)
+                .put("removed", true)
+                .toString()));
+  }
+
+  /**
+   * Retrieves the entries.
+   *
+   * @return the entries, by key
+   */
+  public Map<String, Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Retrieves the event's activities, which is how a notice about an
+   * {@link Activity} is traced to its event.
+   *
+   * @return the {@link UUID}s of the event's {@link Activity}s
+   */
+  public Set<UUID> getActivities() {
+    return activities;
+  }
+
+  /**
+   * Serializes the whole digest.
+   *
+   * @return {@code activities}, {@code windows} and {@code slots}, in the
+   *         shapes their entries have
+   */
+  public String toJSON() {
+    JSONObject json = new JSONObject()
+        .put("activities", new JSONArray())
+        .put("windows", new JSONArray())
+        .put("slots", new JSONArray());
+    for(var entry : entries.values())
+      json.getJSONArray(
+          switch(entry.type()) {
+            case "activity" -> "activities";
+            case "window" -> "windows";
+            default -> "slots";
+          })
+          .put(new JSONObject(entry.json()));
+    return json.toString();
+  }
+
+  /**
+   * Lists what it takes to turn one digest into another.
+   *
+   * @param before the old {@link EventDigest}, or {@code null} for none
+   * @param after the new {@link EventDigest}
+   * @return the entries added or changed, then the entries removed
+   */
+  public static List<Change> diff(EventDigest before, EventDigest after) {
+    List<Change> changes = new ArrayList<>();
+    Map<String, Entry> old = null == before ? Map.of() : before.entries;
+
+    for(var entry : after.entries.entrySet()) {
+      Entry was = old.get(entry.getKey());
+      if(null == was || !was.json().equals(entry.getValue().json()))
+        changes.add(
+            new Change(entry.getKey(), entry.getValue().type(), entry.getValue().json()));
+    }
+
+    for(var entry : old.entrySet())
+      if(!after.entries.containsKey(entry.getKey()))
+        changes.add(
+            new Change(entry.getKey(), entry.getValue().type(), entry.getValue().removed()));
+
+    return changes;
+  }
+}
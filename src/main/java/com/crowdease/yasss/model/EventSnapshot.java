@@ -0,0 +1,639 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * An event and everything in it, read once and held as arrays.
+ *
+ * <p>The model objects are built to be edited and committed one at a time, and
+ * an event read through them for rendering is a graph of sets, maps and boxed
+ * ids: a {@link Volunteer} with its {@link UUID}s, its {@link java.util.HashMap}
+ * of answers keyed by {@link Detail}, every RSVP its own object again. On an
+ * event of a few thousand volunteers that is megabytes of headers and pointers
+ * for a page that only reads it once in order. Here the same event is a few
+ * dozen arrays. The event report is rendered from one.
+ *
+ * <p>Everything is addressed by a dense {@code int} index, in the order the
+ * model returns it -- activities and windows and details as their
+ * {@code compareTo} sorts them, volunteers by name. An id is two
+ * {@code long}s side by side in one array. A slot is a cell of an
+ * activity-by-window matrix of caps, {@link #NO_SLOT} where there is none.
+ * Answers and RSVPs are adjacency lists in compressed-row form: one array of
+ * offsets into one array of targets, so a volunteer's answers, or a slot's
+ * volunteers, are a run of {@code int}s. Answer values are deduplicated as
+ * they are read, since most of them are a handful of shirt sizes and
+ * {@code true}.
+ *
+ * <p>Immutable, and so safe to share. The views below take and return
+ * primitives; a {@link UUID} or {@link java.sql.Timestamp} is only built if a
+ * writer asks for one.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class EventSnapshot {
+
+  /** In the slot matrix, where an activity does not run in a window. */
+  public static final int NO_SLOT = -1;
+
+  /** A window's end, where it has none. */
+  public static final long NO_END = Long.MIN_VALUE;
+
+  private final long eventID0;
+  private final long eventID1;
+
+  private final long[] activityIDs;
+  private final String[] activityShort;
+  private final String[] activityLong;
+  private final int[] activityCaps;
+  private final int[] activitySlotDefaults;
+  private final int[] activityPriorities;
+
+  private final long[] windowIDs;
+  private final long[] windowBegins;
+  private final long[] windowEnds;
+
+  private final int[][] slotCaps;
+
+  private final long[] detailIDs;
+  private final Detail.Type[] detailTypes;
+  private final String[] detailLabels;
+  private final String[] detailHints;
+  private final int[] detailPriorities;
+  private final boolean[] detailRequired;
+
+  private final long[] volunteerIDs;
+  private final long[] volunteerUsers;
+  private final String[] volunteerNames;
+  private final boolean[] volunteerReminders;
+  private final byte[] volunteerReminderStates;
+  private final int[] volunteersByID;
+
+  private final int[] answerOffsets;
+  private final int[] answerDetails;
+  private final String[] answerValues;
+
+  private final int[] rsvpOffsets;
+  private final int[] rsvpVolunteers;
+
+  private EventSnapshot(Builder b) {
+    this.eventID0 = b.eventID.getMostSignificantBits();
+    this.eventID1 = b.eventID.getLeastSignificantBits();
+    this.activityIDs = b.activityIDs;
+    this.activityShort = b.activityShort;
+    this.activityLong = b.activityLong;
+    this.activityCaps = b.activityCaps;
+    this.activitySlotDefaults = b.activitySlotDefaults;
+    this.activityPriorities = b.activityPriorities;
+    this.windowIDs = b.windowIDs;
+    this.windowBegins = b.windowBegins;
+    this.windowEnds = b.windowEnds;
+    this.slotCaps = b.slotCaps;
+    this.detailIDs = b.detailIDs;
+    this.detailTypes = b.detailTypes;
+    this.detailLabels = b.detailLabels;
+    this.detailHints = b.detailHints;
+    this.detailPriorities = b.detailPriorities;
+    this.detailRequired = b.detailRequired;
+    this.volunteerIDs = b.volunteerIDs;
+    this.volunteerUsers = b.volunteerUsers;
+    this.volunteerNames = b.volunteerNames;
+    this.volunteerReminders = b.volunteerReminders;
+    this.volunteerReminderStates = b.volunteerReminderStates;
+    this.volunteersByID = b.volunteersByID;
+    this.answerOffsets = b.answerOffsets;
+    this.answerDetails = b.answerDetails;
+    this.answerValues = b.answerValues;
+    this.rsvpOffsets = b.rsvpOffsets;
+    this.rsvpVolunteers = b.rsvpVolunteers;
+  }
+
+  /**
+   * Reads an event into a snapshot.
+   *
+   * <p>Through the model's own finders, so that what is held is exactly what
+   * they return. Each section is packed as soon as it is read and its objects
+   * let go before the next is read, so the volunteers and their answers -- the
+   * bulk of any large event -- are garbage before its RSVPs are fetched, and
+   * no more than one section of the model is ever live at once. Each section
+   * is one statement, the slots included, so a snapshot costs the same six
+   * round trips however many activities the event has.
+   *
+   * @param event the {@link Event}
+   * @return the {@link EventSnapshot}
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static EventSnapshot load(Event event) throws SQLException {
+    Builder builder = new Builder(event.getID());
+    builder.activities(event.getActivities());
+    builder.windows(event.getWindows());
+    builder.slots(event.getSlots());
+    builder.details(event.getDetails());
+    builder.volunteers(event.getVolunteers());
+    builder.rsvps(event.getRSVPs());
+    return builder.build();
+  }
+
+  /**
+   * Builds a snapshot from model objects already in hand.
+   *
+   * <p>A slot, answer or RSVP naming something not among the rest is left
+   * out, as the endpoints leave out an answer whose field has been deleted.
+   *
+   * @param event the {@link UUID} of the {@link Event}
+   * @param activities the event's activities, in order
+   * @param windows the event's windows, in order
+   * @param slots the event's slots
+   * @param details the event's details, in order
+   * @param volunteers the event's volunteers with their answers, in order
+   * @param rsvps the event's RSVPs, in the order each slot should list them
+   * @return the {@link EventSnapshot}
+   */
+  static EventSnapshot of(UUID event, Collection<Activity> activities,
+      Collection<Window> windows, Collection<Slot> slots, Collection<Detail> details,
+      Collection<Volunteer> volunteers, Collection<RSVP> rsvps) {
+    return new Builder(event)
+        .activities(activities)
+        .windows(windows)
+        .slots(slots)
+        .details(details)
+        .volunteers(volunteers)
+        .rsvps(rsvps)
+        .build();
+  }
+
+  /**
+   * Retrieves the event's id.
+   *
+   * @return the {@link UUID} of the {@link Event}
+   */
+  public UUID getID() {
+    return new UUID(eventID0, eventID1);
+  }
+
+  /** @return the number of activities */
+  public int activities() {
+    return activityCaps.length;
+  }
+
+  /** @return the {@link UUID} of activity {@code a} */
+  public UUID activityID(int a) {
+    return id(activityIDs, a);
+  }
+
+  /** @return activity {@code a}'s primary label */
+  public String activityShortDescription(int a) {
+    return activityShort[a];
+  }
+
+  /** @return activity {@code a}'s additional information */
+  public String activityLongDescription(int a) {
+    return activityLong[a];
+  }
+
+  /** @return activity {@code a}'s cap, {@code 0} meaning unlimited */
+  public int activityCap(int a) {
+    return activityCaps[a];
+  }
+
+  /** @return activity {@code a}'s default slot cap */
+  public int activitySlotCapDefault(int a) {
+    return activitySlotDefaults[a];
+  }
+
+  /** @return activity {@code a}'s display rank */
+  public int activityPriority(int a) {
+    return activityPriorities[a];
+  }
+
+  /** @return the index of an activity, or {@code -1} if it is not in this event */
+  public int activityIndex(UUID activity) {
+    return scan(activityIDs, activity);
+  }
+
+  /** @return the number of windows */
+  public int windows() {
+    return windowBegins.length;
+  }
+
+  /** @return the {@link UUID} of window {@code w} */
+  public UUID windowID(int w) {
+    return id(windowIDs, w);
+  }
+
+  /** @return when window {@code w} begins, in epoch milliseconds */
+  public long windowBegin(int w) {
+    return windowBegins[w];
+  }
+
+  /** @return when window {@code w} ends, in epoch milliseconds, or {@link #NO_END} */
+  public long windowEnd(int w) {
+    return windowEnds[w];
+  }
+
+  /** @return the index of a window, or {@code -1} if it is not in this event */
+  public int windowIndex(UUID window) {
+    return scan(windowIDs, window);
+  }
+
+  /**
+   * Retrieves a slot's cap.
+   *
+   * @param a the activity's index
+   * @param w the window's index
+   * @return the slot's cap, {@code 0} meaning unlimited, or {@link #NO_SLOT}
+   *         if activity {@code a} does not run in window {@code w}
+   */
+  public int slotCap(int a, int w) {
+    return slotCaps[a][w];
+  }
+
+  /**
+   * Counts the RSVPs to a slot.
+   *
+   * @param a the activity's index
+   * @param w the window's index
+   * @return the number of volunteers signed up
+   */
+  public int slotCount(int a, int w) {
+    int s = a * windows() + w;
+    return rsvpOffsets[s + 1] - rsvpOffsets[s];
+  }
+
+  /**
+   * Counts the RSVPs to an activity, across all of its slots.
+   *
+   * @param a the activity's index
+   * @return the number of volunteers signed up
+   */
+  public int activityCount(int a) {
+    int n = windows();
+    return rsvpOffsets[(a + 1) * n] - rsvpOffsets[a * n];
+  }
+
+  /**
+   * Visits the volunteers signed up to a slot, in the order they signed up.
+   *
+   * @param a the activity's index
+   * @param w the window's index
+   * @param visitor given each volunteer's index
+   */
+  public void forEachRSVP(int a, int w, IntConsumer visitor) {
+    int s = a * windows() + w;
+    for(int i = rsvpOffsets[s]; i < rsvpOffsets[s + 1]; i++)
+      visitor.accept(rsvpVolunteers[i]);
+  }
+
+  /** @return the number of details */
+  public int details() {
+    return detailTypes.length;
+  }
+
+  /** @return the {@link UUID} of detail {@code d} */
+  public UUID detailID(int d) {
+    return id(detailIDs, d);
+  }
+
+  /** @return detail {@code d}'s type */
+  public Detail.Type detailType(int d) {
+    return detailTypes[d];
+  }
+
+  /** @return detail {@code d}'s label */
+  public String detailLabel(int d) {
+    return detailLabels[d];
+  }
+
+  /** @return detail {@code d}'s hint */
+  public String detailHint(int d) {
+    return detailHints[d];
+  }
+
+  /** @return detail {@code d}'s display rank */
+  public int detailPriority(int d) {
+    return detailPriorities[d];
+  }
+
+  /** @return whether detail {@code d} must be answered */
+  public boolean detailRequired(int d) {
+    return detailRequired[d];
+  }
+
+  /** @return the number of volunteers */
+  public int volunteers() {
+    return volunteerNames.length;
+  }
+
+  /** @return the {@link UUID} of volunteer {@code v} */
+  public UUID volunteerID(int v) {
+    return id(volunteerIDs, v);
+  }
+
+  /** @return the {@link UUID} of volunteer {@code v}'s account, or {@code null} */
+  public UUID volunteerUser(int v) {
+    return 0L == volunteerUsers[v * 2] && 0L == volunteerUsers[v * 2 + 1]
+        ? null
+        : id(volunteerUsers, v);
+  }
+
+  /** @return volunteer {@code v}'s name */
+  public String volunteerName(int v) {
+    return volunteerNames[v];
+  }
+
+  /** @return whether volunteer {@code v} asked for reminders */
+  public boolean volunteerRemindersEnabled(int v) {
+    return volunteerReminders[v];
+  }
+
+  /** @return where volunteer {@code v}'s reminder address stands */
+  public Volunteer.ReminderState volunteerReminderState(int v) {
+    return Volunteer.ReminderState.fromOrdinal(volunteerReminderStates[v]);
+  }
+
+  /**
+   * Finds a volunteer by id.
+   *
+   * @param volunteer the {@link UUID} of the {@link Volunteer}
+   * @return the volunteer's index, or {@code -1} if they are not in this event
+   */
+  public int volunteerIndex(UUID volunteer) {
+    long hi = volunteer.getMostSignificantBits();
+    long lo = volunteer.getLeastSignificantBits();
+    int low = 0;
+    int high = volunteersByID.length - 1;
+    while(low <= high) {
+      int mid = (low + high) >>> 1;
+      int v = volunteersByID[mid];
+      int cmp = compare(volunteerIDs, v, hi, lo);
+      if(0 > cmp) low = mid + 1;
+      else if(0 < cmp) high = mid - 1;
+      else return v;
+    }
+    return -1;
+  }
+
+  /** @return how many details volunteer {@code v} answered */
+  public int answers(int v) {
+    return answerOffsets[v + 1] - answerOffsets[v];
+  }
+
+  /** @return the detail index of volunteer {@code v}'s {@code k}th answer, in detail order */
+  public int answerDetail(int v, int k) {
+    return answerDetails[answerOffsets[v] + k];
+  }
+
+  /** @return volunteer {@code v}'s {@code k}th answer, in detail order */
+  public String answerValue(int v, int k) {
+    return answerValues[answerOffsets[v] + k];
+  }
+
+  private static UUID id(long[] ids, int idx) {
+    return new UUID(ids[idx * 2], ids[idx * 2 + 1]);
+  }
+
+  private static int scan(long[] ids, UUID id) {
+    // Activities, windows and details number in the tens; a scan of a
+    // contiguous array beats any index worth keeping.
+    long hi = id.getMostSignificantBits();
+    long lo = id.getLeastSignificantBits();
+    for(int i = 0; i < ids.length; i += 2)
+      if(hi == ids[i] && lo == ids[i + 1]) return i / 2;
+    return -1;
+  }
+
+  private static int compare(long[] ids, int idx, long hi, long lo) {
+    int cmp = Long.compare(ids[idx * 2], hi);
+    return 0 != cmp ? cmp : Long.compare(ids[idx * 2 + 1], lo);
+  }
+
+  private static long[] pack(long[] ids, int idx, UUID id) {
+    if(null != id) {
+      ids[idx * 2] = id.getMostSignificantBits();
+      ids[idx * 2 + 1] = id.getLeastSignificantBits();
+    }
+    return ids;
+  }
+
+  /**
+   * Fills the arrays a section at a time. Its maps are only used while
+   * building, and go with it.
+   */
+  private static final class Builder {
+
+    private final UUID eventID;
+    private final Map<UUID, Integer> activityIndex = new HashMap<>();
+    private final Map<UUID, Integer> windowIndex = new HashMap<>();
+    private final Map<UUID, Integer> detailIndex = new HashMap<>();
+    private final Map<UUID, Integer> volunteerIndex = new HashMap<>();
+
+    private long[] activityIDs;
+    private String[] activityShort;
+    private String[] activityLong;
+    private int[] activityCaps;
+    private int[] activitySlotDefaults;
+    private int[] activityPriorities;
+    private long[] windowIDs;
+    private long[] windowBegins;
+    private long[] windowEnds;
+    private int[][] slotCaps;
+    private long[] detailIDs;
+    private Detail.Type[] detailTypes;
+    private String[] detailLabels;
+    private String[] detailHints;
+    private int[] detailPriorities;
+    private boolean[] detailRequired;
+    private long[] volunteerIDs;
+    private long[] volunteerUsers;
+    private String[] volunteerNames;
+    private boolean[] volunteerReminders;
+    private byte[] volunteerReminderStates;
+    private int[] volunteersByID;
+    private int[] answerOffsets;
+    private int[] answerDetails;
+    private String[] answerValues;
+    private int[] rsvpOffsets;
+    private int[] rsvpVolunteers;
+
+    private Builder(UUID eventID) {
+      this.eventID = eventID;
+    }
+
+    private Builder activities(Collection<Activity> activities) {
+      int n = activities.size();
+      activityIDs = new long[n * 2];
+      activityShort = new String[n];
+      activityLong = new String[n];
+      activityCaps = new int[n];
+      activitySlotDefaults = new int[n];
+      activityPriorities = new int[n];
+      int a = 0;
+      for(var activity : activities) {
+        activityIndex.put(activity.getID(), a);
+        pack(activityIDs, a, activity.getID());
+        activityShort[a] = activity.getShortDescription();
+        activityLong[a] = activity.getLongDescription();
+        activityCaps[a] = activity.getMaxActivityVolunteers();
+        activitySlotDefaults[a] = activity.getMaxSlotVolunteersDefault();
+        activityPriorities[a] = activity.getPriority();
+        a++;
+      }
+      return this;
+    }
+
+    private Builder windows(Collection<Window> windows) {
+      int n = windows.size();
+      windowIDs = new long[n * 2];
+      windowBegins = new long[n];
+      windowEnds = new long[n];
+      int w = 0;
+      for(var window : windows) {
+        windowIndex.put(window.getID(), w);
+        pack(windowIDs, w, window.getID());
+        windowBegins[w] = window.getBeginTime().getTime();
+        windowEnds[w] = null == window.getEndTime() ? NO_END : window.getEndTime().getTime();
+        w++;
+      }
+      return this;
+    }
+
+    private Builder slots(Collection<Slot> slots) {
+      slotCaps = new int[activityCaps.length][windowBegins.length];
+      for(var row : slotCaps)
+        Arrays.fill(row, NO_SLOT);
+      for(var slot : slots) {
+        Integer a = activityIndex.get(slot.getActivity());
+        Integer w = windowIndex.get(slot.getWindow());
+        if(null != a && null != w)
+          slotCaps[a][w] = slot.getMaxSlotVolunteers();
+      }
+      return this;
+    }
+
+    private Builder details(Collection<Detail> details) {
+      int n = details.size();
+      detailIDs = new long[n * 2];
+      detailTypes = new Detail.Type[n];
+      detailLabels = new String[n];
+      detailHints = new String[n];
+      detailPriorities = new int[n];
+      detailRequired = new boolean[n];
+      int d = 0;
+      for(var detail : details) {
+        detailIndex.put(detail.getID(), d);
+        pack(detailIDs, d, detail.getID());
+        detailTypes[d] = detail.getType();
+        detailLabels[d] = detail.getLabel();
+        detailHints[d] = detail.getHint();
+        detailPriorities[d] = detail.getPriority();
+        detailRequired[d] = detail.isRequired();
+        d++;
+      }
+      return this;
+    }
+
+    private Builder volunteers(Collection<Volunteer> volunteers) {
+      int n = volunteers.size();
+      volunteerIDs = new long[n * 2];
+      volunteerUsers = new long[n * 2];
+      volunteerNames = new String[n];
+      volunteerReminders = new boolean[n];
+      volunteerReminderStates = new byte[n];
+      answerOffsets = new int[n + 1];
+
+      // Values are deduplicated against each other here, not String.intern()ed
+      // into the JVM's table, where they would outlive the snapshot.
+      Map<String, String> values = new HashMap<>();
+      int[] order = new int[detailTypes.length];
+      String[] answered = new String[detailTypes.length];
+      int total = 0;
+      for(var volunteer : volunteers) total += volunteer.getDetails().size();
+      answerDetails = new int[total];
+      answerValues = new String[total];
+
+      int v = 0;
+      int k = 0;
+      for(var volunteer : volunteers) {
+        volunteerIndex.put(volunteer.getID(), v);
+        pack(volunteerIDs, v, volunteer.getID());
+        pack(volunteerUsers, v, volunteer.getUser());
+        volunteerNames[v] = volunteer.getName();
+        volunteerReminders[v] = volunteer.remindersEnabled();
+        volunteerReminderStates[v] = (byte)volunteer.getReminderState().ordinal();
+
+        // In detail order, whatever order the volunteer's map is in.
+        int count = 0;
+        for(var answer : volunteer.getDetails().entrySet()) {
+          Integer d = detailIndex.get(answer.getKey().getID());
+          if(null == d || null == answer.getValue()) continue;
+          order[count++] = d;
+          answered[d] = values.computeIfAbsent(answer.getValue(), value -> value);
+        }
+        Arrays.sort(order, 0, count);
+        for(int i = 0; i < count; i++) {
+          answerDetails[k + i] = order[i];
+          answerValues[k + i] = answered[order[i]];
+        }
+        k += count;
+        answerOffsets[++v] = k;
+      }
+      if(k < total) {
+        answerDetails = Arrays.copyOf(answerDetails, k);
+        answerValues = Arrays.copyOf(answerValues, k);
+      }
+
+      Integer[] byID = new Integer[n];
+      for(int i = 0; i < n; i++) byID[i] = i;
+      Arrays.sort(
+          byID,
+          (x, y) -> compare(volunteerIDs, x, volunteerIDs[y * 2], volunteerIDs[y * 2 + 1]));
+      volunteersByID = new int[n];
+      for(int i = 0; i < n; i++) volunteersByID[i] = byID[i];
+      return this;
+    }
+
+    private Builder rsvps(Collection<RSVP> rsvps) {
+      int windows = windowBegins.length;
+      int[] slotOf = new int[rsvps.size()];
+      int[] volunteerOf = new int[rsvps.size()];
+      rsvpOffsets = new int[activityCaps.length * windows + 1];
+
+      // Counted into the offsets first, then placed, so that each slot's run
+      // keeps the order the RSVPs came in.
+      int kept = 0;
+      for(var rsvp : rsvps) {
+        Integer a = activityIndex.get(rsvp.getActivity());
+        Integer w = windowIndex.get(rsvp.getWindow());
+        Integer v = volunteerIndex.get(rsvp.getVolunteerID());
+        if(null == a || null == w || null == v) continue;
+        slotOf[kept] = a * windows + w;
+        volunteerOf[kept++] = v;
+        rsvpOffsets[a * windows + w + 1]++;
+      }
+      for(int s = 1; s < rsvpOffsets.length; s++)
+        rsvpOffsets[s] += rsvpOffsets[s - 1];
+
+      rsvpVolunteers = new int[kept];
+      int[] next = Arrays.copyOf(rsvpOffsets, rsvpOffsets.length - 1);
+      for(int i = 0; i < kept; i++)
+        rsvpVolunteers[next[slotOf[i]]++] = volunteerOf[i];
+      return this;
+    }
+
+    private EventSnapshot build() {
+      return new EventSnapshot(this);
+    }
+  }
+}
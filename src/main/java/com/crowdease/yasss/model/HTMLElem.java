@@ -7,10 +7,9 @@
  */
 package com.crowdease.yasss.model;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
 /**
  * Represents a simple HTML element.
@@ -23,6 +22,16 @@ import java.util.Map;
  * Attribute values are escaped unconditionally, since there is no legitimate
  * reason to inject markup into one.
  *
+ * <p>A tree renders by {@link #writeTo(Appendable)}, which walks it once and
+ * appends straight to the destination, escaping as it goes. The report is a
+ * few thousand of these, most of them a cell holding a single string, so
+ * storage is sized for that: attributes and children live in small arrays
+ * allocated on first use, rather than a map and a list per element whether or
+ * not anything goes in them. {@link #toString()} is the same walk into a
+ * {@link StringBuilder}; it used to format every element into a fresh string
+ * and then copy that into its parent's, so each byte of a deep report was
+ * copied once per level above it.
+ *
  * @author Caleb L. Power <cpower@crowdease.com>
  */
 public class HTMLElem {
@@ -31,20 +40,58 @@ public class HTMLElem {
    * Escapes a string for use as element content or in a double-quoted
    * attribute value.
    *
-   * <p>The ampersand is replaced first; doing it last would re-escape the
-   * ampersands the other replacements just introduced.
-   *
    * @param raw the text to escape, which may be {@code null}
    * @return the escaped text, or an empty string if {@code raw} was null
    */
   public static String escape(String raw) {
     if(null == raw) return "";
-    return raw
-      .replace("&", "&amp;")
-      .replace("<", "&lt;")
-      .replace(">", "&gt;")
-      .replace("\"", "&quot;")
-      .replace("'", "&#39;");
+    // Most text has nothing to escape, and comes back as it went in.
+    int i = 0;
+    while(i < raw.length() && null == entity(raw.charAt(i))) i++;
+    if(raw.length() == i) return raw;
+
+    StringBuilder sb = new StringBuilder(raw.length() + 16);
+    try {
+      escapeTo(sb, raw);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e); // a StringBuilder does not throw
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Appends a string, escaped, without building the escaped copy.
+   *
+   * <p>One pass over the input, so each character is replaced exactly once;
+   * the chain of {@code String.replace} calls this supersedes had to put the
+   * ampersand first, or it re-escaped the entities the others introduced.
+   *
+   * @param out the destination
+   * @param raw the text to escape, which may be {@code null}
+   * @throws IOException if {@code out} does
+   */
+  static void escapeTo(Appendable out, String raw) throws IOException {
+    if(null == raw) return;
+    int run = 0;
+    for(int i = 0; i < raw.length(); i++) {
+      String entity = entity(raw.charAt(i));
+      if(null == entity) continue;
+      if(run < i) out.append(raw, run, i);
+      out.append(entity);
+      run = i + 1;
+    }
+    if(run < raw.length()) out.append(raw, run, raw.length());
+  }
+
+  private static String entity(char c) {
+    switch(c) {
+      case '&': return "&amp;";
+      case '<': return "&lt;";
+      case '>': return "&gt;";
+      case '"': return "&quot;";
+      case '\'': return "&#39;";
+      default: return null;
+    }
   }
 
   /**
@@ -61,17 +108,34 @@ public class HTMLElem {
    * @return an object whose {@code toString} is the escaped text
    */
   public static Object text(String raw) {
-    final String escaped = escape(raw);
-    return new Object() {
-      @Override public String toString() {
-        return escaped;
-      }
-    };
+    return new Text(raw);
+  }
+
+  /**
+   * Text held raw and escaped on the way out, so that a tree written with
+   * {@link #writeTo(Appendable)} never builds an escaped copy of it.
+   */
+  private static final class Text {
+
+    private final String raw;
+
+    private Text(String raw) {
+      this.raw = raw;
+    }
+
+    @Override public String toString() {
+      return escape(raw);
+    }
   }
 
-  private List<Object> vals = new ArrayList<>();
-  private Map<String, String> attrs = new HashMap<>();
-  private String tagName = null;
+  private static final Object[] NONE = new Object[0];
+  private static final String[] NO_ATTRS = new String[0];
+
+  private final String tagName;
+  private Object[] vals = NONE;
+  private int valCount = 0;
+  private String[] attrs = NO_ATTRS; // key, value, key, value...
+  private int attrCount = 0;
 
   /**
    * Instantiates the HTML element.
@@ -85,12 +149,24 @@ public class HTMLElem {
   /**
    * A key-value attribute to include within the angle brackets of this HTML element.
    *
+   * <p>Setting a key again replaces its value. Attributes render in the order
+   * they were first set.
+   *
    * @param key the attribute's key
    * @param value the attribute's value (without quotes)
    * @return this {@link HTMLElem} instance
    */
   public HTMLElem attr(String key, String val) {
-    this.attrs.put(key, val);
+    for(int i = 0; i < attrCount; i += 2) {
+      if(attrs[i].equals(key)) {
+        attrs[i + 1] = val;
+        return this;
+      }
+    }
+    if(attrs.length == attrCount)
+      attrs = Arrays.copyOf(attrs, Math.max(4, attrCount * 2));
+    attrs[attrCount++] = key;
+    attrs[attrCount++] = val;
     return this;
   }
 
@@ -103,8 +179,9 @@ public class HTMLElem {
    * @return this {@link HTMLElem} instance
    */
   public HTMLElem push(Object... vals) {
-    for(var val : vals)
-      this.vals.add(val);
+    grow(vals.length);
+    System.arraycopy(vals, 0, this.vals, valCount, vals.length);
+    valCount += vals.length;
     return this;
   }
 
@@ -113,36 +190,65 @@ public class HTMLElem {
    *
    * @param val the value (which can be another element) to insert
    * @return this {@link HTMLElem} instance
+   * @throws IndexOutOfBoundsException if {@code idx} is negative or past the
+   *         last value
    */
   public HTMLElem insert(int idx, Object val) {
-    this.vals.add(idx, val);
+    if(0 > idx || valCount < idx)
+      throw new IndexOutOfBoundsException(
+          String.format("index %1$d, size %2$d", idx, valCount));
+    grow(1);
+    System.arraycopy(vals, idx, vals, idx + 1, valCount - idx);
+    vals[idx] = val;
+    valCount++;
     return this;
   }
 
+  private void grow(int more) {
+    if(vals.length - valCount >= more) return;
+    // Most elements hold one value, so the first allocation is exact.
+    vals = Arrays.copyOf(vals, Math.max(valCount + more, vals.length * 2));
+  }
+
+  /**
+   * Renders this element and everything in it.
+   *
+   * @param out the destination
+   * @throws IOException if {@code out} does
+   */
+  public void writeTo(Appendable out) throws IOException {
+    out.append('<').append(tagName);
+    // Unconditional: every value passed here today is a constant, so this
+    // changes no output, and it means an attribute can never become an
+    // injection point if that stops being true.
+    for(int i = 0; i < attrCount; i += 2) {
+      out.append(' ').append(attrs[i]).append("=\"");
+      escapeTo(out, attrs[i + 1]);
+      out.append('"');
+    }
+    out.append('>');
+
+    for(int i = 0; i < valCount; i++) {
+      Object val = vals[i];
+      if(val instanceof HTMLElem) ((HTMLElem)val).writeTo(out);
+      else if(val instanceof Text) escapeTo(out, ((Text)val).raw);
+      else out.append(val.toString());
+    }
+
+    out.append("</").append(tagName).append('>');
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override public String toString() {
-    StringBuilder attrSB = new StringBuilder();
-    for(var attr : attrs.entrySet())
-      attrSB.append(
-          String.format(
-              // Unconditional: every value passed here today is a constant, so
-              // this changes no output, and it means an attribute can never
-              // become an injection point if that stops being true.
-              " %1$s=\"%2$s\"",
-              attr.getKey(),
-              escape(attr.getValue())));
-    
-    StringBuilder valSB = new StringBuilder();
-    for(var val : vals)
-      valSB.append(val.toString());
-    
-    return String.format(
-        "<%1$s%2$s>%3$s</%1$s>",
-        tagName,
-        attrSB.toString(),
-        valSB.toString());
+    StringBuilder sb = new StringBuilder();
+    try {
+      writeTo(sb);
+    } catch(IOException e) {
+      throw new UncheckedIOException(e); // a StringBuilder does not throw
+    }
+    return sb.toString();
   }
   
 }
@@ -30,8 +30,6 @@ package com.crowdease.yasss.model;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -295,24 +293,8 @@ public class JSONDeserializer {
     var value = getString(token);
     if(null == value) return null;
 
-    final SimpleDateFormat[] sdfArr = {
-        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS"),
-        new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"),
-        new SimpleDateFormat("yyyy-MM-dd HH:mm"),
-        new SimpleDateFormat("yyyy-MM-dd hh:mm:ss.SSS a"),
-        new SimpleDateFormat("yyyy-MM-dd hh:mm:ss a"),
-        new SimpleDateFormat("yyyy-MM-dd hh:mm a"),
-        new SimpleDateFormat("yyyy-MM-dd")
-    };
-    for(int i = 0; i < sdfArr.length; i++) {
-      try {
-        return new Timestamp(sdfArr[i].parse(value).getTime());
-      } catch(ParseException e) { }
-    }
-
-    try { // if standard formats fail, try UNIX timestamp format
-      return new Timestamp(Long.parseLong(value));
-    } catch(NumberFormatException e) { }
+    Timestamp timestamp = DateFormats.parse(value);
+    if(null != timestamp) return timestamp;
     
     throw new DeserializationException("malformed argument (timestamp: %1$s)", token);
   }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+
+/**
+ * A named, time-bounded claim on cluster-wide work.
+ *
+ * <p>The row is the arbiter, the same way {@code reminder_log}'s primary key is
+ * for reminder sends: whoever the row names after an upsert holds the lease,
+ * and nobody else. There is no in-memory shortcut, because the whole point is
+ * agreement between processes that share nothing but the database.
+ *
+ * <p>Acquisition and renewal are the same statement. A holder renewing its own
+ * lease and a node taking over a lapsed one both just try to write their own id
+ * with a fresh expiry; the upsert refuses unless the row is theirs already or
+ * has expired. See {@code 027_table_lease.sql} for the table.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class Lease {
+
+  /**
+   * Attempts to acquire or renew a lease.
+   *
+   * <p>One upsert and one read-back, not a transaction. The read-back is what
+   * answers the question, and it cannot be fooled by the gap between the two:
+   * the only thing that can change the holder in between is expiry, which is a
+   * whole TTL away from a row that was just written.
+   *
+   * <p>The assignments in {@code ON DUPLICATE KEY UPDATE} run left to right and
+   * see each other's results, which the second one relies on: by the time it
+   * runs, {@code holder} already says whether this caller won.
+   *
+   * @param name the lease
+   * @param holder the would-be holder
+   * @param now the caller's current epoch millisecond
+   * @param ttl how long the lease lasts if granted, in milliseconds
+   * @return {@code true} if {@code holder} holds the lease until {@code now + ttl}
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static boolean acquire(String name, UUID holder, long now, long ttl) throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          String.format(
+              "INSERT INTO %1$slease (name, holder, expires_at) VALUES (?, ?, ?) "
+              + "ON DUPLICATE KEY UPDATE "
+              + "holder = IF(holder = VALUES(holder) OR expires_at < ?, VALUES(holder), holder), "
+              + "expires_at = IF(holder = VALUES(holder), VALUES(expires_at), expires_at)",
+              YasssCore.getDB().getPrefix()));
+      stmt.setBytes(1, name.getBytes(StandardCharsets.US_ASCII));
+      stmt.setBytes(2, SQLBuilder.uuidToBytes(holder));
+      stmt.setLong(3, now + ttl);
+      stmt.setLong(4, now);
+      stmt.executeUpdate();
+      stmt.close();
+
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  YasssCore.getDB().getPrefix() + "lease",
+                  "holder")
+              .where("name")
+              .toString());
+      stmt.setBytes(1, name.getBytes(StandardCharsets.US_ASCII));
+      res = stmt.executeQuery();
+
+      return res.next() && holder.equals(SQLBuilder.bytesToUUID(res.getBytes("holder")));
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
+  /**
+   * Gives up a lease, if it is held by this holder.
+   *
+   * <p>Expires the row rather than deleting it, so that a release racing a
+   * takeover can never delete the new holder's claim -- the holder condition
+   * already prevents that, but an update that merely does nothing is the safer
+   * shape of the two.
+   *
+   * @param name the lease
+   * @param holder the holder giving it up
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static void release(String name, UUID holder) throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .update(
+                  YasssCore.getDB().getPrefix() + "lease",
+                  "expires_at")
+              .where("name")
+              .where("holder")
+              .toString());
+      stmt.setLong(1, 0L);
+      stmt.setBytes(2, name.getBytes(StandardCharsets.US_ASCII));
+      stmt.setBytes(3, SQLBuilder.uuidToBytes(holder));
+      stmt.executeUpdate();
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, null);
+    }
+  }
+
+  private Lease() { }
+
+}
@@ -17,6 +17,7 @@ package com.crowdease.yasss.model;
 
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Supplier;
 
 import com.crowdease.yasss.YasssCore;
 import com.crowdease.yasss.model.Mail.MailInstantiationException.InstantiationFailure;
@@ -46,7 +47,8 @@ public class Mail {
   private static final String CONTENT_TEMPLATE = "/mail/content/%1$s.json";
   private static final Logger logger = LoggerFactory.getLogger(Mail.class);
   
-  private static Mailer mailer = null;
+  private static volatile Mailer mailer = null;
+  private static Supplier<Mailer> mailerFactory = null;
   private static Recipient sender = null;
   private static String accentColor = null;
   private static String headerImage = null;
@@ -55,6 +57,12 @@ public class Mail {
    * Initializes the mailer. If this method is not invoked, the mailer is assumed
    * to be disabled.
    *
+   * <p>The transport is checked here, so that a misspelt one still fails the
+   * boot, but the mailer itself is built on the first {@link #send()}. Building
+   * it pulls in Jakarta Mail and starts its thread pool, which was a noticeable
+   * share of a cold start spent on something most boots never use before the
+   * first signup.
+   *
    * @param smtpHost the hostname or IP of the SMTP server
    * @param smtpPort the port number associated with the SMTP service
    * @param smtpUser the username associated with the SMTP sender
@@ -63,15 +71,26 @@ public class Mail {
    * @param senderName the human-readable informal name of the sender
    */
   public static void initMailer(String smtpHost, int smtpPort, String smtpUser, String smtpPass, String transport, String senderAddr, String senderName) {
-    Mail.mailer = MailerBuilder
+    final TransportStrategy strategy = TransportStrategy.valueOf(transport);
+    Mail.mailerFactory = () -> MailerBuilder
       .withSMTPServer(smtpHost, smtpPort, smtpUser, smtpPass)
-      .withTransportStrategy(TransportStrategy.valueOf(transport))
+      .withTransportStrategy(strategy)
       .withDebugLogging(YasssCore.debugEnabled())
       .withThreadPoolSize(20)
       .buildMailer();
+    Mail.mailer = null;
     Mail.sender = new Recipient(senderName, senderAddr, null);
   }
 
+  private static Mailer mailer() {
+    Mailer built = mailer;
+    if(null != built || null == mailerFactory) return built;
+    synchronized(Mail.class) {
+      if(null == mailer) mailer = mailerFactory.get();
+      return mailer;
+    }
+  }
+
   /**
    * Sets some global template parameters. This must be called at least once,
    * even if the mailer isn't actually going to send anything out.
@@ -250,6 +269,7 @@ public class Mail {
    * @return {@code true} if the message was handed to the mailer
    */
   public boolean send() {
+    Mailer mailer = mailer();
     if(null == mailer) {
       logger.warn("mailer not instantiated (check config?)");
       return false;
@@ -22,6 +22,7 @@ import java.util.UUID;
 import com.axonibyte.lib.db.SQLBuilder;
 import com.axonibyte.lib.db.Wrapper;
 import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.metrics.Metrics;
 
 /**
  * Represents a volunteer's "sign-up" to an event.
@@ -44,10 +45,13 @@ public class RSVP {
     private final UUID activity;
     private final UUID window;
 
-    private CapacityException(UUID activity, UUID window) {
+    CapacityException(UUID activity, UUID window) {
       super(String.format("slot %s/%s is full", activity, window));
       this.activity = activity;
       this.window = window;
+      // Counted where it is made rather than where it is caught: every one of
+      // these is a refusal, and there is more than one place that catches them.
+      Metrics.CAPACITY_REJECTIONS.inc();
     }
 
     /** @return the {@link UUID} of the {@link Activity} that was full */
@@ -123,11 +127,17 @@ public class RSVP {
   /** The claim itself, once the caller's arguments are in one shape. */
   private static void claimAll(List<RSVP> wanted) throws SQLException {
     if(wanted.isEmpty()) return;
+    // Before the transaction, which is the point: see CapacityLedger.
+    CapacityLedger.refuse(wanted);
     YasssCore.getDB().transaction(con -> {
       con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
       claimWithin(con, wanted);
       return null;
     });
+    // Again, now that the seats are committed: the notices claimWithin gave
+    // from inside the transaction may be acted on before it commits.
+    for(var rsvp : wanted)
+      EventChanges.activity(rsvp.getActivity());
   }
 
   /**
@@ -154,19 +164,55 @@ public class RSVP {
     final List<RSVP> wanted = new ArrayList<>();
     for(var slot : slots)
       wanted.add(new RSVP(slot.getActivity(), slot.getWindow(), volunteer));
+    // Inside the caller's transaction, but still ahead of the activity locks
+    // a full slot would otherwise queue for.
+    CapacityLedger.refuse(wanted);
     claimWithin(con, wanted);
   }
 
-  private static void claimWithin(Connection con, List<RSVP> wanted) throws SQLException {
-    if(wanted.isEmpty()) return;
-
+  /**
+   * Takes the activity locks that several claims in one transaction will need,
+   * up front.
+   *
+   * <p>For a caller claiming on behalf of many volunteers at once. Each
+   * {@link #claimWithin(Connection, Collection, UUID)} locks its own activities
+   * in id order, which is enough for one volunteer; across several calls, a
+   * later volunteer may name an activity that sorts before one an earlier
+   * volunteer already locked, and the transaction as a whole has then locked
+   * out of order with respect to a concurrent signup. Locking the union first
+   * restores the order. Locking a row this transaction already holds costs
+   * nothing, so the per-call locks that follow are harmless.
+   *
+   * @param con the {@link Connection} running the transaction
+   * @param activities the {@link UUID}s of every {@link Activity} to be claimed
+   *        in, in any order
+   * @throws CapacityException if an activity no longer exists
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static void lockWithin(Connection con, Collection<UUID> activities)
+      throws SQLException {
     final String prefix = YasssCore.getDB().getPrefix();
+    for(var activity : inLockOrder(activities))
+      lockActivity(con, prefix, activity);
+  }
 
-    List<UUID> activities = wanted.stream()
-        .map(RSVP::getActivity)
+  /** The order every caller must lock activities in. */
+  private static List<UUID> inLockOrder(Collection<UUID> activities) {
+    return activities.stream()
         .distinct()
         .sorted(Comparator.comparing(UUID::toString))
         .toList();
+  }
+
+  private static void claimWithin(Connection con, List<RSVP> wanted) throws SQLException {
+    if(wanted.isEmpty()) return;
+
+    final String prefix = YasssCore.getDB().getPrefix();
+
+    List<UUID> activities = inLockOrder(
+        wanted.stream()
+            .map(RSVP::getActivity)
+            .toList());
 
     Map<UUID, Integer> activityCaps = new LinkedHashMap<>();
     for(var activity : activities)
@@ -190,6 +236,11 @@ public class RSVP {
       // same starting number.
       insert(con, prefix, rsvp);
     }
+
+    // Given before the caller commits, which may be never. A listener looks
+    // again rather than believing it; see EventChanges.
+    for(var activity : activities)
+      EventChanges.activity(activity);
   }
 
   /**
@@ -301,6 +352,15 @@ public class RSVP {
     return window;
   }
 
+  /**
+   * Retrieves the unique identifier of the volunteer associated with this RSVP.
+   *
+   * @return the {@link UUID} of the {@link Volunteer}
+   */
+  public UUID getVolunteerID() {
+    return volunteer;
+  }
+
   /**
    * Retrieves the volunteer associated with this RSVP.
    *
@@ -374,6 +434,7 @@ public class RSVP {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.activity(activity);
   }
 
   /**
@@ -404,6 +465,7 @@ public class RSVP {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.activity(activity);
   }
   
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.model.Volunteer.PendingReminder;
+
+/**
+ * Everything a reminder sweep needs to render its batch, read up front.
+ *
+ * <p>Rendering a reminder one volunteer at a time looked the volunteer up,
+ * then their RSVPs, then the event's activities and windows, and the event
+ * itself -- four or more round trips per reminder, although a sweep's
+ * reminders are almost all for a handful of events, partitioning by event
+ * being what puts them in the same sweep. This reads the same rows for the
+ * whole batch in four queries, keyed by event and by volunteer, and renders
+ * from memory.
+ *
+ * <p>Nothing here is locked or re-read. A slot claimed or dropped between the
+ * load and the send is shown as it stood at the load, which is a few seconds
+ * at most and the same race the per-reminder reads already had with a request
+ * landing mid-batch.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class ReminderContext {
+
+  private final Map<UUID, String> timezones;
+  private final Map<UUID, Set<Activity>> activities;
+  private final Map<UUID, Set<Window>> windows;
+  private final Map<UUID, Map<UUID, Set<UUID>>> claims;
+
+  /**
+   * Instantiates a context from rows already read.
+   *
+   * @param timezones event id to its zone, for every event that exists
+   * @param activities event id to its activities, in display order
+   * @param windows event id to its windows, in display order
+   * @param claims volunteer id to the window ids claimed under each activity
+   */
+  ReminderContext(
+      Map<UUID, String> timezones,
+      Map<UUID, Set<Activity>> activities,
+      Map<UUID, Set<Window>> windows,
+      Map<UUID, Map<UUID, Set<UUID>>> claims) {
+    this.timezones = timezones;
+    this.activities = activities;
+    this.windows = windows;
+    this.claims = claims;
+  }
+
+  /**
+   * Reads what the given reminders need to render.
+   *
+   * @param pending the reminders in the batch
+   * @return the context for the batch
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static ReminderContext load(Collection<PendingReminder> pending) throws SQLException {
+    Set<UUID> eventIDs = new LinkedHashSet<>();
+    Set<UUID> volunteerIDs = new LinkedHashSet<>();
+    for(var due : pending) {
+      eventIDs.add(due.eventID());
+      volunteerIDs.add(due.volunteerID());
+    }
+
+    Map<UUID, String> timezones = new HashMap<>();
+    Map<UUID, Set<Activity>> activities = new HashMap<>();
+    Map<UUID, Set<Window>> windows = new HashMap<>();
+    Map<UUID, Map<UUID, Set<UUID>>> claims = new HashMap<>();
+
+    // whereIn() with a count of zero emits a literal "IN ()", which is a
+    // syntax error, and an empty batch needs nothing anyway.
+    if(eventIDs.isEmpty())
+      return new ReminderContext(timezones, activities, windows, claims);
+
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+
+      // Only the zone is read from the event. The title is already on the
+      // pending row, and nothing else about the event reaches the mail.
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  YasssCore.getDB().getPrefix() + "event",
+                  "id",
+                  "timezone")
+              .whereIn("id", false, eventIDs.size())
+              .toString());
+      bind(stmt, eventIDs);
+      res = stmt.executeQuery();
+
+      while(res.next())
+        timezones.put(
+            SQLBuilder.bytesToUUID(
+                res.getBytes("id")),
+            res.getString("timezone"));
+
+      YasssCore.getDB().close(null, stmt, res);
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  YasssCore.getDB().getPrefix() + "activity",
+                  "id",
+                  "event",
+                  "short_description",
+                  "long_description",
+                  "max_activity_volunteers",
+                  "max_slot_volunteers_default",
+                  "priority")
+              .whereIn("event", false, eventIDs.size())
+              .toString());
+      bind(stmt, eventIDs);
+      res = stmt.executeQuery();
+
+      // TreeSets, as Event.getActivities() and Event.getWindows() return, so
+      // that the display order is the one the entities define.
+      while(res.next()) {
+        UUID event = SQLBuilder.bytesToUUID(res.getBytes("event"));
+        activities
+            .computeIfAbsent(event, e -> new TreeSet<>())
+            .add(
+                new Activity(
+                    SQLBuilder.bytesToUUID(
+                        res.getBytes("id")),
+                    event,
+                    res.getString("short_description"),
+                    res.getString("long_description"),
+                    res.getInt("max_activity_volunteers"),
+                    res.getInt("max_slot_volunteers_default"),
+                    res.getInt("priority")));
+      }
+
+      YasssCore.getDB().close(null, stmt, res);
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  YasssCore.getDB().getPrefix() + "event_window",
+                  "id",
+                  "event",
+                  "begin_time",
+                  "end_time")
+              .whereIn("event", false, eventIDs.size())
+              .toString());
+      bind(stmt, eventIDs);
+      res = stmt.executeQuery();
+
+      while(res.next()) {
+        UUID event = SQLBuilder.bytesToUUID(res.getBytes("event"));
+        windows
+            .computeIfAbsent(event, e -> new TreeSet<>())
+            .add(
+                new Window(
+                    SQLBuilder.bytesToUUID(
+                        res.getBytes("id")),
+                    event,
+                    res.getTimestamp("begin_time"),
+                    res.getTimestamp("end_time")));
+      }
+
+      YasssCore.getDB().close(null, stmt, res);
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  YasssCore.getDB().getPrefix() + "rsvp",
+                  "activity",
+                  "event_window",
+                  "volunteer")
+              .whereIn("volunteer", false, volunteerIDs.size())
+              .toString());
+      bind(stmt, volunteerIDs);
+      res = stmt.executeQuery();
+
+      while(res.next())
+        claims
+            .computeIfAbsent(
+                SQLBuilder.bytesToUUID(
+                    res.getBytes("volunteer")),
+                v -> new HashMap<>())
+            .computeIfAbsent(
+                SQLBuilder.bytesToUUID(
+                    res.getBytes("activity")),
+                a -> new HashSet<>())
+            .add(
+                SQLBuilder.bytesToUUID(
+                    res.getBytes("event_window")));
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+
+    return new ReminderContext(timezones, activities, windows, claims);
+  }
+
+  private static void bind(PreparedStatement stmt, Collection<UUID> ids) throws SQLException {
+    int idx = 0;
+    for(var id : ids)
+      stmt.setBytes(++idx, SQLBuilder.uuidToBytes(id));
+  }
+
+  /**
+   * Determines whether a reminder's event still exists.
+   *
+   * @param eventID the event's {@link UUID}
+   * @return {@code true} if the event was found at load
+   */
+  public boolean hasEvent(UUID eventID) {
+    return timezones.containsKey(eventID);
+  }
+
+  /**
+   * Retrieves an event's zone.
+   *
+   * @param eventID the event's {@link UUID}
+   * @return its IANA zone, or {@code null} if it has none or was not found
+   */
+  public String getTimezone(UUID eventID) {
+    return timezones.get(eventID);
+  }
+
+  /**
+   * Renders the slots a reminder's volunteer has claimed.
+   *
+   * @param due the reminder
+   * @return an HTML {@code <ul>}, as {@link VolunteerSummary#rsvpList} renders
+   *         it; empty if they hold no slots
+   */
+  public String rsvpList(PendingReminder due) {
+    return VolunteerSummary.rsvpList(
+        activities.getOrDefault(due.eventID(), Collections.emptySet()),
+        windows.getOrDefault(due.eventID(), Collections.emptySet()),
+        claims.getOrDefault(due.volunteerID(), Collections.emptyMap()),
+        timezones.get(due.eventID()));
+  }
+
+}
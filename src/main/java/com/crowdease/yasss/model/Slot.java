@@ -356,6 +356,7 @@ public class Slot {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.activity(activity);
   }
 
   /**
@@ -384,6 +385,7 @@ public class Slot {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.activity(activity);
   }
   
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * How many seats each slot of an event has taken, as read by
+ * {@link Event#getSlotCounts()}.
+ *
+ * <p>Held as two primitive arrays rather than a map of maps: each slot's key is
+ * the four longs of its activity's and window's ids, side by side in one
+ * array, sorted, with the counts beside them in another. A grid of a few
+ * hundred slots is then two allocations rather than a few hundred {@link UUID}
+ * keys and boxed counts, and both lookups are binary searches. An activity's
+ * slots are adjacent in that order, so its total is one contiguous run.
+ *
+ * <p>A slot with nobody in it is not held at all, and counts as {@code 0}.
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class SlotCounts {
+
+  /** No slot has anybody in it. */
+  public static final SlotCounts EMPTY = new SlotCounts(new long[0], new int[0]);
+
+  private static final int STRIDE = 4;
+
+  private final long[] keys;
+  private final int[] counts;
+
+  private SlotCounts(long[] keys, int[] counts) {
+    this.keys = keys;
+    this.counts = counts;
+  }
+
+  /**
+   * Retrieves how many seats a slot has taken.
+   *
+   * @param activity the {@link UUID} of the {@link Activity}
+   * @param window the {@link UUID} of the {@link Window}
+   * @return the number of {@link RSVP}s to the slot
+   */
+  public int count(UUID activity, UUID window) {
+    int idx = search(
+        activity.getMostSignificantBits(), activity.getLeastSignificantBits(),
+        window.getMostSignificantBits(), window.getLeastSignificantBits());
+    return 0 <= idx ? counts[idx] : 0;
+  }
+
+  /**
+   * Retrieves how many seats an activity has taken, across all of its slots.
+   *
+   * @param activity the {@link UUID} of the {@link Activity}
+   * @return the number of {@link RSVP}s to the activity
+   */
+  public int total(UUID activity) {
+    long hi = activity.getMostSignificantBits();
+    long lo = activity.getLeastSignificantBits();
+    // Below every window of this activity, so the search lands on its first.
+    int idx = search(hi, lo, Long.MIN_VALUE, Long.MIN_VALUE);
+    if(0 > idx) idx = -idx - 1;
+    int total = 0;
+    for(; idx < counts.length
+            && hi == keys[idx * STRIDE]
+            && lo == keys[idx * STRIDE + 1]; idx++)
+      total += counts[idx];
+    return total;
+  }
+
+  /**
+   * Retrieves the number of slots with anybody in them.
+   *
+   * @return the number of slots held
+   */
+  public int size() {
+    return counts.length;
+  }
+
+  private int search(long aHi, long aLo, long wHi, long wLo) {
+    int low = 0;
+    int high = counts.length - 1;
+    while(low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(keys, mid, aHi, aLo, wHi, wLo);
+      if(0 > cmp) low = mid + 1;
+      else if(0 < cmp) high = mid - 1;
+      else return mid;
+    }
+    return -(low + 1);
+  }
+
+  private static int compare(long[] keys, int idx, long aHi, long aLo, long wHi, long wLo) {
+    int at = idx * STRIDE;
+    int cmp = Long.compare(keys[at], aHi);
+    if(0 == cmp) cmp = Long.compare(keys[at + 1], aLo);
+    if(0 == cmp) cmp = Long.compare(keys[at + 2], wHi);
+    if(0 == cmp) cmp = Long.compare(keys[at + 3], wLo);
+    return cmp;
+  }
+
+  /**
+   * Collects counts in whatever order they are read, and sorts them once.
+   */
+  static final class Builder {
+
+    private long[] keys = new long[STRIDE * 16];
+    private int[] counts = new int[16];
+    private int size = 0;
+
+    /**
+     * Adds a slot's count. Each slot is to be added once.
+     *
+     * @param activity the {@link UUID} of the {@link Activity}
+     * @param window the {@link UUID} of the {@link Window}
+     * @param count the number of {@link RSVP}s to the slot
+     * @return this {@link Builder}
+     */
+    Builder add(UUID activity, UUID window, int count) {
+      if(size == counts.length) {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        counts = Arrays.copyOf(counts, counts.length * 2);
+      }
+      int at = size * STRIDE;
+      keys[at] = activity.getMostSignificantBits();
+      keys[at + 1] = activity.getLeastSignificantBits();
+      keys[at + 2] = window.getMostSignificantBits();
+      keys[at + 3] = window.getLeastSignificantBits();
+      counts[size++] = count;
+      return this;
+    }
+
+    /**
+     * Sorts what was added into a {@link SlotCounts}.
+     *
+     * @return the {@link SlotCounts}
+     */
+    SlotCounts build() {
+      if(0 == size) return EMPTY;
+      Integer[] order = new Integer[size];
+      for(int i = 0; i < size; i++) order[i] = i;
+      final long[] unsorted = keys;
+      Arrays.sort(
+          order,
+          (a, b) -> compare(
+              unsorted, a,
+              unsorted[b * STRIDE], unsorted[b * STRIDE + 1],
+              unsorted[b * STRIDE + 2], unsorted[b * STRIDE + 3]));
+
+      long[] sortedKeys = new long[size * STRIDE];
+      int[] sortedCounts = new int[size];
+      for(int i = 0; i < size; i++) {
+        System.arraycopy(unsorted, order[i] * STRIDE, sortedKeys, i * STRIDE, STRIDE);
+        sortedCounts[i] = counts[order[i]];
+      }
+      return new SlotCounts(sortedKeys, sortedCounts);
+    }
+  }
+}
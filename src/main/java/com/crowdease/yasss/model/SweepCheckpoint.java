@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+
+/**
+ * How far one background sweep has got, as last written.
+ *
+ * <p>Written after every chunk, so a sweep interrupted by a restart picks up
+ * where it left off, and once more when it finishes, so that a finished sweep
+ * costs every later boot one primary-key read. See
+ * {@code 028_table_sweep_checkpoint.sql} for the table and
+ * {@code SweepRunner} for what reads it.
+ *
+ * @param name the sweep
+ * @param position the last key it handled, or {@code null} if none yet
+ * @param processed how many rows it has handled, across every run
+ * @param completedAt when it finished, in epoch milliseconds, or {@code 0} if
+ *        it has not
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public record SweepCheckpoint(String name, UUID position, long processed, long completedAt) {
+
+  /**
+   * What one chunk of a sweep got through.
+   *
+   * @param scanned how many rows it read, whether or not any needed changing
+   * @param last the last key it read, or {@code null} if it read none
+   */
+  public record Chunk(int scanned, UUID last) {
+
+    /** A chunk that found nothing left. */
+    public static final Chunk EMPTY = new Chunk(0, null);
+  }
+
+  /**
+   * The lowest possible key, which every keyset scan starts above.
+   *
+   * <p>Nothing is ever stored with it: every key swept is a random UUID.
+   */
+  public static final UUID START = new UUID(0L, 0L);
+
+  /**
+   * Determines whether the sweep has finished.
+   *
+   * @return {@code true} if there is nothing more for it to do
+   */
+  public boolean isComplete() {
+    return 0L != completedAt;
+  }
+
+  /**
+   * Determines where the next chunk starts.
+   *
+   * @return the key to scan above
+   */
+  public UUID after() {
+    return null == position ? START : position;
+  }
+
+  /**
+   * Moves past a chunk.
+   *
+   * @param chunk what the chunk got through
+   * @param limit how many rows the chunk was allowed to read
+   * @param now the current epoch millisecond
+   * @return the checkpoint after it, complete if the chunk came up short
+   */
+  public SweepCheckpoint advance(Chunk chunk, int limit, long now) {
+    return new SweepCheckpoint(
+        name,
+        null == chunk.last() ? position : chunk.last(),
+        processed + chunk.scanned(),
+        limit > chunk.scanned() ? now : 0L);
+  }
+
+  /**
+   * Retrieves a sweep's checkpoint.
+   *
+   * @param name the sweep
+   * @return its checkpoint, or a fresh one if it has never run
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static SweepCheckpoint load(String name) throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .select(
+                  YasssCore.getDB().getPrefix() + "sweep_checkpoint",
+                  "position",
+                  "processed",
+                  "completed_at")
+              .where("name")
+              .toString());
+      stmt.setBytes(1, name.getBytes(StandardCharsets.US_ASCII));
+      res = stmt.executeQuery();
+
+      if(!res.next()) return new SweepCheckpoint(name, null, 0L, 0L);
+      byte[] position = res.getBytes("position");
+      return new SweepCheckpoint(
+          name,
+          null == position ? null : SQLBuilder.bytesToUUID(position),
+          res.getLong("processed"),
+          res.getLong("completed_at"));
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
+  /**
+   * Writes this checkpoint over whatever was there.
+   *
+   * <p>Last write wins. Only the lease holder runs sweeps, so two nodes
+   * writing the same row means one of them has just lost the lease; and the
+   * sweeps themselves are idempotent, so the worst a stale checkpoint does is
+   * have a chunk read twice.
+   *
+   * @throws SQLException if a database malfunction occurs
+   */
+  public void commit() throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          String.format(
+              "INSERT INTO %1$ssweep_checkpoint "
+                  + "(name, position, processed, updated_at, completed_at) VALUES (?, ?, ?, ?, ?) "
+                  + "ON DUPLICATE KEY UPDATE "
+                  + "position = VALUES(position), processed = VALUES(processed), "
+                  + "updated_at = VALUES(updated_at), completed_at = VALUES(completed_at)",
+              YasssCore.getDB().getPrefix()));
+      stmt.setBytes(1, name.getBytes(StandardCharsets.US_ASCII));
+      stmt.setBytes(2, null == position ? null : SQLBuilder.uuidToBytes(position));
+      stmt.setLong(3, processed);
+      stmt.setLong(4, System.currentTimeMillis());
+      if(isComplete()) stmt.setLong(5, completedAt);
+      else stmt.setNull(5, Types.BIGINT);
+      stmt.executeUpdate();
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, null);
+    }
+  }
+}
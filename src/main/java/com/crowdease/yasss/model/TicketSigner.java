@@ -175,6 +175,38 @@ public final class TicketSigner {
     }
   }
 
+  /**
+   * When the newest stored signer was generated.
+   *
+   * <p>The cheap question a node asks on every sync tick before deciding
+   * whether the expensive one -- {@link #load(int)}, which decrypts and probes
+   * every signer -- is worth asking. Any change another node makes to the table
+   * that matters to this one changes this value: a rotation adds a newer row,
+   * and a reset wipes the table and adds a newer row still.
+   *
+   * @return the epoch millisecond, or {@code 0} if nothing is stored
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static long newest() throws SQLException {
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+      stmt = con.prepareStatement(
+          String.format(
+              "SELECT MAX(created_at) AS newest FROM %1$sticket_signer",
+              YasssCore.getDB().getPrefix()));
+      res = stmt.executeQuery();
+      // MAX over no rows is NULL, which getLong reads as 0 -- the answer wanted.
+      return res.next() ? res.getLong("newest") : 0L;
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+  }
+
   /**
    * Signs and verifies a known message with a signer to prove it works.
    *
@@ -608,11 +608,7 @@ public class User extends Credentialed implements Comparable<User> {
     Connection con = null;
     PreparedStatement stmt = null;
     
-    if(null == getID()) {
-      do {
-        setID(UUID.randomUUID());
-      } while(null != getUser(getID()));
-    }
+    if(null == getID()) setID(RowID.generate());
     
     try {
       con = YasssCore.getDB().connect();
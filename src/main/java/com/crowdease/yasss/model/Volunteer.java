@@ -21,10 +21,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.zip.CRC32;
 
 import com.axonibyte.lib.db.Comparison;
 import com.axonibyte.lib.db.SQLBuilder;
-import com.axonibyte.lib.db.Wrapper;
 import com.axonibyte.lib.db.Comparison.ComparisonOp;
 import com.axonibyte.lib.db.SQLBuilder.Join;
 import com.axonibyte.lib.db.SQLBuilder.Order;
@@ -374,87 +374,41 @@ public class Volunteer {
     PreparedStatement stmt = null;
 
     try {
-      if(null == id) {
-        ResultSet res = null;
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-            .select(
-                YasssCore.getDB().getPrefix() + "volunteer",
-                "id")
-            .where("id")
-            .toString());
-
-        boolean found;
-        do {
-          id = UUID.randomUUID();
-          stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
-          res = stmt.executeQuery();
-          found = res.next();
-          YasssCore.getDB().close(null, null, res);
-        } while(found);
-
-        YasssCore.getDB().close(null, stmt, null);
-      }
+      // A freshly minted id cannot have detail rows yet, so there is nothing
+      // stale to wipe.
+      boolean fresh = null == id;
+      if(fresh) id = RowID.generate();
       
       stmt = con.prepareStatement(
-          new SQLBuilder()
-              .update(
-                  YasssCore.getDB().getPrefix() + "volunteer",
-                  "user",
-                  "event",
-                  "name",
-                  "reminders_enabled",
-                  "ip_addr_bin",
-                  "reminder_email",
-                  "reminder_state",
-                  "reminder_token")
-              .where("id")
-              .wrap(new Wrapper(5, "INET6_ATON"))
-              .toString());
-      stmt.setBytes(1, SQLBuilder.uuidToBytes(user));
-      stmt.setBytes(2, SQLBuilder.uuidToBytes(event));
-      stmt.setString(3, name);
-      stmt.setBoolean(4, remindersEnabled);
-      stmt.setString(5, ipAddr);
-      stmt.setString(6, reminderEmail);
-      stmt.setInt(7, reminderState.ordinal());
-      stmt.setBytes(8, SQLBuilder.uuidToBytes(reminderToken));
-      stmt.setBytes(9, SQLBuilder.uuidToBytes(id));
-      
-      boolean noRecord = 0 == stmt.executeUpdate();
+          String.format(
+              "INSERT INTO %1$svolunteer "
+              + "(id, user, event, name, reminders_enabled, ip_addr_bin, "
+              + "reminder_email, reminder_state, reminder_token) "
+              + "VALUES (?, ?, ?, ?, ?, INET6_ATON(?), ?, ?, ?) "
+              + "ON DUPLICATE KEY UPDATE "
+              + "user = VALUES(user), "
+              + "event = VALUES(event), "
+              + "name = VALUES(name), "
+              + "reminders_enabled = VALUES(reminders_enabled), "
+              + "ip_addr_bin = VALUES(ip_addr_bin), "
+              + "reminder_email = VALUES(reminder_email), "
+              + "reminder_state = VALUES(reminder_state), "
+              + "reminder_token = VALUES(reminder_token)",
+              YasssCore.getDB().getPrefix()));
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
+      stmt.setBytes(2, SQLBuilder.uuidToBytes(user));
+      stmt.setBytes(3, SQLBuilder.uuidToBytes(event));
+      stmt.setString(4, name);
+      stmt.setBoolean(5, remindersEnabled);
+      stmt.setString(6, ipAddr);
+      stmt.setString(7, reminderEmail);
+      stmt.setInt(8, reminderState.ordinal());
+      stmt.setBytes(9, SQLBuilder.uuidToBytes(reminderToken));
+      stmt.executeUpdate();
       YasssCore.getDB().close(null, stmt, null);
+      stmt = null;
       
-      if(noRecord) { // record doesn't exist, so make it
-        YasssCore.getDB().close(null, stmt, null);
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-                .insert(
-                    YasssCore.getDB().getPrefix() + "volunteer",
-                    "id",
-                    "user",
-                    "event",
-                    "name",
-                    "reminders_enabled",
-                    "ip_addr_bin",
-                    "reminder_email",
-                    "reminder_state",
-                    "reminder_token")
-                .wrap(new Wrapper(6, "INET6_ATON"))
-                .toString());
-        stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
-        stmt.setBytes(2, SQLBuilder.uuidToBytes(user));
-        stmt.setBytes(3, SQLBuilder.uuidToBytes(event));
-        stmt.setString(4, name);
-        stmt.setBoolean(5, remindersEnabled);
-        stmt.setString(6, ipAddr);
-        stmt.setString(7, reminderEmail);
-        stmt.setInt(8, reminderState.ordinal());
-        stmt.setBytes(9, SQLBuilder.uuidToBytes(reminderToken));
-        stmt.executeUpdate();
-        
-      } else { // record existed, so wipe stale deets
-        YasssCore.getDB().close(null, stmt, null);
-
+      if(!fresh) { // record may have existed, so wipe stale deets
         // whereIn() with a count of zero emits a literal "NOT IN ()", which is a
         // syntax error -- so re-committing a volunteer on an event that has no
         // custom fields used to fail outright. Semantically an empty set means
@@ -475,45 +429,31 @@ public class Volunteer {
         for(var detail : details.keySet())
           stmt.setBytes(++idx, SQLBuilder.uuidToBytes(detail.getID()));
         stmt.executeUpdate();
+        YasssCore.getDB().close(null, stmt, null);
+        stmt = null;
       }
       
-      Map<UUID, String> missingDeets = new HashMap<>();
       if(!details.isEmpty()) {
-        YasssCore.getDB().close(null, stmt, null);
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-                .update(
-                    YasssCore.getDB().getPrefix() + "volunteer_detail",
-                    "detail_value")
-                .where(
-                    "volunteer",
-                    "detail_field")
-                .toString());
-        stmt.setBytes(2, SQLBuilder.uuidToBytes(id));
+        // Every answer in one statement. This runs inside the signup
+        // transaction, under the event's lock, so each round trip saved here
+        // is one that every other signup to the same event no longer waits on.
+        StringBuilder upsert = new StringBuilder(
+            String.format(
+                "INSERT INTO %1$svolunteer_detail (volunteer, detail_field, detail_value) VALUES ",
+                YasssCore.getDB().getPrefix()));
+        for(int i = 0; i < details.size(); i++)
+          upsert.append(0 == i ? "(?, ?, ?)" : ", (?, ?, ?)");
+        upsert.append(" ON DUPLICATE KEY UPDATE detail_value = VALUES(detail_value)");
+
+        stmt = con.prepareStatement(upsert.toString());
+        byte[] volunteer = SQLBuilder.uuidToBytes(id);
+        int idx = 0;
         for(var detail : details.entrySet()) {
-          stmt.setString(1, detail.getValue());
-          stmt.setBytes(3, SQLBuilder.uuidToBytes(detail.getKey().getID()));
-          if(0 == stmt.executeUpdate())
-            missingDeets.put(detail.getKey().getID(), detail.getValue());
-        }
-      }
-      
-      if(!missingDeets.isEmpty()) {
-        YasssCore.getDB().close(null, stmt, null);
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-                .insert(
-                    YasssCore.getDB().getPrefix() + "volunteer_detail",
-                    "volunteer",
-                    "detail_field",
-                    "detail_value")
-                .toString());
-        stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
-        for(var detail : missingDeets.entrySet()) {
-          stmt.setBytes(2, SQLBuilder.uuidToBytes(detail.getKey()));
-          stmt.setString(3, detail.getValue());
-          stmt.executeUpdate();
+          stmt.setBytes(++idx, volunteer);
+          stmt.setBytes(++idx, SQLBuilder.uuidToBytes(detail.getKey().getID()));
+          stmt.setString(++idx, detail.getValue());
         }
+        stmt.executeUpdate();
       }
       
     } finally {
@@ -547,6 +487,7 @@ public class Volunteer {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.event(event);
   }
   
 
@@ -592,6 +533,30 @@ public class Volunteer {
    */
   public static List<PendingReminder> getPendingReminders(
       Timestamp now, int globalLeadMinutes, int limit) throws SQLException {
+    return getPendingReminders(now, globalLeadMinutes, limit, 0, 1);
+  }
+
+  /**
+   * Finds volunteers due a reminder within one partition of the events.
+   *
+   * <p>Partitioned by event rather than by volunteer so that the per-sweep event
+   * cache in the reminder engine stays useful: every volunteer of an event lands
+   * in the same partition, and so with the same worker. The hash is computed in
+   * SQL so that {@code limit} applies to the partition rather than to the whole
+   * pending set; {@link #partitionOf(UUID, int)} is the same function in Java.
+   *
+   * @param now the lower bound -- events already begun are not reminded about
+   * @param globalLeadMinutes the configured lead time, used for events that
+   *        do not override it
+   * @param limit the most rows to return in one sweep
+   * @param partition the partition to scan, from zero
+   * @param partitions how many partitions the events are split into
+   * @return the volunteers due a reminder in that partition, earliest first
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static List<PendingReminder> getPendingReminders(
+      Timestamp now, int globalLeadMinutes, int limit, int partition, int partitions)
+      throws SQLException {
     Connection con = null;
     PreparedStatement stmt = null;
     ResultSet res = null;
@@ -646,7 +611,15 @@ public class Volunteer {
             ComparisonOp.LESS_THAN_OR_EQUAL_TO,
             "DATE_ADD(?, INTERVAL COALESCE(e.reminder_lead_time, ?) MINUTE)") // binds 5, 6
         .where("l.volunteer", ComparisonOp.IS_NULL)                       // no bind
-        .where("s.email", ComparisonOp.IS_NULL)                           // no bind
+        .where("s.email", ComparisonOp.IS_NULL);                          // no bind
+    // Left off entirely for a single partition, rather than binding MOD 1, so
+    // that the unpartitioned scan is byte-for-byte the query it always was.
+    if(1 < partitions)
+      query.where(
+          "CRC32(v.event) MOD ?",                                         // bind 7
+          ComparisonOp.EQUAL_TO,
+          "?");                                                           // bind 8
+    query
         .order("w.begin_time", Order.ASC)
         .limit(limit);
 
@@ -665,6 +638,10 @@ public class Volunteer {
       stmt.setTimestamp(++idx, now);
       stmt.setTimestamp(++idx, now);
       stmt.setInt(++idx, globalLeadMinutes);
+      if(1 < partitions) {
+        stmt.setInt(++idx, partitions);
+        stmt.setInt(++idx, partition);
+      }
 
       res = stmt.executeQuery();
 
@@ -686,4 +663,22 @@ public class Volunteer {
       YasssCore.getDB().close(con, stmt, res);
     }
   }
+
+  /**
+   * Determines which reminder partition an event belongs to.
+   *
+   * <p>Mirrors {@code CRC32(v.event) MOD ?} in
+   * {@link #getPendingReminders(Timestamp, int, int, int, int)}: MariaDB's
+   * {@code CRC32} over the sixteen id bytes is the same unsigned checksum as
+   * {@link CRC32} over {@link SQLBuilder#uuidToBytes(UUID)}.
+   *
+   * @param event the event's id
+   * @param partitions how many partitions the events are split into
+   * @return the event's partition, from zero
+   */
+  public static int partitionOf(UUID event, int partitions) {
+    CRC32 crc = new CRC32();
+    crc.update(SQLBuilder.uuidToBytes(event));
+    return (int)(crc.getValue() % partitions);
+  }
 }
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Writes an event's volunteers, their answers and their RSVPs out as they are
+ * read, one volunteer at a time.
+ *
+ * <p>{@link Event#getVolunteers()} and the report built on it hold the whole
+ * event in memory before a byte is sent, which is fine for a page somebody
+ * reads and is not fine for a file of every signup to a large event. This runs
+ * one forward-only query and writes each volunteer as soon as its last row has
+ * been read, so what is held is one volunteer, whatever the size of the event.
+ *
+ * <p>Both formats carry the same things and leave out the same things: no
+ * reminder address, no reminder token and no network address. An export is
+ * handed to whoever organizes the event, and those were given to the platform,
+ * not to them.
+ *
+ * <ul>
+ *   <li>{@link Format#CSV} has a {@code name} column, a column per custom
+ *       field headed by its label, and an {@code rsvps} column of
+ *       {@code activity:window} pairs -- the columns
+ *       {@link VolunteerImport#readCSV(CSVReader)} reads.</li>
+ *   <li>{@link Format#NDJSON} is one object per line, in the shape of a signup
+ *       body plus the volunteer's {@code id}, {@code user} and
+ *       {@code remindersEnabled}.</li>
+ * </ul>
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class VolunteerExport {
+
+  /**
+   * The formats an export can be written in.
+   */
+  public static enum Format {
+
+    /**
+     * Comma-separated values, for spreadsheets.
+     */
+    CSV("text/csv; charset=utf-8", "csv"),
+
+    /**
+     * Newline-delimited JSON, for everything else.
+     */
+    NDJSON("application/x-ndjson; charset=utf-8", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    private Format(String contentType, String extension) {
+      this.contentType = contentType;
+      this.extension = extension;
+    }
+
+    /**
+     * Retrieves the media type the format is served as.
+     *
+     * @return the {@code Content-Type}
+     */
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Retrieves the extension a file in this format is saved with.
+     *
+     * @return the extension, without its dot
+     */
+    public String getExtension() {
+      return extension;
+    }
+
+    /**
+     * Resolves a format from a query parameter.
+     *
+     * @param param the parameter, or {@code null} for the default
+     * @return the {@link Format}, or {@code null} if there is no such format
+     */
+    public static Format fromParam(String param) {
+      if(null == param) return CSV;
+      for(var format : values())
+        if(format.extension.equals(param.strip().toLowerCase(Locale.ROOT)))
+          return format;
+      return null;
+    }
+  }
+
+  /**
+   * How many rows the driver fetches per round trip.
+   *
+   * <p>MariaDB Connector/J streams a forward-only, read-only result set in
+   * batches of this size instead of reading every row before returning the
+   * first; MySQL Connector/J only streams at {@link Integer#MIN_VALUE}, should
+   * the driver ever change.
+   */
+  static final int FETCH_SIZE = 500;
+
+  private static final int KIND_VOLUNTEER = 0;
+  private static final int KIND_ANSWER = 1;
+  private static final int KIND_RSVP = 2;
+
+  private final Format format;
+  private final List<Detail> details;
+  private final Map<UUID, Integer> columns = new HashMap<>();
+  private final Writer out;
+  private final CSVWriter csv;
+
+  private UUID id = null;
+  private UUID user = null;
+  private String name = null;
+  private boolean remindersEnabled = false;
+  private final String[] answers;
+  private final List<UUID[]> rsvps = new ArrayList<>();
+  private int written = 0;
+
+  /**
+   * Instantiates an export.
+   *
+   * @param format the format to write in
+   * @param details the event's custom fields, in the order of their columns
+   * @param out where the export is written
+   */
+  VolunteerExport(Format format, List<Detail> details, Writer out) {
+    this.format = format;
+    this.details = details;
+    this.out = out;
+    this.csv = Format.CSV == format ? new CSVWriter(out) : null;
+    this.answers = new String[details.size()];
+    for(int i = 0; i < details.size(); i++)
+      columns.put(details.get(i).getID(), i);
+  }
+
+  /**
+   * Writes every volunteer of an event.
+   *
+   * <p>The header, if the format has one, is written and flushed before the
+   * query is run, so the caller's first bytes do not wait on the database.
+   *
+   * <p>A connection is held until the last row has been written, and so for
+   * as long as the reader takes to read it. The rows are in the driver's
+   * buffer rather than in a transaction, so nothing is locked meanwhile, but a
+   * slow enough reader does keep the connection from the pool.
+   *
+   * @param event the {@link Event}
+   * @param format the {@link Format} to write in
+   * @param out where the export is written; flushed, but not closed
+   * @return the number of volunteers written
+   * @throws SQLException if a database malfunction occurs
+   * @throws IOException if the output fails
+   */
+  public static int write(Event event, Format format, Writer out) throws SQLException, IOException {
+    VolunteerExport export = new VolunteerExport(
+        format, new ArrayList<>(event.getDetails()), out);
+    export.header();
+    out.flush();
+
+    Connection con = null;
+    PreparedStatement stmt = null;
+    ResultSet res = null;
+
+    try {
+      con = YasssCore.getDB().connect();
+
+      // One statement rather than three, so that a volunteer's answers and
+      // RSVPs arrive directly behind it and it can be written and forgotten.
+      // Ordered by name as the report is; by id within a name, so that two
+      // volunteers of the same name do not interleave.
+      stmt = con.prepareStatement(
+          String.format(
+              "SELECT %2$d AS kind, v.id AS volunteer, v.name AS sort_name, "
+              + "v.name AS val, v.user AS ref_a, NULL AS ref_b, v.reminders_enabled AS flag "
+              + "FROM %1$svolunteer v WHERE v.event = ? "
+              + "UNION ALL "
+              + "SELECT %3$d, d.volunteer, v.name, d.detail_value, d.detail_field, NULL, NULL "
+              + "FROM %1$svolunteer_detail d "
+              + "INNER JOIN %1$svolunteer v ON v.id = d.volunteer WHERE v.event = ? "
+              + "UNION ALL "
+              + "SELECT %4$d, r.volunteer, v.name, NULL, r.activity, r.event_window, NULL "
+              + "FROM %1$srsvp r "
+              + "INNER JOIN %1$svolunteer v ON v.id = r.volunteer WHERE v.event = ? "
+              + "ORDER BY sort_name, volunteer, kind",
+              YasssCore.getDB().getPrefix(),
+              KIND_VOLUNTEER,
+              KIND_ANSWER,
+              KIND_RSVP),
+          ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY);
+      stmt.setFetchSize(FETCH_SIZE);
+      byte[] eventID = SQLBuilder.uuidToBytes(event.getID());
+      for(int i = 1; 3 >= i; i++)
+        stmt.setBytes(i, eventID);
+      res = stmt.executeQuery();
+
+      while(res.next()) {
+        UUID volunteer = SQLBuilder.bytesToUUID(res.getBytes("volunteer"));
+        switch(res.getInt("kind")) {
+          case KIND_VOLUNTEER -> export.volunteer(
+              volunteer,
+              SQLBuilder.bytesToUUID(res.getBytes("ref_a")),
+              res.getString("val"),
+              res.getBoolean("flag"));
+          case KIND_ANSWER -> export.answer(
+              volunteer,
+              SQLBuilder.bytesToUUID(res.getBytes("ref_a")),
+              res.getString("val"));
+          case KIND_RSVP -> export.rsvp(
+              volunteer,
+              SQLBuilder.bytesToUUID(res.getBytes("ref_a")),
+              SQLBuilder.bytesToUUID(res.getBytes("ref_b")));
+          default -> { }
+        }
+      }
+
+    } finally {
+      YasssCore.getDB().close(con, stmt, res);
+    }
+
+    export.finish();
+    out.flush();
+    return export.written;
+  }
+
+  /**
+   * Writes the header, if the format has one.
+   *
+   * @throws IOException if the output fails
+   */
+  void header() throws IOException {
+    if(Format.CSV != format) return;
+    String[] header = new String[details.size() + 2];
+    header[0] = "name";
+    for(int i = 0; i < details.size(); i++)
+      header[i + 1] = details.get(i).getLabel();
+    header[header.length - 1] = "rsvps";
+    csv.write(header);
+  }
+
+  /**
+   * Begins a volunteer, writing out the one before it.
+   *
+   * @param id the volunteer's {@link UUID}
+   * @param user the {@link UUID} of the volunteer's account, or {@code null}
+   * @param name the volunteer's name
+   * @param remindersEnabled whether the volunteer asked for reminders
+   * @throws IOException if the output fails
+   */
+  void volunteer(UUID id, UUID user, String name, boolean remindersEnabled) throws IOException {
+    finish();
+    this.id = id;
+    this.user = user;
+    this.name = name;
+    this.remindersEnabled = remindersEnabled;
+  }
+
+  /**
+   * Records an answer of the current volunteer's.
+   *
+   * <p>An answer to a field that was removed after the header was written, or
+   * one for a volunteer that is not the current one, is dropped.
+   *
+   * @param volunteer the {@link UUID} of the volunteer who gave it
+   * @param detail the {@link UUID} of the {@link Detail} it answers
+   * @param value the answer
+   */
+  void answer(UUID volunteer, UUID detail, String value) {
+    Integer column = columns.get(detail);
+    if(null != column && volunteer.equals(id))
+      answers[column] = value;
+  }
+
+  /**
+   * Records an RSVP of the current volunteer's.
+   *
+   * @param volunteer the {@link UUID} of the volunteer who made it
+   * @param activity the {@link UUID} of the {@link Activity}
+   * @param window the {@link UUID} of the {@link Window}
+   */
+  void rsvp(UUID volunteer, UUID activity, UUID window) {
+    if(volunteer.equals(id))
+      rsvps.add(new UUID[] { activity, window });
+  }
+
+  /**
+   * Writes out the current volunteer, if there is one.
+   *
+   * @throws IOException if the output fails
+   */
+  void finish() throws IOException {
+    if(null == id) return;
+
+    if(Format.CSV == format) {
+      String[] row = new String[answers.length + 2];
+      row[0] = name;
+      System.arraycopy(answers, 0, row, 1, answers.length);
+      StringBuilder picks = new StringBuilder();
+      for(var rsvp : rsvps) {
+        if(!picks.isEmpty()) picks.append(';');
+        picks.append(rsvp[0]).append(':').append(rsvp[1]);
+      }
+      row[row.length - 1] = picks.toString();
+      csv.write(row);
+
+    } else {
+      JSONArray detailArr = new JSONArray();
+      for(int i = 0; i < answers.length; i++)
+        if(null != answers[i])
+          detailArr.put(
+              new JSONObject()
+                  .put("detail", details.get(i).getID().toString())
+                  .put("value", answers[i]));
+      JSONArray rsvpArr = new JSONArray();
+      for(var rsvp : rsvps)
+        rsvpArr.put(
+            new JSONObject()
+                .put("activity", rsvp[0].toString())
+                .put("window", rsvp[1].toString()));
+      out.write(
+          new JSONObject()
+              .put("id", id.toString())
+              .put("user", null == user ? JSONObject.NULL : user.toString())
+              .put("name", name)
+              .put("remindersEnabled", remindersEnabled)
+              .put("details", detailArr)
+              .put("rsvps", rsvpArr)
+              .toString());
+      out.write('\n');
+    }
+
+    written++;
+    id = null;
+    user = null;
+    name = null;
+    Arrays.fill(answers, null);
+    rsvps.clear();
+  }
+}
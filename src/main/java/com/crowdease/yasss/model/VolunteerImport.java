@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.model.JSONDeserializer.DeserializationException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds many volunteers to one event at once, for an organizer bringing a
+ * roster over from a spreadsheet.
+ *
+ * <p>The alternative was one {@code POST /volunteers} per row, and each of
+ * those authenticates, reads the event's custom fields, looks up every
+ * activity and slot it names one at a time, takes its own transaction and
+ * mails the organizer. Here the fields, activities and slots are read once,
+ * every row is checked against them in memory, and only then is anything
+ * written -- in transactions of {@value #CHUNK} rows, each claiming its seats
+ * through {@link RSVP#claimWithin(Connection, Collection, UUID)} exactly as a
+ * signup does, so the capacity rules are the same rules.
+ *
+ * <p>Every row gets an {@link Outcome}. A row that fails validation is
+ * reported and skipped; the rest still go in. A row whose seats are full is
+ * rolled back to a savepoint, so it does not take the other rows in its
+ * transaction with it.
+ *
+ * <p>What an import deliberately does not do:
+ *
+ * <ul>
+ *   <li>subscribe anyone to reminders. Consent is the volunteer's to give, and
+ *       confirming a spreadsheet's worth of addresses would mean mailing
+ *       thousands of people who never asked;
+ *   <li>link a row to an account, for the same reason;
+ *   <li>record an address. {@code ip_addr_bin} exists to cap anonymous signups
+ *       per address, and stamping the organizer's on every row would cap the
+ *       organizer's household out of their own event;
+ *   <li>send the organizer a signup alert per row. They are the one importing.
+ * </ul>
+ *
+ * @author Caleb L. Power <cpower@crowdease.com>
+ */
+public final class VolunteerImport {
+
+  /** The most rows one import may hold. */
+  public static final int MAX_ROWS = 10_000;
+
+  /**
+   * Rows per transaction. Each transaction holds the locks on every activity
+   * its rows claim in until it commits, so this bounds how long a concurrent
+   * signup can be kept waiting.
+   */
+  static final int CHUNK = 250;
+
+  private static final Logger logger = LoggerFactory.getLogger(VolunteerImport.class);
+
+  /**
+   * What became of one row.
+   *
+   * <p>Exactly one of {@code volunteer} and {@code error} is non-null.
+   *
+   * @param row the row: its index in a JSON array, or its line in a CSV file
+   * @param volunteer the {@link UUID} of the {@link Volunteer} it created
+   * @param error why it was not imported
+   */
+  public static record Outcome(int row, UUID volunteer, String error) { }
+
+  /**
+   * A seat a row asks for, before it has been checked.
+   *
+   * @param activity the {@link UUID} of the {@link Activity}
+   * @param window the {@link UUID} of the {@link Window}
+   */
+  public static record Pick(UUID activity, UUID window) { }
+
+  /** A row that passed validation, waiting for its transaction. */
+  private static record Accepted(int row, Volunteer volunteer, Collection<Slot> slots) { }
+
+  private final UUID event;
+  private final Map<UUID, Detail> fields = new LinkedHashMap<>();
+  private final Map<String, Detail> labels = new HashMap<>();
+  private final DetailValidator validator;
+  private final Map<UUID, Map<UUID, Slot>> slots;
+
+  private final List<Accepted> accepted = new ArrayList<>();
+  private final List<Outcome> rejected = new ArrayList<>();
+  private int rows = 0;
+
+  /**
+   * Instantiates an import from the event's structure, already read.
+   *
+   * @param event the {@link UUID} of the {@link Event}
+   * @param details the event's custom fields
+   * @param slots activity to window to {@link Slot}, for every slot it has
+   */
+  VolunteerImport(UUID event, Collection<Detail> details, Map<UUID, Map<UUID, Slot>> slots) {
+    this.event = event;
+    for(var detail : details) {
+      fields.put(detail.getID(), detail);
+      // First one wins, so that two fields sharing a label resolve the same
+      // way every time; either can still be named by id.
+      labels.putIfAbsent(label(detail.getLabel()), detail);
+    }
+    this.validator = new DetailValidator(details, 0L);
+    this.slots = slots;
+  }
+
+  /**
+   * Reads an event's custom fields, activities and slots, once, for an import.
+   *
+   * <p>The slots in one statement for the whole event, rather than one per
+   * activity.
+   *
+   * @param event the {@link Event}
+   * @return an empty import into that event
+   * @throws SQLException if a database malfunction occurs
+   */
+  public static VolunteerImport forEvent(Event event) throws SQLException {
+    // Every activity gets an entry, slots or not, so that a row naming one
+    // without any is refused for its slot rather than its activity.
+    Map<UUID, Map<UUID, Slot>> slots = new HashMap<>();
+    for(var activity : event.getActivities())
+      slots.put(activity.getID(), new HashMap<>());
+    for(var slot : event.getSlots()) {
+      Map<UUID, Slot> byWindow = slots.get(slot.getActivity());
+      if(null != byWindow) byWindow.put(slot.getWindow(), slot);
+    }
+    return new VolunteerImport(
+        event.getID(),
+        List.of(DetailValidator.forEvent(event).getFields()),
+        slots);
+  }
+
+  private static String label(String label) {
+    return null == label ? "" : label.strip().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Determines whether the input held more rows than {@link #MAX_ROWS}.
+   * Nothing should be committed if so.
+   *
+   * @return {@code true} if the import is over its limit
+   */
+  public boolean overflowed() {
+    return MAX_ROWS < rows;
+  }
+
+  /**
+   * Reads rows shaped like the body of {@code POST /volunteers}: a
+   * {@code name}, and optionally {@code details} and {@code rsvps} arrays.
+   *
+   * @param array the rows
+   */
+  public void readJSON(JSONArray array) {
+    if(MAX_ROWS < array.length()) {
+      rows = array.length();
+      return;
+    }
+
+    for(int i = 0; i < array.length(); i++) {
+      if(!(array.get(i) instanceof JSONObject)) {
+        reject(i, "malformed row");
+        continue;
+      }
+
+      try {
+        JSONDeserializer row = new JSONDeserializer(array.getJSONObject(i))
+            .tokenize("name", true)
+            .tokenize("details", false)
+            .tokenize("rsvps", false)
+            .check();
+
+        Map<UUID, String> answers = new LinkedHashMap<>();
+        if(row.has("details"))
+          for(var detail : row.tokenizeJSONArray("details", true)) {
+            detail
+                .tokenize("detail", true)
+                .tokenize("value", true)
+                .check();
+            answers.put(detail.getUUID("detail"), detail.getString("value"));
+          }
+
+        List<Pick> picks = new ArrayList<>();
+        if(row.has("rsvps"))
+          for(var rsvp : row.tokenizeJSONArray("rsvps", true)) {
+            rsvp
+                .tokenize("activity", true)
+                .tokenize("window", true)
+                .check();
+            picks.add(new Pick(rsvp.getUUID("activity"), rsvp.getUUID("window")));
+          }
+
+        add(i, row.getString("name"), answers, picks);
+
+      } catch(DeserializationException e) {
+        reject(i, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Reads rows from a spreadsheet export.
+   *
+   * <p>The first record is a header. A column headed {@code name} is
+   * required. A column headed {@code rsvps} holds the seats to claim, as
+   * {@code activity:window} id pairs separated by spaces or semicolons. Every
+   * other column is a custom field, named by its label, ignoring case, or by
+   * its id. An empty cell is no answer.
+   *
+   * <p>Rows are numbered by the line they start on, header included, so that
+   * an error points at the same row number the spreadsheet shows.
+   *
+   * @param csv the input
+   * @throws IllegalArgumentException if the header names a column that is not
+   *         one of the above, or has no {@code name} column
+   * @throws IOException if the input is not CSV or cannot be read
+   */
+  public void readCSV(CSVReader csv) throws IOException {
+    List<String> header = csv.next();
+    if(null == header)
+      throw new IllegalArgumentException("missing header");
+
+    int nameCol = -1, rsvpCol = -1;
+    Detail[] columns = new Detail[header.size()];
+    for(int i = 0; i < header.size(); i++) {
+      String name = label(header.get(i));
+      if("name".equals(name) && -1 == nameCol) nameCol = i;
+      else if("rsvps".equals(name) && -1 == rsvpCol) rsvpCol = i;
+      else if(null == (columns[i] = column(name)))
+        throw new IllegalArgumentException(
+            String.format("unknown column (%1$s)", header.get(i).strip()));
+    }
+    if(-1 == nameCol)
+      throw new IllegalArgumentException("missing column (name)");
+
+    for(;;) {
+      int line = csv.getLine();
+      List<String> cells = csv.next();
+      if(null == cells) return;
+      if(cells.stream().allMatch(String::isBlank)) continue;
+      if(MAX_ROWS < rows + 1) {
+        rows++;
+        return;
+      }
+
+      if(header.size() < cells.size()) {
+        reject(line, "malformed row (more cells than columns)");
+        continue;
+      }
+
+      Map<UUID, String> answers = new LinkedHashMap<>();
+      for(int i = 0; i < cells.size(); i++)
+        if(null != columns[i] && !cells.get(i).isBlank())
+          answers.put(columns[i].getID(), cells.get(i));
+
+      List<Pick> picks = new ArrayList<>();
+      if(rsvpCol < cells.size() && -1 != rsvpCol) {
+        try {
+          for(var pair : cells.get(rsvpCol).strip().split("[;\\s]+")) {
+            if(pair.isEmpty()) continue;
+            int colon = pair.indexOf(':');
+            if(-1 == colon) throw new IllegalArgumentException();
+            picks.add(
+                new Pick(
+                    UUID.fromString(pair.substring(0, colon)),
+                    UUID.fromString(pair.substring(colon + 1))));
+          }
+        } catch(IllegalArgumentException e) {
+          reject(line, "malformed argument (rsvps)");
+          continue;
+        }
+      }
+
+      add(line, nameCol < cells.size() ? cells.get(nameCol) : "", answers, picks);
+    }
+  }
+
+  private Detail column(String name) {
+    Detail detail = labels.get(name);
+    if(null != detail) return detail;
+    try {
+      return fields.get(UUID.fromString(name));
+    } catch(IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Records a row that could not even be read.
+   *
+   * @param row the row's number
+   * @param error why
+   */
+  void reject(int row, String error) {
+    rows++;
+    rejected.add(new Outcome(row, null, error));
+  }
+
+  /**
+   * Checks a row against the event and, if it passes, queues it to be
+   * written. The rules and their messages are the signup endpoint's.
+   *
+   * @param row the row's number
+   * @param rawName the volunteer's name, as given
+   * @param answers custom field id to the answer, as given
+   * @param picks the seats asked for
+   */
+  void add(int row, String rawName, Map<UUID, String> answers, Collection<Pick> picks) {
+    rows++;
+
+    String name = null == rawName ? "" : rawName.strip();
+    if(name.isBlank()) {
+      rejected.add(new Outcome(row, null, "malformed argument (name)"));
+      return;
+    }
+    if(tooLong(name)) {
+      rejected.add(new Outcome(row, null, "malformed argument (string too long: name)"));
+      return;
+    }
+
+    DetailValidator.Submission submission = validator.submission();
+    for(var answer : answers.entrySet()) {
+      DetailValidator.Problem problem = submission.answer(answer.getKey(), answer.getValue());
+      if(null != problem) {
+        rejected.add(new Outcome(row, null, problem.getMessage()));
+        return;
+      }
+    }
+    DetailValidator.Problem missing = submission.finish();
+    if(null != missing) {
+      rejected.add(new Outcome(row, null, missing.getMessage()));
+      return;
+    }
+    Map<Detail, String> details = submission.getDetails();
+
+    // Keyed by the pair, since Slot has no equality of its own and a row that
+    // names a seat twice should claim it once.
+    Map<Pick, Slot> claimed = new LinkedHashMap<>();
+    for(var pick : picks) {
+      Map<UUID, Slot> windows = slots.get(pick.activity());
+      if(null == windows) {
+        rejected.add(new Outcome(row, null, "activity not found"));
+        return;
+      }
+      Slot slot = windows.get(pick.window());
+      if(null == slot) {
+        rejected.add(new Outcome(row, null, "window/slot not found"));
+        return;
+      }
+      claimed.put(pick, slot);
+    }
+
+    accepted.add(
+        new Accepted(
+            row,
+            new Volunteer(null, null, event, name, false, null).setDetails(details),
+            claimed.values()));
+  }
+
+  /** @return the rows refused so far, in the order they were read */
+  List<Outcome> rejections() {
+    return rejected;
+  }
+
+  /** @return how many rows are waiting to be written */
+  int pending() {
+    return accepted.size();
+  }
+
+  /** The column width, in characters, as {@code APIEndpoint.bounded} counts. */
+  private static boolean tooLong(String value) {
+    return 255 < value.codePointCount(0, value.length());
+  }
+
+  /**
+   * Writes every row that passed validation.
+   *
+   * <p>A transaction that fails outright -- a dropped connection, say --
+   * fails only its own rows; the ones before it are already committed, and
+   * the ones after it are still attempted.
+   *
+   * @return an {@link Outcome} for every row read, in row order
+   */
+  public List<Outcome> commit() {
+    List<Outcome> outcomes = new ArrayList<>(rejected);
+
+    for(int from = 0; from < accepted.size(); from += CHUNK) {
+      List<Accepted> chunk = accepted.subList(from, Math.min(accepted.size(), from + CHUNK));
+      List<Outcome> done = new ArrayList<>(chunk.size());
+      Set<UUID> claimed = new LinkedHashSet<>();
+
+      try {
+        YasssCore.getDB().transaction(con -> {
+          con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+          List<UUID> activities = new ArrayList<>();
+          for(var row : chunk)
+            for(var slot : row.slots())
+              activities.add(slot.getActivity());
+          RSVP.lockWithin(con, activities);
+
+          for(var row : chunk) {
+            Savepoint savepoint = con.setSavepoint();
+            try {
+              row.volunteer().commit(con);
+              RSVP.claimWithin(con, row.slots(), row.volunteer().getID());
+              con.releaseSavepoint(savepoint);
+              done.add(new Outcome(row.row(), row.volunteer().getID(), null));
+              for(var slot : row.slots())
+                claimed.add(slot.getActivity());
+            } catch(RSVP.CapacityException e) {
+              con.rollback(savepoint);
+              done.add(new Outcome(row.row(), null, "volunteer cap exceeded"));
+            }
+          }
+          return null;
+        });
+
+        outcomes.addAll(done);
+
+        // Again, now that the chunk is committed, as RSVP.claim does: the
+        // notices claimWithin gave from inside the transaction may be acted
+        // on before it commits.
+        for(var activity : claimed)
+          EventChanges.activity(activity);
+
+      } catch(SQLException | RuntimeException e) {
+        // Including a CapacityException from lockWithin, which means an
+        // activity was deleted mid-import.
+        logger.error(
+            "could not import rows {} to {} into event {}: {}",
+            chunk.get(0).row(),
+            chunk.get(chunk.size() - 1).row(),
+            event,
+            null == e.getMessage() ? e.getClass().getSimpleName() : e.getMessage());
+        String error = e instanceof RSVP.CapacityException
+            ? "activity not found"
+            : "database malfunction";
+        for(var row : chunk)
+          outcomes.add(new Outcome(row.row(), null, error));
+      }
+    }
+
+    outcomes.sort(Comparator.comparingInt(Outcome::row));
+    return outcomes;
+  }
+
+}
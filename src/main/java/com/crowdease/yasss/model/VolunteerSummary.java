@@ -8,13 +8,11 @@
 package com.crowdease.yasss.model;
 
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
 import java.util.UUID;
 
 /**
@@ -34,24 +32,6 @@ public final class VolunteerSummary {
 
   private VolunteerSummary() { }
 
-  /**
-   * The date format used throughout the mail templates.
-   *
-   * <p>Deliberately constructed per call rather than held in a static field:
-   * {@link SimpleDateFormat} is not thread-safe, and this class is shared
-   * between Spark's request threads and the reminder daemon. Hoisting it during
-   * an otherwise-innocent cleanup would introduce an intermittent corruption
-   * bug that is very hard to attribute.
-   *
-   * @param timezone the event's IANA zone, or {@code null} for the server's
-   * @return a fresh formatter
-   */
-  private static SimpleDateFormat formatter(String timezone) {
-    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy hh:mm a");
-    if(null != timezone) sdf.setTimeZone(TimeZone.getTimeZone(timezone));
-    return sdf;
-  }
-
   /**
    * Renders the volunteer's answers to an event's custom fields.
    *
@@ -93,8 +73,6 @@ public final class VolunteerSummary {
     HTMLElem list = new HTMLElem("ul");
     if(claimed.isEmpty()) return list.toString();
 
-    final SimpleDateFormat sdf = formatter(timezone);
-
     for(var activity : activities) {
       if(!claimed.containsKey(activity.getID())) continue;
 
@@ -104,8 +82,8 @@ public final class VolunteerSummary {
         windowList.push(
             new HTMLElem("li")
                 .push(
-                    sdf.format(
-                        window.getBeginTime())));
+                    DateFormats.slot(
+                        window.getBeginTime(), timezone)));
       }
 
       list.push(
@@ -152,8 +130,6 @@ public final class VolunteerSummary {
    * @return the formatted date
    */
   public static String eventDate(java.util.Date when, String timezone) {
-    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy hh:mm a z");
-    if(null != timezone) sdf.setTimeZone(TimeZone.getTimeZone(timezone));
-    return sdf.format(when);
+    return DateFormats.zoned(when, timezone);
   }
 }
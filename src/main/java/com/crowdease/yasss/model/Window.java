@@ -180,27 +180,7 @@ public class Window implements Comparable<Window> {
     try {
       con = YasssCore.getDB().connect();
       
-      if(null == id) {
-        ResultSet res = null;
-        stmt = con.prepareStatement(
-            new SQLBuilder()
-                .select(
-                    YasssCore.getDB().getPrefix() + "event_window",
-                    "id")
-                .where("id")
-                .toString());
-        
-        boolean found;
-        do {
-          id = UUID.randomUUID();
-          stmt.setBytes(1, SQLBuilder.uuidToBytes(id));
-          res = stmt.executeQuery();
-          found = res.next();
-          YasssCore.getDB().close(null, null, res);
-        } while(found);
-        
-        YasssCore.getDB().close(null, stmt, res);
-      }
+      if(null == id) id = RowID.generate();
       
       stmt = con.prepareStatement(
           new SQLBuilder()
@@ -237,6 +217,7 @@ public class Window implements Comparable<Window> {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.event(event);
   }
 
   /**
@@ -264,6 +245,7 @@ public class Window implements Comparable<Window> {
     } finally {
       YasssCore.getDB().close(con, stmt, null);
     }
+    EventChanges.event(event);
   }
 
   /**
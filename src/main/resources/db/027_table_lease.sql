@@ -0,0 +1,31 @@
+/*
+ * Time-bounded ownership of cluster-wide work.
+ *
+ * TicketEngine and ReminderEngine were written for one process. Behind a load
+ * balancer every node rotated its own signers -- so a ticket minted on one node
+ * failed to verify on the others until a restart reloaded ticket_signer -- and
+ * every node polled for reminders. A lease names the one node that does each
+ * of those. Read LeaseCoordinator before changing anything here.
+ *
+ * A lease is held until `expires_at` and renewed well before it. A node that
+ * dies simply stops renewing, and the row becomes takeable once it lapses; no
+ * node ever has to notice another's death. A node that shuts down cleanly
+ * zeroes its own expiry so that its replacement does not wait out the TTL.
+ *
+ * `name` is VARBINARY rather than VARCHAR for the reason auth_nonce (023) has
+ * no character columns: 017 converts every character column to utf8mb4, and a
+ * table created after it on a latin1 server would inherit latin1 and fail the
+ * charset assertion in e2e/run.sh. Names are ASCII identifiers in any case.
+ *
+ * `expires_at` is epoch milliseconds, matching ticket_signer and auth_nonce.
+ * Every node compares it against its own clock, so clock skew between nodes
+ * eats into the TTL; LeaseCoordinator steps down early by a margin for that.
+ *
+ * Block comments deliberately -- see the note in 006.
+ */
+CREATE TABLE IF NOT EXISTS ${database}.${prefix}lease (
+  name VARBINARY(64) NOT NULL,
+  holder BINARY(16) NOT NULL,
+  expires_at BIGINT NOT NULL,
+  PRIMARY KEY (name)
+)Engine=InnoDB
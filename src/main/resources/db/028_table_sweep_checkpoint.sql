@@ -0,0 +1,27 @@
+/*
+ * How far each background data sweep has got.
+ *
+ * CredentialMigrator's MFA sweep and Event's code backfill used to run in full,
+ * on the boot thread, before the server listened -- a scan of every user and
+ * every event on every start, to find nothing after the first. SweepRunner now
+ * runs them in the background, a chunk at a time, and writes its place here
+ * after each chunk: a restart resumes from `position` rather than the start,
+ * and a sweep with `completed_at` set is skipped on one row read.
+ *
+ * `position` is the last primary key handled. Every table swept is keyed on a
+ * BINARY(16) UUID and scanned in key order, so it is exactly the lower bound of
+ * the next chunk. NULL means nothing has been handled yet.
+ *
+ * `name` is VARBINARY for the reason lease (027) gives. Times are epoch
+ * milliseconds, as in lease and auth_nonce.
+ *
+ * Block comments deliberately -- see the note in 006.
+ */
+CREATE TABLE IF NOT EXISTS ${database}.${prefix}sweep_checkpoint (
+  name VARBINARY(64) NOT NULL,
+  position BINARY(16) NULL,
+  processed BIGINT NOT NULL DEFAULT 0,
+  updated_at BIGINT NOT NULL,
+  completed_at BIGINT NULL,
+  PRIMARY KEY (name)
+)Engine=InnoDB
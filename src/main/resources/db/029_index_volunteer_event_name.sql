@@ -0,0 +1,30 @@
+/*
+ * Serve an event's roster in order from the index.
+ *
+ * `Event.getVolunteers` reads every volunteer of one event ORDER BY name, on
+ * every view of a signup sheet, every report and every export. The foreign key
+ * on `event` gives a single-column index, so that was a ref lookup followed by
+ * a filesort of the whole roster -- on the events big enough for it to matter,
+ * several hundred rows sorted per request. With `name` second in the key the
+ * rows come back already in order.
+ *
+ * Not covering, deliberately. The finder reads eight columns, three of them
+ * VARCHAR(255) in utf8mb4; an index carrying all of them would be most of a
+ * second copy of the table, paid for on every signup. The primary-key lookups
+ * it saves are per row of one event, which is what this index bounds.
+ *
+ * The other hot composites were audited alongside this one and already exist:
+ *   rsvp (activity, event_window)          -- the primary key's prefix (005)
+ *   rsvp (activity)                        -- likewise
+ *   volunteer_detail (volunteer)           -- the primary key's prefix (005)
+ *   event_window (event, begin_time)       -- 010
+ *   reminder_log (volunteer, window_begin) -- the primary key (009)
+ * Those on rsvp cover their COUNT(1)s outright, since InnoDB's primary key is
+ * the row. A duplicate of any of them would be a second B-tree to write on
+ * every insert for no read it improves. QueryPlanAudit is what holds that
+ * claim to account.
+ *
+ * Block comments deliberately -- see the note in 006.
+ */
+CREATE INDEX IF NOT EXISTS idx_${prefix}volunteer_event_name
+  ON ${database}.${prefix}volunteer (event, name);
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import com.axonibyte.lib.db.Database;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers which driver a read lands on.
+ *
+ * <p>The failure this guards against is quiet in both directions. A write
+ * routed to a replica either errors or is overwritten by replication, and a
+ * read that escapes its scope just goes to the primary -- correct, and a
+ * capacity plan that never materialises. Neither shows up in a functional
+ * test against one database, which is the only kind the suite can run.
+ *
+ * @author Caleb L. Power
+ */
+public class ReplicaSetTest {
+
+  private static final long WINDOW = 5_000L;
+
+  @Test public void route_staysOnThePrimaryOutsideAScope() {
+    Database primary = createMock(Database.class);
+    Database replica = createMock(Database.class);
+    ReplicaSet set = set(replica);
+
+    assertSame(set.route(primary), primary);
+  }
+
+  @Test public void route_usesTheReplicaInsideAScope_andStopsWhenItCloses() {
+    Database primary = createMock(Database.class);
+    Database replica = createMock(Database.class);
+    ReplicaSet set = set(replica);
+
+    try(var scope = ReplicaSet.read()) {
+      assertSame(set.route(primary), replica);
+    }
+    assertSame(set.route(primary), primary);
+  }
+
+  @Test public void scope_restoresWhatItFound() {
+    // A helper that opens its own scope inside a caller's must not end the
+    // caller's on the way out.
+    Database primary = createMock(Database.class);
+    Database replica = createMock(Database.class);
+    ReplicaSet set = set(replica);
+
+    try(var outer = ReplicaSet.read()) {
+      try(var inner = ReplicaSet.read()) { }
+      assertSame(set.route(primary), replica);
+    }
+  }
+
+  @Test public void route_fallsBackToThePrimary_whenNoReplicaIsHealthy() throws Exception {
+    Database primary = createMock(Database.class);
+    Database replica = createMock(Database.class);
+    expect(replica.connect()).andThrow(new SQLException("connection refused"));
+    replay(replica);
+    ReplicaSet set = set(replica);
+
+    set.probe();
+
+    assertEquals(set.countHealthy(), 0);
+    try(var scope = ReplicaSet.read()) {
+      assertSame(set.route(primary), primary);
+    }
+  }
+
+  @Test public void route_skipsAnEvictedReplica() throws Exception {
+    Database primary = createMock(Database.class);
+    Database dead = createMock(Database.class);
+    Database live = createMock(Database.class);
+    expect(dead.connect()).andThrow(new SQLException("connection refused"));
+    Connection con = createNiceMock(Connection.class);
+    PreparedStatement stmt = createNiceMock(PreparedStatement.class);
+    expect(live.connect()).andReturn(con);
+    expect(con.prepareStatement("SELECT 1")).andReturn(stmt);
+    expect(stmt.executeQuery()).andReturn(createNiceMock(ResultSet.class));
+    replay(dead, live, con, stmt);
+    ReplicaSet set = new ReplicaSet(
+        List.of(
+            new ReplicaSet.Replica("dead", dead),
+            new ReplicaSet.Replica("live", live)),
+        1_000L, 150L, WINDOW);
+
+    set.probe();
+    assertEquals(set.countHealthy(), 1);
+
+    try(var scope = ReplicaSet.read()) {
+      for(int i = 0; i < 4; i++)
+        assertSame(set.route(primary), live);
+    }
+  }
+
+  @Test public void pinned_onlyWithinTheWindow() {
+    long now = 1_700_000_000_000L;
+    assertTrue(ReplicaSet.pinned(Long.toString(now - 1_000L), now, WINDOW));
+    assertFalse(ReplicaSet.pinned(Long.toString(now - WINDOW), now, WINDOW));
+  }
+
+  @Test public void pinned_boundsAMarkerFromTheFuture() {
+    // Otherwise a forged far-future value pins a client forever.
+    long now = 1_700_000_000_000L;
+    assertTrue(ReplicaSet.pinned(Long.toString(now + 1_000L), now, WINDOW));
+    assertFalse(ReplicaSet.pinned(Long.toString(now + 86_400_000L), now, WINDOW));
+  }
+
+  @Test public void pinned_ignoresGarbage() {
+    long now = 1_700_000_000_000L;
+    assertFalse(ReplicaSet.pinned(null, now, WINDOW));
+    assertFalse(ReplicaSet.pinned("", now, WINDOW));
+    assertFalse(ReplicaSet.pinned("yesterday", now, WINDOW));
+  }
+
+  private static ReplicaSet set(Database replica) {
+    return new ReplicaSet(
+        List.of(new ReplicaSet.Replica("replica", replica)),
+        1_000L, 150L, WINDOW);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers which scripts a boot would apply, and how a script is read.
+ *
+ * <p>The ledger itself needs a server; what can go wrong without one is
+ * quieter. A splitter that eats a statement, or a checksum that moves when
+ * only a comment did, is a migration skipped or a warning on every boot --
+ * neither of which fails anything.
+ *
+ * @author Caleb L. Power
+ */
+public class SchemaMigratorTest {
+
+  @Test public void load_readsEveryShippedScriptInOrder() throws Exception {
+    List<SchemaMigrator.Script> scripts = SchemaMigrator.load(YasssCore.class, "db");
+    assertTrue(scripts.size() > 20);
+    assertEquals(scripts.get(0).name(), "000_table_user.sql");
+
+    List<String> names = new ArrayList<>();
+    for(var script : scripts) {
+      assertFalse(script.statements().isEmpty(), script.name() + " has no statements");
+      names.add(script.name());
+    }
+    List<String> sorted = new ArrayList<>(names);
+    sorted.sort(null);
+    assertEquals(names, sorted);
+    assertEquals(new HashSet<>(names).size(), names.size());
+  }
+
+  @Test public void split_dropsCommentsAndKeepsQuotedSemicolons() {
+    assertEquals(
+        SchemaMigrator.split(
+            "/* header; with a semicolon */\n"
+                + "-- a line; comment\n"
+                + "SET @x = 'a;b', @y = \"it\\\"s;\"; # trailing; comment\n"
+                + "SELECT `odd;name`, 'it''s' FROM t WHERE a--1\n"
+                + ";;\n"
+                + "/*!40101 SET NAMES utf8mb4 */"),
+        List.of(
+            "SET @x = 'a;b', @y = \"it\\\"s;\"",
+            "SELECT `odd;name`, 'it''s' FROM t WHERE a--1",
+            "/*!40101 SET NAMES utf8mb4 */"));
+  }
+
+  @Test public void parse_ignoresCommentsInTheChecksum() {
+    SchemaMigrator.Script a = SchemaMigrator.parse("x.sql", "/* old */ CREATE TABLE t (a INT)");
+    SchemaMigrator.Script b = SchemaMigrator.parse("x.sql", "-- new\nCREATE TABLE t (a INT);");
+    SchemaMigrator.Script c = SchemaMigrator.parse("x.sql", "CREATE TABLE t (a BIGINT)");
+    assertTrue(a.matches(b.checksum()));
+    assertFalse(a.matches(c.checksum()));
+  }
+
+  @Test public void pending_skipsWhatIsRecordedEvenIfItChanged() {
+    SchemaMigrator.Script first = SchemaMigrator.parse("001_a.sql", "SELECT 1");
+    SchemaMigrator.Script second = SchemaMigrator.parse("002_b.sql", "SELECT 2");
+    SchemaMigrator.Script third = SchemaMigrator.parse("003_c.sql", "SELECT 3");
+    List<SchemaMigrator.Script> scripts = List.of(first, second, third);
+
+    assertEquals(SchemaMigrator.pending(scripts, Map.of()), scripts);
+
+    Map<String, byte[]> applied = Map.of(
+        "001_a.sql", first.checksum(),
+        "002_b.sql", third.checksum(),
+        "000_gone.sql", first.checksum());
+    assertEquals(SchemaMigrator.pending(scripts, applied), List.of(third));
+    assertEquals(SchemaMigrator.altered(scripts, applied), List.of("002_b.sql"));
+  }
+
+  @Test public void substitute_fillsInTheSchemaAndPrefix() {
+    assertEquals(
+        SchemaMigrator.substitute("ALTER TABLE ${database}.${prefix}user", "app", "yasss_"),
+        "ALTER TABLE app.yasss_user");
+  }
+
+  @Test public void lockName_staysWithinMariaDBsLimit() {
+    assertEquals(SchemaMigrator.lockName("app", "yasss_"), "app.yasss_schema_migration");
+    String longName = SchemaMigrator.lockName("a".repeat(60), "yasss_");
+    assertTrue(64 >= longName.length());
+    assertNotEquals(longName, SchemaMigrator.lockName("b".repeat(60), "yasss_"));
+  }
+}
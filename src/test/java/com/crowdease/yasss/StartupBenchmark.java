@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ * Time from launching the shadow jar to its first 200 on {@code GET /v1}, with
+ * and without a CDS archive.
+ *
+ * <p>Not part of {@code gradle test}. It boots the real jar against a real
+ * database, so it needs {@code gradle shadowJar cdsClassList} first and the
+ * same flags as {@code RowIDBenchmark}:
+ *
+ * <pre>
+ * gradle benchmark -Dyasss.bench.db=127.0.0.1:3306/bench \
+ *     -Dyasss.bench.user=root -Dyasss.bench.password=bench
+ * </pre>
+ *
+ * <p>The archive is dumped here, from {@code build/libs/yasss.classlist},
+ * exactly as the Containerfile dumps it, so what is measured is what the image
+ * ships. {@code yasss.bench.starts} (five) boots of each are timed after one
+ * untimed boot, which migrates the database and warms the page cache; the
+ * median is reported, since one slow disk read is enough to spoil a mean.
+ *
+ * @author Caleb L. Power
+ */
+public class StartupBenchmark {
+
+  @Test(groups = "benchmark") public void timeToFirst200() throws Exception {
+    String location = System.getProperty("yasss.bench.db");
+    if(null == location)
+      throw new SkipException("yasss.bench.db is not set");
+    File jar = new File(System.getProperty("yasss.bench.jar", "build/libs/yasss.jar"));
+    File classList = new File(System.getProperty("yasss.bench.classlist", "build/libs/yasss.classlist"));
+    if(!jar.isFile() || 0L == classList.length())
+      throw new SkipException("run `gradle shadowJar cdsClassList` first");
+    int starts = Integer.getInteger("yasss.bench.starts", 5);
+
+    Path archive = Files.createTempFile("yasss", ".jsa");
+    try {
+      int dumped = new ProcessBuilder(
+          java(),
+          "-Xshare:dump",
+          "-XX:SharedClassListFile=" + classList.getAbsolutePath(),
+          "-XX:SharedArchiveFile=" + archive,
+          "-cp", jar.getAbsolutePath())
+          .redirectErrorStream(true)
+          .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+          .start()
+          .waitFor();
+      if(0 != dumped) throw new IllegalStateException("archive dump exited " + dumped);
+
+      List<String> cold = List.of();
+      List<String> shared = List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:on");
+      boot(jar, location, cold);
+
+      List<Long> without = new ArrayList<>();
+      List<Long> with = new ArrayList<>();
+      for(int i = 0; i < starts; i++) {
+        // Interleaved, so that drift in the machine's load lands on both.
+        without.add(boot(jar, location, cold));
+        with.add(boot(jar, location, shared));
+      }
+
+      System.out.printf(
+          "starts=%1$d%n"
+          + "no archive:   first 200 p50=%2$dms min=%3$dms%n"
+          + "CDS archive:  first 200 p50=%4$dms min=%5$dms%n",
+          starts,
+          median(without), Collections.min(without),
+          median(with), Collections.min(with));
+
+    } finally {
+      Files.deleteIfExists(archive);
+    }
+  }
+
+  private static long boot(File jar, String location, List<String> jvmArgs) throws Exception {
+    int port;
+    try(ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+
+    List<String> command = new ArrayList<>();
+    command.add(java());
+    command.addAll(jvmArgs);
+    command.addAll(
+        List.of(
+            "-jar", jar.getAbsolutePath(),
+            "--api.port", Integer.toString(port),
+            "--db.location", location,
+            "--db.username", System.getProperty("yasss.bench.user", "root"),
+            "--db.password", System.getProperty("yasss.bench.password", "")));
+
+    long launched = System.nanoTime();
+    Process process = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    try {
+      long deadline = launched + 120_000_000_000L;
+      while(200 != status("http://127.0.0.1:" + port + "/v1")) {
+        if(!process.isAlive())
+          throw new IllegalStateException("the node exited " + process.exitValue() + " during boot");
+        if(System.nanoTime() > deadline)
+          throw new IllegalStateException("no 200 from GET /v1 within two minutes");
+        Thread.sleep(10L);
+      }
+      return (System.nanoTime() - launched) / 1_000_000L;
+
+    } finally {
+      process.destroy();
+      process.waitFor();
+    }
+  }
+
+  private static int status(String url) {
+    try {
+      HttpURLConnection con = (HttpURLConnection)URI.create(url).toURL().openConnection();
+      con.setConnectTimeout(500);
+      con.setReadTimeout(5_000);
+      try {
+        return con.getResponseCode();
+      } finally {
+        con.disconnect();
+      }
+    } catch(IOException e) {
+      return -1;
+    }
+  }
+
+  private static String java() {
+    return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+  }
+
+  private static long median(List<Long> samples) {
+    List<Long> sorted = new ArrayList<>(samples);
+    Collections.sort(sorted);
+    return sorted.get(sorted.size() / 2);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ * Cheap requests against a server whose other requests are stuck on a slow
+ * dependency, on the fixed pool and then on virtual threads.
+ *
+ * <p>Not part of {@code gradle test}. Run it with {@code gradle benchmark}, on
+ * a Java 21 runtime -- on anything older there are no virtual threads to
+ * compare against, and it skips.
+ *
+ * <p>{@code /slow} sleeps for {@code yasss.bench.slowMillis} (two seconds),
+ * standing in for a Stripe or CAPTCHA call that has stopped answering;
+ * {@code yasss.bench.slow} of them (600) are sent at once, three times the
+ * fixed pool. {@code /cheap} answers at once, like {@code GET /v1}, and
+ * {@code yasss.bench.cheap} (200) of them are sent just after. On the fixed
+ * pool the cheap requests queue behind the slow ones; on virtual threads they
+ * should not notice them.
+ *
+ * @author Caleb L. Power
+ */
+public class VirtualThreadPoolBenchmark {
+
+  /** What Spark gives Jetty when nobody says otherwise. */
+  private static final int FIXED_THREADS = 200;
+
+  @Test(groups = "benchmark") public void cheapRequestsBehindASlowDependency() throws Exception {
+    ThreadFactory virtuals = VirtualThreadPool.factory("bench-");
+    if(null == virtuals)
+      throw new SkipException("Java " + Runtime.version().feature() + " has no virtual threads");
+
+    int slowMillis = Integer.getInteger("yasss.bench.slowMillis", 2_000);
+    int slow = Integer.getInteger("yasss.bench.slow", 600);
+    int cheap = Integer.getInteger("yasss.bench.cheap", 200);
+
+    Result fixed = run(new QueuedThreadPool(FIXED_THREADS, 8, 60_000), slowMillis, slow, cheap);
+    VirtualThreadPool pool = new VirtualThreadPool(virtuals, VirtualThreadPool.PLATFORM_THREADS);
+    Result virtual = run(pool, slowMillis, slow, cheap);
+
+    System.out.printf(
+        "slow=%1$d x %2$dms cheap=%3$d%n"
+        + "fixed:   cheap p50=%4$dms p99=%5$dms throughput=%6$.0f/s%n"
+        + "virtual: cheap p50=%7$dms p99=%8$dms throughput=%9$.0f/s%n",
+        slow, slowMillis, cheap,
+        fixed.p50, fixed.p99, fixed.throughput,
+        virtual.p50, virtual.p99, virtual.throughput);
+  }
+
+  private static record Result(long p50, long p99, double throughput) { }
+
+  private static Result run(QueuedThreadPool threads, int slowMillis, int slow, int cheap)
+      throws Exception {
+    Server server = new Server(threads);
+    ServerConnector connector = new ServerConnector(server);
+    connector.setPort(0);
+    server.addConnector(connector);
+    server.setHandler(
+        new AbstractHandler() {
+          @Override public void handle(String target, Request base,
+              HttpServletRequest req, HttpServletResponse res) throws IOException {
+            if("/slow".equals(target)) {
+              try {
+                Thread.sleep(slowMillis);
+              } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+            res.setStatus(200);
+            res.getWriter().write("ok");
+            base.setHandled(true);
+          }
+        });
+    if(threads instanceof VirtualThreadPool pool)
+      server.addLifeCycleListener(
+          new AbstractLifeCycle.AbstractLifeCycleListener() {
+            @Override public void lifeCycleStarted(LifeCycle event) {
+              pool.handOff();
+            }
+          });
+    server.start();
+
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      String base = "http://127.0.0.1:" + connector.getLocalPort();
+      long start = System.nanoTime();
+
+      List<CompletableFuture<?>> all = new ArrayList<>();
+      for(int i = 0; i < slow; i++)
+        all.add(get(client, base + "/slow"));
+      Thread.sleep(200L);
+
+      List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+      for(int i = 0; i < cheap; i++) {
+        long sent = System.nanoTime();
+        all.add(
+            get(client, base + "/cheap")
+                .thenRun(() -> latencies.add((System.nanoTime() - sent) / 1_000_000L)));
+      }
+
+      CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).join();
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      List<Long> sorted = new ArrayList<>(latencies);
+      Collections.sort(sorted);
+      return new Result(
+          sorted.get(sorted.size() / 2),
+          sorted.get(Math.min(sorted.size() - 1, sorted.size() * 99 / 100)),
+          (slow + cheap) / seconds);
+
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static CompletableFuture<HttpResponse<String>> get(HttpClient client, String url) {
+    return client.sendAsync(
+        HttpRequest.newBuilder(URI.create(url)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+}
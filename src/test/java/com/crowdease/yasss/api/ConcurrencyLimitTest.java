@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers how many requests an endpoint lets in, and how that number moves.
+ *
+ * @author Caleb L. Power
+ */
+public class ConcurrencyLimitTest {
+
+  private static final long MILLIS = 1_000_000L;
+
+  @Test public void parse_acceptsZeroAndRejectsTheMalformed() {
+    assertEquals(
+        ConcurrencyLimit.parse(" EventReportEndpoint=4, APIInfoEndpoint=0 "),
+        Map.of("EventReportEndpoint", 4, "APIInfoEndpoint", 0));
+    for(var spec : new String[] { "EventReportEndpoint", "=4", "A=x", "A=1=2", "A=-1" })
+      expectThrows(IllegalArgumentException.class, () -> ConcurrencyLimit.parse(spec));
+  }
+
+  @Test public void acquire_refusesAtOnceWithoutAQueue() {
+    ConcurrencyLimit limit = new ConcurrencyLimit(2, 0L, false);
+    ConcurrencyLimit.Permit first = limit.acquire();
+    assertNotNull(first);
+    assertNotNull(limit.acquire());
+    assertNull(limit.acquire());
+    assertEquals(limit.countShed(), 1L);
+
+    first.close();
+    first.close();
+    assertNotNull(limit.acquire());
+    assertNull(limit.acquire());
+  }
+
+  @Test public void acquire_waitsForATurnGivenBackInTime() throws Exception {
+    ConcurrencyLimit limit = new ConcurrencyLimit(1, 5_000L, false);
+    ConcurrencyLimit.Permit held = limit.acquire();
+
+    CompletableFuture<ConcurrencyLimit.Permit> waiter =
+        CompletableFuture.supplyAsync(limit::acquire);
+    Thread.sleep(50L);
+    held.close();
+    assertNotNull(waiter.get(5, TimeUnit.SECONDS));
+    assertEquals(limit.countShed(), 0L);
+  }
+
+  @Test public void acquire_givesUpAfterTheQueueTimeout() throws Exception {
+    ConcurrencyLimit limit = new ConcurrencyLimit(1, 50L, false);
+    limit.acquire();
+    assertNull(CompletableFuture.supplyAsync(limit::acquire).get(5, TimeUnit.SECONDS));
+    assertEquals(limit.countShed(), 1L);
+  }
+
+  @Test public void sample_backsOffOnSlowResponsesAndRecovers() {
+    ConcurrencyLimit limit = new ConcurrencyLimit(8, 0L, true);
+    long now = 1_000 * MILLIS;
+    for(int i = 0; 200 > i; i++)
+      limit.sample(10 * MILLIS, now);
+    assertEquals(limit.limit(), 8);
+
+    // One slow batch is one cut, however many responses are in it.
+    for(int i = 0; 40 > i; i++)
+      limit.sample(50 * MILLIS, now + MILLIS);
+    assertEquals(limit.limit(), 6);
+    limit.sample(50 * MILLIS, now + MILLIS + ConcurrencyLimit.COOLDOWN_MILLIS * MILLIS);
+    assertEquals(limit.limit(), 4);
+
+    for(int i = 0; 200 > i; i++)
+      limit.sample(10 * MILLIS, now + (i + 200) * MILLIS);
+    assertEquals(limit.limit(), 8);
+  }
+
+  /**
+   * The report on a large event costs fifty times what it does on a small one.
+   * Against the fastest response seen, every large one read as overload and
+   * the limit sank to one under ordinary traffic; this is that traffic.
+   */
+  @Test public void sample_holdsUpWhenRequestSizesVary() {
+    Random random = new Random(7L);
+    for(double large : new double[] { 0.05, 0.3, 0.5 }) {
+      ConcurrencyLimit limit = new ConcurrencyLimit(8, 0L, true);
+      int lowest = 8;
+      for(int i = 0; 20_000 > i; i++) {
+        long latency = random.nextDouble() < large
+            ? (200 + random.nextInt(300)) * MILLIS
+            : (5 + random.nextInt(10)) * MILLIS;
+        limit.sample(latency, (i + 1) * 10 * MILLIS);
+        lowest = Math.min(lowest, limit.limit());
+      }
+      assertTrue(6 <= lowest, "limit fell to " + lowest + " with " + large + " large");
+      assertEquals(limit.limit(), 8);
+    }
+  }
+
+  @Test public void sample_neverCutsBelowOne() {
+    ConcurrencyLimit limit = new ConcurrencyLimit(2, 0L, true);
+    limit.sample(MILLIS, 1);
+    for(int i = 1; 20 > i; i++)
+      limit.sample(100 * MILLIS, i * ConcurrencyLimit.COOLDOWN_MILLIS * MILLIS);
+    assertEquals(limit.limit(), 1);
+  }
+
+  @Test public void forEndpoint_isNullForAnEndpointWithNoCap() {
+    assertNull(ConcurrencyLimit.forEndpoint("APIInfoEndpoint"));
+  }
+}
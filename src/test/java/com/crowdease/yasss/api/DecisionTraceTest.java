@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.api;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import com.crowdease.yasss.api.DecisionTrace.Check;
+import com.crowdease.yasss.api.DecisionTrace.Decision;
+import com.crowdease.yasss.model.Event;
+import com.crowdease.yasss.model.User;
+import com.crowdease.yasss.model.User.AccessLevel;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Covers what is remembered of each authorization decision, and when it is
+ * reported.
+ *
+ * @author Caleb L. Power
+ */
+public class DecisionTraceTest {
+
+  private static User user(AccessLevel level) {
+    return new User(UUID.randomUUID(), new byte[32], null, "u@example.com", null, level);
+  }
+
+  @BeforeMethod public void reset() {
+    DecisionTrace.current().reset();
+  }
+
+  @Test public void atLeast_notesEverySubcheckInOrder() {
+    User actor = user(AccessLevel.STANDARD);
+    Event event = new Event(
+        UUID.randomUUID(), UUID.randomUUID(), "Event", "described",
+        new Timestamp(System.currentTimeMillis()), false, false, true);
+    long denied = DecisionTrace.countDecisions(Check.EVENT, false);
+
+    assertFalse(new Authorization(actor, true).atLeast(event));
+
+    List<Decision> decisions = DecisionTrace.current().decisions();
+    assertEquals(
+        decisions.stream().map(Decision::check).toList(),
+        List.of(Check.AUTHENTICATED, Check.AUTHENTICATED, Check.LEVEL, Check.EVENT));
+    Decision last = decisions.get(3);
+    assertEquals(last.actor(), actor.getID());
+    assertEquals(last.subject(), event.getID());
+    assertEquals(last.level(), AccessLevel.ADMIN);
+    assertFalse(last.verdict());
+    assertEquals(DecisionTrace.countDecisions(Check.EVENT, false), denied + 1);
+  }
+
+  @Test public void anonymousCaller_isNotedWithoutAnActor() {
+    assertFalse(new Authorization(null, false).atLeast(Authorization.IS_HUMAN));
+    Decision decision = DecisionTrace.current().decisions().get(0);
+    assertEquals(decision.check(), Check.HUMAN);
+    assertNull(decision.actor());
+    assertNull(decision.level());
+  }
+
+  @Test public void ring_keepsOnlyTheLatest() {
+    Authorization auth = new Authorization(user(AccessLevel.ADMIN), true);
+    for(int i = 0; i < DecisionTrace.CAPACITY + 10; i++)
+      auth.atLeast(Authorization.IS_HUMAN);
+    auth.atLeast(Authorization.IS_AUTHENTICATED);
+
+    DecisionTrace trace = DecisionTrace.current();
+    assertEquals(trace.count(), DecisionTrace.CAPACITY + 11);
+    List<Decision> decisions = trace.decisions();
+    assertEquals(decisions.size(), DecisionTrace.CAPACITY);
+    assertEquals(decisions.get(DecisionTrace.CAPACITY - 1).check(), Check.AUTHENTICATED);
+    assertEquals(decisions.get(0).check(), Check.HUMAN);
+  }
+
+  @Test public void finish_keepsOnlyRefusals() {
+    new Authorization(user(AccessLevel.STANDARD), true).atLeast(AccessLevel.ADMIN);
+    DecisionTrace.current().finish("AllowedEndpoint", 200);
+    assertTrue(
+        DecisionTrace.recentDenials().stream().noneMatch(d -> "AllowedEndpoint".equals(d.endpoint())));
+
+    DecisionTrace.current().finish("RefusedEndpoint", 403);
+    DecisionTrace.Denial denial = DecisionTrace.recentDenials().get(0);
+    assertEquals(denial.endpoint(), "RefusedEndpoint");
+    assertEquals(denial.status(), 403);
+    assertEquals(denial.decisions().get(1).level(), AccessLevel.ADMIN);
+    assertFalse(denial.decisions().get(1).verdict());
+  }
+}
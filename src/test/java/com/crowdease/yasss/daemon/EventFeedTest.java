@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.crowdease.yasss.model.EventDigest;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers what an event's followers are sent, and when.
+ *
+ * <p>No thread and no database: the digests come from a map, and each test
+ * drives {@link EventFeed#tick(long)} itself.
+ *
+ * @author Caleb L. Power
+ */
+public class EventFeedTest {
+
+  private static final UUID EVENT = UUID.randomUUID();
+  private static final UUID ACTIVITY = UUID.randomUUID();
+
+  private final Map<UUID, EventDigest> events = new ConcurrentHashMap<>();
+
+  private static class Sink implements EventFeed.Sink {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private boolean ready = true;
+    private boolean closed = false;
+
+    @Override public boolean isReady() {
+      return ready;
+    }
+
+    @Override public void write(byte[] frame) {
+      out.writeBytes(frame);
+    }
+
+    @Override public void flush() { }
+
+    @Override public void close() {
+      closed = true;
+    }
+
+    /** Everything written since the last call, one frame per element. */
+    private List<String> frames() {
+      String written = out.toString(StandardCharsets.UTF_8);
+      out.reset();
+      List<String> frames = new ArrayList<>();
+      for(var frame : written.split("\n\n"))
+        if(!frame.isEmpty()) frames.add(frame);
+      return frames;
+    }
+  }
+
+  /** An event with the given number of slots, each holding {@code taken} seats. */
+  private static EventDigest digest(int slots, int taken) {
+    Map<String, EventDigest.Entry> entries = new LinkedHashMap<>();
+    for(int i = 0; i < slots; i++)
+      entries.put(
+          "slot:" + i,
+          new EventDigest.Entry(
+              "slot",
+              "{\"slot\":" + i + ",\"rsvpCount\":" + taken + "}",
+              "{\"slot\":" + i + ",\"removed\":true}"));
+    return new EventDigest(entries, Set.of(ACTIVITY));
+  }
+
+  private EventFeed feed(int maxSubscribers) {
+    return new EventFeed(events::get, 5, maxSubscribers);
+  }
+
+  private static EventFeed.Subscription follow(EventFeed feed, Sink sink, String lastEventID)
+      throws Exception {
+    EventFeed.Subscription subscription = feed.subscribe(EVENT, lastEventID, sink);
+    assertNotNull(subscription);
+    subscription.start(() -> { });
+    subscription.drain();
+    return subscription;
+  }
+
+  private static String id(String frame) {
+    assertTrue(frame.startsWith("id: "), frame);
+    return frame.substring(4, frame.indexOf('\n'));
+  }
+
+  @Test public void constructor_rejectsNonPositiveSettings() {
+    expectThrows(IllegalArgumentException.class, () -> new EventFeed(events::get, 0, 1));
+    expectThrows(IllegalArgumentException.class, () -> new EventFeed(events::get, 1, 0));
+  }
+
+  @Test public void subscribe_sendsRetryThenTheWholeSheet() throws Exception {
+    events.put(EVENT, digest(2, 0));
+    Sink sink = new Sink();
+    follow(feed(10), sink, null);
+
+    List<String> frames = sink.frames();
+    assertEquals(frames.size(), 2);
+    assertEquals(frames.get(0), "retry: " + EventFeed.RETRY);
+    assertTrue(frames.get(1).contains("\nevent: sync\n"), frames.get(1));
+    assertTrue(id(frames.get(1)).endsWith("-0"));
+  }
+
+  @Test public void tick_sendsOnlyWhatChanged() throws Exception {
+    events.put(EVENT, digest(2, 0));
+    EventFeed feed = feed(10);
+    Sink sink = new Sink();
+    follow(feed, sink, null);
+    sink.frames();
+
+    Map<String, EventDigest.Entry> entries = new LinkedHashMap<>(digest(2, 0).getEntries());
+    entries.put("slot:1", digest(2, 1).getEntries().get("slot:1"));
+    events.put(EVENT, new EventDigest(entries, Set.of(ACTIVITY)));
+    feed.changed(null, ACTIVITY);
+    feed.tick(System.currentTimeMillis());
+
+    List<String> frames = sink.frames();
+    frames.remove(":");
+    assertEquals(frames.size(), 1);
+    assertTrue(frames.get(0).contains("\nevent: slot\n"), frames.get(0));
+    assertTrue(frames.get(0).endsWith("data: {\"slot\":1,\"rsvpCount\":1}"), frames.get(0));
+    assertTrue(id(frames.get(0)).endsWith("-1"));
+  }
+
+  @Test public void slowFollower_isSentTheLatestStateOnce() throws Exception {
+    events.put(EVENT, digest(1, 0));
+    EventFeed feed = feed(10);
+    Sink sink = new Sink();
+    EventFeed.Subscription subscription = follow(feed, sink, null);
+    sink.frames();
+
+    sink.ready = false;
+    long now = System.currentTimeMillis();
+    for(int taken = 1; taken <= 3; taken++) {
+      events.put(EVENT, digest(1, taken));
+      feed.changed(EVENT, null);
+      feed.tick(now);
+    }
+    sink.ready = true;
+    subscription.drain();
+
+    List<String> frames = sink.frames();
+    frames.remove(":");
+    assertEquals(frames.size(), 1);
+    assertTrue(frames.get(0).endsWith("\"rsvpCount\":3}"), frames.get(0));
+  }
+
+  @Test public void slowFollower_pastTheBacklogIsSentTheSheetInstead() throws Exception {
+    events.put(EVENT, digest(EventFeed.BACKLOG + 10, 0));
+    EventFeed feed = feed(10);
+    Sink sink = new Sink();
+    EventFeed.Subscription subscription = follow(feed, sink, null);
+    sink.frames();
+
+    sink.ready = false;
+    events.put(EVENT, digest(EventFeed.BACKLOG + 10, 1));
+    feed.tick(System.currentTimeMillis());
+    sink.ready = true;
+    subscription.drain();
+
+    List<String> frames = sink.frames();
+    assertEquals(frames.size(), 1);
+    assertTrue(frames.get(0).contains("\nevent: sync\n"), frames.get(0));
+    assertTrue(id(frames.get(0)).endsWith("-" + (EventFeed.BACKLOG + 10)));
+    assertTrue(frames.get(0).contains("\"rsvpCount\":1"));
+  }
+
+  @Test public void resume_sendsOnlyWhatWasMissed() throws Exception {
+    events.put(EVENT, digest(2, 0));
+    EventFeed feed = feed(10);
+    Sink first = new Sink();
+    follow(feed, first, null);
+    String seen = id(first.frames().get(1));
+
+    events.put(EVENT, digest(2, 1));
+    feed.tick(System.currentTimeMillis());
+
+    Sink resumed = new Sink();
+    follow(feed, resumed, seen);
+    List<String> frames = resumed.frames();
+    assertEquals(frames.size(), 3);
+    assertTrue(frames.get(1).contains("\nevent: slot\n"), frames.get(1));
+    assertTrue(frames.get(2).contains("\nevent: slot\n"), frames.get(2));
+
+    // Already current: nothing but the retry.
+    Sink current = new Sink();
+    follow(feed, current, id(frames.get(2)));
+    assertEquals(current.frames().size(), 1);
+  }
+
+  @Test public void resume_fromElsewhereIsSentTheWholeSheet() throws Exception {
+    events.put(EVENT, digest(2, 0));
+    EventFeed feed = feed(10);
+    for(var lastEventID : List.of("0123abcd-0", "nonsense", "-", "0123abcd-x")) {
+      Sink sink = new Sink();
+      follow(feed, sink, lastEventID);
+      assertTrue(sink.frames().get(1).contains("\nevent: sync\n"), lastEventID);
+    }
+  }
+
+  @Test public void goneEvent_saysSoAndEnds() throws Exception {
+    events.put(EVENT, digest(1, 0));
+    EventFeed feed = feed(10);
+    Sink sink = new Sink();
+    follow(feed, sink, null);
+    sink.frames();
+
+    events.remove(EVENT);
+    feed.tick(System.currentTimeMillis());
+
+    assertEquals(sink.frames(), List.of("event: gone\ndata: {}"));
+    assertTrue(sink.closed);
+    assertEquals(feed.countSubscribers(), 0);
+    assertNull(feed.subscribe(EVENT, null, new Sink()));
+  }
+
+  /**
+   * A digest that cannot be read or diffed drops that event's followers, who
+   * reconnect, and leaves every other event's alone.
+   */
+  @Test public void throwingLoader_dropsOnlyThatEvent() throws Exception {
+    UUID broken = UUID.randomUUID();
+    events.put(EVENT, digest(1, 0));
+    events.put(broken, digest(1, 0));
+    boolean[] fail = { false };
+    EventFeed feed = new EventFeed(
+        event -> {
+          if(fail[0] && broken.equals(event)) throw new IllegalStateException("bad row");
+          return events.get(event);
+        },
+        5,
+        10);
+
+    Sink healthy = new Sink();
+    follow(feed, healthy, null);
+    healthy.frames();
+    Sink doomed = new Sink();
+    EventFeed.Subscription subscription = feed.subscribe(broken, null, doomed);
+    subscription.start(() -> { });
+    subscription.drain();
+
+    fail[0] = true;
+    events.put(EVENT, digest(1, 1));
+    feed.changed(EVENT, null);
+    feed.changed(broken, null);
+    feed.tick(System.currentTimeMillis());
+
+    assertTrue(doomed.closed);
+    assertTrue(healthy.frames().stream().anyMatch(f -> f.endsWith("\"rsvpCount\":1}")));
+    assertEquals(feed.countSubscribers(), 1);
+  }
+
+  /** A servlet stream that has ended throws IllegalStateException, not IOException. */
+  @Test public void throwingSink_losesOnlyThatFollower() throws Exception {
+    events.put(EVENT, digest(1, 0));
+    EventFeed feed = feed(10);
+    Sink healthy = new Sink();
+    follow(feed, healthy, null);
+    healthy.frames();
+    Sink broken = new Sink() {
+      @Override public boolean isReady() {
+        throw new IllegalStateException("response already completed");
+      }
+    };
+    EventFeed.Subscription subscription = feed.subscribe(EVENT, null, broken);
+    subscription.start(() -> { });
+
+    long now = System.currentTimeMillis();
+    feed.tick(now);
+    feed.tick(now + EventFeed.HEARTBEAT);
+
+    assertEquals(feed.countSubscribers(), 1);
+    assertTrue(healthy.frames().contains(":"));
+  }
+
+  @Test public void subscribe_refusesPastTheCap() throws Exception {
+    events.put(EVENT, digest(1, 0));
+    EventFeed feed = feed(1);
+    EventFeed.Subscription subscription = follow(feed, new Sink(), null);
+
+    assertNull(feed.subscribe(EVENT, null, new Sink()));
+    assertEquals(feed.countSubscribers(), 1);
+
+    subscription.close();
+    subscription.close();
+    assertEquals(feed.countSubscribers(), 0);
+    assertNotNull(feed.subscribe(EVENT, null, new Sink()));
+  }
+}
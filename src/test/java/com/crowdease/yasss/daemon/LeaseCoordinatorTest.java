@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers when a leader stops believing it leads.
+ *
+ * <p>The lease itself is arbitrated by the database and is not reachable from
+ * here. What is, and what matters more, is the local half: a leader that cannot
+ * renew has to step down while its claim is still certainly valid, or for a
+ * moment two nodes both rotate signers and both sweep reminders -- which is the
+ * very thing the lease exists to prevent.
+ *
+ * @author Caleb L. Power
+ */
+public class LeaseCoordinatorTest {
+
+  private static final long TTL = 30_000L;
+
+  @Test public void aFreshRenewalLeads() {
+    assertTrue(LeaseCoordinator.leading(1_000L, 1_000L, TTL));
+  }
+
+  @Test public void oneMissedRenewalStillLeads() {
+    // Renewal runs every third of the TTL, so a single failure is routine --
+    // a slow query, a pool hiccup -- and must not bounce leadership around.
+    assertTrue(LeaseCoordinator.leading(1_000L, 1_000L + TTL / 3 + 500L, TTL));
+  }
+
+  @Test public void stepsDownBeforeTheLeaseCouldLapse() {
+    // The last third is margin for clock skew between nodes. Stepping down at
+    // expiry rather than before it would leave no margin at all.
+    assertFalse(LeaseCoordinator.leading(1_000L, 1_000L + TTL * 2 / 3, TTL));
+    assertFalse(LeaseCoordinator.leading(1_000L, 1_000L + TTL, TTL));
+  }
+
+  @Test public void neverRenewedNeverLeads() {
+    assertFalse(LeaseCoordinator.leading(0L, 1_000L, TTL));
+  }
+
+  @Test public void constructor_rejectsATTLTooShortToRenewWithin() {
+    expectThrows(IllegalArgumentException.class, () -> new LeaseCoordinator(2));
+    new LeaseCoordinator(30);
+  }
+}
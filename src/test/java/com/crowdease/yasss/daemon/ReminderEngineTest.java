@@ -7,12 +7,18 @@
  */
 package com.crowdease.yasss.daemon;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.expectThrows;
 
+import java.util.UUID;
+
+import com.crowdease.yasss.model.Volunteer;
+
 import org.testng.annotations.Test;
 
 /**
- * Covers the reminder sweep's configuration guards.
+ * Covers the reminder sweep's configuration guards and partitioning.
  *
  * <p>The window arithmetic itself now lives in SQL, because an event may
  * override the global lead time and the bound is therefore per row rather than
@@ -38,5 +44,39 @@ public class ReminderEngineTest {
 
   @Test public void constructor_acceptsTheShippedDefaults() {
     new ReminderEngine(5, 1440, 200, true);
+    new ReminderEngine(5, 1440, 200, true, 8, 2);
+  }
+
+  @Test public void constructor_rejectsIdleOrMissingWorkers() {
+    expectThrows(
+        IllegalArgumentException.class,
+        () -> new ReminderEngine(5, 1440, 200, true, 0, 1));
+    expectThrows(
+        IllegalArgumentException.class,
+        () -> new ReminderEngine(5, 1440, 200, true, 8, 0));
+    // A worker beyond the partition count could never hold a lease.
+    expectThrows(
+        IllegalArgumentException.class,
+        () -> new ReminderEngine(5, 1440, 200, true, 2, 3));
+  }
+
+  @Test public void partitionOf_matchesMariaDB() {
+    // SELECT CRC32(UNHEX('00000000000000000000000000000000')) = 3971697493
+    UUID zero = new UUID(0L, 0L);
+    assertEquals(Volunteer.partitionOf(zero, 1_000_000), 3971697493L % 1_000_000);
+  }
+
+  @Test public void partitionOf_spreadsEvents() {
+    // Not a distribution test, just the guard against a hash that collapses
+    // everything into one partition and quietly serializes every worker.
+    int partitions = 8;
+    int[] counts = new int[partitions];
+    for(int i = 0; i < 800; i++) {
+      int p = Volunteer.partitionOf(UUID.randomUUID(), partitions);
+      assertTrue(0 <= p && p < partitions);
+      counts[p]++;
+    }
+    for(int count : counts)
+      assertTrue(0 < count);
   }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+import com.axonibyte.lib.auth.Credentialed;
+import com.crowdease.yasss.model.ConcurrentLinkedEvictionDeque;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers how a node adopts signers written by another.
+ *
+ * <p>Only ids matter to the reconcile, so the signers here have no keys. What
+ * is being checked is order -- the newest stored signer has to end up last,
+ * because that is the one {@code sign()} reaches for -- and that a reset on one
+ * node actually removes the old signers from every other.
+ *
+ * @author Caleb L. Power
+ */
+public class SignerSyncTest {
+
+  private static Credentialed signer() {
+    return new Credentialed(UUID.randomUUID(), null, null, null);
+  }
+
+  private static Deque<Credentialed> held(Credentialed... signers) {
+    Deque<Credentialed> deque = new ConcurrentLinkedEvictionDeque<>(16);
+    for(var signer : signers) deque.add(signer);
+    return deque;
+  }
+
+  @Test public void aRotationElsewhereBecomesTheSigner() {
+    Credentialed a = signer(), b = signer(), c = signer();
+    Deque<Credentialed> held = held(a, b);
+
+    assertTrue(TicketEngine.reconcile(held, List.of(a, b, c)));
+
+    assertEquals(held.size(), 3);
+    assertEquals(held.peekLast().getID(), c.getID());
+  }
+
+  @Test public void aResetElsewhereDropsEverythingItWiped() {
+    Credentialed a = signer(), b = signer(), fresh = signer();
+    Deque<Credentialed> held = held(a, b);
+
+    assertTrue(TicketEngine.reconcile(held, List.of(fresh)));
+
+    assertEquals(held.size(), 1);
+    assertEquals(held.peekLast().getID(), fresh.getID());
+  }
+
+  @Test public void anEmptyTableIsNotAdopted() {
+    // A wipe with nothing written since. Adopting it would leave this node
+    // unable to issue any session until something is.
+    Credentialed a = signer();
+    Deque<Credentialed> held = held(a);
+
+    assertFalse(TicketEngine.reconcile(held, List.of()));
+
+    assertEquals(held.size(), 1);
+  }
+
+  @Test public void nothingNewIsNoChange() {
+    Credentialed a = signer(), b = signer();
+    Deque<Credentialed> held = held(a, b);
+
+    assertFalse(TicketEngine.reconcile(held, List.of(a, b)));
+    assertEquals(held.peekLast().getID(), b.getID());
+  }
+}
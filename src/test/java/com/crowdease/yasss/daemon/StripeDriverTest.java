@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.daemon;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.List;
+
+import com.stripe.Stripe;
+import com.stripe.model.Price;
+import com.stripe.model.checkout.Session;
+import com.stripe.param.checkout.SessionCreateParams;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Covers that the SDK has its key before any call reaches it.
+ *
+ * <p>The key is handed over lazily, so the first call after a restart is the
+ * one at risk -- and on a node that serves payment returns but never starts a
+ * checkout, that first call is a fulfilment.
+ *
+ * @author Caleb L. Power
+ */
+public class StripeDriverTest {
+
+  private static final String KEY = "sk_test_fulfilment";
+
+  @AfterMethod public void forgetKey() {
+    Stripe.apiKey = null;
+  }
+
+  @Test public void fulfillCheckout_callsStripeWithTheKeySet() throws Exception {
+    Stripe.apiKey = null;
+    String[] seen = new String[1];
+    StripeDriver driver = new StripeDriver(KEY, "publish", new StripeDriver.Gateway() {
+
+      @Override public List<Price> prices(String lookupKey) {
+        throw new AssertionError("not a checkout");
+      }
+
+      @Override public Session createSession(SessionCreateParams params) {
+        throw new AssertionError("not a checkout");
+      }
+
+      @Override public Session retrieveSession(String sessionID) {
+        seen[0] = Stripe.apiKey;
+        Session session = new Session();
+        session.setPaymentStatus("unpaid"); // stops short of the database
+        return session;
+      }
+    });
+
+    assertFalse(driver.fulfillCheckout("cs_test_1"));
+    assertEquals(seen[0], KEY);
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.event.Level;
+import org.testng.annotations.Test;
+
+/**
+ * Covers how lines are rendered, and what happens when the writer falls
+ * behind.
+ *
+ * @author Caleb L. Power
+ */
+public class AsyncLogTest {
+
+  private static Properties settings(String... pairs) {
+    Properties settings = new Properties();
+    for(int i = 0; i < pairs.length; i += 2)
+      settings.setProperty(AsyncLog.PREFIX + pairs[i], pairs[i + 1]);
+    return settings;
+  }
+
+  private static AsyncLog.Entry entry(Level level, String message) {
+    return new AsyncLog.Entry(0L, level, "http-1", "com.example.Thing", message, null, null);
+  }
+
+  @Test public void render_writesOneJSONObjectPerLine() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    AsyncLog log = new AsyncLog(settings(), new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+    StringBuilder sb = new StringBuilder();
+    log.render(
+        new AsyncLog.Entry(
+            1_700_000_000_123L, Level.WARN, "http-1", "com.example.Thing",
+            "said \"hi\"\nthen\u0001left", "5f2c", null),
+        sb);
+    assertEquals(
+        sb.toString(),
+        "{\"time\":\"2023-11-14T22:13:20.123Z\",\"level\":\"WARN\",\"thread\":\"http-1\","
+        + "\"logger\":\"com.example.Thing\",\"request\":\"5f2c\","
+        + "\"message\":\"said \\\"hi\\\"\\nthen\\u0001left\"}\n");
+
+    sb.setLength(0);
+    log.render(entry(Level.INFO, "plain"), sb);
+    assertFalse(sb.toString().contains("\"request\""), sb.toString());
+  }
+
+  @Test public void render_canWriteTheOldTextLayout() {
+    AsyncLog log = new AsyncLog(settings("format", "text"), new PrintStream(new ByteArrayOutputStream()));
+    StringBuilder sb = new StringBuilder();
+    log.render(entry(Level.ERROR, "broke"), sb);
+    assertTrue(sb.toString().endsWith(" [http-1] [ERROR] com.example.Thing - broke\n"), sb.toString());
+  }
+
+  @Test public void threshold_takesTheLongestMatchingPrefix() {
+    AsyncLog log = new AsyncLog(
+        settings("level", "warn", "level.com.example", "debug", "level.com.example.Noisy", "off"),
+        new PrintStream(new ByteArrayOutputStream()));
+    assertEquals(log.threshold("org.other.Thing"), Level.WARN.toInt());
+    assertEquals(log.threshold("com.example.Thing"), Level.DEBUG.toInt());
+    assertEquals(log.threshold("com.example.Noisy"), Integer.MAX_VALUE);
+  }
+
+  @Test public void append_writesInOrder() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    AsyncLog log = new AsyncLog(settings("format", "text"), new PrintStream(bytes, true, StandardCharsets.UTF_8));
+    for(int i = 0; i < 1_000; i++)
+      assertTrue(log.append(entry(Level.INFO, "line " + i)));
+    assertTrue(log.flush(5_000L));
+
+    String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(lines.length, 1_000);
+    assertTrue(lines[999].endsWith(" - line 999"), lines[999]);
+  }
+
+  @Test public void fullRing_dropsInfoButWaitsWithWarn() throws Exception {
+    CountDownLatch stuck = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    OutputStream stalled = new OutputStream() {
+      @Override public void write(int b) {
+        stuck.countDown();
+        try {
+          release.await();
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    AsyncLog log = new AsyncLog(
+        settings("bufferSize", "2", "batchSize", "1"), new PrintStream(stalled));
+
+    // The writer takes the first and sticks writing it; two more fill the ring.
+    assertTrue(log.append(entry(Level.INFO, "first")));
+    assertTrue(stuck.await(5, TimeUnit.SECONDS));
+    assertTrue(log.append(entry(Level.INFO, "second")));
+    assertTrue(log.append(entry(Level.INFO, "third")));
+
+    assertFalse(log.append(entry(Level.INFO, "dropped")));
+    CompletableFuture<Boolean> warning =
+        CompletableFuture.supplyAsync(() -> log.append(entry(Level.WARN, "kept")));
+    try {
+      warning.get(100, TimeUnit.MILLISECONDS);
+      throw new AssertionError("a warning should wait for room");
+    } catch(TimeoutException e) { }
+
+    release.countDown();
+    assertTrue(warning.get(5, TimeUnit.SECONDS));
+    assertTrue(log.flush(5_000L));
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers the queue between the threads that log and the one that writes.
+ *
+ * @author Caleb L. Power
+ */
+public class LogRingTest {
+
+  @Test public void constructor_roundsUpToAPowerOfTwo() {
+    assertEquals(new LogRing<>(1).capacity(), 2);
+    assertEquals(new LogRing<>(8).capacity(), 8);
+    assertEquals(new LogRing<>(9).capacity(), 16);
+    expectThrows(IllegalArgumentException.class, () -> new LogRing<>(0));
+  }
+
+  @Test public void offer_refusesWhenFullAndPollKeepsOrderAcrossLaps() {
+    LogRing<Integer> ring = new LogRing<>(4);
+    assertTrue(ring.isEmpty());
+    for(int lap = 0; lap < 3; lap++) {
+      for(int i = 0; i < 4; i++)
+        assertTrue(ring.offer(lap * 4 + i));
+      assertFalse(ring.offer(-1));
+      for(int i = 0; i < 4; i++)
+        assertEquals(ring.poll(), Integer.valueOf(lap * 4 + i));
+      assertNull(ring.poll());
+    }
+  }
+
+  @Test public void offer_fromManyThreadsDeliversEachItemOnce() throws Exception {
+    int producers = 4;
+    int each = 50_000;
+    LogRing<Integer> ring = new LogRing<>(64);
+
+    CompletableFuture<?>[] running = new CompletableFuture<?>[producers];
+    for(int p = 0; p < producers; p++) {
+      final int base = p * each;
+      running[p] = CompletableFuture.runAsync(() -> {
+        for(int i = 0; i < each; i++)
+          while(!ring.offer(base + i))
+            Thread.onSpinWait();
+      });
+    }
+
+    BitSet seen = new BitSet(producers * each);
+    int taken = 0;
+    while(producers * each > taken) {
+      Integer item = ring.poll();
+      if(null == item) {
+        Thread.onSpinWait();
+        continue;
+      }
+      assertFalse(seen.get(item), "delivered twice: " + item);
+      seen.set(item);
+      taken++;
+    }
+    CompletableFuture.allOf(running).join();
+    assertTrue(ring.isEmpty());
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.log;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers that a request's ID stays on the thread that is serving it, and is
+ * not carried off by a thread that thread happens to start.
+ *
+ * @author Caleb L. Power
+ */
+public class ThreadMDCAdapterTest {
+
+  @Test public void childThread_doesNotInheritTheRequest() throws Exception {
+    ThreadMDCAdapter mdc = new ThreadMDCAdapter();
+    mdc.put(AsyncLog.REQUEST_KEY, "5f2c");
+
+    AtomicReference<String> seen = new AtomicReference<>("unset");
+    Thread child = new Thread(() -> seen.set(mdc.get(AsyncLog.REQUEST_KEY)));
+    child.start();
+    child.join();
+
+    assertNull(seen.get());
+    assertEquals(mdc.get(AsyncLog.REQUEST_KEY), "5f2c");
+  }
+
+  @Test public void contextMap_isACopy() {
+    ThreadMDCAdapter mdc = new ThreadMDCAdapter();
+    assertNull(mdc.getCopyOfContextMap());
+
+    mdc.setContextMap(Map.of(AsyncLog.REQUEST_KEY, "5f2c"));
+    Map<String, String> copy = mdc.getCopyOfContextMap();
+    mdc.put(AsyncLog.REQUEST_KEY, "9a01");
+    assertEquals(copy, Map.of(AsyncLog.REQUEST_KEY, "5f2c"));
+
+    mdc.clear();
+    assertNull(mdc.get(AsyncLog.REQUEST_KEY));
+  }
+
+  @Test public void deques_popInReverse() {
+    ThreadMDCAdapter mdc = new ThreadMDCAdapter();
+    mdc.pushByKey("k", "a");
+    mdc.pushByKey("k", "b");
+    assertEquals(mdc.popByKey("k"), "b");
+    assertEquals(mdc.popByKey("k"), "a");
+    assertNull(mdc.popByKey("k"));
+    assertNull(mdc.popByKey("other"));
+  }
+}
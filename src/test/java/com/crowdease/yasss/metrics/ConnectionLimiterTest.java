@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers the bound on how many threads hold database connections at once.
+ *
+ * @author Caleb L. Power
+ */
+public class ConnectionLimiterTest {
+
+  @Test public void constructor_rejectsNonPositiveSettings() {
+    expectThrows(IllegalArgumentException.class, () -> new ConnectionLimiter(0, 1000L));
+    expectThrows(IllegalArgumentException.class, () -> new ConnectionLimiter(1, 0L));
+  }
+
+  @Test public void acquire_letsAThreadThatHoldsATurnOpenMore() throws Exception {
+    // The deadlock this guards against: a transaction calling a finder, with
+    // every turn held by threads doing the same.
+    ConnectionLimiter limiter = new ConnectionLimiter(1, 50L);
+    ConnectionLimiter.Hold outer = limiter.acquire();
+    ConnectionLimiter.Hold inner = limiter.acquire();
+    assertEquals(limiter.available(), 0);
+
+    limiter.release(inner);
+    assertEquals(limiter.available(), 0);
+    limiter.release(outer);
+    assertEquals(limiter.available(), 1);
+  }
+
+  @Test public void acquire_givesUpAfterTheTimeout() throws Exception {
+    ConnectionLimiter limiter = new ConnectionLimiter(1, 50L);
+    ConnectionLimiter.Hold held = limiter.acquire();
+
+    CompletableFuture<Throwable> other = CompletableFuture.supplyAsync(() -> {
+      try {
+        limiter.acquire();
+        return null;
+      } catch(Exception e) {
+        return e;
+      }
+    });
+    assertTrue(other.get(5, TimeUnit.SECONDS) instanceof SQLTransientConnectionException);
+
+    limiter.release(held);
+    assertEquals(limiter.available(), 1);
+  }
+
+  @Test public void release_fromAnotherThreadGivesTheTurnBack() throws Exception {
+    // A connection closed somewhere other than where it was opened still
+    // hands back its opener's turn, and leaves the opener free to take another.
+    ConnectionLimiter limiter = new ConnectionLimiter(1, 50L);
+    ConnectionLimiter.Hold held = limiter.acquire();
+    CompletableFuture.runAsync(() -> limiter.release(held)).get(5, TimeUnit.SECONDS);
+    assertEquals(limiter.available(), 1);
+
+    limiter.release(limiter.acquire());
+    assertEquals(limiter.available(), 1);
+  }
+}
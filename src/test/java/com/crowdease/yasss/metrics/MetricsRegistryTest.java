@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers the exposition format and the registration rules.
+ *
+ * <p>The format is the contract here. Prometheus rejects a whole scrape over
+ * one malformed line, so a label value with a quote in it -- a route pattern,
+ * an exception name -- would not cost one series, it would cost all of them,
+ * silently, until somebody noticed the dashboards had gone flat.
+ *
+ * @author Caleb L. Power
+ */
+public class MetricsRegistryTest {
+
+  @Test public void counter_isSharedBetweenIdenticalRegistrations() {
+    // Two Mode variants of one endpoint class must share a series, not fail.
+    MetricsRegistry registry = new MetricsRegistry();
+    Counter a = registry.counter("x_total", "x", "k", "v");
+    Counter b = registry.counter("x_total", "x", "k", "v");
+    assertSame(a, b);
+  }
+
+  @Test public void register_refusesATypeChange() {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("x_total", "x");
+    expectThrows(
+        IllegalArgumentException.class,
+        () -> registry.gauge("x_total", "x", () -> 1.0));
+  }
+
+  @Test public void write_rendersCountersAndGauges() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("x_total", "Things.", "k", "v").add(3);
+    registry.gauge("y", "Level.", () -> 0.5);
+
+    assertEquals(
+        scrape(registry),
+        "# HELP x_total Things.\n"
+            + "# TYPE x_total counter\n"
+            + "x_total{k=\"v\"} 3\n"
+            + "# HELP y Level.\n"
+            + "# TYPE y gauge\n"
+            + "y 0.5\n");
+  }
+
+  @Test public void write_escapesLabelValues() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("x_total", "x", "k", "a\"b\\c\nd").inc();
+    assertTrue(scrape(registry).contains("x_total{k=\"a\\\"b\\\\c\\nd\"} 1\n"));
+  }
+
+  @Test public void histogram_bucketsInclusivelyAndCumulatively() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    Histogram h = registry.histogram("h_seconds", "h", new long[] { 10L, 100L }, 0.001);
+    h.observe(10L);  // on the bound: first bucket
+    h.observe(11L);
+    h.observe(500L); // beyond every bound: +Inf only
+
+    String out = scrape(registry);
+    assertTrue(out.contains("h_seconds_bucket{le=\"0.01\"} 1\n"), out);
+    assertTrue(out.contains("h_seconds_bucket{le=\"0.1\"} 2\n"), out);
+    assertTrue(out.contains("h_seconds_bucket{le=\"+Inf\"} 3\n"), out);
+    assertTrue(out.contains("h_seconds_sum 0.521\n"), out);
+    assertTrue(out.contains("h_seconds_count 3\n"), out);
+  }
+
+  @Test public void sampled_isReplacedByTheNewestOwner() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.gauge("g", "g", () -> 1.0);
+    registry.gauge("g", "g", () -> 2.0);
+    assertTrue(scrape(registry).contains("g 2\n"));
+  }
+
+  @Test public void endpoint_endWithoutBeginRecordsNothing() throws Exception {
+    // Error paths call end() without knowing whether the normal path did.
+    EndpointMetrics metrics = new EndpointMetrics("ProbeEndpoint", "/probe");
+    EndpointMetrics.begin();
+    metrics.end(200);
+    metrics.end(500);
+
+    String out = scrape(Metrics.REGISTRY);
+    assertTrue(out.contains(
+        "yasss_http_responses_total{endpoint=\"ProbeEndpoint\",route=\"/probe\",status=\"2xx\"} 1\n"));
+    assertTrue(out.contains(
+        "yasss_http_responses_total{endpoint=\"ProbeEndpoint\",route=\"/probe\",status=\"5xx\"} 0\n"));
+  }
+
+  private static String scrape(MetricsRegistry registry) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    registry.write(sb);
+    return sb.toString();
+  }
+}
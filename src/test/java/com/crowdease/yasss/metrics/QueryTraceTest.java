@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.metrics;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import java.sql.Connection;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers statement tracing and the budgets it is judged against.
+ *
+ * <p>The trace is what every other budget test leans on: a model test asserts
+ * "at most N statements" through {@link QueryTrace#capture}, so if the trace
+ * miscounted, those tests would pass against exactly the regressions they are
+ * there to catch.
+ *
+ * @author Caleb L. Power
+ */
+public class QueryTraceTest {
+
+  @Test public void capture_countsEveryPreparedStatement() throws Exception {
+    QueryTrace trace = QueryTrace.capture(() -> {
+      for(int i = 0; i < 3; i++) {
+        Connection con = QueryTrace.wrap(createNiceMock(Connection.class));
+        con.prepareStatement("SELECT 1");
+        con.prepareStatement("SELECT 2");
+        con.close();
+      }
+    });
+
+    assertEquals(trace.count(), 6);
+    assertEquals(trace.sql(0), "SELECT 1");
+    assertEquals(trace.sql(5), "SELECT 2");
+    assertEquals(QueryTrace.countSoFar(), 0);
+  }
+
+  @Test public void capture_countsAnUnclosedConnectionsStatements() throws Exception {
+    // A leaked connection is a bug, but its statements still ran.
+    QueryTrace trace = QueryTrace.capture(
+        () -> QueryTrace.wrap(createNiceMock(Connection.class)).prepareStatement("SELECT 1"));
+    assertEquals(trace.count(), 1);
+    assertEquals(trace.sql(0), "SELECT 1");
+  }
+
+  @Test public void capture_timesEachStatementToTheNext() throws Exception {
+    QueryTrace trace = QueryTrace.capture(() -> {
+      Connection con = QueryTrace.wrap(createNiceMock(Connection.class));
+      con.prepareStatement("SELECT 1");
+      Thread.sleep(5L);
+      con.close();
+    });
+    assertTrue(5_000_000L <= trace.nanos(0));
+    assertTrue(trace.nanos(0) <= trace.heldNanos());
+  }
+
+  @Test public void repeats_findsTheStatementRunPerRow() throws Exception {
+    QueryTrace trace = QueryTrace.capture(() -> {
+      Connection con = QueryTrace.wrap(createNiceMock(Connection.class));
+      con.prepareStatement("SELECT * FROM event WHERE id = ?");
+      for(int i = 0; i < 12; i++)
+        con.prepareStatement("SELECT * FROM rsvp WHERE slot IN (" + "?, ".repeat(i) + "?)");
+      con.close();
+    });
+
+    Map<String, Integer> repeats = trace.repeats(10);
+    assertEquals(repeats.size(), 1);
+    assertEquals(repeats.get("SELECT * FROM rsvp WHERE slot IN (?...)"), Integer.valueOf(12));
+    assertTrue(trace.repeats(13).isEmpty());
+  }
+
+  @Test public void shape_collapsesWhitespaceAndPlaceholderLists() {
+    assertEquals(
+        QueryTrace.shape("  SELECT a\n  FROM b\tWHERE c IN (?,?,  ?) AND d = ?  "),
+        "SELECT a FROM b WHERE c IN (?...) AND d = ?");
+  }
+
+  @Test public void parse_readsPerEndpointBudgets() {
+    Map<String, Integer> budgets = QueryBudget.parse(" EventReportEndpoint=200 , ListEventsEndpoint = 60");
+    assertEquals(budgets.get("EventReportEndpoint"), Integer.valueOf(200));
+    assertEquals(budgets.get("ListEventsEndpoint"), Integer.valueOf(60));
+    assertTrue(QueryBudget.parse(null).isEmpty());
+    assertTrue(QueryBudget.parse(" ").isEmpty());
+  }
+
+  @Test public void parse_refusesMalformedBudgets() {
+    expectThrows(IllegalArgumentException.class, () -> QueryBudget.parse("EventReportEndpoint"));
+    expectThrows(IllegalArgumentException.class, () -> QueryBudget.parse("=5"));
+    expectThrows(IllegalArgumentException.class, () -> QueryBudget.parse("A=five"));
+    expectThrows(IllegalArgumentException.class, () -> QueryBudget.parse("A=0"));
+  }
+
+  @Test public void of_fallsBackToTheDefaultBudget() {
+    try {
+      QueryBudget.configure(25, "EventReportEndpoint=200", 5);
+      assertEquals(QueryBudget.of("EventReportEndpoint"), 200);
+      assertEquals(QueryBudget.of("RetrieveEventEndpoint"), 25);
+      assertEquals(QueryBudget.repeatThreshold(), 5);
+    } finally {
+      QueryBudget.configure(
+          QueryBudget.DEFAULT_BUDGET, null, QueryBudget.DEFAULT_REPEAT_THRESHOLD);
+    }
+  }
+}
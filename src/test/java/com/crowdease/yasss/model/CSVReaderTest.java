@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.expectThrows;
+
+import java.io.StringReader;
+import java.util.List;
+
+import com.crowdease.yasss.model.CSVReader.MalformedCSVException;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers reading what spreadsheets actually export.
+ *
+ * @author Caleb L. Power
+ */
+public class CSVReaderTest {
+
+  private static CSVReader csv(String text) {
+    return new CSVReader(new StringReader(text));
+  }
+
+  @Test public void next_splitsPlainRecords() throws Exception {
+    CSVReader csv = csv("name,shirt\r\nAda,M\nGrace,L");
+    assertEquals(csv.next(), List.of("name", "shirt"));
+    assertEquals(csv.next(), List.of("Ada", "M"));
+    assertEquals(csv.next(), List.of("Grace", "L"));
+    assertNull(csv.next());
+  }
+
+  @Test public void next_readsQuotedFields() throws Exception {
+    CSVReader csv = csv("\"Hopper, Grace\",\"says \"\"hi\"\"\",\"two\nlines\",\"\"\n");
+    assertEquals(csv.next(), List.of("Hopper, Grace", "says \"hi\"", "two\nlines", ""));
+    assertNull(csv.next());
+  }
+
+  @Test public void next_keepsAStrayQuoteMidField() throws Exception {
+    assertEquals(csv("6'2\" tall,x").next(), List.of("6'2\" tall", "x"));
+  }
+
+  @Test public void next_dropsTheByteOrderMark() throws Exception {
+    assertEquals(csv("﻿name\n").next(), List.of("name"));
+  }
+
+  @Test public void getLine_countsLinesInsideQuotes() throws Exception {
+    // What an import reports a row's errors against, so it has to match the
+    // row number the spreadsheet shows.
+    CSVReader csv = csv("name\n\"a\nb\"\nc\n");
+    csv.next();
+    assertEquals(csv.getLine(), 2);
+    csv.next();
+    assertEquals(csv.getLine(), 4);
+  }
+
+  @Test public void next_refusesWhatIsNotCSV() {
+    expectThrows(MalformedCSVException.class, () -> csv("\"open").next());
+    expectThrows(MalformedCSVException.class, () -> csv("\"closed\"late,x").next());
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers writing what {@link CSVReader} and a spreadsheet both read back.
+ *
+ * @author Caleb L. Power
+ */
+public class CSVWriterTest {
+
+  private static String csv(String... fields) throws Exception {
+    StringBuilder out = new StringBuilder();
+    new CSVWriter(out).write(fields);
+    return out.toString();
+  }
+
+  @Test public void write_quotesOnlyWhatNeedsIt() throws Exception {
+    assertEquals(csv("Ada", "", null, "M"), "Ada,,,M\r\n");
+    assertEquals(
+        csv("Hopper, Grace", "says \"hi\"", "two\nlines"),
+        "\"Hopper, Grace\",\"says \"\"hi\"\"\",\"two\nlines\"\r\n");
+  }
+
+  @Test public void write_neutralizesFormulas() throws Exception {
+    assertEquals(
+        csv("=1+1", "+1 555 0100", "-2", "@SUM(A1)", "\tx", "a=b"),
+        "'=1+1,'+1 555 0100,'-2,'@SUM(A1),'\tx,a=b\r\n");
+    // The apostrophe goes inside the quotes, where a spreadsheet looks for it.
+    assertEquals(csv("=1,2"), "\"'=1,2\"\r\n");
+  }
+
+  @Test public void write_readsBackThroughTheReader() throws Exception {
+    List<String> fields = List.of("Ada", "a,b", "\"q\"", "x\r\ny", "");
+    String text = csv(fields.toArray(new String[0]));
+    assertEquals(new CSVReader(new StringReader(text)).next(), fields);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers when the capacity ledger refuses a claim, and when it reads again.
+ *
+ * <p>A ledger that refuses too eagerly turns volunteers away from seats that
+ * are open, with nothing in the database to show for it; one that never reads
+ * again does so for good. So what is checked here is mostly the second half:
+ * that every way a snapshot goes stale leads to a read.
+ *
+ * @author Caleb L. Power
+ */
+public class CapacityLedgerTest {
+
+  private static final UUID ACTIVITY = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+  private static final UUID EVENT = UUID.fromString("00000000-0000-0000-0000-00000000000e");
+  private static final UUID W1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+  private static final UUID W2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+  /** W1 holds two and has {@code taken}; W2 is unlimited. Counts its reads. */
+  private static final class Seats implements CapacityLedger.Reader {
+    final AtomicInteger reads = new AtomicInteger();
+    volatile int activityCap = 0;
+    volatile int taken = 2;
+
+    @Override public CapacityLedger.Snapshot read(UUID activity, long generation, long epoch, long now) {
+      reads.incrementAndGet();
+      return new CapacityLedger.Snapshot(
+          activityCap, Map.of(W1, 2, W2, 0), Map.of(W1, taken, W2, 0), generation, epoch, now);
+    }
+  }
+
+  @Test public void full_refusesAFullSlotFromOneRead() {
+    Seats seats = new Seats();
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> true, seats, () -> 0L);
+    assertTrue(ledger.full(ACTIVITY, W1));
+    assertTrue(ledger.full(ACTIVITY, W1));
+    assertFalse(ledger.full(ACTIVITY, W2));
+    assertEquals(seats.reads.get(), 1);
+  }
+
+  @Test public void full_refusesEverySlotOnceTheActivityIsFull() {
+    Seats seats = new Seats();
+    seats.activityCap = 2;
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> true, seats, () -> 0L);
+    assertTrue(ledger.full(ACTIVITY, W2));
+  }
+
+  @Test public void full_leavesAnUnknownSlotToTheDatabase() {
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> true, new Seats(), () -> 0L);
+    assertFalse(ledger.full(ACTIVITY, UUID.randomUUID()));
+  }
+
+  @Test public void full_saysNothingWithoutTheLease() {
+    Seats seats = new Seats();
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> false, seats, () -> 0L);
+    assertFalse(ledger.full(ACTIVITY, W1));
+    assertEquals(seats.reads.get(), 0);
+  }
+
+  @Test public void full_saysNothingWhenItCannotRead() {
+    CapacityLedger ledger = new CapacityLedger(
+        1_000L, () -> true, (a, g, e, n) -> { throw new SQLException("down"); }, () -> 0L);
+    assertFalse(ledger.full(ACTIVITY, W1));
+  }
+
+  @Test public void changed_onTheActivityReadsAgain() {
+    Seats seats = new Seats();
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> true, seats, () -> 0L);
+    assertTrue(ledger.full(ACTIVITY, W1));
+    seats.taken = 1;
+    ledger.changed(EVENT, ACTIVITY);
+    assertFalse(ledger.full(ACTIVITY, W1));
+    assertEquals(seats.reads.get(), 2);
+  }
+
+  @Test public void changed_onTheEventReadsAgain() {
+    Seats seats = new Seats();
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> true, seats, () -> 0L);
+    assertTrue(ledger.full(ACTIVITY, W1));
+    seats.taken = 1;
+    ledger.changed(EVENT, null);
+    assertFalse(ledger.full(ACTIVITY, W1));
+  }
+
+  @Test public void full_readsAgainAfterTheReconcileInterval() {
+    Seats seats = new Seats();
+    AtomicLong clock = new AtomicLong();
+    CapacityLedger ledger = new CapacityLedger(1_000L, () -> true, seats, clock::get);
+    assertTrue(ledger.full(ACTIVITY, W1));
+    seats.taken = 1; // freed on another node, which sends no notice here
+    clock.set(999L);
+    assertTrue(ledger.full(ACTIVITY, W1));
+    clock.set(1_000L);
+    assertFalse(ledger.full(ACTIVITY, W1));
+  }
+
+  @Test public void full_readsAgainAfterANoticeDuringARead() {
+    AtomicInteger reads = new AtomicInteger();
+    CapacityLedger[] ledger = new CapacityLedger[1];
+    ledger[0] = new CapacityLedger(
+        1_000L,
+        () -> true,
+        (a, g, e, n) -> {
+          // The first read is overtaken by a release it does not see.
+          if(1 == reads.incrementAndGet()) ledger[0].changed(EVENT, ACTIVITY);
+          return new CapacityLedger.Snapshot(0, Map.of(W1, 2), Map.of(W1, 2), g, e, n);
+        },
+        () -> 0L);
+    ledger[0].full(ACTIVITY, W1);
+    ledger[0].full(ACTIVITY, W1);
+    assertEquals(reads.get(), 2);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.TimeZone;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Covers the shared date formats and the request-body timestamp parser.
+ *
+ * <p>The parser sits behind every window a client creates or moves. Its
+ * predecessor accepted anything that began with a date and silently dropped
+ * the rest, so the cases worth pinning are the ones that parse to
+ * <em>something</em> -- a wrong time saves without complaint and surfaces as a
+ * reminder sent at the wrong hour.
+ *
+ * @author Caleb L. Power
+ */
+public class DateFormatsTest {
+
+  private TimeZone original;
+
+  @BeforeMethod public void pinZone() {
+    // Unzoned text is read in the server's zone, which boot pins to UTC.
+    original = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+  }
+
+  @AfterMethod public void restoreZone() {
+    TimeZone.setDefault(original);
+  }
+
+  private static long at(String iso) {
+    return Instant.parse(iso).toEpochMilli();
+  }
+
+  private static long parse(String value) {
+    Timestamp timestamp = DateFormats.parse(value);
+    return null == timestamp ? Long.MIN_VALUE : timestamp.getTime();
+  }
+
+  @Test public void parse_readsEpochMillis() {
+    // What every client actually sends.
+    assertEquals(parse("1768478400000"), 1768478400000L);
+    assertEquals(parse("-1000"), -1000L);
+    assertEquals(parse("+5"), 5L);
+    assertNull(DateFormats.parse("99999999999999999999"));
+  }
+
+  @Test public void parse_readsTheDocumentedFormats() {
+    assertEquals(parse("2026-01-15"), at("2026-01-15T00:00:00Z"));
+    assertEquals(parse("2026-01-15 12:30"), at("2026-01-15T12:30:00Z"));
+    assertEquals(parse("2026-01-15 12:30:45"), at("2026-01-15T12:30:45Z"));
+    assertEquals(parse("2026-01-15 12:30:45.250"), at("2026-01-15T12:30:45.250Z"));
+    assertEquals(parse(" 2026-1-5 9:05 "), at("2026-01-05T09:05:00Z"));
+  }
+
+  @Test public void parse_honorsTheMeridiem() {
+    // Used to parse as 10:00: the 24-hour format matched first and the
+    // suffix was ignored.
+    assertEquals(parse("2026-01-15 10:00 PM"), at("2026-01-15T22:00:00Z"));
+    assertEquals(parse("2026-01-15 10:00:30 pm"), at("2026-01-15T22:00:30Z"));
+    assertEquals(parse("2026-01-15 12:00 AM"), at("2026-01-15T00:00:00Z"));
+    assertEquals(parse("2026-01-15 12:00PM"), at("2026-01-15T12:00:00Z"));
+    assertNull(DateFormats.parse("2026-01-15 13:00 PM"));
+  }
+
+  @Test public void parse_readsISOOffsets() {
+    assertEquals(parse("2026-01-15T12:00:00Z"), at("2026-01-15T12:00:00Z"));
+    assertEquals(parse("2026-01-15T12:00:00.123Z"), at("2026-01-15T12:00:00.123Z"));
+    assertEquals(parse("2026-01-15T17:30:00+05:30"), at("2026-01-15T12:00:00Z"));
+    assertEquals(parse("2026-01-15 06:00-0600"), at("2026-01-15T12:00:00Z"));
+  }
+
+  @Test public void parse_readsUnzonedTextInTheServersZone() {
+    TimeZone.setDefault(TimeZone.getTimeZone("America/Chicago"));
+    assertEquals(parse("2026-01-15 06:00"), at("2026-01-15T12:00:00Z"));
+  }
+
+  @Test public void parse_refusesWhatUsedToRollOverOrBeIgnored() {
+    assertNull(DateFormats.parse("2026-13-01"));
+    assertNull(DateFormats.parse("2026-02-29"));
+    assertNull(DateFormats.parse("2026-01-15 24:00"));
+    assertNull(DateFormats.parse("2026-01-15 12:60"));
+    assertNull(DateFormats.parse("2026-01-15 12:00 tomorrow"));
+    assertNull(DateFormats.parse("2026-01-15junk"));
+    assertNull(DateFormats.parse("26-01-15"));
+    assertNull(DateFormats.parse(""));
+    assertNull(DateFormats.parse("-"));
+    assertNull(DateFormats.parse(null));
+    assertEquals(parse("2024-02-29"), at("2024-02-29T00:00:00Z"));
+  }
+
+  @Test public void slot_rendersInTheEventsZone() {
+    Timestamp noon = new Timestamp(at("2026-01-15T12:00:00Z"));
+    assertEquals(DateFormats.slot(noon, "America/Chicago"), "01/15/2026 06:00 AM");
+    assertEquals(DateFormats.slot(noon, null), "01/15/2026 12:00 PM");
+  }
+
+  @Test public void zoned_namesTheZone() {
+    Timestamp noon = new Timestamp(at("2026-07-15T12:00:00Z"));
+    assertEquals(DateFormats.zoned(noon, "America/Chicago"), "07/15/2026 07:00 AM CDT");
+  }
+
+  @Test public void slot_fallsBackToGMTForAnUnknownZone() {
+    Timestamp noon = new Timestamp(at("2026-01-15T12:00:00Z"));
+    assertEquals(DateFormats.slot(noon, "Not/AZone"), "01/15/2026 12:00 PM");
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+
+import com.crowdease.yasss.model.Detail.Type;
+
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Holds the scanners to the patterns.
+ *
+ * <p>{@link DetailTypeTest} pins what each type accepts; this pins that the
+ * scanner deciding it agrees with the pattern it stands in for, on the cases
+ * that are easy to get wrong by hand and on a seeded run of random strings
+ * drawn from the characters the patterns care about. A disagreement here is a
+ * scanner bug, never a reason to change a pattern.
+ *
+ * @author Caleb L. Power
+ */
+public class DetailScannerTest {
+
+  private static final String ALPHABET = "0123456789 -.()+@abz!_A\n";
+  private static final int FUZZ_ROUNDS = 200_000;
+
+  @DataProvider(name = "edges")
+  public Object[][] edges() {
+    return new Object[][] {
+      { Type.INTEGER, "0" },
+      { Type.INTEGER, "1." },
+      { Type.INTEGER, ".5" },
+      { Type.INTEGER, "1.." },
+      { Type.INTEGER, "1.123456789" },
+      { Type.INTEGER, "1.1234567890" },
+      { Type.INTEGER, "1.2.3" },
+      { Type.INTEGER, "١٢" }, // Arabic-Indic digits; \d is ASCII-only here
+
+      { Type.EMAIL, "a@b.c" },
+      { Type.EMAIL, "a@b" },
+      { Type.EMAIL, "@b.c" },
+      { Type.EMAIL, "a.@b.c" },
+      { Type.EMAIL, ".a@b.c" },
+      { Type.EMAIL, "a..b@c.d" },
+      { Type.EMAIL, "a@b..c" },
+      { Type.EMAIL, "a@b.c." },
+      { Type.EMAIL, "a@-b.c" },
+      { Type.EMAIL, "a@b-.c" },
+      { Type.EMAIL, "a@b-b.c" },
+      { Type.EMAIL, "a@b.c-" },
+      { Type.EMAIL, "a@@b.c" },
+      { Type.EMAIL, "a@b@c.d" },
+      { Type.EMAIL, "{|}~-@x.y" },
+      { Type.EMAIL, "a@B.c" },
+
+      { Type.PHONE, "5555555555" },
+      { Type.PHONE, "555555555" },
+      { Type.PHONE, "+12 (555) 555-5555" },
+      { Type.PHONE, "+.12.555.555.5555" },
+      { Type.PHONE, "123 555 555 5555" },
+      { Type.PHONE, "12 555 555 5555" },
+      { Type.PHONE, "(555)5555555" },
+      { Type.PHONE, "555)-555-5555" },
+      { Type.PHONE, "(555 555 5555" },
+      { Type.PHONE, "+-1-555-555-5555" },
+      { Type.PHONE, "+1  555 555 5555" },
+      { Type.PHONE, "555--555-5555" },
+      { Type.PHONE, "+ 12 (555).555 5555" },
+      { Type.PHONE, "+ 12 (555).555 55555" },
+    };
+  }
+
+  @Test(dataProvider = "edges")
+  public void edgesAgreeWithThePattern(Type type, String candidate) {
+    agree(type, candidate);
+  }
+
+  /** Random strings, short enough that some of them match. */
+  @Test
+  public void fuzzAgreesWithThePattern() {
+    Random random = new Random(0x5CA77E4L);
+    StringBuilder sb = new StringBuilder();
+    for(int round = 0; round < FUZZ_ROUNDS; round++) {
+      sb.setLength(0);
+      int length = random.nextInt(20);
+      for(int i = 0; i < length; i++)
+        sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      String candidate = sb.toString();
+      for(Type type : Type.values()) agree(type, candidate);
+    }
+  }
+
+  /** Random strings built from the pieces of a phone number, which mostly match. */
+  @Test
+  public void phoneShapedFuzzAgreesWithThePattern() {
+    String[] pieces = { "+", " ", "-", ".", "(", ")", "1", "55", "555", "5555" };
+    Random random = new Random(0xF0A1L);
+    StringBuilder sb = new StringBuilder();
+    for(int round = 0; round < FUZZ_ROUNDS; round++) {
+      sb.setLength(0);
+      int length = 1 + random.nextInt(8);
+      for(int i = 0; i < length; i++)
+        sb.append(pieces[random.nextInt(pieces.length)]);
+      agree(Type.PHONE, sb.toString());
+    }
+  }
+
+  private static void agree(Type type, String candidate) {
+    assertEquals(
+        type.isValid(candidate),
+        type.pattern().matcher(candidate).matches(),
+        String.format("%s on \"%s\"", type, candidate));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+
+import com.crowdease.yasss.model.Detail.Type;
+import com.crowdease.yasss.model.DetailValidator.Problem;
+import com.crowdease.yasss.model.DetailValidator.Submission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers a submission's answers against a prepared set of fields: each way one
+ * is refused, what is stored for one that is not, and the required mask past
+ * the first 64 fields, where a one-word mask would have quietly wrapped.
+ *
+ * @author Caleb L. Power
+ */
+public class DetailValidatorTest {
+
+  private static final UUID EVENT = UUID.randomUUID();
+
+  private final Detail shirt = new Detail(UUID.randomUUID(), EVENT, Type.STRING, "Shirt", "", 0, true);
+  private final Detail email = new Detail(UUID.randomUUID(), EVENT, Type.EMAIL, "Email", "", 1, false);
+  private final Detail age = new Detail(UUID.randomUUID(), EVENT, Type.INTEGER, "Age", "", 2, false);
+
+  private Submission submission() {
+    return new DetailValidator(List.of(shirt, email, age), 0L).submission();
+  }
+
+  @Test public void unknownField_isNotFound() {
+    Submission submission = submission();
+    assertEquals(submission.answer(UUID.randomUUID(), "L"), Problem.NOT_FOUND);
+    assertEquals(submission.answer(null, "L"), Problem.NOT_FOUND);
+  }
+
+  @Test public void overlongAnswer_isTooLong() {
+    Submission submission = submission();
+    assertEquals(submission.answer(shirt.getID(), "x".repeat(256)), Problem.TOO_LONG);
+    // Counted in code points, so an emoji is one, not two.
+    assertNull(submission.answer(shirt.getID(), "🎉".repeat(255)));
+  }
+
+  @Test public void badOrBlankRequiredAnswer_isMalformed() {
+    Submission submission = submission();
+    assertEquals(submission.answer(age.getID(), "-1"), Problem.MALFORMED);
+    assertEquals(submission.answer(shirt.getID(), "   "), Problem.MALFORMED);
+    assertEquals(submission.answer(shirt.getID(), null), Problem.MALFORMED);
+  }
+
+  /** A STRING field takes anything, so only the required check stands between "" and the mask. */
+  @Test public void blankRequiredAnswer_doesNotCountAsAnswered() {
+    Submission submission = submission();
+    assertEquals(submission.answer(shirt.getID(), " \t\n "), Problem.MALFORMED);
+    assertEquals(submission.finish(), Problem.MISSING);
+    assertEquals(submission.getDetails().size(), 0);
+  }
+
+  @Test public void answers_areStrippedAndNormalized() {
+    Submission submission = submission();
+    assertNull(submission.answer(email.getID(), "  Bob@Example.COM "));
+    assertNull(submission.answer(shirt.getID(), " L "));
+    assertEquals(submission.getDetails().get(email), "bob@example.com");
+    assertEquals(submission.getDetails().get(shirt), "L");
+    assertNull(submission.finish());
+  }
+
+  @Test public void unansweredRequiredField_isMissing() {
+    Submission submission = submission();
+    assertNull(submission.answer(age.getID(), "42"));
+    assertEquals(submission.finish(), Problem.MISSING);
+  }
+
+  @Test public void requiredMask_reachesPastSixtyFourFields() {
+    List<Detail> details = new ArrayList<>();
+    for(int i = 0; i < 70; i++)
+      details.add(new Detail(UUID.randomUUID(), EVENT, Type.STRING, "Field " + i, "", i, 65 == i));
+    DetailValidator validator = new DetailValidator(details, 0L);
+
+    // Field 1 shares field 65's bit in a single long; it must not stand in for it.
+    Submission submission = validator.submission();
+    assertNull(submission.answer(details.get(1).getID(), "x"));
+    assertEquals(submission.finish(), Problem.MISSING);
+
+    submission = validator.submission();
+    assertNull(submission.answer(details.get(65).getID(), "x"));
+    assertNull(submission.finish());
+  }
+
+  @Test public void negativeTTL_isRefused() {
+    assertThrows(IllegalArgumentException.class, () -> DetailValidator.configure(-1L));
+  }
+}
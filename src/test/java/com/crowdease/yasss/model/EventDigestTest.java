@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.json.JSONObject;
+import org.testng.annotations.Test;
+
+/**
+ * Covers what an event's followers are sent when its sheet changes.
+ *
+ * @author Caleb L. Power
+ */
+public class EventDigestTest {
+
+  private static final UUID ACTIVITY = UUID.randomUUID();
+  private static final UUID WINDOW = UUID.randomUUID();
+
+  @SafeVarargs private static EventDigest digest(Map.Entry<String, EventDigest.Entry>... entries) {
+    Map<String, EventDigest.Entry> map = new LinkedHashMap<>();
+    for(var entry : entries) map.put(entry.getKey(), entry.getValue());
+    return new EventDigest(map, Set.of(ACTIVITY));
+  }
+
+  private static Map.Entry<String, EventDigest.Entry> setup() {
+    return EventDigest.activity(ACTIVITY, "Setup", "", 0, 4, 0);
+  }
+
+  private static Map.Entry<String, EventDigest.Entry> morning() {
+    return EventDigest.window(WINDOW, new Timestamp(1_000L), null);
+  }
+
+  @Test public void diff_fromNothingAddsEverything() {
+    List<EventDigest.Change> changes = EventDigest.diff(null, digest(setup(), morning()));
+    assertEquals(changes.size(), 2);
+    assertEquals(changes.get(0).key(), "activity:" + ACTIVITY);
+    assertEquals(changes.get(1).type(), "window");
+  }
+
+  @Test public void diff_sendsOnlyWhatChanged() {
+    EventDigest before = digest(setup(), morning(), EventDigest.slot(ACTIVITY, WINDOW, 4, 1));
+    EventDigest after = digest(setup(), morning(), EventDigest.slot(ACTIVITY, WINDOW, 4, 2));
+
+    List<EventDigest.Change> changes = EventDigest.diff(before, after);
+    assertEquals(changes.size(), 1);
+    assertEquals(changes.get(0).key(), "slot:" + ACTIVITY + ":" + WINDOW);
+    assertEquals(new JSONObject(changes.get(0).json()).getInt("rsvpCount"), 2);
+
+    assertTrue(EventDigest.diff(after, after).isEmpty());
+  }
+
+  @Test public void diff_listsRemovalsLast() {
+    EventDigest before = digest(morning(), EventDigest.slot(ACTIVITY, WINDOW, 4, 1));
+    EventDigest after = digest(setup());
+
+    List<EventDigest.Change> changes = EventDigest.diff(before, after);
+    assertEquals(changes.size(), 3);
+    assertEquals(changes.get(0).type(), "activity");
+
+    JSONObject slot = new JSONObject(changes.get(2).json());
+    assertTrue(slot.getBoolean("removed"));
+    assertEquals(slot.getString("activity"), ACTIVITY.toString());
+    assertTrue(!slot.has("rsvpCount"));
+  }
+
+  @Test public void toJSON_groupsEntriesByType() {
+    JSONObject json = new JSONObject(
+        digest(setup(), morning(), EventDigest.slot(ACTIVITY, WINDOW, 4, 1)).toJSON());
+    assertEquals(json.getJSONArray("activities").length(), 1);
+    assertEquals(json.getJSONArray("windows").length(), 1);
+    assertEquals(json.getJSONArray("slots").length(), 1);
+    assertTrue(json.getJSONArray("windows").getJSONObject(0).isNull("end"));
+  }
+}
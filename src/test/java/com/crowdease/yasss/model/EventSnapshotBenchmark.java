@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.testng.annotations.Test;
+
+/**
+ * Heap retained by one event held as model objects, against the same event
+ * held as an {@link EventSnapshot}.
+ *
+ * <p>Not part of {@code gradle test}, for the same reason as
+ * {@link RowIDBenchmark}: it is a measurement, not a check. It needs no
+ * database, so {@code gradle benchmark} is all it takes.
+ * {@code yasss.bench.volunteers} sets the event's size (3,000).
+ *
+ * <p>The model side is built the way the finders build it -- a fresh
+ * {@link String} per column read, a {@link TreeMap} of answers per volunteer,
+ * an {@link RSVP} per seat -- and the snapshot is built from a graph exactly
+ * like it, which is then dropped. Several copies of each are held at once and
+ * the heap read after a collection, so that one copy's share is not lost in
+ * the noise of the collector's own bookkeeping.
+ *
+ * @author Caleb L. Power
+ */
+public class EventSnapshotBenchmark {
+
+  private static final int COPIES = 20;
+  private static final int ACTIVITIES = 12;
+  private static final int WINDOWS = 10;
+  private static final int DETAILS = 6;
+  private static final int RSVPS_PER_VOLUNTEER = 3;
+  private static final String[] SHIRTS = { "S", "M", "L", "XL" };
+
+  /** The event as the model holds it. */
+  private static record Graph(UUID event, Set<Activity> activities, Set<Window> windows,
+      List<Slot> slots, Set<Detail> details, Set<Volunteer> volunteers, List<RSVP> rsvps) { }
+
+  @Test(groups = "benchmark") public void bytesRetainedPerEvent() {
+    int volunteers = Integer.getInteger("yasss.bench.volunteers", 3_000);
+
+    Graph check = graph(volunteers);
+    EventSnapshot snapshot = snapshot(check);
+    assertEquals(snapshot.volunteers(), volunteers);
+    assertEquals(snapshot.activities(), ACTIVITIES);
+
+    long model = retained(() -> graph(volunteers));
+    long packed = retained(() -> snapshot(graph(volunteers)));
+
+    System.out.printf(
+        "volunteers=%1$d model=%2$d B snapshot=%3$d B ratio=%4$.1fx%n",
+        volunteers, model, packed, (double)model / packed);
+  }
+
+  /** Heap retained per copy of whatever the supplier builds. */
+  private static long retained(Supplier<Object> build) {
+    var memory = ManagementFactory.getMemoryMXBean();
+    settle();
+    long before = memory.getHeapMemoryUsage().getUsed();
+    Object[] held = new Object[COPIES];
+    for(int i = 0; i < COPIES; i++) held[i] = build.get();
+    settle();
+    long after = memory.getHeapMemoryUsage().getUsed();
+    if(null == held[COPIES - 1]) throw new AssertionError(); // keeps them live
+    return (after - before) / COPIES;
+  }
+
+  private static void settle() {
+    for(int i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50L);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static EventSnapshot snapshot(Graph graph) {
+    return EventSnapshot.of(
+        graph.event(),
+        graph.activities(),
+        graph.windows(),
+        graph.slots(),
+        graph.details(),
+        graph.volunteers(),
+        graph.rsvps());
+  }
+
+  /** A seeded event, so that every copy is the same shape. */
+  private static Graph graph(int volunteerCount) {
+    Random random = new Random(42L);
+    UUID event = UUID.randomUUID();
+
+    Set<Activity> activities = new TreeSet<>();
+    List<Activity> activityList = new ArrayList<>();
+    for(int a = 0; a < ACTIVITIES; a++) {
+      Activity activity = new Activity(
+          UUID.randomUUID(), event, new String("Activity " + a), new String(""), 0, 10, a);
+      activities.add(activity);
+      activityList.add(activity);
+    }
+
+    Set<Window> windows = new TreeSet<>();
+    List<Window> windowList = new ArrayList<>();
+    for(int w = 0; w < WINDOWS; w++) {
+      Window window = new Window(
+          UUID.randomUUID(),
+          event,
+          new Timestamp(w * 7_200_000L),
+          new Timestamp(w * 7_200_000L + 3_600_000L));
+      windows.add(window);
+      windowList.add(window);
+    }
+
+    List<Slot> slots = new ArrayList<>();
+    for(var activity : activityList)
+      for(var window : windowList)
+        slots.add(new Slot(activity.getID(), window.getID(), 10));
+
+    Set<Detail> details = new TreeSet<>();
+    List<Detail> detailList = new ArrayList<>();
+    for(int d = 0; d < DETAILS; d++) {
+      Detail detail = new Detail(
+          UUID.randomUUID(), event, Detail.Type.STRING, new String("Field " + d), new String(""), d, false);
+      details.add(detail);
+      detailList.add(detail);
+    }
+
+    Set<Volunteer> volunteers = new LinkedHashSet<>();
+    List<RSVP> rsvps = new ArrayList<>();
+    for(int v = 0; v < volunteerCount; v++) {
+      Volunteer volunteer = new Volunteer(
+          UUID.randomUUID(),
+          0 == v % 2 ? UUID.randomUUID() : null,
+          event,
+          new String("Volunteer " + v),
+          0 == v % 3,
+          null);
+      Map<Detail, String> answers = new TreeMap<>();
+      for(var detail : detailList)
+        answers.put(
+            detail,
+            0 == detail.getPriority()
+                ? new String(SHIRTS[random.nextInt(SHIRTS.length)])
+                : 1 == detail.getPriority()
+                    ? new String("555-" + (1000 + random.nextInt(9000)))
+                    : new String(random.nextBoolean() ? "true" : "false"));
+      volunteer.setDetails(answers);
+      volunteers.add(volunteer);
+      for(int r = 0; r < RSVPS_PER_VOLUNTEER; r++)
+        rsvps.add(
+            new RSVP(
+                activityList.get(random.nextInt(ACTIVITIES)).getID(),
+                windowList.get(random.nextInt(WINDOWS)).getID(),
+                volunteer.getID()));
+    }
+
+    return new Graph(event, activities, windows, slots, details, volunteers, rsvps);
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import com.axonibyte.lib.db.Database;
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.YasssCore;
+import com.crowdease.yasss.metrics.QueryTrace;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers that an event packed into a snapshot reads back as it went in.
+ *
+ * <p>Every view is an index into an offset array, so the mistakes worth
+ * guarding against are the off-by-ones: a slot's run starting one early, an
+ * activity total taking in its neighbour's first window, an answer listed
+ * against the wrong field. And that reading one costs a fixed number of
+ * statements, so that a section read once per row of another fails here.
+ *
+ * @author Caleb L. Power
+ */
+public class EventSnapshotTest {
+
+  private static final UUID EVENT = UUID.randomUUID();
+  private static final UUID USER = UUID.randomUUID();
+
+  private final Activity setup = new Activity(UUID.randomUUID(), EVENT, "Setup", "", 3, 2, 0);
+  private final Activity teardown = new Activity(UUID.randomUUID(), EVENT, "Teardown", "", 0, 0, 1);
+  private final Window morning = new Window(UUID.randomUUID(), EVENT, new Timestamp(1_000L), new Timestamp(2_000L));
+  private final Window evening = new Window(UUID.randomUUID(), EVENT, new Timestamp(3_000L), null);
+  private final Detail shirt = new Detail(UUID.randomUUID(), EVENT, Detail.Type.STRING, "Shirt", "", 0, true);
+  private final Detail phone = new Detail(UUID.randomUUID(), EVENT, Detail.Type.STRING, "Phone", "", 1, false);
+  private final Volunteer ann = new Volunteer(UUID.randomUUID(), USER, EVENT, "Ann", true, null);
+  private final Volunteer bob = new Volunteer(UUID.randomUUID(), null, EVENT, "Bob", false, null);
+  private final Volunteer cat = new Volunteer(UUID.randomUUID(), null, EVENT, "Cat", false, null);
+
+  private EventSnapshot snapshot() {
+    Map<Detail, String> annAnswers = new LinkedHashMap<>();
+    annAnswers.put(phone, "555-0100");
+    annAnswers.put(shirt, new String("L"));
+    ann.setDetails(annAnswers);
+    Map<Detail, String> bobAnswers = new LinkedHashMap<>();
+    bobAnswers.put(shirt, new String("L"));
+    bob.setDetails(bobAnswers);
+
+    List<RSVP> rsvps = new ArrayList<>();
+    rsvps.add(new RSVP(setup.getID(), evening.getID(), cat.getID()));
+    rsvps.add(new RSVP(setup.getID(), morning.getID(), bob.getID()));
+    rsvps.add(new RSVP(teardown.getID(), morning.getID(), ann.getID()));
+    rsvps.add(new RSVP(setup.getID(), morning.getID(), ann.getID()));
+    rsvps.add(new RSVP(setup.getID(), morning.getID(), UUID.randomUUID())); // not ours
+
+    return EventSnapshot.of(
+        EVENT,
+        List.of(setup, teardown),
+        List.of(morning, evening),
+        List.of(
+            new Slot(setup.getID(), morning.getID(), 2),
+            new Slot(setup.getID(), evening.getID(), 0),
+            new Slot(teardown.getID(), morning.getID(), 5)),
+        List.of(shirt, phone),
+        List.of(ann, bob, cat),
+        rsvps);
+  }
+
+  @Test public void slots_areAMatrixOfCaps() {
+    EventSnapshot snapshot = snapshot();
+    assertEquals(snapshot.slotCap(0, 0), 2);
+    assertEquals(snapshot.slotCap(0, 1), 0);
+    assertEquals(snapshot.slotCap(1, 0), 5);
+    assertEquals(snapshot.slotCap(1, 1), EventSnapshot.NO_SLOT);
+    assertEquals(snapshot.windowEnd(1), EventSnapshot.NO_END);
+  }
+
+  @Test public void rsvps_keepTheirOrderWithinEachSlot() {
+    EventSnapshot snapshot = snapshot();
+    List<String> names = new ArrayList<>();
+    snapshot.forEachRSVP(0, 0, v -> names.add(snapshot.volunteerName(v)));
+    assertEquals(names, List.of("Bob", "Ann"));
+    assertEquals(snapshot.slotCount(0, 1), 1);
+    assertEquals(snapshot.slotCount(1, 0), 1);
+    assertEquals(snapshot.slotCount(1, 1), 0);
+    assertEquals(snapshot.activityCount(0), 3);
+    assertEquals(snapshot.activityCount(1), 1);
+  }
+
+  @Test public void answers_comeBackInDetailOrderAndShared() {
+    EventSnapshot snapshot = snapshot();
+    assertEquals(snapshot.answers(0), 2);
+    assertEquals(snapshot.detailLabel(snapshot.answerDetail(0, 0)), "Shirt");
+    assertEquals(snapshot.answerValue(0, 1), "555-0100");
+    assertEquals(snapshot.answers(2), 0);
+    assertSame(snapshot.answerValue(0, 0), snapshot.answerValue(1, 0));
+  }
+
+  @Test public void ids_roundTrip() {
+    EventSnapshot snapshot = snapshot();
+    assertEquals(snapshot.getID(), EVENT);
+    assertEquals(snapshot.activityIndex(teardown.getID()), 1);
+    assertEquals(snapshot.windowIndex(evening.getID()), 1);
+    assertEquals(snapshot.activityIndex(UUID.randomUUID()), -1);
+    for(var volunteer : List.of(ann, bob, cat)) {
+      int v = snapshot.volunteerIndex(volunteer.getID());
+      assertEquals(snapshot.volunteerID(v), volunteer.getID());
+      assertEquals(snapshot.volunteerName(v), volunteer.getName());
+    }
+    assertEquals(snapshot.volunteerUser(0), USER);
+    assertNull(snapshot.volunteerUser(1));
+    assertTrue(snapshot.volunteerRemindersEnabled(0));
+    assertEquals(snapshot.volunteerIndex(UUID.randomUUID()), -1);
+  }
+
+  /**
+   * Three activities, each of which would have cost a statement of its own if
+   * their slots were read through {@link Activity#getSlots()}.
+   */
+  @Test public void load_readsEachSectionInOneStatement() throws Exception {
+    Database db = createNiceMock(Database.class);
+    expect(db.getPrefix()).andStubReturn("yasss_");
+    expect(db.connect()).andStubAnswer(() -> QueryTrace.wrap(connection(3)));
+    replay(db);
+
+    Field field = YasssCore.class.getDeclaredField("database");
+    field.setAccessible(true);
+    Object previous = field.get(null);
+    field.set(null, db);
+
+    try {
+      Event event = new Event(EVENT, USER, "Event", "", null, false, false, true);
+      QueryTrace trace = QueryTrace.capture(() -> EventSnapshot.load(event));
+      // Activities, windows, slots, details, volunteers, RSVPs.
+      assertEquals(trace.count(), 6);
+      assertTrue(trace.repeats(2).isEmpty(), trace.repeats(2).toString());
+    } finally {
+      field.set(null, previous);
+    }
+  }
+
+  /**
+   * A connection whose activity query returns some rows and whose every other
+   * query returns none.
+   */
+  private static Connection connection(int activities) {
+    return (Connection)Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[] { Connection.class },
+        (proxy, method, args) -> "prepareStatement".equals(method.getName())
+            ? statement(((String)args[0]).contains("short_description") ? activities : 0)
+            : defaultOf(method.getReturnType()));
+  }
+
+  private static PreparedStatement statement(int rows) {
+    return (PreparedStatement)Proxy.newProxyInstance(
+        PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class },
+        (proxy, method, args) -> "executeQuery".equals(method.getName())
+            ? results(rows)
+            : defaultOf(method.getReturnType()));
+  }
+
+  private static ResultSet results(int rows) {
+    int[] left = { rows };
+    return (ResultSet)Proxy.newProxyInstance(
+        ResultSet.class.getClassLoader(),
+        new Class<?>[] { ResultSet.class },
+        (proxy, method, args) -> switch(method.getName()) {
+          case "next" -> 0 <= --left[0];
+          case "getBytes" -> SQLBuilder.uuidToBytes(UUID.randomUUID());
+          case "getString" -> "Activity " + left[0];
+          default -> defaultOf(method.getReturnType());
+        });
+  }
+
+  private static Object defaultOf(Class<?> type) {
+    if(boolean.class == type) return false;
+    if(int.class == type) return 0;
+    if(long.class == type) return 0L;
+    return null;
+  }
+}
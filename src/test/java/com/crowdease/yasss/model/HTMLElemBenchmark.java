@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ * Bytes allocated rendering a report-sized tree, against the renderer
+ * {@link HTMLElem} used to have.
+ *
+ * <p>Not part of {@code gradle test}, for the same reason as
+ * {@link RowIDBenchmark}: it is a measurement, not a check. It needs no
+ * database, so {@code gradle benchmark} is all it takes.
+ * {@code yasss.bench.rows} sets the volunteer rows in the report.
+ *
+ * <p>Allocation is read from the thread's own counter rather than a profiler,
+ * which is exact for a single-threaded render and needs no agent. The old
+ * renderer is reproduced below, trimmed to what rendering touches, so that
+ * both walk the same shape of tree on the same JVM in one run.
+ *
+ * @author Caleb L. Power
+ */
+public class HTMLElemBenchmark {
+
+  private static final int WARMUP = 50;
+  private static final int MEASURED = 50;
+
+  @Test(groups = "benchmark") public void bytesPerRender() {
+    if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+      throw new SkipException("this JVM does not count per-thread allocation");
+
+    int rows = Integer.getInteger("yasss.bench.rows", 2_000);
+
+    // Built once each and rendered repeatedly: building the tree is the
+    // caller's cost, and the same either way.
+    HTMLElem current = report(rows);
+    LegacyElem legacy = legacyReport(rows);
+    assertEquals(current.toString().length(), legacy.toString().length());
+
+    long[] now = measure(current::toString);
+    long[] before = measure(legacy::toString);
+
+    System.out.printf(
+        "rows=%1$d legacy=%2$d B/render %3$.2f ms current=%4$d B/render %5$.2f ms bytes=%6$.1fx%n",
+        rows, before[0], before[1] / 1e6, now[0], now[1] / 1e6, (double)before[0] / now[0]);
+  }
+
+  /** Bytes allocated and nanoseconds taken, per render, after a warmup. */
+  private static long[] measure(Supplier<String> render) {
+    var mx = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    long sink = 0;
+    for(int i = 0; i < WARMUP; i++) sink += render.get().length();
+
+    long bytes = mx.getCurrentThreadAllocatedBytes();
+    long start = System.nanoTime();
+    for(int i = 0; i < MEASURED; i++) sink += render.get().length();
+    long elapsed = System.nanoTime() - start;
+    bytes = mx.getCurrentThreadAllocatedBytes() - bytes;
+
+    if(0 == sink) throw new AssertionError(); // keeps the renders live
+    return new long[] { bytes / MEASURED, elapsed / MEASURED };
+  }
+
+  /** The volunteer table of an event report, as EventReportEndpoint lays it out. */
+  private static HTMLElem report(int rows) {
+    HTMLElem body = new HTMLElem("body")
+        .push(new HTMLElem("h1").push(HTMLElem.text("Riverside Cleanup & Picnic")));
+    HTMLElem table = new HTMLElem("table");
+    for(int i = 0; i < rows; i++) {
+      table.push(
+          new HTMLElem("tr")
+              .push(
+                  new HTMLElem("td")
+                      .attr("colspan", "2")
+                      .attr("rowspan", "3")
+                      .attr("class", "category")
+                      .push(HTMLElem.text("Volunteer O'Neil #" + i))),
+          new HTMLElem("tr")
+              .push(
+                  new HTMLElem("td")
+                      .attr("colspan", "3")
+                      .push(
+                          new HTMLElem("strong").push(HTMLElem.text("Shirt size:")),
+                          HTMLElem.text(" L"))),
+          new HTMLElem("tr")
+              .push(
+                  new HTMLElem("td").attr("class", "checkbox").push("&#x2610;"),
+                  new HTMLElem("td").push(HTMLElem.text("01/15/2026 08:00 AM - 10:00 AM"))));
+    }
+    return body.push(table);
+  }
+
+  private static LegacyElem legacyReport(int rows) {
+    LegacyElem body = new LegacyElem("body")
+        .push(new LegacyElem("h1").push(HTMLElem.escape("Riverside Cleanup & Picnic")));
+    LegacyElem table = new LegacyElem("table");
+    for(int i = 0; i < rows; i++) {
+      table.push(
+          new LegacyElem("tr")
+              .push(
+                  new LegacyElem("td")
+                      .attr("colspan", "2")
+                      .attr("rowspan", "3")
+                      .attr("class", "category")
+                      .push(HTMLElem.escape("Volunteer O'Neil #" + i))),
+          new LegacyElem("tr")
+              .push(
+                  new LegacyElem("td")
+                      .attr("colspan", "3")
+                      .push(
+                          new LegacyElem("strong").push(HTMLElem.escape("Shirt size:")),
+                          HTMLElem.escape(" L"))),
+          new LegacyElem("tr")
+              .push(
+                  new LegacyElem("td").attr("class", "checkbox").push("&#x2610;"),
+                  new LegacyElem("td").push(HTMLElem.escape("01/15/2026 08:00 AM - 10:00 AM"))));
+    }
+    return body.push(table);
+  }
+
+  /** The renderer as it stood before writeTo(). */
+  private static final class LegacyElem {
+
+    private final List<Object> vals = new ArrayList<>();
+    private final Map<String, String> attrs = new HashMap<>();
+    private final String tagName;
+
+    private LegacyElem(String tagName) {
+      this.tagName = tagName;
+    }
+
+    private LegacyElem attr(String key, String val) {
+      attrs.put(key, val);
+      return this;
+    }
+
+    private LegacyElem push(Object... vals) {
+      for(var val : vals)
+        this.vals.add(val);
+      return this;
+    }
+
+    @Override public String toString() {
+      StringBuilder attrSB = new StringBuilder();
+      for(var attr : attrs.entrySet())
+        attrSB.append(
+            String.format(" %1$s=\"%2$s\"", attr.getKey(), HTMLElem.escape(attr.getValue())));
+
+      StringBuilder valSB = new StringBuilder();
+      for(var val : vals)
+        valSB.append(val.toString());
+
+      return String.format("<%1$s%2$s>%3$s</%1$s>", tagName, attrSB.toString(), valSB.toString());
+    }
+  }
+}
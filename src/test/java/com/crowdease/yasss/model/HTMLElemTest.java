@@ -101,4 +101,37 @@ public class HTMLElemTest {
         new HTMLElem("td").attr("colspan", "2").toString(),
         "<td colspan=\"2\"></td>");
   }
+
+  @Test public void writeToMatchesToString() throws Exception {
+    HTMLElem tree = new HTMLElem("tr")
+        .attr("class", "category")
+        .push(
+            new HTMLElem("td").push(HTMLElem.text(XSS)),
+            new HTMLElem("td").attr("colspan", "2").push("&#x2610;"));
+    StringBuilder out = new StringBuilder("<table>");
+    tree.writeTo(out);
+    assertEquals(out.toString(), "<table>" + tree);
+  }
+
+  @Test public void attributesRenderInOrderAndResettingReplaces() {
+    assertEquals(
+        new HTMLElem("td")
+            .attr("colspan", "2")
+            .attr("rowspan", "3")
+            .attr("class", "category")
+            .attr("colspan", "4")
+            .toString(),
+        "<td colspan=\"4\" rowspan=\"3\" class=\"category\"></td>");
+  }
+
+  @Test public void insertPlacesValuesAmongThoseAlreadyPushed() {
+    HTMLElem row = new HTMLElem("tr").push("b");
+    row.insert(0, "a").insert(2, "c").push("d", "e");
+    assertEquals(row.toString(), "<tr>abcde</tr>");
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void insertRefusesAnIndexPastTheEnd() {
+    new HTMLElem("tr").push("a").insert(2, "b");
+  }
 }
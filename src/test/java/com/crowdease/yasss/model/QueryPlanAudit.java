@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import com.axonibyte.lib.db.Database;
+import com.axonibyte.lib.db.SQLBuilder;
+import com.crowdease.yasss.SchemaMigrator;
+import com.crowdease.yasss.YasssCore;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the hot model paths against a seeded MariaDB and {@code EXPLAIN}s every
+ * statement they prepare, failing on any full scan of a table above a size.
+ *
+ * <p>The indexes in {@code src/main/resources/db} are only as good as the
+ * queries that happen to match them, and nothing used to check that they
+ * still did. A finder that gains a predicate, or an {@code ORDER BY} that
+ * stops matching a composite, is just as correct as before and only slower --
+ * and only slower on a database big enough to notice, which no test had. This
+ * is that database, and the check.
+ *
+ * <p>Not part of {@code gradle test}: it needs a scratch database, which it
+ * owns outright -- every table under the {@code audit_} prefix is dropped,
+ * migrated and seeded on each run. Run it with {@code gradle queryPlans}:
+ *
+ * <pre>
+ * gradle queryPlans -Dyasss.audit.db=127.0.0.1:3306/audit \
+ *     -Dyasss.audit.user=root -Dyasss.audit.password=audit
+ * </pre>
+ *
+ * <p>The statements are caught as the model prepares them, so a new finder on
+ * one of the paths below is audited without anybody listing it here; a new
+ * path needs a line in {@link #paths()}. Each is explained with the values it
+ * was actually bound with, immediately before it runs. A scan counts when it
+ * is {@code ALL} or a full {@code index} walk and the optimizer expects to read
+ * at least {@code yasss.audit.threshold} rows (a thousand). The seed is sized so
+ * that the per-event tables sit well above that and the per-platform ones,
+ * events themselves, sit below it -- listing a page of forty events by scanning
+ * them is the right plan, and the optimizer knows it.
+ *
+ * @author Caleb L. Power
+ */
+public class QueryPlanAudit {
+
+  private static final String PREFIX = "audit_";
+  private static final int EVENTS = 40;
+  private static final int WINDOWS = 4;
+  private static final int ACTIVITIES = 5;
+  private static final int DETAILS = 4;
+  private static final int VOLUNTEERS = 150;
+  private static final int USERS = 3_000;
+
+  @FunctionalInterface private interface Path {
+    void run() throws Exception;
+  }
+
+  private record Plan(String sql, String table, String type, String key, long rows) { }
+
+  @Test(groups = "database") public void hotPathsUseTheirIndexes() throws Exception {
+    String location = System.getProperty("yasss.audit.db");
+    if(null == location)
+      throw new SkipException("yasss.audit.db is not set");
+    long threshold = Long.getLong("yasss.audit.threshold", 1_000L);
+
+    List<Plan> plans = new ArrayList<>();
+    Database db = new ExplainingDatabase(
+        location,
+        System.getProperty("yasss.audit.user"),
+        System.getProperty("yasss.audit.password"),
+        plans);
+
+    Field field = YasssCore.class.getDeclaredField("database");
+    field.setAccessible(true);
+    Object previous = field.get(null);
+    field.set(null, db);
+
+    try {
+      reset(db);
+      new SchemaMigrator(db, YasssCore.class, "db").migrate(false);
+      seed(db);
+
+      plans.clear();
+      for(var path : paths().entrySet()) {
+        int before = plans.size();
+        path.getValue().run();
+        assertTrue(plans.size() > before, path.getKey() + " prepared nothing to explain");
+      }
+
+      Set<String> scans = new LinkedHashSet<>();
+      for(var plan : plans)
+        if(("ALL".equals(plan.type()) || "index".equals(plan.type()))
+            && !plan.table().startsWith("<")
+            && threshold <= plan.rows())
+          scans.add(
+              String.format(
+                  "%1$s: %2$s scan of ~%3$d rows%4$s%n    %5$s",
+                  plan.table(),
+                  plan.type(),
+                  plan.rows(),
+                  null == plan.key() ? "" : " on " + plan.key(),
+                  plan.sql()));
+
+      System.out.printf("explained %1$d statement(s), threshold %2$d rows%n", plans.size(), threshold);
+      assertTrue(scans.isEmpty(), "full scans above the threshold:\n  " + String.join("\n  ", scans));
+
+    } finally {
+      field.set(null, previous);
+      db.close();
+    }
+  }
+
+  /**
+   * The request paths worth auditing, by name. Every id here is one the seed
+   * wrote, derived the same way; see {@link #id(String)}.
+   */
+  private static Map<String, Path> paths() {
+    UUID eventID = id("event:1");
+    UUID userID = id("user:1");
+    UUID volunteerID = id("volunteer:1:1");
+    Map<String, Path> paths = new TreeMap<>();
+
+    paths.put("an event and its sheet", () -> {
+      Event event = Event.getEvent(eventID);
+      event.getActivities();
+      event.getWindows();
+      event.getDetails();
+      event.getVolunteers();
+      event.isExpired();
+      event.getVolunteer(volunteerID);
+    });
+    paths.put("an activity's and a window's slots", () -> {
+      Event event = Event.getEvent(eventID);
+      for(var activity : event.getActivities()) {
+        activity.countRSVPs();
+        for(var slot : activity.getSlots()) {
+          slot.countRSVPs();
+          slot.getRSVPs();
+        }
+      }
+      for(var window : event.getWindows()) window.getSlots();
+    });
+    paths.put("the signup limit", () -> Event.getEvent(eventID).countVolunteers(userID, "127.0.0.1"));
+    paths.put("claiming a seat", () -> {
+      // Volunteer 1 holds activity 2, window 2; this is a seat it does not.
+      RSVP.claim(id("activity:1:1"), id("window:1:1"), volunteerID);
+    });
+    paths.put("an event digest", () -> EventDigest.load(eventID));
+    paths.put("an event snapshot", () -> EventSnapshot.load(Event.getEvent(eventID)));
+    paths.put("events a user volunteers for", () -> Event.getEvents(null, userID, null, null, 1, 20));
+    paths.put("events a user administers", () -> Event.getEvents(userID, null, null, null, 1, 20));
+    paths.put("resolving a caller by address", () -> User.getUser("user1@example.com"));
+    paths.put("the reminder sweep", () -> {
+      var pending = Volunteer.getPendingReminders(
+          new Timestamp(System.currentTimeMillis()), 60 * 24 * 365, 100, 0, 4);
+      if(!pending.isEmpty()) ReminderContext.load(pending);
+    });
+
+    return paths;
+  }
+
+  /**
+   * Derives a seeded row's id, exactly as {@code UNHEX(MD5(...))} does in
+   * {@link #seed(Database)}.
+   */
+  static UUID id(String key) {
+    try {
+      return SQLBuilder.bytesToUUID(
+          MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.US_ASCII)));
+    } catch(Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void reset(Database db) throws SQLException {
+    try(Connection con = db.connect(); Statement stmt = con.createStatement()) {
+      List<String> tables = new ArrayList<>();
+      try(ResultSet res = stmt.executeQuery(
+          "SELECT TABLE_NAME FROM information_schema.TABLES "
+              + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME LIKE 'audit\\_%'")) {
+        while(res.next()) tables.add("`" + res.getString(1) + "`");
+      }
+      if(tables.isEmpty()) return;
+      stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+      stmt.execute("DROP TABLE " + String.join(", ", tables));
+      stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+    }
+  }
+
+  // Straight through the sequence engine rather than the model: the model would
+  // take minutes to write this much, and would be audited doing it.
+  private static void seed(Database db) throws SQLException {
+    String e = "seq_1_to_" + EVENTS + " e";
+    String[] seeds = {
+      "INSERT INTO %1$suser (id, pubkey, email, access_level) "
+          + "SELECT UNHEX(MD5(CONCAT('user:', seq))), UNHEX(SHA2(CONCAT('key:', seq), 256)), "
+          + "CONCAT('user', seq, '@example.com'), 2 FROM seq_1_to_" + USERS,
+      "INSERT INTO %1$sevent (id, admin_user, short_description, long_description, first_draft, "
+          + "email_on_submission, allow_multiuser_signups, published) "
+          + "SELECT UNHEX(MD5(CONCAT('event:', seq))), UNHEX(MD5(CONCAT('user:', seq))), "
+          + "CONCAT('Event ', seq), '', NOW(), 0, 1, 1 FROM seq_1_to_" + EVENTS,
+      "INSERT INTO %1$sevent_window (id, event, begin_time, end_time) "
+          + "SELECT UNHEX(MD5(CONCAT('window:', e.seq, ':', w.seq))), UNHEX(MD5(CONCAT('event:', e.seq))), "
+          + "NOW() + INTERVAL (e.seq * 7 + w.seq) DAY, NOW() + INTERVAL (e.seq * 7 + w.seq) DAY + INTERVAL 1 HOUR "
+          + "FROM " + e + " JOIN seq_1_to_" + WINDOWS + " w",
+      "INSERT INTO %1$sactivity (id, event, short_description, long_description, "
+          + "max_activity_volunteers, max_slot_volunteers_default, priority) "
+          + "SELECT UNHEX(MD5(CONCAT('activity:', e.seq, ':', a.seq))), UNHEX(MD5(CONCAT('event:', e.seq))), "
+          + "CONCAT('Activity ', a.seq), '', 0, 255, a.seq "
+          + "FROM " + e + " JOIN seq_1_to_" + ACTIVITIES + " a",
+      "INSERT INTO %1$sdetail (id, event, detail_type, label, hint, priority, required) "
+          + "SELECT UNHEX(MD5(CONCAT('detail:', e.seq, ':', d.seq))), UNHEX(MD5(CONCAT('event:', e.seq))), "
+          + "0, CONCAT('Detail ', d.seq), '', d.seq, 0 "
+          + "FROM " + e + " JOIN seq_1_to_" + DETAILS + " d",
+      "INSERT INTO %1$sslot (activity, event_window, max_slot_volunteers) "
+          + "SELECT UNHEX(MD5(CONCAT('activity:', e.seq, ':', a.seq))), "
+          + "UNHEX(MD5(CONCAT('window:', e.seq, ':', w.seq))), 255 "
+          + "FROM " + e + " JOIN seq_1_to_" + ACTIVITIES + " a JOIN seq_1_to_" + WINDOWS + " w",
+      "INSERT INTO %1$svolunteer (id, user, event, name, reminders_enabled, ip_addr_bin, "
+          + "reminder_email, reminder_state) "
+          + "SELECT UNHEX(MD5(CONCAT('volunteer:', e.seq, ':', v.seq))), "
+          + "UNHEX(MD5(CONCAT('user:', MOD((e.seq - 1) * " + VOLUNTEERS + " + v.seq - 1, " + USERS + ") + 1))), "
+          + "UNHEX(MD5(CONCAT('event:', e.seq))), CONCAT('Volunteer ', v.seq), 1, INET6_ATON('127.0.0.1'), "
+          + "CONCAT('v', e.seq, '.', v.seq, '@example.com'), " + Volunteer.ReminderState.CONFIRMED.ordinal() + " "
+          + "FROM " + e + " JOIN seq_1_to_" + VOLUNTEERS + " v",
+      "INSERT INTO %1$srsvp (activity, event_window, volunteer) "
+          + "SELECT UNHEX(MD5(CONCAT('activity:', e.seq, ':', MOD(v.seq, " + ACTIVITIES + ") + 1))), "
+          + "UNHEX(MD5(CONCAT('window:', e.seq, ':', MOD(v.seq, " + WINDOWS + ") + 1))), "
+          + "UNHEX(MD5(CONCAT('volunteer:', e.seq, ':', v.seq))) "
+          + "FROM " + e + " JOIN seq_1_to_" + VOLUNTEERS + " v",
+      "INSERT INTO %1$svolunteer_detail (volunteer, detail_field, detail_value) "
+          + "SELECT UNHEX(MD5(CONCAT('volunteer:', e.seq, ':', v.seq))), "
+          + "UNHEX(MD5(CONCAT('detail:', e.seq, ':', d.seq))), 'x' "
+          + "FROM " + e + " JOIN seq_1_to_" + VOLUNTEERS + " v JOIN seq_1_to_" + DETAILS + " d",
+      // Half already reminded, so the sweep's anti-join has rows to exclude.
+      "INSERT INTO %1$sreminder_log (volunteer, window_begin, delivered) "
+          + "SELECT UNHEX(MD5(CONCAT('volunteer:', e.seq, ':', v.seq))), "
+          + "NOW() + INTERVAL (e.seq * 7 + 1) DAY, 1 "
+          + "FROM " + e + " JOIN seq_1_to_" + VOLUNTEERS + " v WHERE MOD(v.seq, 2) = 0"
+    };
+
+    try(Connection con = db.connect(); Statement stmt = con.createStatement()) {
+      for(var seed : seeds)
+        stmt.executeUpdate(String.format(seed, PREFIX));
+      // Fresh statistics, or the optimizer plans for the empty tables the
+      // migrations left.
+      for(var table : new String[] {
+          "user", "event", "event_window", "activity", "detail", "slot",
+          "volunteer", "rsvp", "volunteer_detail", "reminder_log" })
+        stmt.executeQuery("ANALYZE TABLE " + PREFIX + table).close();
+    }
+  }
+
+  /**
+   * Hands out connections whose prepared statements explain themselves before
+   * they run.
+   */
+  private static final class ExplainingDatabase extends Database {
+
+    private final List<Plan> plans;
+
+    private ExplainingDatabase(String location, String username, String password, List<Plan> plans) {
+      super(location, PREFIX, username, password, false);
+      this.plans = plans;
+    }
+
+    @Override public Connection connect() throws SQLException {
+      Connection con = super.connect();
+      return (Connection)Proxy.newProxyInstance(
+          Connection.class.getClassLoader(),
+          new Class<?>[] { Connection.class },
+          (proxy, method, args) -> {
+            Object result = invoke(con, method, args);
+            if("prepareStatement".equals(method.getName()))
+              return explaining(con, (PreparedStatement)result, (String)args[0]);
+            return result;
+          });
+    }
+
+    private PreparedStatement explaining(Connection con, PreparedStatement stmt, String sql) {
+      Map<Integer, Object[]> binds = new TreeMap<>();
+      Map<Integer, Method> setters = new TreeMap<>();
+      return (PreparedStatement)Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(),
+          new Class<?>[] { PreparedStatement.class },
+          (proxy, method, args) -> {
+            String name = method.getName();
+            if(name.startsWith("set") && null != args && 2 <= args.length && args[0] instanceof Integer index) {
+              binds.put(index, args);
+              setters.put(index, method);
+            } else if("clearParameters".equals(name)) {
+              binds.clear();
+              setters.clear();
+            } else if((null == args || 0 == args.length)
+                && ("executeQuery".equals(name) || "executeUpdate".equals(name) || "execute".equals(name))) {
+              explain(con, sql, binds, setters);
+            }
+            return invoke(stmt, method, args);
+          });
+    }
+
+    private void explain(
+        Connection con, String sql, Map<Integer, Object[]> binds, Map<Integer, Method> setters)
+        throws Exception {
+      String verb = sql.stripLeading().split("\\s", 2)[0].toUpperCase();
+      if(!"SELECT".equals(verb) && !"UPDATE".equals(verb) && !"DELETE".equals(verb)) return;
+
+      try(PreparedStatement explain = con.prepareStatement("EXPLAIN " + sql)) {
+        for(var bind : binds.entrySet())
+          setters.get(bind.getKey()).invoke(explain, bind.getValue());
+        try(ResultSet res = explain.executeQuery()) {
+          while(res.next()) {
+            String table = res.getString("table");
+            plans.add(
+                new Plan(
+                    sql,
+                    null == table ? "" : table,
+                    res.getString("type"),
+                    res.getString("key"),
+                    res.getLong("rows")));
+          }
+        }
+      }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch(InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
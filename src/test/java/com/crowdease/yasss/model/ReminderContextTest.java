@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import com.crowdease.yasss.model.Volunteer.PendingReminder;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers rendering a reminder from a preloaded batch.
+ *
+ * <p>The loader is four grouped selects and is exercised end to end. What is
+ * pinned here is that one batch's rows stay with the reminders they belong
+ * to: two volunteers on one event see only their own slots, and a volunteer
+ * holding nothing gets the empty list the per-reminder path rendered.
+ *
+ * @author Caleb L. Power
+ */
+public class ReminderContextTest {
+
+  private static final UUID EVENT = UUID.randomUUID();
+  private static final UUID SETUP = UUID.randomUUID();
+  private static final UUID MORNING = UUID.randomUUID();
+  private static final UUID AFTERNOON = UUID.randomUUID();
+
+  private static Timestamp at(String iso) {
+    return Timestamp.from(Instant.parse(iso));
+  }
+
+  private static PendingReminder due(UUID volunteer, UUID event) {
+    return new PendingReminder(
+        volunteer, event, "Sam", "sam@example.com", UUID.randomUUID(), "Cleanup",
+        at("2026-01-15T14:00:00Z"));
+  }
+
+  private static ReminderContext context(Map<UUID, Map<UUID, Set<UUID>>> claims) {
+    Set<Activity> activities = new TreeSet<>();
+    activities.add(new Activity(SETUP, EVENT, "Setup", "", 0, 0, 0));
+
+    Set<Window> windows = new TreeSet<>();
+    windows.add(new Window(MORNING, EVENT, at("2026-01-15T14:00:00Z"), at("2026-01-15T16:00:00Z")));
+    windows.add(new Window(AFTERNOON, EVENT, at("2026-01-15T20:00:00Z"), at("2026-01-15T22:00:00Z")));
+
+    return new ReminderContext(
+        Map.of(EVENT, "America/Chicago"),
+        Map.of(EVENT, activities),
+        Map.of(EVENT, windows),
+        claims);
+  }
+
+  @Test public void rsvpList_rendersOnlyThatVolunteersSlots() {
+    UUID early = UUID.randomUUID(), late = UUID.randomUUID();
+    ReminderContext context = context(
+        Map.of(
+            early, Map.of(SETUP, Set.of(MORNING)),
+            late, Map.of(SETUP, Set.of(AFTERNOON))));
+
+    String html = context.rsvpList(due(early, EVENT));
+    assertTrue(html.contains("Setup"), html);
+    assertTrue(html.contains("01/15/2026 08:00 AM"), html);
+    assertFalse(html.contains("02:00 PM"), html);
+  }
+
+  @Test public void rsvpList_isEmptyForAVolunteerHoldingNothing() {
+    ReminderContext context = context(Map.of());
+    assertEquals(context.rsvpList(due(UUID.randomUUID(), EVENT)), "<ul></ul>");
+  }
+
+  @Test public void hasEvent_reportsAnEventGoneSinceTheScan() {
+    ReminderContext context = context(Map.of());
+    UUID gone = UUID.randomUUID();
+    assertTrue(context.hasEvent(EVENT));
+    assertFalse(context.hasEvent(gone));
+    assertNull(context.getTimezone(gone));
+    assertEquals(context.rsvpList(due(UUID.randomUUID(), gone)), "<ul></ul>");
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import com.axonibyte.lib.db.Database;
+import com.axonibyte.lib.db.SQLBuilder;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+/**
+ * Insert throughput into a large volunteer-shaped table, random keys against
+ * time-ordered ones.
+ *
+ * <p>Not part of {@code gradle test}: it needs a real MariaDB and takes
+ * minutes. Run it with {@code gradle benchmark}, pointed at a scratch
+ * database:
+ *
+ * <pre>
+ * podman run --rm -d --name bench -p 3306:3306 -e MARIADB_ROOT_PASSWORD=bench \
+ *     -e MARIADB_DATABASE=bench mariadb:11 --innodb-buffer-pool-size=64M
+ * gradle benchmark -Dyasss.bench.db=127.0.0.1:3306/bench \
+ *     -Dyasss.bench.user=root -Dyasss.bench.password=bench
+ * </pre>
+ *
+ * <p>The small buffer pool is the point. While the whole index fits in
+ * memory, random keys cost little more than ordered ones; the difference
+ * this measures is what happens once a table outgrows the pool, and a scratch
+ * table gets there far sooner against sixty-four megabytes than against a
+ * production-sized pool. {@code yasss.bench.rows} sets how many rows are
+ * loaded before timing starts.
+ *
+ * @author Caleb L. Power
+ */
+public class RowIDBenchmark {
+
+  private static final int BATCH = 500;
+
+  @Test(groups = "benchmark") public void insertThroughput() throws Exception {
+    String location = System.getProperty("yasss.bench.db");
+    if(null == location)
+      throw new SkipException("yasss.bench.db is not set");
+
+    int preload = Integer.getInteger("yasss.bench.rows", 1_000_000);
+    int timed = Integer.getInteger("yasss.bench.timed", 200_000);
+
+    Database db = new Database(
+        location,
+        "bench_",
+        System.getProperty("yasss.bench.user"),
+        System.getProperty("yasss.bench.password"),
+        false);
+
+    double random = run(db, "bench_random", UUID::randomUUID, preload, timed);
+    double ordered = run(db, "bench_ordered", RowID::generate, preload, timed);
+
+    System.out.printf(
+        "rows=%1$d timed=%2$d random=%3$.0f/s ordered=%4$.0f/s gain=%5$.2fx%n",
+        preload, timed, random, ordered, ordered / random);
+  }
+
+  private static double run(
+      Database db, String table, Supplier<UUID> ids, int preload, int timed) throws Exception {
+    Connection con = null;
+    Statement ddl = null;
+    PreparedStatement stmt = null;
+
+    try {
+      con = db.connect();
+      ddl = con.createStatement();
+      ddl.execute("DROP TABLE IF EXISTS " + table);
+      ddl.execute(
+          "CREATE TABLE " + table + " ("
+          + "id BINARY(16) NOT NULL, "
+          + "user BINARY(16), "
+          + "event BINARY(16) NOT NULL, "
+          + "name VARCHAR(255) NOT NULL, "
+          + "reminders_enabled BIT NOT NULL, "
+          + "PRIMARY KEY (id)"
+          + ")Engine=InnoDB");
+
+      con.setAutoCommit(false);
+      stmt = con.prepareStatement(
+          new SQLBuilder()
+              .insert(table, "id", "user", "event", "name", "reminders_enabled")
+              .toString());
+
+      UUID event = UUID.randomUUID();
+      insert(con, stmt, ids, event, preload);
+
+      long start = System.nanoTime();
+      insert(con, stmt, ids, event, timed);
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      ddl.execute("DROP TABLE " + table);
+      return timed / seconds;
+
+    } finally {
+      if(null != ddl) ddl.close();
+      if(null != con) con.setAutoCommit(true);
+      db.close(con, stmt, null);
+    }
+  }
+
+  private static void insert(
+      Connection con, PreparedStatement stmt, Supplier<UUID> ids, UUID event, int rows)
+      throws Exception {
+    byte[] eventBytes = SQLBuilder.uuidToBytes(event);
+    for(int i = 0; i < rows; i++) {
+      stmt.setBytes(1, SQLBuilder.uuidToBytes(ids.get()));
+      stmt.setBytes(2, null);
+      stmt.setBytes(3, eventBytes);
+      stmt.setString(4, "Volunteer " + i);
+      stmt.setBoolean(5, false);
+      stmt.addBatch();
+      if(0 == (i + 1) % BATCH) {
+        stmt.executeBatch();
+        con.commit();
+      }
+    }
+    stmt.executeBatch();
+    con.commit();
+  }
+}
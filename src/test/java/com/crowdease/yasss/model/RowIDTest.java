@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers the layout and ordering of new row ids.
+ *
+ * <p>Ordering is compared on the stored bytes rather than on
+ * {@link UUID#compareTo}, which compares signed longs and so disagrees with
+ * MariaDB about any id whose top bit is set. The index is what has to stay
+ * append-only, and the index sees bytes.
+ *
+ * @author Caleb L. Power
+ */
+public class RowIDTest {
+
+  private static int compareStored(UUID a, UUID b) {
+    int msb = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+    return 0 != msb
+        ? msb
+        : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+  }
+
+  @Test public void generate_isVersionSevenWithTheRFCVariant() {
+    UUID id = RowID.generate();
+    assertEquals(id.version(), 7);
+    assertEquals(id.variant(), 2);
+  }
+
+  @Test public void generate_carriesTheCreationTime() {
+    long before = System.currentTimeMillis();
+    UUID id = RowID.generate();
+    long after = System.currentTimeMillis();
+    assertTrue(before <= RowID.millis(id) && RowID.millis(id) <= after);
+    assertEquals(RowID.millis(UUID.randomUUID()), -1L);
+  }
+
+  @Test public void generate_neverGoesBackwards() {
+    // Far more than the counter holds in one millisecond, so this crosses
+    // both the counter's rollover and ordinary clock ticks.
+    UUID prev = RowID.generate();
+    for(int i = 0; i < 100_000; i++) {
+      UUID next = RowID.generate();
+      assertTrue(0 > compareStored(prev, next), prev + " then " + next);
+      prev = next;
+    }
+  }
+
+  @Test public void generate_survivesTheClockSteppingBack() {
+    UUID now = RowID.generate();
+    UUID earlier = RowID.generate(RowID.millis(now) - 60_000L);
+    assertTrue(0 > compareStored(now, earlier));
+    assertEquals(earlier.version(), 7);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers the lookups on an event's packed seat counts.
+ *
+ * <p>The ids are chosen to straddle the sign bit, since the keys are compared
+ * as signed longs and an activity's total relies on its slots being adjacent
+ * in that order.
+ *
+ * @author Caleb L. Power
+ */
+public class SlotCountsTest {
+
+  private static final UUID A1 = UUID.fromString("00000000-0000-0001-0000-000000000000");
+  private static final UUID A2 = UUID.fromString("ffffffff-0000-0001-0000-000000000000");
+  private static final UUID A3 = UUID.fromString("7fffffff-0000-0001-0000-000000000000");
+  private static final UUID W1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+  private static final UUID W2 = UUID.fromString("80000000-0000-0000-8000-000000000000");
+  private static final UUID W3 = UUID.fromString("00000000-0000-0000-ffff-ffffffffffff");
+
+  @Test public void count_findsEachSlotWhateverOrderItWasAdded() {
+    SlotCounts counts = new SlotCounts.Builder()
+        .add(A2, W3, 4)
+        .add(A1, W2, 2)
+        .add(A2, W1, 3)
+        .add(A1, W1, 1)
+        .build();
+    assertEquals(counts.size(), 4);
+    assertEquals(counts.count(A1, W1), 1);
+    assertEquals(counts.count(A1, W2), 2);
+    assertEquals(counts.count(A2, W1), 3);
+    assertEquals(counts.count(A2, W3), 4);
+  }
+
+  @Test public void count_isZeroForAnEmptySlot() {
+    SlotCounts counts = new SlotCounts.Builder().add(A1, W1, 1).build();
+    assertEquals(counts.count(A1, W2), 0);
+    assertEquals(counts.count(A2, W1), 0);
+  }
+
+  @Test public void total_sumsOnlyThatActivity() {
+    SlotCounts counts = new SlotCounts.Builder()
+        .add(A1, W1, 1)
+        .add(A2, W2, 10)
+        .add(A1, W2, 2)
+        .add(A2, W3, 20)
+        .add(A1, W3, 4)
+        .build();
+    assertEquals(counts.total(A1), 7);
+    assertEquals(counts.total(A2), 30);
+    assertEquals(counts.total(A3), 0);
+  }
+
+  @Test public void build_growsPastItsFirstArrays() {
+    SlotCounts.Builder builder = new SlotCounts.Builder();
+    for(int i = 0; i < 100; i++)
+      builder.add(A1, new UUID(i, -i), i);
+    SlotCounts counts = builder.build();
+    assertEquals(counts.size(), 100);
+    assertEquals(counts.count(A1, new UUID(57, -57)), 57);
+    assertEquals(counts.total(A1), 4950);
+  }
+
+  @Test public void build_ofNothingIsEmpty() {
+    assertSame(new SlotCounts.Builder().build(), SlotCounts.EMPTY);
+    assertEquals(SlotCounts.EMPTY.total(A1), 0);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers how a sweep's place moves from one chunk to the next.
+ *
+ * <p>Getting this wrong is silent either way. A checkpoint that finishes early
+ * leaves the rest of the table unswept for good, since a finished sweep is
+ * never looked at again; one that never finishes rescans the table on every
+ * boot, which is the cost the checkpoints exist to remove.
+ *
+ * @author Caleb L. Power
+ */
+public class SweepCheckpointTest {
+
+  private static final UUID A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+  private static final UUID B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+  @Test public void after_startsBelowEveryKey() {
+    SweepCheckpoint fresh = new SweepCheckpoint("s", null, 0L, 0L);
+    assertEquals(fresh.after(), SweepCheckpoint.START);
+    assertFalse(fresh.isComplete());
+  }
+
+  @Test public void advance_movesPastAFullChunkWithoutFinishing() {
+    SweepCheckpoint next = new SweepCheckpoint("s", A, 10L, 0L)
+        .advance(new SweepCheckpoint.Chunk(5, B), 5, 1_000L);
+    assertEquals(next.after(), B);
+    assertEquals(next.processed(), 15L);
+    assertFalse(next.isComplete());
+  }
+
+  @Test public void advance_finishesOnAShortChunk() {
+    SweepCheckpoint next = new SweepCheckpoint("s", A, 10L, 0L)
+        .advance(new SweepCheckpoint.Chunk(2, B), 5, 1_000L);
+    assertEquals(next.after(), B);
+    assertEquals(next.completedAt(), 1_000L);
+    assertTrue(next.isComplete());
+  }
+
+  @Test public void advance_keepsItsPlaceOnAnEmptyChunk() {
+    SweepCheckpoint next = new SweepCheckpoint("s", A, 10L, 0L)
+        .advance(SweepCheckpoint.Chunk.EMPTY, 5, 1_000L);
+    assertEquals(next.after(), A);
+    assertEquals(next.processed(), 10L);
+    assertTrue(next.isComplete());
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.crowdease.yasss.model.VolunteerExport.Format;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers turning the export query's rows into one record per volunteer.
+ *
+ * <p>The rows arrive as the query orders them -- a volunteer, then its answers,
+ * then its RSVPs -- and are fed in here the same way.
+ *
+ * @author Caleb L. Power
+ */
+public class VolunteerExportTest {
+
+  private static final UUID EVENT = UUID.randomUUID();
+  private static final UUID ACTIVITY = UUID.randomUUID();
+  private static final UUID WINDOW = UUID.randomUUID();
+  private static final UUID ADA = UUID.randomUUID();
+  private static final UUID GRACE = UUID.randomUUID();
+
+  private static final Detail SHIRT =
+      new Detail(UUID.randomUUID(), EVENT, Detail.Type.STRING, "Shirt Size", "", 0, true);
+  private static final Detail PHONE =
+      new Detail(UUID.randomUUID(), EVENT, Detail.Type.STRING, "Phone", "", 1, false);
+
+  private static String export(Format format) throws Exception {
+    StringWriter out = new StringWriter();
+    VolunteerExport export = new VolunteerExport(format, List.of(SHIRT, PHONE), out);
+    export.header();
+    export.volunteer(ADA, null, "Ada", false);
+    export.answer(ADA, PHONE.getID(), "+1 555 0100");
+    export.answer(ADA, SHIRT.getID(), "M");
+    export.answer(ADA, UUID.randomUUID(), "a field removed since");
+    export.rsvp(ADA, ACTIVITY, WINDOW);
+    export.rsvp(ADA, ACTIVITY, UUID.randomUUID());
+    export.volunteer(GRACE, UUID.randomUUID(), "Grace", true);
+    export.answer(ADA, SHIRT.getID(), "not Grace's");
+    export.finish();
+    return out.toString();
+  }
+
+  @Test public void csv_writesAColumnPerField() throws Exception {
+    CSVReader csv = new CSVReader(new StringReader(export(Format.CSV)));
+    assertEquals(csv.next(), List.of("name", "Shirt Size", "Phone", "rsvps"));
+
+    List<String> ada = csv.next();
+    assertEquals(ada.subList(0, 3), List.of("Ada", "M", "'+1 555 0100"));
+    assertEquals(ada.get(3).split(";").length, 2);
+    assertTrue(ada.get(3).startsWith(ACTIVITY + ":" + WINDOW + ";"));
+
+    assertEquals(csv.next(), List.of("Grace", "", "", ""));
+    assertNull(csv.next());
+  }
+
+  @Test public void csv_readsBackAsAnImport() throws Exception {
+    // The export's columns are the import's, so an organizer can edit the
+    // file and hand it back.
+    VolunteerImport batch = new VolunteerImport(
+        EVENT,
+        List.of(SHIRT, PHONE),
+        Map.of(ACTIVITY, Map.of(WINDOW, new Slot(ACTIVITY, WINDOW, 0))));
+    StringWriter out = new StringWriter();
+    VolunteerExport export = new VolunteerExport(Format.CSV, List.of(SHIRT, PHONE), out);
+    export.header();
+    export.volunteer(ADA, null, "Ada", false);
+    export.answer(ADA, SHIRT.getID(), "M");
+    export.rsvp(ADA, ACTIVITY, WINDOW);
+    export.finish();
+
+    batch.readCSV(new CSVReader(new StringReader(out.toString())));
+    assertTrue(batch.rejections().isEmpty(), batch.rejections().toString());
+    assertEquals(batch.pending(), 1);
+  }
+
+  @Test public void ndjson_writesOneLinePerVolunteer() throws Exception {
+    String[] lines = export(Format.NDJSON).split("\n", -1);
+    assertEquals(lines.length, 3);
+    assertEquals(lines[2], "");
+    assertTrue(lines[0].contains("\"name\":\"Ada\""), lines[0]);
+    assertTrue(lines[0].contains("\"value\":\"+1 555 0100\""), lines[0]);
+    assertTrue(lines[0].contains("\"user\":null"), lines[0]);
+    assertTrue(!lines[0].contains("removed since"), lines[0]);
+    assertTrue(lines[1].contains("\"details\":[]"), lines[1]);
+    assertTrue(lines[1].contains("\"remindersEnabled\":true"), lines[1]);
+  }
+
+  @Test public void fromParam_defaultsToCSV() {
+    assertEquals(Format.fromParam(null), Format.CSV);
+    assertEquals(Format.fromParam(" NDJSON "), Format.NDJSON);
+    assertNull(Format.fromParam("xlsx"));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2024 CrowdEase, LLC.
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ */
+package com.crowdease.yasss.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.crowdease.yasss.model.VolunteerImport.Outcome;
+
+import org.testng.annotations.Test;
+
+/**
+ * Covers checking an import's rows before anything is written.
+ *
+ * <p>The point of validating up front is that a bad row is reported against
+ * the row the organizer can find in their spreadsheet, and does not stop the
+ * good ones. The writes themselves are the signup path's, and are covered
+ * end to end.
+ *
+ * @author Caleb L. Power
+ */
+public class VolunteerImportTest {
+
+  private static final UUID EVENT = UUID.randomUUID();
+  private static final UUID ACTIVITY = UUID.randomUUID();
+  private static final UUID WINDOW = UUID.randomUUID();
+
+  private static final Detail SHIRT =
+      new Detail(UUID.randomUUID(), EVENT, Detail.Type.STRING, "Shirt Size", "", 0, true);
+  private static final Detail EMAIL =
+      new Detail(UUID.randomUUID(), EVENT, Detail.Type.EMAIL, "Email", "", 1, false);
+
+  private static VolunteerImport batch() {
+    return new VolunteerImport(
+        EVENT,
+        List.of(SHIRT, EMAIL),
+        Map.of(ACTIVITY, Map.of(WINDOW, new Slot(ACTIVITY, WINDOW, 0))));
+  }
+
+  private static VolunteerImport read(String text) throws Exception {
+    VolunteerImport batch = batch();
+    batch.readCSV(new CSVReader(new StringReader(text)));
+    return batch;
+  }
+
+  @Test public void readCSV_matchesColumnsByLabelOrID() throws Exception {
+    VolunteerImport batch = read(
+        "Name, shirt size ," + EMAIL.getID() + ",rsvps\n"
+            + "Ada,M,ADA@example.com," + ACTIVITY + ":" + WINDOW + "\n"
+            + "Grace,L,,\n");
+    assertTrue(batch.rejections().isEmpty(), batch.rejections().toString());
+    assertEquals(batch.pending(), 2);
+  }
+
+  @Test public void readCSV_reportsBadRowsByTheirLineAndKeepsTheRest() throws Exception {
+    VolunteerImport batch = read(
+        "name,Shirt Size,Email,rsvps\n"
+            + "Ada,M,,\n"                                   // 2: fine
+            + ",M,,\n"                                      // 3: no name
+            + "Grace,,,\n"                                  // 4: required field
+            + "Linus,L,not-an-address,\n"                   // 5: bad email
+            + "\"Barbara\nLiskov\",S,," + UUID.randomUUID() + ":" + WINDOW + "\n" // 6-7
+            + "Ken,M,," + ACTIVITY + ":" + UUID.randomUUID() + "\n"            // 8
+            + "\n"                                          // 9: blank, skipped
+            + "Dennis,M,,nonsense\n");                      // 10
+    assertEquals(batch.pending(), 1);
+    assertEquals(
+        batch.rejections(),
+        List.of(
+            new Outcome(3, null, "malformed argument (name)"),
+            new Outcome(4, null, "missing required detail"),
+            new Outcome(5, null, "malformed argument (details[].value)"),
+            new Outcome(6, null, "activity not found"),
+            new Outcome(8, null, "window/slot not found"),
+            new Outcome(10, null, "malformed argument (rsvps)")));
+  }
+
+  @Test public void readCSV_refusesAHeaderItCannotPlace() {
+    IllegalArgumentException e = expectThrows(
+        IllegalArgumentException.class, () -> read("name,Favorite Color\nAda,blue\n"));
+    assertEquals(e.getMessage(), "unknown column (Favorite Color)");
+    e = expectThrows(IllegalArgumentException.class, () -> read("Shirt Size\nM\n"));
+    assertEquals(e.getMessage(), "missing column (name)");
+  }
+
+  @Test public void readCSV_stopsAtTheRowLimit() throws Exception {
+    StringBuilder text = new StringBuilder("name,Shirt Size\n");
+    for(int i = 0; i <= VolunteerImport.MAX_ROWS; i++)
+      text.append("V").append(i).append(",M\n");
+    assertTrue(read(text.toString()).overflowed());
+
+    text.setLength(0);
+    text.append("name,Shirt Size\n");
+    for(int i = 0; i < VolunteerImport.MAX_ROWS; i++)
+      text.append("V").append(i).append(",M\n");
+    assertFalse(read(text.toString()).overflowed());
+  }
+
+  @Test public void add_boundsAnswersAsTheColumnsDo() {
+    VolunteerImport batch = batch();
+    batch.add(0, "Ada", Map.of(SHIRT.getID(), "x".repeat(256)), List.of());
+    batch.add(1, "Ada", Map.of(SHIRT.getID(), "🎉".repeat(255)), List.of());
+    assertEquals(batch.pending(), 1);
+    assertEquals(
+        batch.rejections(),
+        List.of(new Outcome(0, null, "malformed argument (string too long: details[].value)")));
+  }
+}